@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import java.util.Arrays;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * The index of the records in a {@link SortWriteBuffer}, packed in a long array instead of an
+ * object per record. Every record takes 3 longs: the key prefix, the position of the key as the
+ * buffer index and the offset in the buffer, and the lengths of the key and the value.
+ *
+ * <p>The key prefix is the first 8 bytes of the key normalized so that the prefixes compare as
+ * unsigned longs in the same order as the keys, it's only computed for the comparators of the
+ * common writable keys and is 0 for the others. The records are sorted by a stable merge sort,
+ * which compares the prefixes first and only calls the raw comparator when they are equal.
+ */
+class SortRecordIndex {
+
+  private static final int SLOTS = 3;
+  private static final int INITIAL_CAPACITY = 1024;
+  // the runs sorted by the insertion sort before merging them
+  private static final int RUN_LENGTH = 32;
+
+  private long[] array = new long[INITIAL_CAPACITY * SLOTS];
+  private int size = 0;
+
+  void add(long prefix, int keyIndex, int keyOffset, int keyLength, int valueLength) {
+    int pos = size * SLOTS;
+    if (pos + SLOTS > array.length) {
+      int newCapacity = size + (size >> 1);
+      if ((long) newCapacity * SLOTS > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Too many records in the sort buffer: " + size);
+      }
+      array = Arrays.copyOf(array, newCapacity * SLOTS);
+    }
+    array[pos] = prefix;
+    array[pos + 1] = (long) keyIndex << 32 | (keyOffset & 0xFFFFFFFFL);
+    array[pos + 2] = (long) keyLength << 32 | (valueLength & 0xFFFFFFFFL);
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+    if (array.length > INITIAL_CAPACITY * SLOTS) {
+      array = new long[INITIAL_CAPACITY * SLOTS];
+    }
+  }
+
+  int getKeyIndex(int i) {
+    return (int) (array[i * SLOTS + 1] >>> 32);
+  }
+
+  int getKeyOffset(int i) {
+    return (int) array[i * SLOTS + 1];
+  }
+
+  int getKeyLength(int i) {
+    return (int) (array[i * SLOTS + 2] >>> 32);
+  }
+
+  int getValueLength(int i) {
+    return (int) array[i * SLOTS + 2];
+  }
+
+  /** Sorts the records, the records with the same key keep the order they are added in. */
+  void sort(KeyComparator comparator) {
+    if (size < 2) {
+      return;
+    }
+    for (int lo = 0; lo < size; lo += RUN_LENGTH) {
+      insertionSort(lo, Math.min(lo + RUN_LENGTH, size), comparator);
+    }
+    if (size <= RUN_LENGTH) {
+      return;
+    }
+    long[] src = array;
+    long[] dst = new long[array.length];
+    for (int width = RUN_LENGTH; width < size; width <<= 1) {
+      for (int lo = 0; lo < size; lo += width << 1) {
+        int mid = Math.min(lo + width, size);
+        int hi = Math.min(lo + (width << 1), size);
+        merge(src, dst, lo, mid, hi, comparator);
+      }
+      long[] tmp = src;
+      src = dst;
+      dst = tmp;
+    }
+    array = src;
+  }
+
+  private void insertionSort(int lo, int hi, KeyComparator comparator) {
+    for (int i = lo + 1; i < hi; i++) {
+      int pos = i * SLOTS;
+      long prefix = array[pos];
+      long position = array[pos + 1];
+      long lengths = array[pos + 2];
+      int j = i - 1;
+      while (j >= lo) {
+        int prev = j * SLOTS;
+        int result =
+            compare(
+                array[prev],
+                array[prev + 1],
+                array[prev + 2],
+                prefix,
+                position,
+                lengths,
+                comparator);
+        if (result <= 0) {
+          break;
+        }
+        System.arraycopy(array, prev, array, prev + SLOTS, SLOTS);
+        j--;
+      }
+      int dest = (j + 1) * SLOTS;
+      array[dest] = prefix;
+      array[dest + 1] = position;
+      array[dest + 2] = lengths;
+    }
+  }
+
+  private static void merge(
+      long[] src, long[] dst, int lo, int mid, int hi, KeyComparator comparator) {
+    int i = lo;
+    int j = mid;
+    int k = lo * SLOTS;
+    while (i < mid && j < hi) {
+      int left = i * SLOTS;
+      int right = j * SLOTS;
+      // take the left one when they are equal to keep the sort stable
+      if (compare(
+              src[left],
+              src[left + 1],
+              src[left + 2],
+              src[right],
+              src[right + 1],
+              src[right + 2],
+              comparator)
+          <= 0) {
+        System.arraycopy(src, left, dst, k, SLOTS);
+        i++;
+      } else {
+        System.arraycopy(src, right, dst, k, SLOTS);
+        j++;
+      }
+      k += SLOTS;
+    }
+    if (i < mid) {
+      System.arraycopy(src, i * SLOTS, dst, k, (mid - i) * SLOTS);
+    } else if (j < hi) {
+      System.arraycopy(src, j * SLOTS, dst, k, (hi - j) * SLOTS);
+    }
+  }
+
+  private static int compare(
+      long prefix1,
+      long position1,
+      long lengths1,
+      long prefix2,
+      long position2,
+      long lengths2,
+      KeyComparator comparator) {
+    int result = Long.compareUnsigned(prefix1, prefix2);
+    if (result != 0) {
+      return result;
+    }
+    return comparator.compare(
+        (int) (position1 >>> 32),
+        (int) position1,
+        (int) (lengths1 >>> 32),
+        (int) (position2 >>> 32),
+        (int) position2,
+        (int) (lengths2 >>> 32));
+  }
+
+  /** Compares the keys of two records by their positions. */
+  interface KeyComparator {
+    int compare(
+        int keyIndex1,
+        int keyOffset1,
+        int keyLength1,
+        int keyIndex2,
+        int keyOffset2,
+        int keyLength2);
+  }
+
+  /** Computes the prefix of a serialized key. */
+  interface PrefixComputer {
+    long computePrefix(byte[] bytes, int offset, int length);
+  }
+
+  /**
+   * @return the prefix computer matching the order of the comparator, or null if the comparator is
+   *     null or isn't known
+   */
+  static PrefixComputer getPrefixComputer(RawComparator<?> comparator) {
+    if (comparator == null) {
+      return null;
+    }
+    // subclasses may change the order, so only the exact classes are known
+    Class<?> clazz = comparator.getClass();
+    if (clazz == Text.Comparator.class) {
+      return (bytes, offset, length) -> {
+        int vintSize = WritableUtils.decodeVIntSize(bytes[offset]);
+        return bytesPrefix(bytes, offset + vintSize, length - vintSize);
+      };
+    }
+    if (clazz == BytesWritable.Comparator.class) {
+      return (bytes, offset, length) -> bytesPrefix(bytes, offset + 4, length - 4);
+    }
+    if (clazz == IntWritable.Comparator.class) {
+      return (bytes, offset, length) ->
+          (WritableComparator.readInt(bytes, offset) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+    if (clazz == LongWritable.Comparator.class) {
+      return (bytes, offset, length) ->
+          WritableComparator.readLong(bytes, offset) ^ Long.MIN_VALUE;
+    }
+    return null;
+  }
+
+  // the first 8 bytes in big endian, padded with zeros
+  private static long bytesPrefix(byte[] bytes, int offset, int length) {
+    long prefix = 0;
+    int n = Math.min(length, 8);
+    for (int i = 0; i < n; i++) {
+      prefix |= (bytes[offset + i] & 0xFFL) << (56 - 8 * i);
+    }
+    return prefix;
+  }
+}
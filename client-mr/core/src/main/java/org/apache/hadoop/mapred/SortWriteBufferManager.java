@@ -49,10 +49,12 @@ import org.apache.uniffle.client.response.SendShuffleDataResult;
 import org.apache.uniffle.common.ShuffleBlockInfo;
 import org.apache.uniffle.common.ShuffleServerInfo;
 import org.apache.uniffle.common.compression.Codec;
+import org.apache.uniffle.common.config.RssClientConf;
 import org.apache.uniffle.common.config.RssConf;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.serializer.SerializerFactory;
 import org.apache.uniffle.common.serializer.SerializerInstance;
+import org.apache.uniffle.common.util.ChecksumType;
 import org.apache.uniffle.common.util.ChecksumUtils;
 import org.apache.uniffle.common.util.JavaUtils;
 import org.apache.uniffle.common.util.ThreadUtils;
@@ -100,6 +102,7 @@ public class SortWriteBufferManager<K, V> {
   private final long maxBufferSize;
   private final ExecutorService sendExecutorService;
   private final RssConf rssConf;
+  private final ChecksumType checksumType;
   private final Optional<Codec> codec;
   private final Task.CombinerRunner<K, V> combinerRunner;
   private final boolean useUniffleSerializer;
@@ -156,6 +159,7 @@ public class SortWriteBufferManager<K, V> {
     this.sendExecutorService = ThreadUtils.getDaemonFixedThreadPool(sendThreadNum, "send-thread");
     this.rssConf = rssConf;
     this.codec = Codec.newInstance(rssConf);
+    this.checksumType = rssConf.get(RssClientConf.RSS_CLIENT_CHECKSUM_TYPE);
     this.combinerRunner = combinerRunner;
     this.useUniffleSerializer = useUniffleSerializer;
     if (useUniffleSerializer) {
@@ -414,7 +418,7 @@ public class SortWriteBufferManager<K, V> {
     long start = System.currentTimeMillis();
     final byte[] compressed =
         useUniffleSerializer ? data : codec.map(c -> c.compress(data)).orElse(data);
-    final long crc32 = ChecksumUtils.getCrc32(compressed);
+    final long crc32 = ChecksumUtils.getChecksum(checksumType, compressed);
     compressTime += System.currentTimeMillis() - start;
     final long blockId =
         RssMRUtils.getBlockId(partitionId, taskAttemptId, getNextSeqNo(partitionId));
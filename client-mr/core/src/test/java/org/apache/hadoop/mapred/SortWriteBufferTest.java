@@ -25,10 +25,13 @@ import java.util.Map;
 import java.util.Random;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.RawComparator;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
 import org.apache.hadoop.io.WritableComparator;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.io.serializer.Deserializer;
@@ -219,6 +222,73 @@ public class SortWriteBufferTest {
     }
   }
 
+  @Test
+  public void testSortWithKeyPrefix() throws IOException {
+    Random random = new Random();
+    List<Text> texts = Lists.newArrayList();
+    for (int i = 0; i < 5000; i++) {
+      // the keys share long prefixes, so that many of them are only ordered by the comparator
+      StringBuilder sb = new StringBuilder(random.nextBoolean() ? "prefix_of_key_" : "");
+      int length = random.nextInt(12);
+      for (int j = 0; j < length; j++) {
+        sb.append((char) ('a' + random.nextInt(3)));
+      }
+      if (random.nextInt(10) == 0) {
+        sb.append('\u00e9');
+      }
+      texts.add(new Text(sb.toString()));
+    }
+    checkSort(Text.class, texts, WritableComparator.get(Text.class));
+    // a comparator without a known prefix
+    checkSort(Text.class, texts, new WritableComparator(Text.class, true) {});
+
+    List<IntWritable> ints = Lists.newArrayList();
+    for (int i = 0; i < 5000; i++) {
+      ints.add(new IntWritable(random.nextInt(200) - 100));
+    }
+    ints.add(new IntWritable(Integer.MIN_VALUE));
+    ints.add(new IntWritable(Integer.MAX_VALUE));
+    checkSort(IntWritable.class, ints, WritableComparator.get(IntWritable.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  private <K extends WritableComparable<K>> void checkSort(
+      Class<K> keyClass, List<K> keys, RawComparator<K> comparator) throws IOException {
+    SerializationFactory serializationFactory =
+        new SerializationFactory(new JobConf(new Configuration()));
+    Serializer<K> keySerializer = serializationFactory.getSerializer(keyClass);
+    Deserializer<K> keyDeserializer = serializationFactory.getDeserializer(keyClass);
+    Serializer<IntWritable> valueSerializer = serializationFactory.getSerializer(IntWritable.class);
+    Deserializer<IntWritable> valueDeserializer =
+        serializationFactory.getDeserializer(IntWritable.class);
+    SortWriteBuffer<K, IntWritable> buffer =
+        new SortWriteBuffer<>(1, comparator, 1024, false, keySerializer, valueSerializer, null);
+    // the value is the position of the record, to check the sort is stable
+    List<Pair<K, Integer>> expected = Lists.newArrayList();
+    for (int i = 0; i < keys.size(); i++) {
+      buffer.addRecord(keys.get(i), new IntWritable(i));
+      expected.add(Pair.of(keys.get(i), i));
+    }
+    expected.sort((o1, o2) -> o1.getLeft().compareTo(o2.getLeft()));
+    buffer.sort();
+
+    SortWriteBuffer.SortBufferIterator<K, IntWritable> iterator =
+        new SortWriteBuffer.SortBufferIterator<>(buffer);
+    K key = (K) WritableUtils.clone(keys.get(0), new Configuration());
+    IntWritable value = new IntWritable();
+    int index = 0;
+    while (iterator.next()) {
+      keyDeserializer.open(iterator.getKey());
+      valueDeserializer.open(iterator.getValue());
+      key = keyDeserializer.deserialize(key);
+      value = valueDeserializer.deserialize(value);
+      assertEquals(expected.get(index).getLeft(), key);
+      assertEquals(expected.get(index).getRight().intValue(), value.get());
+      index++;
+    }
+    assertEquals(keys.size(), index);
+  }
+
   int readInt(DataInputStream dStream) throws IOException {
     return WritableUtils.readVInt(dStream);
   }
@@ -226,6 +226,17 @@ public class RssSparkConfig {
       createStringBuilder(new ConfigBuilder("spark.rss.writer.buffer.segment.size"))
           .createWithDefault("3k");
 
+  public static final ConfigEntry<String> RSS_WRITER_BUFFER_PAGE_POOL_SIZE =
+      createStringBuilder(
+              new ConfigBuilder("spark.rss.writer.buffer.page.pool.size")
+                  .doc(
+                      "The max size of the free buffer segments kept by a task for reuse. "
+                          + "The segments are recycled after they are compressed or sent, "
+                          + "which reduces the GC pressure of the wide shuffles. "
+                          + "The free segments are not counted in the task memory, "
+                          + "set it to 0 to disable the recycling."))
+          .createWithDefault("8m");
+
   public static final ConfigEntry<String> RSS_WRITER_BUFFER_SPILL_SIZE =
       createStringBuilder(
               new ConfigBuilder("spark.rss.writer.buffer.spill.size")
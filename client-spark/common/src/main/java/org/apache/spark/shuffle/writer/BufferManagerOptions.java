@@ -32,6 +32,7 @@ public class BufferManagerOptions {
   private long serializerBufferSize;
   private long bufferSegmentSize;
   private long bufferSpillThreshold;
+  private long pagePoolSize;
   private long preAllocatedBufferSize;
   private long requireMemoryInterval;
   private int requireMemoryRetryMax;
@@ -54,6 +55,10 @@ public class BufferManagerOptions {
         sparkConf.getSizeAsBytes(
             RssSparkConfig.RSS_WRITER_BUFFER_SPILL_SIZE.key(),
             RssSparkConfig.RSS_WRITER_BUFFER_SPILL_SIZE.defaultValue().get());
+    pagePoolSize =
+        sparkConf.getSizeAsBytes(
+            RssSparkConfig.RSS_WRITER_BUFFER_PAGE_POOL_SIZE.key(),
+            RssSparkConfig.RSS_WRITER_BUFFER_PAGE_POOL_SIZE.defaultValue().get());
     bufferSpillPercent =
         sparkConf.getDouble(
             RssSparkConfig.RSS_MEMORY_SPILL_RATIO.key(),
@@ -127,6 +132,10 @@ public class BufferManagerOptions {
     return bufferSpillThreshold;
   }
 
+  public long getPagePoolSize() {
+    return pagePoolSize;
+  }
+
   public double getBufferSpillPercent() {
     return bufferSpillPercent;
   }
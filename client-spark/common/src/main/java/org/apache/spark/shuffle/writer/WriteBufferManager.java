@@ -55,10 +55,13 @@ import org.apache.uniffle.common.ShuffleBlockInfo;
 import org.apache.uniffle.common.ShuffleServerInfo;
 import org.apache.uniffle.common.compression.Codec;
 import org.apache.uniffle.common.compression.StatisticsCodec;
+import org.apache.uniffle.common.config.RssClientConf;
 import org.apache.uniffle.common.config.RssConf;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.util.BlockIdLayout;
+import org.apache.uniffle.common.util.ChecksumType;
 import org.apache.uniffle.common.util.ChecksumUtils;
+import org.apache.uniffle.common.util.JavaUtils;
 
 public class WriteBufferManager extends MemoryConsumer {
 
@@ -107,12 +110,17 @@ public class WriteBufferManager extends MemoryConsumer {
   private int memorySpillTimeoutSec;
   private boolean isRowBased;
   private BlockIdLayout blockIdLayout;
+  private ChecksumType checksumType;
   private double bufferSpillRatio;
   private Function<Integer, List<ShuffleServerInfo>> partitionAssignmentRetrieveFunc;
   private int stageAttemptNumber;
   private ShuffleServerPushCostTracker shuffleServerPushCostTracker;
   // whether to use deferred compression for shuffle blocks
   private final boolean isDeferredCompression;
+  // the pool of the buffer segments, null if the segments are not recycled
+  private final WriterBufferPagePool pagePool;
+  // the writer buffers whose segments are wrapped by the data of the blocks in sending
+  private final Map<Long, WriterBuffer> blockIdToWriterBuffer = JavaUtils.newConcurrentMap();
 
   public WriteBufferManager(
       int shuffleId,
@@ -189,6 +197,9 @@ public class WriteBufferManager extends MemoryConsumer {
     this.requireMemoryRetryMax = bufferManagerOptions.getRequireMemoryRetryMax();
     this.arrayOutputStream = new WrappedByteArrayOutputStream(serializerBufferSize);
     this.isDeferredCompression = OverlappingCompressionDataPusher.isEnabled(rssConf);
+    long pagePoolSize = bufferManagerOptions.getPagePoolSize();
+    this.pagePool =
+        pagePoolSize > 0 ? new WriterBufferPagePool(bufferSegmentSize, pagePoolSize) : null;
     // in columnar shuffle, the serializer here is never used
     this.isRowBased = rssConf.getBoolean(RssSparkConfig.RSS_ROW_BASED);
     if (isRowBased) {
@@ -207,6 +218,7 @@ public class WriteBufferManager extends MemoryConsumer {
     this.memorySpillEnabled = rssConf.get(RssSparkConfig.RSS_MEMORY_SPILL_ENABLED);
     this.bufferSpillRatio = rssConf.get(RssSparkConfig.RSS_MEMORY_SPILL_RATIO);
     this.blockIdLayout = BlockIdLayout.from(rssConf);
+    this.checksumType = rssConf.get(RssClientConf.RSS_CLIENT_CHECKSUM_TYPE);
     this.partitionAssignmentRetrieveFunc = partitionAssignmentRetrieveFunc;
     this.stageAttemptNumber = stageAttemptNumber;
     this.shuffleServerPushCostTracker = new ShuffleServerPushCostTracker();
@@ -310,7 +322,7 @@ public class WriteBufferManager extends MemoryConsumer {
         requestMemory(required);
       }
       usedBytes.addAndGet(required);
-      wb = new WriterBuffer(bufferSegmentSize);
+      wb = new WriterBuffer(bufferSegmentSize, pagePool);
       wb.addRecord(serializedData, serializedDataLength);
       buffers.put(partitionId, wb);
     }
@@ -437,6 +449,7 @@ public class WriteBufferManager extends MemoryConsumer {
 
     // todo: support ByteBuf compress directly to avoid copying
     final byte[] rawData = writerBuffer.getData();
+    writerBuffer.recyclePages();
 
     Function<DeferredCompressedBlock, DeferredCompressedBlock> rebuildFunction =
         block -> {
@@ -448,7 +461,7 @@ public class WriteBufferManager extends MemoryConsumer {
           }
           this.compressedDataLen += compressed.length;
           this.shuffleWriteMetrics.incBytesWritten(compressed.length);
-          final long crc32 = ChecksumUtils.getCrc32(compressed);
+          final long crc32 = ChecksumUtils.getChecksum(checksumType, compressed);
 
           block.reset(compressed, compressed.length, crc32);
           return block;
@@ -488,10 +501,15 @@ public class WriteBufferManager extends MemoryConsumer {
       byte[] compressedByteArr = codec.get().compress(wb.getData());
       compressed = Unpooled.wrappedBuffer(compressedByteArr);
       compressTime += System.currentTimeMillis() - start;
+      wb.recyclePages();
     }
-    final long crc32 = ChecksumUtils.getCrc32(compressed);
+    final long crc32 = ChecksumUtils.getChecksum(checksumType, compressed);
     final long blockId =
         blockIdLayout.getBlockId(getNextSeqNo(partitionId), partitionId, taskAttemptId);
+    if (pagePool != null && compressed == data) {
+      // the segments are sent as they are, recycle them once the block is released
+      blockIdToWriterBuffer.put(blockId, wb);
+    }
     blockCounter.incrementAndGet();
     final int compressedLen = compressed.readableBytes();
     uncompressedDataLen += uncompressLength;
@@ -575,6 +593,10 @@ public class WriteBufferManager extends MemoryConsumer {
   public void releaseBlockResource(ShuffleBlockInfo block) {
     this.freeAllocatedMemory(block.getFreeMemory());
     block.getData().release();
+    WriterBuffer writerBuffer = blockIdToWriterBuffer.remove(block.getBlockId());
+    if (writerBuffer != null) {
+      writerBuffer.recyclePages();
+    }
   }
 
   private int getBlockLayoutLength(ShuffleBlockInfo block) {
@@ -706,6 +728,11 @@ public class WriteBufferManager extends MemoryConsumer {
     return buffers;
   }
 
+  @VisibleForTesting
+  protected WriterBufferPagePool getPagePool() {
+    return pagePool;
+  }
+
   @VisibleForTesting
   protected ShuffleWriteMetrics getShuffleWriteMetrics() {
     return shuffleWriteMetrics;
@@ -38,9 +38,16 @@ public class WriterBuffer {
   private int dataLength = 0;
   private int memoryUsed = 0;
   private long recordCount = 0;
+  // the pool to allocate the segments from, null if the segments are not recycled
+  private final WriterBufferPagePool pagePool;
 
   public WriterBuffer(int bufferSize) {
+    this(bufferSize, null);
+  }
+
+  public WriterBuffer(int bufferSize, WriterBufferPagePool pagePool) {
     this.bufferSize = bufferSize;
+    this.pagePool = pagePool;
   }
 
   public void addRecord(byte[] recordBuffer, int length) {
@@ -51,7 +58,7 @@ public class WriterBuffer {
         nextOffset = 0;
       }
       int newBufferSize = Math.max(length, bufferSize);
-      buffer = new byte[newBufferSize];
+      buffer = pagePool != null ? pagePool.allocate(newBufferSize) : new byte[newBufferSize];
       memoryUsed += newBufferSize;
     }
 
@@ -107,6 +114,25 @@ public class WriterBuffer {
     return composite;
   }
 
+  /**
+   * Returns the segments to the page pool. It must be called only when no buffer returned by {@link
+   * #getDataAsByteBuf()} is used anymore, and the data of this buffer can't be read afterwards.
+   */
+  public void recyclePages() {
+    if (pagePool == null) {
+      return;
+    }
+    for (WrappedBuffer stagingBuffer : buffers) {
+      pagePool.recycle(stagingBuffer.getBuffer());
+    }
+    buffers.clear();
+    if (buffer != null) {
+      pagePool.recycle(buffer);
+      buffer = null;
+      nextOffset = 0;
+    }
+  }
+
   public int getDataLength() {
     return dataLength;
   }
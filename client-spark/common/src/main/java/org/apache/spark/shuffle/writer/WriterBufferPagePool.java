@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.shuffle.writer;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of the fixed size pages used by {@link WriterBuffer} to cache the records. A page is
+ * returned to the pool once the data in it has been compressed or sent, so that the next segment
+ * of a writer buffer reuses it instead of allocating a new array. This cuts down the garbage of
+ * the wide shuffles, where every partition allocates its own segments.
+ *
+ * <p>The free pages are not counted in the memory acquired from the task memory manager, so the
+ * pool keeps at most {@code maxPooledBytes} of them and drops the others.
+ */
+public class WriterBufferPagePool {
+
+  private final int pageSize;
+  private final int maxPooledPages;
+  private final ArrayDeque<byte[]> freePages = new ArrayDeque<>();
+  private long allocatedPages = 0;
+  private long reusedPages = 0;
+
+  public WriterBufferPagePool(int pageSize, long maxPooledBytes) {
+    this.pageSize = pageSize;
+    this.maxPooledPages =
+        pageSize > 0 ? (int) Math.min(Integer.MAX_VALUE, maxPooledBytes / pageSize) : 0;
+  }
+
+  /** @return a page of the given size, a pooled one if the size is the page size */
+  public synchronized byte[] allocate(int size) {
+    if (size == pageSize) {
+      byte[] page = freePages.pollFirst();
+      if (page != null) {
+        reusedPages++;
+        return page;
+      }
+    }
+    allocatedPages++;
+    return new byte[size];
+  }
+
+  /** Returns a page to the pool, the caller mustn't access it anymore. */
+  public synchronized void recycle(byte[] page) {
+    if (page.length == pageSize && freePages.size() < maxPooledPages) {
+      freePages.addFirst(page);
+    }
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public synchronized int getFreePageNum() {
+    return freePages.size();
+  }
+
+  public synchronized long getAllocatedPages() {
+    return allocatedPages;
+  }
+
+  public synchronized long getReusedPages() {
+    return reusedPages;
+  }
+}
@@ -43,6 +43,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +54,7 @@ import org.apache.uniffle.common.config.RssConf;
 import org.apache.uniffle.common.util.BlockIdLayout;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.doReturn;
@@ -292,6 +294,41 @@ public class WriteBufferManagerTest {
     assertEquals(layout.asBlockId(1, 1, 0), layout.asBlockId(sbi.getBlockId()));
   }
 
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void recyclePagesTest(boolean compress) {
+    SparkConf conf = getConf();
+    conf.set(RssSparkConfig.SPARK_SHUFFLE_COMPRESS_KEY, String.valueOf(compress));
+    WriteBufferManager wbm = createManager(conf);
+    WriterBufferPagePool pagePool = wbm.getPagePool();
+    List<ShuffleBlockInfo> result = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      result.addAll(wbm.addRecord(0, "Key", "Value"));
+    }
+    assertEquals(1, result.size());
+    assertEquals(3, pagePool.getAllocatedPages());
+    if (compress) {
+      // the pages are recycled once they are compressed
+      assertEquals(3, pagePool.getFreePageNum());
+    } else {
+      // the block is sent from the pages, they are recycled once the block is released
+      assertEquals(0, pagePool.getFreePageNum());
+      wbm.releaseBlockResource(result.get(0));
+      assertEquals(3, pagePool.getFreePageNum());
+    }
+
+    // the pages are reused by the next records
+    for (int i = 0; i < 5; i++) {
+      wbm.addRecord(1, "Key", "Value");
+    }
+    assertEquals(3, pagePool.getAllocatedPages());
+    assertEquals(3, pagePool.getReusedPages());
+
+    // the pages aren't recycled if the pool is disabled
+    conf.set(RssSparkConfig.RSS_WRITER_BUFFER_PAGE_POOL_SIZE.key(), "0");
+    assertNull(createManager(conf).getPagePool());
+  }
+
   @Test
   public void buildBlockEventsTest() {
     SparkConf conf = getConf();
@@ -83,6 +83,37 @@ public class WriteBufferTest {
     assertEquals(91, wb.getData().length);
   }
 
+  @Test
+  public void recyclePagesTest() {
+    WriterBufferPagePool pagePool = new WriterBufferPagePool(32, 64);
+    WriterBuffer wb = new WriterBuffer(32, pagePool);
+    serializeData("key", "value");
+    for (int i = 0; i < 5; i++) {
+      wb.addRecord(serializedData, serializedDataLength);
+    }
+    // a record larger than the page size isn't allocated from the pool
+    serializeData("key1111111111111111111111111111", "value222222222222222222222222222");
+    wb.addRecord(serializedData, serializedDataLength);
+    assertEquals(127, wb.getDataLength());
+    assertEquals(4, pagePool.getAllocatedPages());
+    byte[] data = wb.getData();
+    assertEquals(127, data.length);
+
+    // only 2 pages are kept in the pool
+    wb.recyclePages();
+    assertEquals(2, pagePool.getFreePageNum());
+    WriterBuffer newWb = new WriterBuffer(32, pagePool);
+    serializeData("key", "value");
+    for (int i = 0; i < 5; i++) {
+      newWb.addRecord(serializedData, serializedDataLength);
+    }
+    assertEquals(0, pagePool.getFreePageNum());
+    assertEquals(2, pagePool.getReusedPages());
+    assertEquals(5, pagePool.getAllocatedPages());
+    assertEquals(60, newWb.getData().length);
+    assertEquals(96, newWb.getMemoryUsed());
+  }
+
   private void serializeData(Object key, Object value) {
     arrayOutputStream.reset();
     serializeStream.writeKey(key, ClassTag$.MODULE$.apply(key.getClass()));
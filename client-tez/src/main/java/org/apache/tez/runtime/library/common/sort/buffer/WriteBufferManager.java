@@ -54,11 +54,13 @@ import org.apache.uniffle.client.response.SendShuffleDataResult;
 import org.apache.uniffle.common.ShuffleBlockInfo;
 import org.apache.uniffle.common.ShuffleServerInfo;
 import org.apache.uniffle.common.compression.Codec;
+import org.apache.uniffle.common.config.RssClientConf;
 import org.apache.uniffle.common.config.RssConf;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.serializer.SerializerFactory;
 import org.apache.uniffle.common.serializer.SerializerInstance;
 import org.apache.uniffle.common.util.BlockIdLayout;
+import org.apache.uniffle.common.util.ChecksumType;
 import org.apache.uniffle.common.util.ChecksumUtils;
 import org.apache.uniffle.common.util.ThreadUtils;
 
@@ -104,6 +106,7 @@ public class WriteBufferManager<K, V> {
   private final BlockIdLayout blockIdLayout;
   private TezTaskAttemptID tezTaskAttemptID;
   private final RssConf rssConf;
+  private final ChecksumType checksumType;
   private final int shuffleId;
   private final boolean isNeedSorted;
   private final TezCounter mapOutputByteCounter;
@@ -168,6 +171,7 @@ public class WriteBufferManager<K, V> {
     this.sendThreshold = sendThreshold;
     this.batch = batch;
     this.codec = Codec.newInstance(rssConf);
+    this.checksumType = rssConf.get(RssClientConf.RSS_CLIENT_CHECKSUM_TYPE);
     this.partitionToServers = partitionToServers;
     this.numMaps = numMaps;
     this.isMemoryShuffleEnabled = isMemoryShuffleEnabled;
@@ -404,7 +408,7 @@ public class WriteBufferManager<K, V> {
 
     final byte[] compressed =
         useUniffleSerializer ? data : codec.map(c -> c.compress(data)).orElse(data);
-    final long crc32 = ChecksumUtils.getCrc32(compressed);
+    final long crc32 = ChecksumUtils.getChecksum(checksumType, compressed);
     compressTime += System.currentTimeMillis() - start;
     final long blockId =
         RssTezUtils.getBlockId(partitionId, taskAttemptId, getNextSeqNo(partitionId));
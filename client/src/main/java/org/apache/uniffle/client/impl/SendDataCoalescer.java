@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.client.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.client.api.ShuffleServerClient;
+import org.apache.uniffle.client.common.ShuffleServerPushCostTracker;
+import org.apache.uniffle.client.request.RssSendShuffleDataRequest;
+import org.apache.uniffle.client.response.RssSendShuffleDataResponse;
+import org.apache.uniffle.common.ShuffleBlockInfo;
+import org.apache.uniffle.common.ShuffleServerInfo;
+import org.apache.uniffle.common.rpc.StatusCode;
+import org.apache.uniffle.common.util.JavaUtils;
+
+/**
+ * Coalesces the shuffle data sent concurrently to the same shuffle server into fewer send requests.
+ * Every batch of blocks is put into the queue of its shuffle server, and at most max concurrency
+ * tasks of the executor send the batches waiting in the queue, as many as fit in the max size in
+ * one request. So a shuffle server takes a bounded number of threads of the executor, instead of
+ * one thread per batch blocked on its own request.
+ *
+ * <p>Only the batches of the same app and stage attempt are sent in one request. Every batch gets
+ * its own response, with only the split partitions it contains, and the push costs of the request
+ * are recorded for every batch. When a coalesced request fails, its batches are sent again one by
+ * one, so a batch doesn't fail because of the other batches. The time a batch waits in the queue
+ * is reported apart from the time of its request, so the push duration still measures the shuffle
+ * server.
+ */
+class SendDataCoalescer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SendDataCoalescer.class);
+
+  private final long maxSize;
+  private final int maxConcurrency;
+  private final int retryMax;
+  private final long retryIntervalMax;
+  private final Executor executor;
+  private final Map<ShuffleServerInfo, ServerQueue> serverQueues = JavaUtils.newConcurrentMap();
+
+  SendDataCoalescer(
+      long maxSize, int maxConcurrency, int retryMax, long retryIntervalMax, Executor executor) {
+    this.maxSize = maxSize;
+    this.maxConcurrency = Math.max(1, maxConcurrency);
+    this.retryMax = retryMax;
+    this.retryIntervalMax = retryIntervalMax;
+    this.executor = executor;
+  }
+
+  /**
+   * @param client the client of the shuffle server to send the batch with
+   * @return the future of the result of the request sending the batch
+   */
+  CompletableFuture<SendResult> send(
+      ShuffleServerInfo server,
+      ShuffleServerClient client,
+      String appId,
+      int stageAttemptNumber,
+      Map<Integer, Map<Integer, List<ShuffleBlockInfo>>> shuffleIdToBlocks,
+      ShuffleServerPushCostTracker costTracker) {
+    Batch batch = new Batch(client, appId, stageAttemptNumber, shuffleIdToBlocks, costTracker);
+    ServerQueue queue = serverQueues.computeIfAbsent(server, k -> new ServerQueue());
+    queue.batches.add(batch);
+    schedule(queue);
+    return batch.future;
+  }
+
+  private void schedule(ServerQueue queue) {
+    int senders;
+    do {
+      senders = queue.senders.get();
+      if (senders >= maxConcurrency) {
+        // the batch will be sent by a running task
+        return;
+      }
+    } while (!queue.senders.compareAndSet(senders, senders + 1));
+    try {
+      executor.execute(() -> drain(queue));
+    } catch (RejectedExecutionException e) {
+      Batch batch;
+      while ((batch = queue.batches.poll()) != null) {
+        batch.future.completeExceptionally(e);
+      }
+      queue.senders.decrementAndGet();
+    }
+  }
+
+  private void drain(ServerQueue queue) {
+    try {
+      List<Batch> batches;
+      while (!(batches = queue.take(maxSize)).isEmpty()) {
+        send(batches);
+      }
+    } finally {
+      queue.senders.decrementAndGet();
+    }
+    // a batch may be added after the last take and before the task leaves
+    if (!queue.batches.isEmpty()) {
+      schedule(queue);
+    }
+  }
+
+  private void send(List<Batch> batches) {
+    if (batches.size() == 1) {
+      send(batches.get(0));
+      return;
+    }
+    Batch first = batches.get(0);
+    Map<Integer, Map<Integer, List<ShuffleBlockInfo>>> shuffleIdToBlocks = new HashMap<>();
+    for (Batch batch : batches) {
+      for (Map.Entry<Integer, Map<Integer, List<ShuffleBlockInfo>>> shuffleEntry :
+          batch.shuffleIdToBlocks.entrySet()) {
+        Map<Integer, List<ShuffleBlockInfo>> partitionToBlocks =
+            shuffleIdToBlocks.computeIfAbsent(shuffleEntry.getKey(), k -> new HashMap<>());
+        for (Map.Entry<Integer, List<ShuffleBlockInfo>> partitionEntry :
+            shuffleEntry.getValue().entrySet()) {
+          partitionToBlocks
+              .computeIfAbsent(partitionEntry.getKey(), k -> new ArrayList<>())
+              .addAll(partitionEntry.getValue());
+        }
+      }
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Coalesced {} batches into one send request", batches.size());
+    }
+    // the costs of the request are recorded for every batch sent with it
+    ShuffleServerPushCostTracker costTracker = new ShuffleServerPushCostTracker();
+    RssSendShuffleDataRequest request =
+        new RssSendShuffleDataRequest(
+            first.appId,
+            first.stageAttemptNumber,
+            retryMax,
+            retryIntervalMax,
+            shuffleIdToBlocks,
+            costTracker);
+    long start = System.currentTimeMillis();
+    RssSendShuffleDataResponse response;
+    try {
+      response = first.client.sendShuffleData(request);
+    } catch (Throwable e) {
+      LOG.warn("Failed to send {} coalesced batches, send them one by one", batches.size(), e);
+      response = null;
+    }
+    long pushDuration = System.currentTimeMillis() - start;
+    for (Batch batch : batches) {
+      if (batch.costTracker != null) {
+        batch.costTracker.merge(costTracker);
+      }
+    }
+    if (response == null || response.getStatusCode() != StatusCode.SUCCESS) {
+      if (response != null) {
+        LOG.warn(
+            "Failed to send {} coalesced batches with statusCode[{}], send them one by one",
+            batches.size(),
+            response.getStatusCode());
+      }
+      for (Batch batch : batches) {
+        send(batch);
+      }
+      return;
+    }
+    for (Batch batch : batches) {
+      batch.future.complete(
+          new SendResult(batch.responseOf(response), start - batch.enqueueTime, pushDuration));
+    }
+  }
+
+  private void send(Batch batch) {
+    RssSendShuffleDataRequest request =
+        new RssSendShuffleDataRequest(
+            batch.appId,
+            batch.stageAttemptNumber,
+            retryMax,
+            retryIntervalMax,
+            batch.shuffleIdToBlocks,
+            batch.costTracker);
+    try {
+      long start = System.currentTimeMillis();
+      RssSendShuffleDataResponse response = batch.client.sendShuffleData(request);
+      long pushDuration = System.currentTimeMillis() - start;
+      batch.future.complete(new SendResult(response, start - batch.enqueueTime, pushDuration));
+    } catch (Throwable e) {
+      batch.future.completeExceptionally(e);
+    }
+  }
+
+  /** The response to a batch, with the time it took. */
+  static final class SendResult {
+    private final RssSendShuffleDataResponse response;
+    private final long queueWaitMs;
+    private final long pushDurationMs;
+
+    private SendResult(RssSendShuffleDataResponse response, long queueWaitMs, long pushDurationMs) {
+      this.response = response;
+      this.queueWaitMs = queueWaitMs;
+      this.pushDurationMs = pushDurationMs;
+    }
+
+    RssSendShuffleDataResponse getResponse() {
+      return response;
+    }
+
+    /** @return how long the batch waited in the queue before its request was sent */
+    long getQueueWaitMs() {
+      return queueWaitMs;
+    }
+
+    /** @return how long the request sending the batch took */
+    long getPushDurationMs() {
+      return pushDurationMs;
+    }
+  }
+
+  private static final class ServerQueue {
+    private final ConcurrentLinkedQueue<Batch> batches = new ConcurrentLinkedQueue<>();
+    // the number of the tasks sending the batches of the queue
+    private final AtomicInteger senders = new AtomicInteger(0);
+
+    /** Takes the first batch and the batches after it which can be sent with it. */
+    private synchronized List<Batch> take(long maxSize) {
+      Batch first = batches.poll();
+      if (first == null) {
+        return Collections.emptyList();
+      }
+      List<Batch> taken = new ArrayList<>();
+      taken.add(first);
+      long size = first.size;
+      Batch next;
+      // only the task holding the lock takes batches, so the peeked one is the polled one
+      while ((next = batches.peek()) != null
+          && first.canBeSentWith(next)
+          && size + next.size <= maxSize) {
+        batches.poll();
+        taken.add(next);
+        size += next.size;
+      }
+      return taken;
+    }
+  }
+
+  private static final class Batch {
+    private final ShuffleServerClient client;
+    private final String appId;
+    private final int stageAttemptNumber;
+    private final Map<Integer, Map<Integer, List<ShuffleBlockInfo>>> shuffleIdToBlocks;
+    private final ShuffleServerPushCostTracker costTracker;
+    private final long size;
+    private final long enqueueTime = System.currentTimeMillis();
+    private final CompletableFuture<SendResult> future = new CompletableFuture<>();
+
+    private Batch(
+        ShuffleServerClient client,
+        String appId,
+        int stageAttemptNumber,
+        Map<Integer, Map<Integer, List<ShuffleBlockInfo>>> shuffleIdToBlocks,
+        ShuffleServerPushCostTracker costTracker) {
+      this.client = client;
+      this.appId = appId;
+      this.stageAttemptNumber = stageAttemptNumber;
+      this.shuffleIdToBlocks = shuffleIdToBlocks;
+      this.costTracker = costTracker;
+      long size = 0;
+      for (Map<Integer, List<ShuffleBlockInfo>> partitionToBlocks : shuffleIdToBlocks.values()) {
+        for (List<ShuffleBlockInfo> blocks : partitionToBlocks.values()) {
+          for (ShuffleBlockInfo block : blocks) {
+            size += block.getSize();
+          }
+        }
+      }
+      this.size = size;
+    }
+
+    private boolean canBeSentWith(Batch other) {
+      return appId.equals(other.appId) && stageAttemptNumber == other.stageAttemptNumber;
+    }
+
+    /** @return the response of the request for this batch, with its own split partitions */
+    private RssSendShuffleDataResponse responseOf(RssSendShuffleDataResponse response) {
+      RssSendShuffleDataResponse batchResponse =
+          new RssSendShuffleDataResponse(response.getStatusCode());
+      Set<Integer> needSplitPartitionIds = response.getNeedSplitPartitionIds();
+      if (needSplitPartitionIds != null) {
+        batchResponse.setNeedSplitPartitionIds(
+            needSplitPartitionIds.stream()
+                .filter(
+                    partitionId ->
+                        shuffleIdToBlocks.values().stream()
+                            .anyMatch(x -> x.containsKey(partitionId)))
+                .collect(Collectors.toSet()));
+      }
+      return batchResponse;
+    }
+  }
+}
@@ -21,7 +21,6 @@ import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -49,7 +48,9 @@ import org.apache.uniffle.common.config.RssConf;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.exception.RssFetchFailedException;
 import org.apache.uniffle.common.util.BlockIdLayout;
+import org.apache.uniffle.common.util.ChecksumType;
 import org.apache.uniffle.common.util.ChecksumUtils;
+import org.apache.uniffle.common.util.ConcurrentBlockIdSet;
 import org.apache.uniffle.common.util.IdHelper;
 import org.apache.uniffle.common.util.RssUtils;
 import org.apache.uniffle.storage.factory.ShuffleHandlerFactory;
@@ -75,7 +76,7 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
   private Roaring64NavigableMap blockIdBitmap;
   private Roaring64NavigableMap taskIdBitmap;
   private Roaring64NavigableMap pendingBlockIds;
-  private Set<Long> processedBlockIds = ConcurrentHashMap.newKeySet();
+  private final ConcurrentBlockIdSet processedBlockIds = new ConcurrentBlockIdSet();
   private Queue<BufferSegment> bufferSegmentQueue = Queues.newLinkedBlockingQueue();
   private AtomicLong readDataTime = new AtomicLong(0);
   private AtomicLong copyTime = new AtomicLong(0);
@@ -83,6 +84,7 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
   private ClientReadHandler clientReadHandler;
   private IdHelper idHelper;
   private BlockIdLayout blockIdLayout;
+  private ChecksumType checksumType;
   private ShuffleServerReadCostTracker readCostTracker;
 
   private DecompressionWorker decompressionWorker;
@@ -182,6 +184,7 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
     this.idHelper = builder.getIdHelper();
     this.shuffleServerInfoList = builder.getShuffleServerInfoList();
     this.blockIdLayout = BlockIdLayout.from(builder.getRssConf());
+    this.checksumType = builder.getRssConf().get(RssClientConf.RSS_CLIENT_CHECKSUM_TYPE);
     this.readCostTracker = builder.getReadCostTracker();
 
     CreateShuffleReadHandlerRequest request = new CreateShuffleReadHandlerRequest();
@@ -269,18 +272,22 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
         // check 1: if blockId is processed
         // check 2: if blockId is required for current partition
         // check 3: if blockId is generated by required task
-        if (!processedBlockIds.contains(bs.getBlockId())
+        if (!processedBlockIds.containsLong(bs.getBlockId())
             && blockIdBitmap.contains(bs.getBlockId())
             && taskIdBitmap.contains(bs.getTaskAttemptId())) {
           long expectedCrc = -1;
           long actualCrc = -1;
-          try {
-            long start = System.currentTimeMillis();
-            expectedCrc = bs.getCrc();
-            actualCrc = ChecksumUtils.getCrc32(readBuffer, bs.getOffset(), bs.getLength());
-            crcCheckTime.addAndGet(System.currentTimeMillis() - start);
-          } catch (Exception e) {
-            LOG.warn("Can't read data for " + blockIdLayout.asBlockId(bs.getBlockId()), e);
+          if (checksumType != ChecksumType.NONE) {
+            try {
+              long start = System.currentTimeMillis();
+              expectedCrc = bs.getCrc();
+              actualCrc =
+                  ChecksumUtils.getChecksum(
+                      checksumType, readBuffer, bs.getOffset(), bs.getLength());
+              crcCheckTime.addAndGet(System.currentTimeMillis() - start);
+            } catch (Exception e) {
+              LOG.warn("Can't read data for " + blockIdLayout.asBlockId(bs.getBlockId()), e);
+            }
           }
 
           if (expectedCrc != actualCrc) {
@@ -309,7 +316,7 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
           }
 
           // mark block as processed
-          processedBlockIds.add(bs.getBlockId());
+          processedBlockIds.addLong(bs.getBlockId());
           pendingBlockIds.removeLong(bs.getBlockId());
           // only update the statistics of necessary blocks
           clientReadHandler.updateConsumedBlockInfo(bs, false);
@@ -317,7 +324,7 @@ public class ShuffleReadClientImpl implements ShuffleReadClient {
         }
         clientReadHandler.updateConsumedBlockInfo(bs, true);
         // mark block as processed
-        processedBlockIds.add(bs.getBlockId());
+        processedBlockIds.addLong(bs.getBlockId());
         pendingBlockIds.removeLong(bs.getBlockId());
 
         // update the segment index to skip the unnecessary block in overlapping decompression mode.
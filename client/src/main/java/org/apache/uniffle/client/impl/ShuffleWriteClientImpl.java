@@ -101,6 +101,8 @@ import org.apache.uniffle.common.util.ThreadUtils;
 import org.apache.uniffle.proto.RssProtos.MergeContext;
 
 import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_REASSIGN_ENABLED;
+import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_SEND_COALESCE_MAX_CONCURRENCY;
+import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_SEND_COALESCE_MAX_SIZE;
 
 public class ShuffleWriteClientImpl implements ShuffleWriteClient {
 
@@ -129,6 +131,8 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
   private RssConf rssConf;
   private BlockIdLayout blockIdLayout;
   private final boolean partitionReassignEnabled;
+  // null if the data sent to the same server concurrently is not coalesced
+  private final SendDataCoalescer sendDataCoalescer;
 
   public ShuffleWriteClientImpl(ShuffleClientFactory.WriteClientBuilder builder) {
     // set default value
@@ -168,6 +172,16 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
     this.rssConf = builder.getRssConf();
     this.blockIdLayout = BlockIdLayout.from(rssConf);
     this.partitionReassignEnabled = rssConf.get(RSS_CLIENT_REASSIGN_ENABLED);
+    long coalesceMaxSize = rssConf.getSizeAsBytes(RSS_CLIENT_SEND_COALESCE_MAX_SIZE);
+    this.sendDataCoalescer =
+        coalesceMaxSize > 0
+            ? new SendDataCoalescer(
+                coalesceMaxSize,
+                rssConf.get(RSS_CLIENT_SEND_COALESCE_MAX_CONCURRENCY),
+                retryMax,
+                retryIntervalMax,
+                dataTransferPool)
+            : null;
   }
 
   private boolean sendShuffleDataAsync(
@@ -175,7 +189,7 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
       int stageAttemptNumber,
       Map<ShuffleServerInfo, Map<Integer, Map<Integer, List<ShuffleBlockInfo>>>> serverToBlocks,
       Map<ShuffleServerInfo, List<Long>> serverToBlockIds,
-      Map<Long, AtomicInteger> blockIdsSendSuccessTracker,
+      SuccessBlockSendTracker blockIdsSendSuccessTracker,
       FailedBlockSendTracker failedBlockSendTracker,
       boolean allowFastFail,
       Supplier<Boolean> needCancelRequest,
@@ -189,98 +203,97 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
     List<CompletableFuture<Boolean>> futures = new ArrayList<>();
     for (Map.Entry<ShuffleServerInfo, Map<Integer, Map<Integer, List<ShuffleBlockInfo>>>> entry :
         serverToBlocks.entrySet()) {
-      CompletableFuture<Boolean> future =
-          CompletableFuture.supplyAsync(
-                  () -> {
-                    if (needCancelRequest.get()) {
-                      LOG.info("The upstream task has been failed. Abort this data send.");
-                      return true;
-                    }
-                    ShuffleServerInfo ssi = entry.getKey();
-                    try {
-                      Map<Integer, Map<Integer, List<ShuffleBlockInfo>>> shuffleIdToBlocks =
-                          entry.getValue();
-                      // todo: compact unnecessary blocks that reach replicaWrite
-                      RssSendShuffleDataRequest request =
-                          new RssSendShuffleDataRequest(
-                              appId,
-                              stageAttemptNumber,
-                              retryMax,
-                              retryIntervalMax,
-                              shuffleIdToBlocks,
-                              shuffleServerPushCostTracker);
-                      long s = System.currentTimeMillis();
-                      RssSendShuffleDataResponse response =
-                          getShuffleServerClient(ssi).sendShuffleData(request);
-                      long pushDuration = System.currentTimeMillis() - s;
-                      String logMsg =
-                          String.format(
-                              "ShuffleWriteClientImpl sendShuffleData with %s blocks to %s cost: %s(ms)",
-                              serverToBlockIds.get(ssi).size(), ssi.getId(), pushDuration);
-
-                      if (response.getStatusCode() == StatusCode.SUCCESS) {
-                        // mark a replica of block that has been sent
-                        serverToBlockIds
-                            .get(ssi)
-                            .forEach(
-                                blockId ->
-                                    blockIdsSendSuccessTracker.get(blockId).incrementAndGet());
-                        recordNeedSplitPartition(
-                            failedBlockSendTracker, ssi, response.getNeedSplitPartitionIds());
-                        if (defectiveServers != null) {
-                          defectiveServers.remove(ssi);
-                        }
-                        if (LOG.isDebugEnabled()) {
-                          LOG.debug("{} successfully.", logMsg);
-                        }
-                      } else {
-                        recordFailedBlocks(
-                            failedBlockSendTracker, serverToBlocks, ssi, response.getStatusCode());
-                        if (defectiveServers != null) {
-                          defectiveServers.add(ssi);
-                        }
-                        LOG.warn(
-                            "{}, it failed wth statusCode[{}]", logMsg, response.getStatusCode());
-                        shuffleServerPushCostTracker.recordPushFailure(
-                            ssi.getId(), response.getStatusCode());
+      ShuffleServerInfo ssi = entry.getKey();
+      Map<Integer, Map<Integer, List<ShuffleBlockInfo>>> shuffleIdToBlocks = entry.getValue();
+      CompletableFuture<Boolean> future;
+      if (sendDataCoalescer != null) {
+        if (needCancelRequest.get()) {
+          LOG.info("The upstream task has been failed. Abort this data send.");
+          continue;
+        }
+        future =
+            sendDataCoalescer
+                .send(
+                    ssi,
+                    getShuffleServerClient(ssi),
+                    appId,
+                    stageAttemptNumber,
+                    shuffleIdToBlocks,
+                    shuffleServerPushCostTracker)
+                .handle(
+                    (result, e) -> {
+                      if (e != null) {
+                        onSendFailure(
+                            ssi,
+                            serverToBlocks,
+                            serverToBlockIds,
+                            failedBlockSendTracker,
+                            shuffleServerPushCostTracker,
+                            e);
                         return false;
                       }
-
-                      // record shuffle-server push cost
-                      long sentBytes =
-                          shuffleIdToBlocks.values().stream()
-                              .flatMap(x -> x.values().stream())
-                              .flatMap(x -> x.stream())
-                              .map(x -> x.getLength())
-                              .reduce((a, b) -> a + b)
-                              .orElse(0);
-                      shuffleServerPushCostTracker.record(ssi.getId(), sentBytes, pushDuration);
-                    } catch (Exception e) {
-                      shuffleServerPushCostTracker.recordPushFailure(
-                          ssi.getId(), StatusCode.INTERNAL_ERROR);
-                      recordFailedBlocks(
-                          failedBlockSendTracker, serverToBlocks, ssi, StatusCode.INTERNAL_ERROR);
-                      if (defectiveServers != null) {
-                        defectiveServers.add(ssi);
-                      }
-                      LOG.warn(
-                          "Send: "
-                              + serverToBlockIds.get(ssi).size()
-                              + " blocks to ["
-                              + ssi.getId()
-                              + "] failed.",
-                          e);
-                      return false;
-                    }
+                      // the push duration is the time of the request, not of the queue
+                      shuffleServerPushCostTracker.recordQueueWait(
+                          ssi.getId(), result.getQueueWaitMs());
+                      return onSendResponse(
+                          ssi,
+                          result.getResponse(),
+                          result.getPushDurationMs(),
+                          serverToBlocks,
+                          serverToBlockIds,
+                          blockIdsSendSuccessTracker,
+                          failedBlockSendTracker,
+                          shuffleServerPushCostTracker);
+                    });
+      } else {
+        future =
+            CompletableFuture.supplyAsync(
+                () -> {
+                  if (needCancelRequest.get()) {
+                    LOG.info("The upstream task has been failed. Abort this data send.");
                     return true;
-                  },
-                  dataTransferPool)
-              .exceptionally(
-                  ex -> {
-                    LOG.error("Unexpected exceptions occurred while sending shuffle data", ex);
+                  }
+                  try {
+                    // todo: compact unnecessary blocks that reach replicaWrite
+                    RssSendShuffleDataRequest request =
+                        new RssSendShuffleDataRequest(
+                            appId,
+                            stageAttemptNumber,
+                            retryMax,
+                            retryIntervalMax,
+                            shuffleIdToBlocks,
+                            shuffleServerPushCostTracker);
+                    long s = System.currentTimeMillis();
+                    RssSendShuffleDataResponse response =
+                        getShuffleServerClient(ssi).sendShuffleData(request);
+                    return onSendResponse(
+                        ssi,
+                        response,
+                        System.currentTimeMillis() - s,
+                        serverToBlocks,
+                        serverToBlockIds,
+                        blockIdsSendSuccessTracker,
+                        failedBlockSendTracker,
+                        shuffleServerPushCostTracker);
+                  } catch (Exception e) {
+                    onSendFailure(
+                        ssi,
+                        serverToBlocks,
+                        serverToBlockIds,
+                        failedBlockSendTracker,
+                        shuffleServerPushCostTracker,
+                        e);
                     return false;
-                  });
-      futures.add(future);
+                  }
+                },
+                dataTransferPool);
+      }
+      futures.add(
+          future.exceptionally(
+              ex -> {
+                LOG.error("Unexpected exceptions occurred while sending shuffle data", ex);
+                return false;
+              }));
     }
 
     boolean result = ClientUtils.waitUntilDoneOrFail(futures, allowFastFail);
@@ -293,6 +306,68 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
     return result;
   }
 
+  private boolean onSendResponse(
+      ShuffleServerInfo ssi,
+      RssSendShuffleDataResponse response,
+      long pushDuration,
+      Map<ShuffleServerInfo, Map<Integer, Map<Integer, List<ShuffleBlockInfo>>>> serverToBlocks,
+      Map<ShuffleServerInfo, List<Long>> serverToBlockIds,
+      SuccessBlockSendTracker blockIdsSendSuccessTracker,
+      FailedBlockSendTracker failedBlockSendTracker,
+      ShuffleServerPushCostTracker shuffleServerPushCostTracker) {
+    String logMsg =
+        String.format(
+            "ShuffleWriteClientImpl sendShuffleData with %s blocks to %s cost: %s(ms)",
+            serverToBlockIds.get(ssi).size(), ssi.getId(), pushDuration);
+
+    if (response.getStatusCode() == StatusCode.SUCCESS) {
+      // mark a replica of block that has been sent
+      serverToBlockIds.get(ssi).forEach(blockIdsSendSuccessTracker::incSuccess);
+      recordNeedSplitPartition(failedBlockSendTracker, ssi, response.getNeedSplitPartitionIds());
+      if (defectiveServers != null) {
+        defectiveServers.remove(ssi);
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("{} successfully.", logMsg);
+      }
+
+      // record shuffle-server push cost
+      long sentBytes =
+          shuffleIdToBlocks.values().stream()
+              .flatMap(x -> x.values().stream())
+              .flatMap(x -> x.stream())
+              .map(x -> x.getLength())
+              .reduce((a, b) -> a + b)
+              .orElse(0);
+      shuffleServerPushCostTracker.record(ssi.getId(), sentBytes, pushDuration);
+      return true;
+    }
+    recordFailedBlocks(failedBlockSendTracker, serverToBlocks, ssi, response.getStatusCode());
+    if (defectiveServers != null) {
+      defectiveServers.add(ssi);
+    }
+    LOG.warn("{}, it failed wth statusCode[{}]", logMsg, response.getStatusCode());
+    shuffleServerPushCostTracker.recordPushFailure(ssi.getId(), response.getStatusCode());
+    return false;
+  }
+
+  private void onSendFailure(
+      ShuffleServerInfo ssi,
+      Map<ShuffleServerInfo, Map<Integer, Map<Integer, List<ShuffleBlockInfo>>>> serverToBlocks,
+      Map<ShuffleServerInfo, List<Long>> serverToBlockIds,
+      FailedBlockSendTracker failedBlockSendTracker,
+      ShuffleServerPushCostTracker shuffleServerPushCostTracker,
+      Throwable e) {
+    shuffleServerPushCostTracker.recordPushFailure(ssi.getId(), StatusCode.INTERNAL_ERROR);
+    recordFailedBlocks(failedBlockSendTracker, serverToBlocks, ssi, StatusCode.INTERNAL_ERROR);
+    if (defectiveServers != null) {
+      defectiveServers.add(ssi);
+    }
+    LOG.warn(
+        "Send: " + serverToBlockIds.get(ssi).size() + " blocks to [" + ssi.getId() + "] failed.",
+        e);
+  }
+
   void recordFailedBlocks(
       FailedBlockSendTracker blockIdsSendFailTracker,
       Map<ShuffleServerInfo, Map<Integer, Map<Integer, List<ShuffleBlockInfo>>>> serverToBlocks,
@@ -424,26 +499,8 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
       }
     }
     /** Records the ShuffleServer that successfully or failed to send blocks */
-    // we assume that most of the blocks can be sent successfully
-    // so initialize the map at first without concurrency insurance
-    // AtomicInteger is enough to reflect value changes in other threads
-    Map<Long, AtomicInteger> blockIdsSendSuccessTracker = Maps.newHashMap();
-    primaryServerToBlockIds
-        .values()
-        .forEach(
-            blockList ->
-                blockList.forEach(
-                    block ->
-                        blockIdsSendSuccessTracker.computeIfAbsent(
-                            block, id -> new AtomicInteger(0))));
-    secondaryServerToBlockIds
-        .values()
-        .forEach(
-            blockList ->
-                blockList.forEach(
-                    block ->
-                        blockIdsSendSuccessTracker.computeIfAbsent(
-                            block, id -> new AtomicInteger(0))));
+    SuccessBlockSendTracker blockIdsSendSuccessTracker =
+        new SuccessBlockSendTracker(shuffleBlockInfoList);
     FailedBlockSendTracker blockIdsSendFailTracker = new FailedBlockSendTracker();
     ShuffleServerPushCostTracker shuffleServerPushCostTracker = new ShuffleServerPushCostTracker();
 
@@ -482,20 +539,12 @@ public class ShuffleWriteClientImpl implements ShuffleWriteClient {
           shuffleServerPushCostTracker);
     }
 
-    Set<Long> blockIdsSendSuccessSet = Sets.newHashSet();
-    blockIdsSendSuccessTracker
-        .entrySet()
-        .forEach(
-            successBlockId -> {
-              if (successBlockId.getValue().get() >= replicaWrite) {
-                blockIdsSendSuccessSet.add(successBlockId.getKey());
-                // If the replicaWrite to be sent is reached,
-                // no matter whether the block fails to be sent or not,
-                // the block is considered to have been sent successfully and is removed from the
-                // failed block tracker
-                blockIdsSendFailTracker.remove(successBlockId.getKey());
-              }
-            });
+    Set<Long> blockIdsSendSuccessSet = blockIdsSendSuccessTracker.getSuccessBlockIds(replicaWrite);
+    // If the replicaWrite to be sent is reached,
+    // no matter whether the block fails to be sent or not,
+    // the block is considered to have been sent successfully and is removed from the
+    // failed block tracker
+    blockIdsSendSuccessSet.forEach(blockIdsSendFailTracker::remove);
     return new SendShuffleDataResult(
         blockIdsSendSuccessSet, blockIdsSendFailTracker, shuffleServerPushCostTracker);
   }
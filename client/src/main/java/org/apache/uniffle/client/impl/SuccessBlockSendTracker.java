@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.client.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.google.common.collect.Sets;
+
+import org.apache.uniffle.common.ShuffleBlockInfo;
+
+/**
+ * Counts the replicas of every block sent successfully. All the blocks are known before they are
+ * sent, so their ids are kept sorted in an array and the counts in an array of the same positions,
+ * instead of a boxed map entry per block.
+ */
+class SuccessBlockSendTracker {
+
+  private final long[] blockIds;
+  private final AtomicIntegerArray successCounts;
+
+  SuccessBlockSendTracker(List<ShuffleBlockInfo> blocks) {
+    long[] ids = new long[blocks.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = blocks.get(i).getBlockId();
+    }
+    Arrays.sort(ids);
+    int num = 0;
+    for (int i = 0; i < ids.length; i++) {
+      if (num == 0 || ids[i] != ids[num - 1]) {
+        ids[num++] = ids[i];
+      }
+    }
+    this.blockIds = num == ids.length ? ids : Arrays.copyOf(ids, num);
+    this.successCounts = new AtomicIntegerArray(num);
+  }
+
+  /** Marks a replica of the block as sent, it's safe to call from the threads of the sending. */
+  void incSuccess(long blockId) {
+    int index = Arrays.binarySearch(blockIds, blockId);
+    if (index < 0) {
+      throw new IllegalArgumentException("Block " + blockId + " isn't tracked");
+    }
+    successCounts.incrementAndGet(index);
+  }
+
+  int getSuccessCount(long blockId) {
+    int index = Arrays.binarySearch(blockIds, blockId);
+    return index < 0 ? 0 : successCounts.get(index);
+  }
+
+  /** @return the ids of the blocks with at least the given number of replicas sent */
+  Set<Long> getSuccessBlockIds(int minReplicas) {
+    Set<Long> successBlockIds = Sets.newHashSet();
+    for (int i = 0; i < blockIds.length; i++) {
+      if (successCounts.get(i) >= minReplicas) {
+        successBlockIds.add(blockIds[i]);
+      }
+    }
+    return successBlockIds;
+  }
+}
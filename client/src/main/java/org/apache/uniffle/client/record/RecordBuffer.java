@@ -34,6 +34,8 @@ public class RecordBuffer<K, V> implements RecordCollection<K, V, V> {
   private final int partitionId;
 
   private int size = 0;
+  // the serialized size of the records, used to bound the memory of the buffers in flight
+  private long byteSize = 0;
   private List<Record<K, V>> records = new ArrayList<>();
 
   public RecordBuffer(int partitionId) {
@@ -80,8 +82,17 @@ public class RecordBuffer<K, V> implements RecordCollection<K, V, V> {
     }
   }
 
+  public void addByteSize(long byteSize) {
+    this.byteSize += byteSize;
+  }
+
+  public long getByteSize() {
+    return byteSize;
+  }
+
   public void clear() {
     this.size = 0;
+    this.byteSize = 0;
     this.records.clear();
   }
 
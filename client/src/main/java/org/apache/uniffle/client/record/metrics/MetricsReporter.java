@@ -19,4 +19,10 @@ package org.apache.uniffle.client.record.metrics;
 
 public interface MetricsReporter {
   void incRecordsRead(long v);
+
+  /** The time in milliseconds the fetchers wait for the fetched records to be merged. */
+  default void incFetchWaitTime(long millis) {}
+
+  /** The time in milliseconds the merger waits for the records to be fetched. */
+  default void incMergeWaitTime(long millis) {}
 }
@@ -20,6 +20,7 @@ package org.apache.uniffle.client.record.reader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +64,7 @@ import org.apache.uniffle.common.util.JavaUtils;
 import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_REMOTE_MERGE_FETCH_INIT_SLEEP_MS;
 import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_REMOTE_MERGE_FETCH_MAX_SLEEP_MS;
 import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_REMOTE_MERGE_READER_MAX_BUFFER;
+import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_REMOTE_MERGE_READER_MAX_BUFFER_SIZE;
 import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_REMOTE_MERGE_READER_MAX_RECORDS_PER_BUFFER;
 
 public class RMRecordsReader<K, V, C> {
@@ -89,6 +91,7 @@ public class RMRecordsReader<K, V, C> {
   private final long maxFetchSleepTime;
   private final int maxBufferPerPartition;
   private final int maxRecordsNumPerBuffer;
+  private final RecordsMemoryBudget memoryBudget;
 
   private Map<Integer, List<ShuffleServerInfo>> shuffleServerInfoMap;
   private volatile boolean stop = false;
@@ -180,6 +183,9 @@ public class RMRecordsReader<K, V, C> {
     this.maxBufferPerPartition = Math.max(1, maxBuffer / partitionIds.size());
     this.maxRecordsNumPerBuffer =
         rssConf.get(RSS_CLIENT_REMOTE_MERGE_READER_MAX_RECORDS_PER_BUFFER);
+    long maxBufferSize = rssConf.get(RSS_CLIENT_REMOTE_MERGE_READER_MAX_BUFFER_SIZE);
+    this.memoryBudget =
+        new RecordsMemoryBudget(maxBufferSize > 0 ? maxBufferSize : Long.MAX_VALUE);
     this.results =
         new Queue<>(maxBufferPerPartition * maxRecordsNumPerBuffer * partitionIds.size());
     this.retryMax =
@@ -214,6 +220,7 @@ public class RMRecordsReader<K, V, C> {
   public void close() {
     error = null;
     stop = true;
+    memoryBudget.close();
     for (Queue<RecordBuffer> buffer : mergeBuffers.values()) {
       buffer.clear();
     }
@@ -501,7 +508,7 @@ public class RMRecordsReader<K, V, C> {
               && response.getNextBlockId() == -1) {
             // All data has been read. Send the last records.
             if (recordBuffer.size() > 0) {
-              nextQueue.put(recordBuffer);
+              queueRecordBuffer(recordBuffer);
             }
             nextQueue.setProducerDone(true);
             break;
@@ -518,24 +525,22 @@ public class RMRecordsReader<K, V, C> {
               // Fetch blocks and parsing blocks are a synchronous process. If the two processes are
               // split into two different threads, then will be asynchronous processes. Although it
               // seems to save time, it actually consumes more memory.
-              reader =
-                  new RecordsReader<>(
-                      rssConf,
-                      SerInputStream.newInputStream(byteBuf),
-                      keyClass,
-                      valueClass,
-                      raw,
-                      false);
+              SerInputStream input = SerInputStream.newInputStream(byteBuf);
+              reader = new RecordsReader<>(rssConf, input, keyClass, valueClass, raw, false);
               reader.init();
+              // the stream isn't buffered, so the bytes consumed by a record are its size
+              int available = input.available();
               while (reader.next()) {
                 if (metrics != null) {
                   metrics.incRecordsRead(1);
                 }
                 if (recordBuffer.size() >= maxRecordsNumPerBuffer) {
-                  nextQueue.put(recordBuffer);
+                  queueRecordBuffer(recordBuffer);
                   recordBuffer = new RecordBuffer<>(partitionId);
                 }
                 recordBuffer.addRecord(reader.getCurrentKey(), reader.getCurrentValue());
+                recordBuffer.addByteSize(available - input.available());
+                available = input.available();
               }
             } finally {
               if (reader != null) {
@@ -556,10 +561,21 @@ public class RMRecordsReader<K, V, C> {
         } catch (Throwable e) {
           error = e;
           stop = true;
+          memoryBudget.close();
           LOG.info("Found exception when fetch sorted record, caused by ", e);
         }
       }
     }
+
+    // Waits for the memory budget before queuing the buffer, so the fetcher stops fetching while
+    // too many records are waiting to be merged.
+    private void queueRecordBuffer(RecordBuffer buffer) throws InterruptedException {
+      long waitTime = memoryBudget.acquire(partitionId, buffer.getByteSize());
+      if (metrics != null && waitTime > 0) {
+        metrics.incFetchWaitTime(waitTime);
+      }
+      nextQueue.put(buffer);
+    }
   }
 
   class RecordsCombiner extends Thread {
@@ -605,6 +621,8 @@ public class RMRecordsReader<K, V, C> {
             RecordBlob recordBlob = new RecordBlob<>(partitionId);
             recordBlob.addRecords(current);
             recordBlob.combine(combiner, isMapCombine);
+            // the combined records are accounted with the average size of the records of current
+            long recordByteSize = current.getByteSize() / Math.max(1, current.size());
             for (Object record : recordBlob.getResult()) {
               if (cached.size() >= maxRecordsNumPerBuffer
                   && !isSameKey(((Record) record).getKey(), cached.getLastKey())) {
@@ -612,7 +630,9 @@ public class RMRecordsReader<K, V, C> {
                 cached = new RecordBuffer<>(partitionId);
               }
               cached.addRecord((Record) record);
+              cached.addByteSize(recordByteSize);
             }
+            memoryBudget.release(partitionId, current.getByteSize());
           }
         } catch (InterruptedException e) {
           throw new RssException(e);
@@ -628,22 +648,46 @@ public class RMRecordsReader<K, V, C> {
       recordBlob.combine(combiner, true);
       RecordBuffer recordBuffer = new RecordBuffer<>(partitionId);
       recordBuffer.addRecords(recordBlob.getResult());
+      recordBuffer.addByteSize(cachedBuffer.getByteSize());
+      // the combiner never waits for the budget, the records it sends are derived from the ones
+      // already accounted, and the merger may be waiting for them
+      memoryBudget.forceAcquire(partitionId, recordBuffer.getByteSize());
       nextQueue.put(recordBuffer);
     }
   }
 
   class RecordsMerger extends Thread {
 
+    // the bytes of the buffer being merged for each partition
+    private final Map<Integer, Long> mergingBytes = new HashMap<>();
+    private long waitTime;
+
     RecordsMerger() {
       setName("RecordsMerger");
     }
 
+    // Releases the memory of the exhausted buffer of the partition, then takes the next one.
+    private RecordBuffer takeRecordBuffer(int partitionId) throws InterruptedException {
+      Long bytes = mergingBytes.remove(partitionId);
+      if (bytes != null) {
+        memoryBudget.release(partitionId, bytes);
+      }
+      long start = System.currentTimeMillis();
+      RecordBuffer recordBuffer = mergeBuffers.get(partitionId).take();
+      waitTime += System.currentTimeMillis() - start;
+      if (recordBuffer != null) {
+        mergingBytes.put(partitionId, recordBuffer.getByteSize());
+      }
+      return recordBuffer;
+    }
+
     @Override
     public void run() {
+      long start = System.currentTimeMillis();
       try {
         List<BufferedSegment> segments = new ArrayList<>();
         for (int partitionId : partitionIds) {
-          RecordBuffer recordBuffer = mergeBuffers.get(partitionId).take();
+          RecordBuffer recordBuffer = takeRecordBuffer(partitionId);
           if (recordBuffer != null) {
             BufferedSegment resolvedSegment = new BufferedSegment(recordBuffer);
             segments.add(resolvedSegment);
@@ -657,7 +701,7 @@ public class RMRecordsReader<K, V, C> {
           mergeQueue.setPopSegmentHook(
               pid -> {
                 try {
-                  RecordBuffer recordBuffer = mergeBuffers.get(pid).take();
+                  RecordBuffer recordBuffer = takeRecordBuffer(pid);
                   if (recordBuffer == null) {
                     return null;
                   }
@@ -678,10 +722,25 @@ public class RMRecordsReader<K, V, C> {
       } catch (InterruptedException | IOException e) {
         error = e;
         stop = true;
+        memoryBudget.close();
+      } finally {
+        if (metrics != null) {
+          metrics.incMergeWaitTime(waitTime);
+        }
+        LOG.info(
+            "RecordsMerger for partitions {} finished in {} ms, waited {} ms for fetched records",
+            partitionIds,
+            System.currentTimeMillis() - start,
+            waitTime);
       }
     }
   }
 
+  @VisibleForTesting
+  RecordsMemoryBudget getMemoryBudget() {
+    return memoryBudget;
+  }
+
   @VisibleForTesting
   public ShuffleServerClient createShuffleServerClient(ShuffleServerInfo shuffleServerInfo) {
     return ShuffleServerClientFactory.getInstance()
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.client.record.reader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The byte budget of the records fetched but not merged yet by {@link RMRecordsReader}. A fetcher
+ * waits for the budget before queuing more records of its partition, unless no record of the
+ * partition is queued. The merger needs the records of every partition to make progress, so a
+ * partition can always queue one buffer, whatever the other partitions hold.
+ */
+class RecordsMemoryBudget {
+
+  private final long maxBytes;
+  private final Map<Integer, Long> partitionToBytes = new HashMap<>();
+  private long usedBytes;
+  private boolean closed;
+
+  RecordsMemoryBudget(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Blocks until the bytes fit in the budget or nothing of the partition is queued.
+   *
+   * @return the time in milliseconds waited for the budget
+   */
+  synchronized long acquire(int partitionId, long bytes) throws InterruptedException {
+    long start = System.currentTimeMillis();
+    while (!closed
+        && usedBytes + bytes > maxBytes
+        && partitionToBytes.getOrDefault(partitionId, 0L) > 0) {
+      wait();
+    }
+    forceAcquire(partitionId, bytes);
+    return System.currentTimeMillis() - start;
+  }
+
+  /** Accounts the bytes without waiting, for the records derived from the queued ones. */
+  synchronized void forceAcquire(int partitionId, long bytes) {
+    usedBytes += bytes;
+    partitionToBytes.merge(partitionId, bytes, Long::sum);
+  }
+
+  synchronized void release(int partitionId, long bytes) {
+    usedBytes -= bytes;
+    partitionToBytes.merge(partitionId, -bytes, Long::sum);
+    notifyAll();
+  }
+
+  /** Wakes up and never blocks the fetchers again, used when the reader is closed. */
+  synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  synchronized long getBytes(int partitionId) {
+    return partitionToBytes.getOrDefault(partitionId, 0L);
+  }
+}
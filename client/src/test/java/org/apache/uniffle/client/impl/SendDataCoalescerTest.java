@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.client.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.apache.uniffle.client.api.ShuffleServerClient;
+import org.apache.uniffle.client.common.ShuffleServerPushCostTracker;
+import org.apache.uniffle.client.request.RssSendShuffleDataRequest;
+import org.apache.uniffle.client.response.RssSendShuffleDataResponse;
+import org.apache.uniffle.common.ShuffleBlockInfo;
+import org.apache.uniffle.common.ShuffleServerInfo;
+import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.common.rpc.StatusCode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SendDataCoalescerTest {
+
+  private final ShuffleServerInfo server = new ShuffleServerInfo("id", "host", 0);
+  // the tasks submitted to the executor, run by the test
+  private final List<Runnable> tasks = new ArrayList<>();
+
+  private static Map<Integer, Map<Integer, List<ShuffleBlockInfo>>> blocks(
+      int partitionId, long blockId, int length) {
+    ShuffleBlockInfo block =
+        new ShuffleBlockInfo(
+            0, partitionId, blockId, length, 0, new byte[length], null, length, length, 0);
+    return Collections.singletonMap(
+        0, Collections.singletonMap(partitionId, Lists.newArrayList(block)));
+  }
+
+  private void runTasks() {
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+  }
+
+  @Test
+  public void coalesceTest() {
+    SendDataCoalescer coalescer = new SendDataCoalescer(1000, 1, 1, 1, tasks::add);
+    ShuffleServerClient client = mock(ShuffleServerClient.class);
+    RssSendShuffleDataResponse response = new RssSendShuffleDataResponse(StatusCode.SUCCESS);
+    when(client.sendShuffleData(any())).thenReturn(response);
+
+    List<CompletableFuture<SendDataCoalescer.SendResult>> futures = new ArrayList<>();
+    futures.add(coalescer.send(server, client, "app", 0, blocks(1, 1, 100), null));
+    futures.add(coalescer.send(server, client, "app", 0, blocks(1, 2, 100), null));
+    futures.add(coalescer.send(server, client, "app", 0, blocks(2, 3, 100), null));
+    // too large to be sent with the others
+    futures.add(coalescer.send(server, client, "app", 0, blocks(2, 4, 800), null));
+    // another stage attempt isn't sent with the others
+    futures.add(coalescer.send(server, client, "app", 1, blocks(3, 5, 100), null));
+    // one task sends all the batches of the server
+    assertEquals(1, tasks.size());
+    assertFalse(futures.get(0).isDone());
+    runTasks();
+
+    ArgumentCaptor<RssSendShuffleDataRequest> captor =
+        ArgumentCaptor.forClass(RssSendShuffleDataRequest.class);
+    verify(client, times(3)).sendShuffleData(captor.capture());
+    List<RssSendShuffleDataRequest> requests = captor.getAllValues();
+    Map<Integer, List<ShuffleBlockInfo>> partitionToBlocks =
+        requests.get(0).getShuffleIdToBlocks().get(0);
+    assertEquals(2, partitionToBlocks.get(1).size());
+    assertEquals(1, partitionToBlocks.get(2).size());
+    assertEquals(4, requests.get(1).getShuffleIdToBlocks().get(0).get(2).get(0).getBlockId());
+    assertEquals(1, requests.get(2).getStageAttemptNumber());
+    for (CompletableFuture<SendDataCoalescer.SendResult> future : futures) {
+      assertEquals(StatusCode.SUCCESS, future.join().getResponse().getStatusCode());
+      assertTrue(future.join().getQueueWaitMs() >= 0);
+      assertTrue(future.join().getPushDurationMs() >= 0);
+    }
+
+    // the queue is sent by a new task after it's drained
+    coalescer.send(server, client, "app", 0, blocks(1, 6, 100), null);
+    assertEquals(1, tasks.size());
+    runTasks();
+    verify(client, times(4)).sendShuffleData(any());
+  }
+
+  @Test
+  public void queueWaitTest() throws InterruptedException {
+    SendDataCoalescer coalescer = new SendDataCoalescer(1000, 1, 1, 1, tasks::add);
+    ShuffleServerClient client = mock(ShuffleServerClient.class);
+    when(client.sendShuffleData(any()))
+        .thenReturn(new RssSendShuffleDataResponse(StatusCode.SUCCESS));
+    CompletableFuture<SendDataCoalescer.SendResult> future =
+        coalescer.send(server, client, "app", 0, blocks(1, 1, 100), null);
+    Thread.sleep(100);
+    runTasks();
+    // the time in the queue isn't counted in the push duration
+    assertTrue(future.join().getQueueWaitMs() >= 100);
+    assertTrue(future.join().getPushDurationMs() < 100);
+  }
+
+  @Test
+  public void failureTest() {
+    SendDataCoalescer coalescer = new SendDataCoalescer(1000, 1, 1, 1, tasks::add);
+    ShuffleServerClient client = mock(ShuffleServerClient.class);
+    when(client.sendShuffleData(any())).thenThrow(new RssException("test"));
+    CompletableFuture<SendDataCoalescer.SendResult> future1 =
+        coalescer.send(server, client, "app", 0, blocks(1, 1, 100), null);
+    CompletableFuture<SendDataCoalescer.SendResult> future2 =
+        coalescer.send(server, client, "app", 0, blocks(2, 2, 100), null);
+    runTasks();
+    // the batches of the failed request are sent one by one, and fail on their own
+    verify(client, times(3)).sendShuffleData(any());
+    assertTrue(future1.isCompletedExceptionally());
+    assertTrue(future2.isCompletedExceptionally());
+  }
+
+  @Test
+  public void batchOutcomeTest() {
+    SendDataCoalescer coalescer = new SendDataCoalescer(1000, 1, 1, 1, tasks::add);
+    ShuffleServerClient client = mock(ShuffleServerClient.class);
+    RssSendShuffleDataResponse splitResponse = new RssSendShuffleDataResponse(StatusCode.SUCCESS);
+    splitResponse.setNeedSplitPartitionIds(Sets.newHashSet(1, 2));
+    when(client.sendShuffleData(any()))
+        .thenAnswer(
+            invocation -> {
+              RssSendShuffleDataRequest request = invocation.getArgument(0);
+              request.getCostTracker().recordRequireBufferFailure(server.getId());
+              return splitResponse;
+            });
+    ShuffleServerPushCostTracker costTracker1 = new ShuffleServerPushCostTracker();
+    ShuffleServerPushCostTracker costTracker2 = new ShuffleServerPushCostTracker();
+    CompletableFuture<SendDataCoalescer.SendResult> future1 =
+        coalescer.send(server, client, "app", 0, blocks(1, 1, 100), costTracker1);
+    CompletableFuture<SendDataCoalescer.SendResult> future2 =
+        coalescer.send(server, client, "app", 0, blocks(3, 2, 100), costTracker2);
+    runTasks();
+    verify(client, times(1)).sendShuffleData(any());
+    // every batch only gets the split partitions it contains
+    assertEquals(Sets.newHashSet(1), future1.join().getResponse().getNeedSplitPartitionIds());
+    assertTrue(future2.join().getResponse().getNeedSplitPartitionIds().isEmpty());
+    // and the costs of the request
+    assertEquals(1, costTracker1.toMetric().get(server.getId()).getRequireBufferFailureNumber());
+    assertEquals(1, costTracker2.toMetric().get(server.getId()).getRequireBufferFailureNumber());
+
+    // a batch which can be sent on its own doesn't fail with the coalesced request
+    when(client.sendShuffleData(any()))
+        .thenReturn(
+            new RssSendShuffleDataResponse(StatusCode.NO_BUFFER),
+            new RssSendShuffleDataResponse(StatusCode.SUCCESS),
+            new RssSendShuffleDataResponse(StatusCode.NO_REGISTER));
+    future1 = coalescer.send(server, client, "app", 0, blocks(1, 3, 100), null);
+    future2 = coalescer.send(server, client, "app", 0, blocks(2, 4, 100), null);
+    runTasks();
+    verify(client, times(4)).sendShuffleData(any());
+    assertEquals(StatusCode.SUCCESS, future1.join().getResponse().getStatusCode());
+    assertEquals(StatusCode.NO_REGISTER, future2.join().getResponse().getStatusCode());
+  }
+
+  @Test
+  public void concurrencyTest() {
+    SendDataCoalescer coalescer = new SendDataCoalescer(1000, 2, 1, 1, tasks::add);
+    ShuffleServerClient client = mock(ShuffleServerClient.class);
+    when(client.sendShuffleData(any()))
+        .thenReturn(new RssSendShuffleDataResponse(StatusCode.SUCCESS));
+    for (int i = 0; i < 4; i++) {
+      coalescer.send(server, client, "app", 0, blocks(1, i, 100), null);
+    }
+    // at most two tasks send the batches of a server at a time
+    assertEquals(2, tasks.size());
+    Runnable task = tasks.remove(0);
+    task.run();
+    // the first task took all the batches
+    assertEquals(1, tasks.size());
+    verify(client, times(1)).sendShuffleData(any());
+    coalescer.send(server, client, "app", 0, blocks(1, 4, 100), null);
+    // a second task is scheduled, next to the one which hasn't run yet
+    assertEquals(2, tasks.size());
+    runTasks();
+    verify(client, times(2)).sendShuffleData(any());
+  }
+}
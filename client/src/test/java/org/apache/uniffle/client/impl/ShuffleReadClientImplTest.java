@@ -25,6 +25,7 @@ import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -47,6 +48,7 @@ import org.apache.uniffle.common.config.RssClientConf;
 import org.apache.uniffle.common.config.RssConf;
 import org.apache.uniffle.common.util.BlockId;
 import org.apache.uniffle.common.util.BlockIdLayout;
+import org.apache.uniffle.common.util.ChecksumType;
 import org.apache.uniffle.common.util.ChecksumUtils;
 import org.apache.uniffle.storage.HadoopTestBase;
 import org.apache.uniffle.storage.handler.impl.HadoopShuffleWriteHandler;
@@ -403,15 +405,25 @@ public class ShuffleReadClientImplTest extends HadoopTestBase {
     AtomicInteger readCount = new AtomicInteger(0);
     try (MockedStatic<ChecksumUtils> checksumUtilsMock = Mockito.mockStatic(ChecksumUtils.class)) {
       checksumUtilsMock
-          .when(() -> ChecksumUtils.getCrc32(any(ByteBuffer.class), anyInt(), anyInt()))
+          .when(
+              () ->
+                  ChecksumUtils.getChecksum(
+                      any(ChecksumType.class), any(ByteBuffer.class), anyInt(), anyInt()))
           .then(
               invocation -> {
                 // crc check fails for readClient1 and frist block of readClient2
                 if (readCount.getAndIncrement() < 2) {
-                  return -1;
-                } else {
-                  return invocation.callRealMethod();
+                  return -1L;
                 }
+                // the other methods of ChecksumUtils are mocked as well
+                ByteBuffer buffer = ((ByteBuffer) invocation.getArgument(1)).duplicate();
+                int offset = invocation.getArgument(2);
+                int length = invocation.getArgument(3);
+                buffer.limit(offset + length);
+                buffer.position(offset);
+                CRC32 crc32 = new CRC32();
+                crc32.update(buffer);
+                return crc32.getValue();
               });
       try {
         ByteBuffer bb = readClient.readShuffleBlockData().getByteBuffer();
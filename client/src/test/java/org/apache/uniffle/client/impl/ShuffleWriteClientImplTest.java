@@ -146,6 +146,53 @@ public class ShuffleWriteClientImplTest {
     assertTrue(result.getFailedBlockIds().contains(10L));
   }
 
+  @Test
+  public void testSendDataWithCoalescing() {
+    RssConf rssConf = new RssConf();
+    rssConf.set(RssClientConf.RSS_CLIENT_SEND_COALESCE_MAX_SIZE, 1024L * 1024);
+    ShuffleWriteClientImpl shuffleWriteClient =
+        ShuffleClientFactory.newWriteBuilder()
+            .clientType(ClientType.GRPC.name())
+            .retryMax(3)
+            .retryIntervalMax(2000)
+            .heartBeatThreadNum(4)
+            .replica(1)
+            .replicaWrite(1)
+            .replicaRead(1)
+            .replicaSkipEnabled(true)
+            .dataTransferPoolSize(1)
+            .dataCommitPoolSize(1)
+            .unregisterThreadPoolSize(10)
+            .unregisterTimeSec(10)
+            .unregisterRequestTimeSec(10)
+            .rssConf(rssConf)
+            .build();
+    ShuffleServerClient mockShuffleServerClient = mock(ShuffleServerClient.class);
+    ShuffleWriteClientImpl spyClient = Mockito.spy(shuffleWriteClient);
+    doReturn(mockShuffleServerClient).when(spyClient).getShuffleServerClient(any());
+    when(mockShuffleServerClient.sendShuffleData(any()))
+        .thenReturn(
+            new RssSendShuffleDataResponse(StatusCode.SUCCESS),
+            new RssSendShuffleDataResponse(StatusCode.NO_BUFFER));
+
+    List<ShuffleServerInfo> shuffleServerInfoList =
+        Lists.newArrayList(new ShuffleServerInfo("id", "host", 0));
+    List<ShuffleBlockInfo> shuffleBlockInfoList =
+        Lists.newArrayList(
+            new ShuffleBlockInfo(
+                0, 0, 10, 10, 10, new byte[] {10}, shuffleServerInfoList, 10, 100, 0),
+            new ShuffleBlockInfo(
+                0, 1, 11, 10, 10, new byte[] {10}, shuffleServerInfoList, 10, 100, 0));
+    SendShuffleDataResult result =
+        spyClient.sendShuffleData("appId", shuffleBlockInfoList, () -> false);
+    assertEquals(Sets.newHashSet(10L, 11L), result.getSuccessBlockIds());
+
+    result = spyClient.sendShuffleData("appId", shuffleBlockInfoList, () -> false);
+    assertTrue(result.getSuccessBlockIds().isEmpty());
+    assertEquals(Sets.newHashSet(10L, 11L), result.getFailedBlockIds());
+    spyClient.close();
+  }
+
   @Test
   public void testRegisterAndUnRegisterShuffleServer() {
     ShuffleWriteClientImpl shuffleWriteClient =
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.uniffle.client.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.common.ShuffleBlockInfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SuccessBlockSendTrackerTest {
+
+  private static ShuffleBlockInfo block(long blockId) {
+    return new ShuffleBlockInfo(0, 0, blockId, 0, 0L, new byte[] {}, null, 0, 0L, 0L);
+  }
+
+  @Test
+  public void test() {
+    SuccessBlockSendTracker tracker =
+        new SuccessBlockSendTracker(Lists.newArrayList(block(5), block(3), block(5), block(-2)));
+    tracker.incSuccess(5);
+    tracker.incSuccess(5);
+    tracker.incSuccess(-2);
+    assertEquals(2, tracker.getSuccessCount(5));
+    assertEquals(0, tracker.getSuccessCount(3));
+    assertEquals(Sets.newHashSet(5L, -2L), tracker.getSuccessBlockIds(1));
+    assertEquals(Sets.newHashSet(5L), tracker.getSuccessBlockIds(2));
+    assertTrue(tracker.getSuccessBlockIds(3).isEmpty());
+    // the blocks not sent aren't tracked
+    assertEquals(0, tracker.getSuccessCount(4));
+    assertThrows(IllegalArgumentException.class, () -> tracker.incSuccess(4));
+  }
+
+  @Test
+  public void concurrentTest() throws InterruptedException {
+    List<ShuffleBlockInfo> blocks = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      blocks.add(block(i));
+    }
+    SuccessBlockSendTracker tracker = new SuccessBlockSendTracker(blocks);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int replica = 0; replica < 4; replica++) {
+      executor.execute(() -> blocks.forEach(block -> tracker.incSuccess(block.getBlockId())));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(1000, tracker.getSuccessBlockIds(4).size());
+    assertTrue(tracker.getSuccessBlockIds(5).isEmpty());
+  }
+}
@@ -44,6 +44,8 @@ import org.apache.uniffle.common.serializer.SerializerFactory;
 import org.apache.uniffle.common.serializer.SerializerInstance;
 import org.apache.uniffle.common.serializer.SerializerUtils;
 
+import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_REMOTE_MERGE_READER_MAX_BUFFER_SIZE;
+import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_REMOTE_MERGE_READER_MAX_RECORDS_PER_BUFFER;
 import static org.apache.uniffle.common.serializer.SerializerUtils.genSortedRecordBuffer;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -269,6 +271,77 @@ public class RMRecordsReaderTest {
     Arrays.stream(buffers).forEach(bs -> Arrays.stream(bs).forEach(b -> b.release()));
   }
 
+  @Timeout(30)
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "org.apache.hadoop.io.Text,org.apache.hadoop.io.IntWritable,true",
+        "java.lang.String,java.lang.Integer",
+      })
+  public void testReadMulitPartitionWithMemoryBudget(String classes) throws Exception {
+    final String[] classArray = classes.split(",");
+    final Class keyClass = SerializerUtils.getClassByName(classArray[0]);
+    final Class valueClass = SerializerUtils.getClassByName(classArray[1]);
+    final boolean raw = classArray.length > 2 ? Boolean.parseBoolean(classArray[2]) : false;
+    final Comparator comparator = SerializerUtils.getComparator(keyClass);
+    final int partitionId = 0;
+    final RssConf rssConf = new RssConf();
+    // every partition can only queue one small buffer at a time
+    rssConf.set(RSS_CLIENT_REMOTE_MERGE_READER_MAX_BUFFER_SIZE, 1L);
+    rssConf.set(RSS_CLIENT_REMOTE_MERGE_READER_MAX_RECORDS_PER_BUFFER, 10);
+    final List<ShuffleServerInfo> serverInfos = new ArrayList<>();
+    serverInfos.add(new ShuffleServerInfo("dummy", -1));
+
+    RMRecordsReader reader =
+        new RMRecordsReader(
+            APP_ID,
+            SHUFFLE_ID,
+            Sets.newHashSet(partitionId, partitionId + 1, partitionId + 2),
+            ImmutableMap.of(
+                partitionId,
+                serverInfos,
+                partitionId + 1,
+                serverInfos,
+                partitionId + 2,
+                serverInfos),
+            rssConf,
+            keyClass,
+            valueClass,
+            comparator,
+            raw,
+            null,
+            false,
+            null);
+    RMRecordsReader readerSpy = spy(reader);
+    ByteBuf[][] buffers = new ByteBuf[3][2];
+    for (int i = 0; i < 3; i++) {
+      buffers[i][0] = genSortedRecordBuffer(rssConf, keyClass, valueClass, i, 3, RECORDS_NUM, 1);
+      buffers[i][1] =
+          genSortedRecordBuffer(
+              rssConf, keyClass, valueClass, i + RECORDS_NUM * 3, 3, RECORDS_NUM, 1);
+    }
+    ShuffleServerClient serverClient =
+        new MockedShuffleServerClient(
+            new int[] {partitionId, partitionId + 1, partitionId + 2}, buffers, null);
+    doReturn(serverClient).when(readerSpy).createShuffleServerClient(any());
+
+    // the reader makes progress with one buffer of each partition
+    readerSpy.start();
+    int index = 0;
+    KeyValueReader keyValueReader = readerSpy.keyValueReader();
+    while (keyValueReader.hasNext()) {
+      Record record = keyValueReader.next();
+      assertEquals(SerializerUtils.genData(keyClass, index), record.getKey());
+      assertEquals(SerializerUtils.genData(valueClass, index), record.getValue());
+      index++;
+    }
+    assertEquals(RECORDS_NUM * 6, index);
+    // all the fetched records are merged and released
+    assertEquals(0, readerSpy.getMemoryBudget().getUsedBytes());
+    readerSpy.close();
+    Arrays.stream(buffers).forEach(bs -> Arrays.stream(bs).forEach(b -> b.release()));
+  }
+
   @Timeout(30)
   @ParameterizedTest
   @ValueSource(
@@ -304,6 +304,11 @@ public class ShuffleBlockInfo {
     ByteBufUtils.copyByteBuf(data, to);
   }
 
+  /** Copies the data without its length, the reader index of the data stays the same. */
+  public synchronized void copyDataBytesTo(ByteBuf to) {
+    to.writeBytes(data, data.readerIndex(), data.readableBytes());
+  }
+
   public void withCompletionCallback(BlockCompletionCallback callback) {
     this.completionCallback = callback;
   }
@@ -356,6 +356,15 @@ public class RssBaseConf extends RssConf {
           .defaultValue("8k")
           .withDescription("The buffer size to cache the write index content for HDFS.");
 
+  public static final ConfigOption<Boolean> RSS_STORAGE_HDFS_MANIFEST_ENABLED =
+      ConfigOptions.key("rss.storage.hdfs.manifest.enabled")
+          .booleanType()
+          .defaultValue(false)
+          .withDescription(
+              "Whether to publish a manifest of the files written into each partition folder "
+                  + "of HDFS, so the readers find the files without listing the folder on the "
+                  + "NameNode.");
+
   public boolean loadConfFromFile(String fileName, List<ConfigOption<Object>> configOptions) {
     Map<String, String> properties = RssUtils.getPropertiesFromFile(fileName);
     if (properties == null) {
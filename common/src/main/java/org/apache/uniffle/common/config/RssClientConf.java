@@ -25,6 +25,7 @@ import org.apache.uniffle.common.ShuffleDataDistributionType;
 import org.apache.uniffle.common.compression.Codec;
 import org.apache.uniffle.common.netty.IOMode;
 import org.apache.uniffle.common.util.BlockIdLayout;
+import org.apache.uniffle.common.util.ChecksumType;
 
 import static org.apache.uniffle.common.compression.Codec.Type.LZ4;
 
@@ -53,6 +54,15 @@ public class RssClientConf {
               "The compression codec is used to compress the shuffle data. "
                   + "Default codec is `LZ4`. Other options are`ZSTD` and `SNAPPY`.");
 
+  public static final ConfigOption<ChecksumType> RSS_CLIENT_CHECKSUM_TYPE =
+      ConfigOptions.key("rss.client.checksum.type")
+          .enumType(ChecksumType.class)
+          .defaultValue(ChecksumType.CRC32)
+          .withDescription(
+              "The checksum of the shuffle blocks, which is computed by the writers and verified "
+                  + "by the readers, so it must be the same for them. Options are `CRC32`, "
+                  + "`CRC32C`, `XXHASH64` and `NONE` to skip the checksum.");
+
   public static final ConfigOption<Integer> ZSTD_COMPRESSION_LEVEL =
       ConfigOptions.key("rss.client.io.compression.zstd.level")
           .intType()
@@ -149,6 +159,27 @@ public class RssClientConf {
               "The value of smallCacheSize for PooledByteBufAllocator when using gRPC internal Netty on the client-side. "
                   + "This configuration will only take effect when rss.client.type is set to GRPC_NETTY.");
 
+  public static final ConfigOption<Boolean> RPC_NETTY_SEND_COMPACT_ENABLED =
+      ConfigOptions.key("rss.client.rpc.netty.send.compact.enabled")
+          .booleanType()
+          .defaultValue(false)
+          .withDescription(
+              "Whether to send shuffle data in the compact encoding, which sends the replica servers "
+                  + "once per request and encodes the block headers as variable-length deltas. "
+                  + "It's only used for the shuffle servers which tell they support it when the "
+                  + "buffer is required, the older ones are sent the default encoding. "
+                  + "This configuration will only take effect when rss.client.type is set to GRPC_NETTY.");
+
+  public static final ConfigOption<Boolean> RPC_NETTY_SEND_CREDIT_ENABLED =
+      ConfigOptions.key("rss.client.rpc.netty.send.credit.enabled")
+          .booleanType()
+          .defaultValue(false)
+          .withDescription(
+              "Whether to ask the shuffle server for a send credit, i.e. a pre-allocated buffer, "
+                  + "in every send request, and spend it in the next send request instead of "
+                  + "requiring the buffer first, which saves a round trip per send request. "
+                  + "This configuration will only take effect when rss.client.type is set to GRPC_NETTY.");
+
   public static final ConfigOption<Integer> NETTY_IO_CONNECT_TIMEOUT_MS =
       ConfigOptions.key("rss.client.netty.io.connect.timeout.ms")
           .intType()
@@ -278,6 +309,23 @@ public class RssClientConf {
           .withDescription(
               "Whether to support rss client block send failure retry, default value is false.");
 
+  public static final ConfigOption<Long> RSS_CLIENT_SEND_COALESCE_MAX_SIZE =
+      ConfigOptions.key("rss.client.send.coalesce.maxSize")
+          .longType()
+          .defaultValue(0L)
+          .withDescription(
+              "The max size of the shuffle data sent to the same shuffle server by the concurrent "
+                  + "sending, e.g. of different tasks, to coalesce into one send request. "
+                  + "The send requests are not coalesced if it's 0.");
+
+  public static final ConfigOption<Integer> RSS_CLIENT_SEND_COALESCE_MAX_CONCURRENCY =
+      ConfigOptions.key("rss.client.send.coalesce.maxConcurrency")
+          .intType()
+          .defaultValue(2)
+          .withDescription(
+              "The max number of the coalesced send requests in flight to the same shuffle "
+                  + "server, each of which takes a data transfer thread while it's sent.");
+
   public static final ConfigOption<PartitionSplitMode> RSS_CLIENT_PARTITION_SPLIT_MODE =
       ConfigOptions.key("rss.client.reassign.partitionSplitMode")
           .enumType(PartitionSplitMode.class)
@@ -316,6 +364,15 @@ public class RssClientConf {
           .defaultValue(500)
           .withDescription("the max size of records per buffer when fetch remote merge records");
 
+  public static final ConfigOption<Long> RSS_CLIENT_REMOTE_MERGE_READER_MAX_BUFFER_SIZE =
+      ConfigOptions.key("rss.client.remote.merge.reader.maxBufferSize")
+          .longType()
+          .defaultValue(256 * 1024 * 1024L)
+          .withDescription(
+              "the max bytes of the records fetched but not merged yet for all the partitions "
+                  + "when fetch remote merge records, the fetchers wait once it's exceeded. "
+                  + "Non-positive means unlimited");
+
   public static final ConfigOption<List<String>> RSS_CLIENT_EXTRA_JAVA_SYSTEM_PROPERTIES =
       ConfigOptions.key("rss.client.extraJavaSystemProperties")
           .stringType()
@@ -363,6 +420,23 @@ public class RssClientConf {
           .defaultValue(4)
           .withDescription("Read prefetch capacity");
 
+  public static final ConfigOption<Integer> RSS_CLIENT_PREFETCH_THREADS =
+      ConfigOptions.key("rss.client.read.prefetch.threads")
+          .intType()
+          .defaultValue(1)
+          .withDescription(
+              "The number of threads to prefetch data segments concurrently for each read handler. "
+                  + "The results are still returned in segment order");
+
+  public static final ConfigOption<Long> RSS_CLIENT_PREFETCH_MEMORY_BUDGET =
+      ConfigOptions.key("rss.client.read.prefetch.memoryBudget")
+          .longType()
+          .defaultValue(0L)
+          .withDescription(
+              "The max size of prefetched but not consumed data shared by all read handlers "
+                  + "in the same process, 0 means unlimited. Each read handler is always allowed "
+                  + "to have one segment in flight");
+
   public static final ConfigOption<Integer> READ_CLIENT_PREFETCH_TIMEOUT_SEC =
       ConfigOptions.key("rss.client.read.prefetch.timeoutSec")
           .intType()
@@ -76,42 +76,7 @@ public class Merger {
 
     @Override
     protected boolean lessThan(Object o1, Object o2) {
-      if (raw) {
-        if (buffered) {
-          Segment s1 = (Segment) o1;
-          Segment s2 = (Segment) o2;
-          ByteBuf key1 = (ByteBuf) s1.getCurrentKey();
-          ByteBuf key2 = (ByteBuf) s2.getCurrentKey();
-          // make sure key buffer is in heap, avoid byte array copy
-          int c =
-              ((RawComparator) comparator)
-                  .compare(
-                      key1.array(),
-                      key1.arrayOffset() + key1.readerIndex(),
-                      key1.readableBytes(),
-                      key2.array(),
-                      key2.arrayOffset() + key2.readerIndex(),
-                      key2.readableBytes());
-          return c < 0 || ((c == 0) && s1.getId() < s2.getId());
-        } else {
-          Segment s1 = (Segment) o1;
-          Segment s2 = (Segment) o2;
-          DataOutputBuffer key1 = (DataOutputBuffer) s1.getCurrentKey();
-          DataOutputBuffer key2 = (DataOutputBuffer) s2.getCurrentKey();
-          int c =
-              ((RawComparator) comparator)
-                  .compare(
-                      key1.getData(), 0, key1.getLength(), key2.getData(), 0, key2.getLength());
-          return c < 0 || ((c == 0) && s1.getId() < s2.getId());
-        }
-      } else {
-        Segment s1 = (Segment) o1;
-        Segment s2 = (Segment) o2;
-        Object key1 = s1.getCurrentKey();
-        Object key2 = s2.getCurrentKey();
-        int c = comparator.compare(key1, key2);
-        return c < 0 || ((c == 0) && s1.getId() < s2.getId());
-      }
+      return Merger.lessThan((Segment) o1, (Segment) o2, comparator, raw, buffered);
     }
 
     public void init() throws IOException {
@@ -205,7 +170,209 @@ public class Merger {
     public void close() throws IOException {}
   }
 
-  public static void merge(
+  /**
+   * Compares the current keys of the segments, the raw keys are compared without being
+   * deserialized. The segment with the smaller id goes first if the keys are equal, so the merge is
+   * stable.
+   */
+  static boolean lessThan(
+      Segment s1, Segment s2, Comparator comparator, boolean raw, boolean buffered) {
+    int c;
+    if (raw) {
+      if (buffered) {
+        ByteBuf key1 = (ByteBuf) s1.getCurrentKey();
+        ByteBuf key2 = (ByteBuf) s2.getCurrentKey();
+        // make sure key buffer is in heap, avoid byte array copy
+        c =
+            ((RawComparator) comparator)
+                .compare(
+                    key1.array(),
+                    key1.arrayOffset() + key1.readerIndex(),
+                    key1.readableBytes(),
+                    key2.array(),
+                    key2.arrayOffset() + key2.readerIndex(),
+                    key2.readableBytes());
+      } else {
+        DataOutputBuffer key1 = (DataOutputBuffer) s1.getCurrentKey();
+        DataOutputBuffer key2 = (DataOutputBuffer) s2.getCurrentKey();
+        c =
+            ((RawComparator) comparator)
+                .compare(key1.getData(), 0, key1.getLength(), key2.getData(), 0, key2.getLength());
+      }
+    } else {
+      c = comparator.compare(s1.getCurrentKey(), s2.getCurrentKey());
+    }
+    return c < 0 || ((c == 0) && s1.getId() < s2.getId());
+  }
+
+  /**
+   * Merges the segments with a loser tree. Unlike a heap, which compares the new key of the top
+   * segment with both children on every level, a loser tree only compares it with the loser stored
+   * on each level, so every record takes log2(n) comparisons.
+   */
+  public static class LoserTreeMergeQueue<K, V> implements KeyValueIterator {
+
+    private final RssConf rssConf;
+    private final List<Segment> segments;
+    private final Class<K> keyClass;
+    private final Class<V> valueClass;
+    private final Comparator comparator;
+    private final boolean raw;
+    private final boolean buffered;
+
+    // the segments being merged, null if the segment is exhausted
+    private Segment[] leaves;
+    // tree[0] is the index of the winner, tree[i] is the index of the loser at the inner node i
+    private int[] tree;
+    private int remaining;
+    private boolean started = false;
+
+    private Object currentKey;
+    private Object currentValue;
+    private long recordNum = 0;
+
+    public LoserTreeMergeQueue(
+        RssConf rssConf,
+        List<Segment> segments,
+        Class<K> keyClass,
+        Class<V> valueClass,
+        Comparator<K> comparator,
+        boolean raw,
+        boolean buffered) {
+      this.rssConf = rssConf;
+      this.segments = segments;
+      this.keyClass = keyClass;
+      this.valueClass = valueClass;
+      if (comparator == null) {
+        throw new RssException("comparator is null!");
+      }
+      this.comparator = comparator;
+      this.raw = raw;
+      this.buffered = buffered;
+    }
+
+    public void init() throws IOException {
+      List<Segment> segmentsToMerge = new ArrayList<>();
+      for (Segment segment : segments) {
+        if (segment.next()) {
+          segmentsToMerge.add(segment);
+        } else {
+          segment.close();
+        }
+      }
+      leaves = segmentsToMerge.toArray(new Segment[0]);
+      remaining = leaves.length;
+      tree = new int[Math.max(1, leaves.length)];
+      if (leaves.length > 0) {
+        tree[0] = build(1);
+      }
+    }
+
+    // returns the winner of the sub tree, and keeps the losers in the inner nodes
+    private int build(int node) {
+      if (node >= leaves.length) {
+        return node - leaves.length;
+      }
+      int left = build(2 * node);
+      int right = build(2 * node + 1);
+      if (beats(left, right)) {
+        tree[node] = right;
+        return left;
+      }
+      tree[node] = left;
+      return right;
+    }
+
+    private boolean beats(int i, int j) {
+      if (leaves[i] == null) {
+        return false;
+      }
+      if (leaves[j] == null) {
+        return true;
+      }
+      return lessThan(leaves[i], leaves[j], comparator, raw, buffered);
+    }
+
+    // replays the matches from the leaf to the root after its current record changed
+    private void adjust(int leaf) {
+      int winner = leaf;
+      for (int node = (leaf + leaves.length) / 2; node >= 1; node /= 2) {
+        if (beats(tree[node], winner)) {
+          int loser = winner;
+          winner = tree[node];
+          tree[node] = loser;
+        }
+      }
+      tree[0] = winner;
+    }
+
+    @Override
+    public Object getCurrentKey() {
+      return currentKey;
+    }
+
+    @Override
+    public Object getCurrentValue() {
+      return currentValue;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+      if (remaining == 0) {
+        resetKeyValue();
+        return false;
+      }
+      if (started) {
+        int winner = tree[0];
+        Segment segment = leaves[winner];
+        if (!segment.next()) {
+          segment.close();
+          leaves[winner] = null;
+          remaining--;
+        }
+        if (remaining == 0) {
+          resetKeyValue();
+          return false;
+        }
+        adjust(winner);
+      }
+      started = true;
+      Segment minSegment = leaves[tree[0]];
+      currentKey = minSegment.getCurrentKey();
+      currentValue = minSegment.getCurrentValue();
+      recordNum++;
+      return true;
+    }
+
+    private void resetKeyValue() {
+      currentKey = null;
+      currentValue = null;
+    }
+
+    public long getRecordNum() {
+      return recordNum;
+    }
+
+    public void merge(SerOutputStream output) throws IOException {
+      RecordsWriter<K, V> writer =
+          new RecordsWriter<K, V>(rssConf, output, keyClass, valueClass, raw, buffered);
+      try {
+        writer.init();
+        while (this.next()) {
+          writer.append(this.getCurrentKey(), this.getCurrentValue());
+        }
+        writer.flush();
+      } finally {
+        writer.close();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {}
+  }
+
+  /** @return the number of the merged records */
+  public static long merge(
       RssConf conf,
       SerOutputStream output,
       List<Segment> segments,
@@ -214,13 +381,14 @@ public class Merger {
       Comparator comparator,
       boolean raw)
       throws IOException {
-    MergeQueue mergeQueue =
-        new MergeQueue(conf, segments, keyClass, valueClass, comparator, raw, true);
+    LoserTreeMergeQueue mergeQueue =
+        new LoserTreeMergeQueue(conf, segments, keyClass, valueClass, comparator, raw, true);
     try {
       mergeQueue.init();
       mergeQueue.merge(output);
     } finally {
       mergeQueue.close();
     }
+    return mergeQueue.getRecordNum();
   }
 }
@@ -17,16 +17,19 @@
 
 package org.apache.uniffle.common.netty;
 
+import java.util.Collections;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.FileRegion;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.common.netty.protocol.CompositeFileRegion;
 import org.apache.uniffle.common.netty.protocol.Message;
 import org.apache.uniffle.common.netty.protocol.MessageWithHeader;
 import org.apache.uniffle.common.netty.protocol.RpcResponse;
@@ -90,7 +93,19 @@ public final class MessageEncoder extends MessageToMessageEncoder<Message> {
           "header's writable bytes should be 0, but it is " + header.writableBytes());
     }
 
-    if (body != null) {
+    if (body instanceof FileRegion) {
+      // The header and the file regions are written as separate messages, so every region reaches
+      // the transport as it is. The epoll transport only uses sendfile for a DefaultFileRegion
+      // written directly, it copies a wrapping FileRegion through a heap buffer instead. The file
+      // regions own the file channels, the managed buffer isn't needed anymore.
+      in.body().release();
+      out.add(header);
+      if (body instanceof CompositeFileRegion) {
+        Collections.addAll(out, ((CompositeFileRegion) body).getRegions());
+      } else {
+        out.add(body);
+      }
+    } else if (body != null) {
       // We transfer ownership of the reference on in.body() to MessageWithHeader.
       // This reference will be freed when MessageWithHeader.deallocate() is called.
       out.add(new MessageWithHeader(in.body(), header, body, bodyLength));
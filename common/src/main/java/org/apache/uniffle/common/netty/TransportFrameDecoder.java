@@ -57,6 +57,21 @@ public class TransportFrameDecoder extends ChannelInboundHandlerAdapter implemen
 
   private long totalSize = 0;
   private long nextFrameSize = UNKNOWN_FRAME_SIZE;
+  // whether the shuffle data in a frame is decoded as retained slices of the frame
+  private final boolean sliceShuffleData;
+
+  public TransportFrameDecoder() {
+    this(false);
+  }
+
+  /**
+   * @param sliceShuffleData whether to keep the block data of the send requests as retained slices
+   *     of the frame instead of copying them. This saves a copy and an allocation per block, while
+   *     the frame is kept in memory until the data of all its blocks are released.
+   */
+  public TransportFrameDecoder(boolean sliceShuffleData) {
+    this.sliceShuffleData = sliceShuffleData;
+  }
 
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object data) {
@@ -71,7 +86,7 @@ public class TransportFrameDecoder extends ChannelInboundHandlerAdapter implemen
       }
       Message msg = null;
       try {
-        msg = Message.decode(curType, frame);
+        msg = Message.decode(curType, frame, sliceShuffleData);
       } finally {
         if (shouldRelease(msg)) {
           frame.release();
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.common.netty.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import io.netty.util.internal.PlatformDependent;
+
+import org.apache.uniffle.common.util.JavaUtils;
+
+/**
+ * A pool of direct buffers whose memory address and capacity are multiples of the alignment, as
+ * required by direct I/O. Buffers are grouped by power-of-two capacity, and at most {@code
+ * maxPooledBytes} bytes of idle buffers are kept, the others are left to the garbage collector.
+ */
+public class AlignedBufferPool {
+
+  private final int alignment;
+  private final long maxPooledBytes;
+  private final Map<Integer, Queue<ByteBuffer>> pools = JavaUtils.newConcurrentMap();
+  private final AtomicLong pooledBytes = new AtomicLong(0);
+
+  public AlignedBufferPool(int alignment, long maxPooledBytes) {
+    Preconditions.checkArgument(
+        alignment > 0 && (alignment & (alignment - 1)) == 0,
+        "Alignment must be a power of two, but got " + alignment);
+    this.alignment = alignment;
+    this.maxPooledBytes = maxPooledBytes;
+  }
+
+  public int getAlignment() {
+    return alignment;
+  }
+
+  /**
+   * Returns a cleared buffer which can hold at least {@code size} bytes, its capacity is a multiple
+   * of the alignment.
+   */
+  public ByteBuffer acquire(int size) {
+    int capacity = capacityOf(size);
+    Queue<ByteBuffer> pool = pools.get(capacity);
+    ByteBuffer buffer = pool == null ? null : pool.poll();
+    if (buffer != null) {
+      pooledBytes.addAndGet(-capacity);
+      buffer.clear();
+      return buffer;
+    }
+    return allocateAligned(capacity);
+  }
+
+  public void release(ByteBuffer buffer) {
+    int capacity = buffer.capacity();
+    if (capacity != capacityOf(capacity)) {
+      // not allocated by this pool
+      return;
+    }
+    if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+      pooledBytes.addAndGet(-capacity);
+      return;
+    }
+    pools.computeIfAbsent(capacity, k -> new ConcurrentLinkedQueue<>()).offer(buffer);
+  }
+
+  @VisibleForTesting
+  long getPooledBytes() {
+    return pooledBytes.get();
+  }
+
+  private int capacityOf(int size) {
+    int capacity = Math.max(size, alignment);
+    int highest = Integer.highestOneBit(capacity);
+    return highest == capacity ? capacity : highest << 1;
+  }
+
+  private ByteBuffer allocateAligned(int capacity) {
+    ByteBuffer raw = ByteBuffer.allocateDirect(capacity + alignment);
+    long address = PlatformDependent.directBufferAddress(raw);
+    int misalignment = (int) (address & (alignment - 1));
+    int position = misalignment == 0 ? 0 : alignment - misalignment;
+    raw.position(position);
+    raw.limit(position + capacity);
+    // the slice keeps a reference to the raw buffer, so its memory lives as long as the slice
+    return raw.slice();
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.common.netty.buffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.util.JavaUtils;
+
+/**
+ * A file segment which is read with direct I/O into an aligned buffer borrowed from an {@link
+ * AlignedBufferPool}, so large sequential reads don't go through the page cache. The read range is
+ * widened to the alignment and the requested segment is sliced out of it. When direct I/O is not
+ * supported by the JVM or the file system, the aligned range is read through the page cache
+ * instead.
+ */
+public class DirectIOFileSegmentManagedBuffer extends ManagedBuffer {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(DirectIOFileSegmentManagedBuffer.class);
+  // ExtendedOpenOption.DIRECT is only available since JDK 10
+  private static final OpenOption DIRECT_OPTION = loadDirectOption();
+
+  private final File file;
+  private final long offset;
+  private final int length;
+  private final AlignedBufferPool pool;
+  private ByteBuffer alignedBuffer;
+  private ByteBuffer cachedBuffer;
+
+  public DirectIOFileSegmentManagedBuffer(
+      File file, long offset, int length, AlignedBufferPool pool) {
+    this.file = file;
+    this.offset = offset;
+    this.length = length;
+    this.pool = pool;
+  }
+
+  public static boolean isDirectIOSupported() {
+    return DIRECT_OPTION != null;
+  }
+
+  @Override
+  public int size() {
+    return length;
+  }
+
+  @Override
+  public ByteBuf byteBuf() {
+    return Unpooled.wrappedBuffer(this.nioByteBuffer());
+  }
+
+  @Override
+  public synchronized ByteBuffer nioByteBuffer() {
+    if (cachedBuffer != null) {
+      return cachedBuffer.duplicate();
+    }
+    int alignment = pool.getAlignment();
+    long alignedOffset = offset - (offset & (alignment - 1));
+    long end = offset + length;
+    long alignedEnd = (end + alignment - 1) & -alignment;
+    ByteBuffer buffer = pool.acquire((int) (alignedEnd - alignedOffset));
+    buffer.limit((int) (alignedEnd - alignedOffset));
+    try {
+      long readEnd = readAligned(buffer, alignedOffset, end);
+      if (readEnd < end) {
+        throw new IOException(
+            String.format(
+                "Reached EOF before filling buffer.offset=%s,file=%s,buf.remaining=%s",
+                offset, file.getAbsoluteFile(), end - readEnd));
+      }
+    } catch (IOException e) {
+      pool.release(buffer);
+      LOG.error(
+          String.format(
+              "Errors on reading localfile data with offset[%s] length[%s] from [%s]. "
+                  + "The actual file length: %s",
+              offset, length, file.getAbsolutePath(), file.length()),
+          e);
+      return ByteBuffer.allocate(0);
+    }
+    buffer.position((int) (offset - alignedOffset));
+    buffer.limit((int) (end - alignedOffset));
+    alignedBuffer = buffer;
+    cachedBuffer = buffer.slice();
+    return cachedBuffer.duplicate();
+  }
+
+  @Override
+  public ManagedBuffer retain() {
+    return this;
+  }
+
+  /** Returns the aligned buffer to the pool, buffers returned before can't be used any more. */
+  @Override
+  public synchronized ManagedBuffer release() {
+    if (alignedBuffer != null) {
+      pool.release(alignedBuffer);
+      alignedBuffer = null;
+      cachedBuffer = null;
+    }
+    return this;
+  }
+
+  @Override
+  public Object convertToNetty() {
+    // the returned ByteBuf doesn't own the memory, it's given back to the pool when this buffer is
+    // released by the MessageWithHeader after the body is sent
+    return Unpooled.wrappedBuffer(nioByteBuffer());
+  }
+
+  /** Reads from alignedOffset until end is reached or EOF, returns the position read up to. */
+  private long readAligned(ByteBuffer buffer, long alignedOffset, long end) throws IOException {
+    int alignment = pool.getAlignment();
+    if (DIRECT_OPTION != null) {
+      FileChannel channel = null;
+      try {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, DIRECT_OPTION);
+        return readFully(channel, buffer, alignedOffset, end, alignment);
+      } catch (IOException | UnsupportedOperationException e) {
+        // e.g. the file system doesn't support O_DIRECT or the alignment is smaller than its
+        // block size, fall back to the page cache
+        LOG.debug("Failed to read {} with direct I/O, fall back to buffered read", file, e);
+        buffer.position(0);
+      } finally {
+        JavaUtils.closeQuietly(channel);
+      }
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return readFully(channel, buffer, alignedOffset, end, alignment);
+    }
+  }
+
+  private static long readFully(
+      FileChannel channel, ByteBuffer buffer, long position, long end, int alignment)
+      throws IOException {
+    long current = position;
+    while (current < end) {
+      int read = channel.read(buffer, current);
+      if (read <= 0) {
+        break;
+      }
+      current += read;
+      if ((current & (alignment - 1)) != 0) {
+        // only the last block of a file can be read partially, and direct I/O can't continue
+        // from an unaligned position
+        break;
+      }
+    }
+    return current;
+  }
+
+  private static OpenOption loadDirectOption() {
+    try {
+      Class<?> clazz = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+      return (OpenOption) clazz.getField("DIRECT").get(null);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+}
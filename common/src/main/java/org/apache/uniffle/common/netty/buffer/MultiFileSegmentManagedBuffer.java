@@ -29,7 +29,10 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.uniffle.common.netty.protocol.CompositeFileRegion;
 
-/** A wrapper of multiple {@link FileSegmentManagedBuffer}, used for combine shuffle index files. */
+/**
+ * A wrapper of multiple {@link ManagedBuffer}s, used for combine shuffle index files. It's sent as
+ * file regions if all of them are {@link FileSegmentManagedBuffer}s.
+ */
 public class MultiFileSegmentManagedBuffer extends ManagedBuffer {
 
   private static final Logger LOG = LoggerFactory.getLogger(MultiFileSegmentManagedBuffer.class);
@@ -39,6 +42,10 @@ public class MultiFileSegmentManagedBuffer extends ManagedBuffer {
     this.managedBuffers = managedBuffers;
   }
 
+  public List<ManagedBuffer> getManagedBuffers() {
+    return managedBuffers;
+  }
+
   @Override
   public int size() {
     return managedBuffers.stream().mapToInt(ManagedBuffer::size).sum();
@@ -67,11 +74,20 @@ public class MultiFileSegmentManagedBuffer extends ManagedBuffer {
 
   @Override
   public ManagedBuffer release() {
+    for (ManagedBuffer managedBuffer : managedBuffers) {
+      managedBuffer.release();
+    }
     return this;
   }
 
   @Override
   public Object convertToNetty() {
+    if (!managedBuffers.stream().allMatch(b -> b instanceof FileSegmentManagedBuffer)) {
+      // the buffers already in memory can't be sent as file regions, all the buffers are sent as
+      // one ByteBuf viewing them, which doesn't own their memory
+      return Unpooled.wrappedBuffer(
+          managedBuffers.stream().map(ManagedBuffer::byteBuf).toArray(ByteBuf[]::new));
+    }
     List<FileRegion> fileRegions = new ArrayList<>(managedBuffers.size());
     for (ManagedBuffer managedBuffer : managedBuffers) {
       Object object = managedBuffer.convertToNetty();
@@ -34,6 +34,10 @@ public class CompositeFileRegion extends AbstractFileRegion {
     }
   }
 
+  public FileRegion[] getRegions() {
+    return regions;
+  }
+
   @Override
   public long position() {
     return bytesTransferred;
@@ -71,6 +71,15 @@ public class Decoders {
   }
 
   public static ShufflePartitionedBlock decodeShufflePartitionedBlockV1(ByteBuf byteBuf) {
+    return decodeShufflePartitionedBlockV1(byteBuf, false);
+  }
+
+  /**
+   * @param sliceData whether the data of the block is a retained slice of the byteBuf rather than a
+   *     copy in a new buffer. Releasing the data of the block releases the slice.
+   */
+  public static ShufflePartitionedBlock decodeShufflePartitionedBlockV1(
+      ByteBuf byteBuf, boolean sliceData) {
     // To ensure upgrade compatibility, only the server-side code was modified.
     // Some unused information will be skipped during decoding.
     // TODO: Remove the ShuffleBlockInfo used in the communication between client and server via
@@ -83,8 +92,13 @@ public class Decoders {
     final long crc = byteBuf.readLong();
     final long taskAttemptId = byteBuf.readLong();
     int dataLength = byteBuf.readInt();
-    ByteBuf data = NettyUtils.getSharedUnpooledByteBufAllocator(true).directBuffer(dataLength);
-    data.writeBytes(byteBuf, dataLength);
+    ByteBuf data;
+    if (sliceData) {
+      data = byteBuf.readRetainedSlice(dataLength);
+    } else {
+      data = NettyUtils.getSharedUnpooledByteBufAllocator(true).directBuffer(dataLength);
+      data.writeBytes(byteBuf, dataLength);
+    }
     int lengthOfShuffleServers = byteBuf.readInt();
     List<ShuffleServerInfo> serverInfos = Lists.newArrayList();
     for (int k = 0; k < lengthOfShuffleServers; k++) {
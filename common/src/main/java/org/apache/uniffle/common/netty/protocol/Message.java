@@ -69,6 +69,10 @@ public abstract class Message implements Encodable {
     GET_LOCAL_SHUFFLE_DATA_V2_REQUEST(24),
     GET_LOCAL_SHUFFLE_DATA_V3_REQUEST(25),
     GET_MEMORY_SHUFFLE_DATA_V2_RESPONSE(26),
+    // only sent to the servers which announce it in the require buffer response
+    SEND_SHUFFLE_DATA_V2_REQUEST(27),
+    // only sent in reply to the send requests which ask for a credit
+    SEND_SHUFFLE_DATA_RESPONSE(28),
     ;
 
     private final byte id;
@@ -149,6 +153,10 @@ public abstract class Message implements Encodable {
           return GET_LOCAL_SHUFFLE_DATA_V2_REQUEST;
         case 26:
           return GET_MEMORY_SHUFFLE_DATA_V2_RESPONSE;
+        case 27:
+          return SEND_SHUFFLE_DATA_V2_REQUEST;
+        case 28:
+          return SEND_SHUFFLE_DATA_RESPONSE;
         case -1:
           throw new IllegalArgumentException("User type messages cannot be decoded.");
         default:
@@ -158,11 +166,23 @@ public abstract class Message implements Encodable {
   }
 
   public static Message decode(Type msgType, ByteBuf in) {
+    return decode(msgType, in, false);
+  }
+
+  /**
+   * @param sliceShuffleData whether the data of the shuffle blocks are kept as retained slices of
+   *     the input buffer instead of being copied out of it
+   */
+  public static Message decode(Type msgType, ByteBuf in, boolean sliceShuffleData) {
     switch (msgType) {
       case RPC_RESPONSE:
         return RpcResponse.decode(in, false);
+      case SEND_SHUFFLE_DATA_RESPONSE:
+        return SendShuffleDataResponse.decode(in);
       case SEND_SHUFFLE_DATA_REQUEST:
-        return SendShuffleDataRequestV1.decode(in);
+        return SendShuffleDataRequestV1.decode(in, sliceShuffleData);
+      case SEND_SHUFFLE_DATA_V2_REQUEST:
+        return SendShuffleDataV2Request.decode(in, sliceShuffleData);
       case GET_LOCAL_SHUFFLE_DATA_REQUEST:
         return GetLocalShuffleDataRequest.decode(in);
       case GET_LOCAL_SHUFFLE_DATA_V2_REQUEST:
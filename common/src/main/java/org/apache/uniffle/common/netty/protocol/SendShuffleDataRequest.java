@@ -35,6 +35,8 @@ public class SendShuffleDataRequest extends RequestMessage {
   private long requireId;
   private Map<Integer, List<ShuffleBlockInfo>> partitionToBlocks;
   private long timestamp;
+  // the size of the send credit asked for the next request, 0 if no credit is needed
+  private int creditSize;
 
   public SendShuffleDataRequest(
       long requestId,
@@ -82,7 +84,11 @@ public class SendShuffleDataRequest extends RequestMessage {
         encodeLength += Encoders.encodeLengthOfShuffleBlockInfo(sbi);
       }
     }
-    return encodeLength + Long.BYTES;
+    encodeLength += Long.BYTES;
+    if (creditSize > 0) {
+      encodeLength += Integer.BYTES;
+    }
+    return encodeLength;
   }
 
   @Override
@@ -93,6 +99,10 @@ public class SendShuffleDataRequest extends RequestMessage {
     buf.writeLong(requireId);
     encodePartitionData(buf);
     buf.writeLong(timestamp);
+    // appended only when it's asked, the servers without credit support ignore it
+    if (creditSize > 0) {
+      buf.writeInt(creditSize);
+    }
   }
 
   private static Map<Integer, List<ShuffleBlockInfo>> decodePartitionData(ByteBuf byteBuf) {
@@ -131,8 +141,13 @@ public class SendShuffleDataRequest extends RequestMessage {
     long requireId = byteBuf.readLong();
     Map<Integer, List<ShuffleBlockInfo>> partitionToBlocks = decodePartitionData(byteBuf);
     long timestamp = byteBuf.readLong();
-    return new SendShuffleDataRequest(
-        requestId, appId, shuffleId, requireId, partitionToBlocks, timestamp);
+    SendShuffleDataRequest request =
+        new SendShuffleDataRequest(
+            requestId, appId, shuffleId, requireId, partitionToBlocks, timestamp);
+    if (byteBuf.readableBytes() >= Integer.BYTES) {
+      request.setCreditSize(byteBuf.readInt());
+    }
+    return request;
   }
 
   private void encodePartitionData(ByteBuf buf) {
@@ -174,6 +189,14 @@ public class SendShuffleDataRequest extends RequestMessage {
     this.timestamp = timestamp;
   }
 
+  public int getCreditSize() {
+    return creditSize;
+  }
+
+  public void setCreditSize(int creditSize) {
+    this.creditSize = creditSize;
+  }
+
   public int getStageAttemptNumber() {
     return stageAttemptNumber;
   }
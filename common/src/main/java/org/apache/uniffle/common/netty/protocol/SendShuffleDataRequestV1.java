@@ -36,11 +36,29 @@ public class SendShuffleDataRequestV1 extends RequestMessage {
   private Map<Integer, List<ShufflePartitionedBlock>> partitionToBlocks;
   private long timestamp;
   private int decodedLength;
+  private int creditSize;
 
   public SendShuffleDataRequestV1(long requestId) {
     super(requestId);
   }
 
+  SendShuffleDataRequestV1(
+      long requestId,
+      String appId,
+      int shuffleId,
+      long requireId,
+      Map<Integer, List<ShufflePartitionedBlock>> partitionToBlocks,
+      long timestamp,
+      int creditSize) {
+    super(requestId);
+    this.appId = appId;
+    this.shuffleId = shuffleId;
+    this.requireId = requireId;
+    this.partitionToBlocks = partitionToBlocks;
+    this.timestamp = timestamp;
+    this.creditSize = creditSize;
+  }
+
   @Override
   public Type type() {
     return Type.SEND_SHUFFLE_DATA_REQUEST;
@@ -55,12 +73,19 @@ public class SendShuffleDataRequestV1 extends RequestMessage {
   public void encode(ByteBuf buf) {}
 
   public void decodeShuffleData(ByteBuf byteBuf) {
+    decodeShuffleData(byteBuf, false);
+  }
+
+  public void decodeShuffleData(ByteBuf byteBuf, boolean sliceShuffleData) {
     final int startIndex = byteBuf.readerIndex();
     this.appId = ByteBufUtils.readLengthAndString(byteBuf);
     this.shuffleId = byteBuf.readInt();
     this.requireId = byteBuf.readLong();
-    this.partitionToBlocks = decodePartitionData(byteBuf);
+    this.partitionToBlocks = decodePartitionData(byteBuf, sliceShuffleData);
     this.timestamp = byteBuf.readLong();
+    if (byteBuf.readableBytes() >= Integer.BYTES) {
+      this.creditSize = byteBuf.readInt();
+    }
     int endIndex = byteBuf.readerIndex();
     decodedLength += endIndex - startIndex;
   }
@@ -69,7 +94,8 @@ public class SendShuffleDataRequestV1 extends RequestMessage {
     return decodedLength;
   }
 
-  private Map<Integer, List<ShufflePartitionedBlock>> decodePartitionData(ByteBuf byteBuf) {
+  private Map<Integer, List<ShufflePartitionedBlock>> decodePartitionData(
+      ByteBuf byteBuf, boolean sliceShuffleData) {
     Map<Integer, List<ShufflePartitionedBlock>> partitionToBlocks = Maps.newHashMap();
     int lengthOfPartitionData = byteBuf.readInt();
     for (int i = 0; i < lengthOfPartitionData; i++) {
@@ -78,7 +104,8 @@ public class SendShuffleDataRequestV1 extends RequestMessage {
       List<ShufflePartitionedBlock> shufflePartitionedBlocks = Lists.newArrayList();
       for (int j = 0; j < lengthOfShuffleBlocks; j++) {
         try {
-          shufflePartitionedBlocks.add(Decoders.decodeShufflePartitionedBlockV1(byteBuf));
+          shufflePartitionedBlocks.add(
+              Decoders.decodeShufflePartitionedBlockV1(byteBuf, sliceShuffleData));
         } catch (Throwable t) {
           shufflePartitionedBlocks.forEach(sbi -> sbi.getData().release());
           if (!partitionToBlocks.isEmpty()) {
@@ -96,10 +123,18 @@ public class SendShuffleDataRequestV1 extends RequestMessage {
   }
 
   public static SendShuffleDataRequestV1 decode(ByteBuf byteBuf) {
+    return decode(byteBuf, false);
+  }
+
+  /**
+   * @param sliceShuffleData whether the block data are retained slices of the byteBuf, which then
+   *     stays alive until the data of all its blocks are released
+   */
+  public static SendShuffleDataRequestV1 decode(ByteBuf byteBuf, boolean sliceShuffleData) {
     int startIndex = byteBuf.readerIndex();
     long requestId = byteBuf.readLong();
     SendShuffleDataRequestV1 req = new SendShuffleDataRequestV1(requestId);
-    req.decodeShuffleData(byteBuf);
+    req.decodeShuffleData(byteBuf, sliceShuffleData);
     int endIndex = byteBuf.readerIndex();
     req.setDecodedLength(endIndex - startIndex);
 
@@ -134,6 +169,11 @@ public class SendShuffleDataRequestV1 extends RequestMessage {
     this.timestamp = timestamp;
   }
 
+  /** @return the size of the send credit asked for the next request, 0 if none is asked */
+  public int getCreditSize() {
+    return creditSize;
+  }
+
   public int getStageAttemptNumber() {
     return stageAttemptNumber;
   }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.common.netty.protocol;
+
+import io.netty.buffer.ByteBuf;
+
+import org.apache.uniffle.common.rpc.StatusCode;
+import org.apache.uniffle.common.util.ByteBufUtils;
+
+/**
+ * The response to {@link SendShuffleDataRequest} which grants a send credit, i.e. a buffer that is
+ * already pre-allocated for the next request of the client, so the client can skip the
+ * requireBuffer call before it. It has its own message type, and it's only sent if the request
+ * asks for a credit, so the clients without credit support never receive it.
+ */
+public class SendShuffleDataResponse extends RpcResponse {
+  private static final int CREDIT_ENCODED_LENGTH = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+  private final long creditRequireId;
+  private final int creditSize;
+  private final long creditExpiredMs;
+
+  public SendShuffleDataResponse(
+      long requestId,
+      StatusCode statusCode,
+      String retMessage,
+      long creditRequireId,
+      int creditSize,
+      long creditExpiredMs) {
+    super(requestId, statusCode, retMessage);
+    this.creditRequireId = creditRequireId;
+    this.creditSize = creditSize;
+    this.creditExpiredMs = creditExpiredMs;
+  }
+
+  /** @return the id of the pre-allocated buffer to put in the next request */
+  public long getCreditRequireId() {
+    return creditRequireId;
+  }
+
+  public int getCreditSize() {
+    return creditSize;
+  }
+
+  /** @return how long the server keeps the pre-allocated buffer, in milliseconds */
+  public long getCreditExpiredMs() {
+    return creditExpiredMs;
+  }
+
+  @Override
+  public int encodedLength() {
+    return super.encodedLength() + CREDIT_ENCODED_LENGTH;
+  }
+
+  @Override
+  public void encode(ByteBuf buf) {
+    super.encode(buf);
+    buf.writeLong(creditRequireId);
+    buf.writeInt(creditSize);
+    buf.writeLong(creditExpiredMs);
+  }
+
+  @Override
+  public Type type() {
+    return Type.SEND_SHUFFLE_DATA_RESPONSE;
+  }
+
+  public static SendShuffleDataResponse decode(ByteBuf byteBuf) {
+    long requestId = byteBuf.readLong();
+    StatusCode statusCode = StatusCode.fromCode(byteBuf.readInt());
+    String retMessage = ByteBufUtils.readLengthAndString(byteBuf);
+    long creditRequireId = byteBuf.readLong();
+    int creditSize = byteBuf.readInt();
+    long creditExpiredMs = byteBuf.readLong();
+    return new SendShuffleDataResponse(
+        requestId, statusCode, retMessage, creditRequireId, creditSize, creditExpiredMs);
+  }
+
+  @Override
+  public String toString() {
+    return "SendShuffleDataResponse{"
+        + "requestId="
+        + getRequestId()
+        + ", statusCode="
+        + getStatusCode()
+        + ", retMessage='"
+        + getRetMessage()
+        + '\''
+        + ", creditRequireId="
+        + creditRequireId
+        + ", creditSize="
+        + creditSize
+        + '}';
+  }
+}
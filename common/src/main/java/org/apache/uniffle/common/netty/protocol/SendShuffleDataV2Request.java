@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.common.netty.protocol;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBuf;
+
+import org.apache.uniffle.common.ShuffleBlockInfo;
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.common.ShuffleServerInfo;
+import org.apache.uniffle.common.util.ByteBufUtils;
+import org.apache.uniffle.common.util.NettyUtils;
+
+/**
+ * The compact encoding of {@link SendShuffleDataRequest}. Unlike the first version, which repeats
+ * the partition id, the shuffle id, the free memory and the replica servers in every block, it
+ * sends the servers once per request, and the block headers only keep what the server stores:
+ * the block id and the task attempt id as variable-length deltas from the previous block of the
+ * partition, the crc as a fixed-length long, and the lengths as variable-length ints.
+ *
+ * <p>The server decodes it into a {@link SendShuffleDataRequestV1}, so both versions are handled
+ * in the same way. The client only sends it after the server tells it decodes it in the response
+ * of requiring a buffer, and sends the first version otherwise.
+ */
+public class SendShuffleDataV2Request extends SendShuffleDataRequest {
+
+  public SendShuffleDataV2Request(
+      long requestId,
+      String appId,
+      int shuffleId,
+      int stageAttemptNumber,
+      long requireId,
+      Map<Integer, List<ShuffleBlockInfo>> partitionToBlocks,
+      long timestamp) {
+    super(requestId, appId, shuffleId, stageAttemptNumber, requireId, partitionToBlocks, timestamp);
+  }
+
+  @Override
+  public Type type() {
+    return Type.SEND_SHUFFLE_DATA_V2_REQUEST;
+  }
+
+  @Override
+  public int encodedLength() {
+    int encodeLength =
+        REQUEST_ID_ENCODE_LENGTH
+            + ByteBufUtils.encodedLength(getAppId())
+            + Integer.BYTES
+            + Long.BYTES
+            + Long.BYTES
+            + Integer.BYTES;
+    Set<ShuffleServerInfo> servers = getShuffleServers();
+    encodeLength += ByteBufUtils.varIntLength(servers.size());
+    for (ShuffleServerInfo server : servers) {
+      encodeLength += Encoders.encodeLengthOfShuffleServerInfo(server);
+    }
+    encodeLength += ByteBufUtils.varIntLength(getPartitionToBlocks().size());
+    for (Map.Entry<Integer, List<ShuffleBlockInfo>> entry : getPartitionToBlocks().entrySet()) {
+      encodeLength += ByteBufUtils.varIntLength(entry.getKey());
+      encodeLength += ByteBufUtils.varIntLength(entry.getValue().size());
+      long lastBlockId = 0;
+      long lastTaskAttemptId = 0;
+      for (ShuffleBlockInfo sbi : entry.getValue()) {
+        encodeLength += ByteBufUtils.varLongLength(sbi.getBlockId() - lastBlockId);
+        encodeLength += ByteBufUtils.varLongLength(sbi.getTaskAttemptId() - lastTaskAttemptId);
+        encodeLength += Long.BYTES;
+        encodeLength += ByteBufUtils.varIntLength(sbi.getUncompressLength());
+        encodeLength += ByteBufUtils.varIntLength(sbi.getLength());
+        encodeLength += sbi.getLength();
+        lastBlockId = sbi.getBlockId();
+        lastTaskAttemptId = sbi.getTaskAttemptId();
+      }
+    }
+    return encodeLength;
+  }
+
+  @Override
+  public void encode(ByteBuf buf) {
+    buf.writeLong(getRequestId());
+    ByteBufUtils.writeLengthAndString(buf, getAppId());
+    buf.writeInt(getShuffleId());
+    buf.writeLong(getRequireId());
+    buf.writeLong(getTimestamp());
+    buf.writeInt(getCreditSize());
+    Set<ShuffleServerInfo> servers = getShuffleServers();
+    ByteBufUtils.writeVarInt(buf, servers.size());
+    for (ShuffleServerInfo server : servers) {
+      Encoders.encodeShuffleServerInfo(server, buf);
+    }
+    ByteBufUtils.writeVarInt(buf, getPartitionToBlocks().size());
+    for (Map.Entry<Integer, List<ShuffleBlockInfo>> entry : getPartitionToBlocks().entrySet()) {
+      ByteBufUtils.writeVarInt(buf, entry.getKey());
+      ByteBufUtils.writeVarInt(buf, entry.getValue().size());
+      long lastBlockId = 0;
+      long lastTaskAttemptId = 0;
+      for (ShuffleBlockInfo sbi : entry.getValue()) {
+        ByteBufUtils.writeVarLong(buf, sbi.getBlockId() - lastBlockId);
+        ByteBufUtils.writeVarLong(buf, sbi.getTaskAttemptId() - lastTaskAttemptId);
+        buf.writeLong(sbi.getCrc());
+        ByteBufUtils.writeVarInt(buf, sbi.getUncompressLength());
+        ByteBufUtils.writeVarInt(buf, sbi.getLength());
+        sbi.copyDataBytesTo(buf);
+        lastBlockId = sbi.getBlockId();
+        lastTaskAttemptId = sbi.getTaskAttemptId();
+      }
+    }
+  }
+
+  // the replica servers of all the blocks, in the order they appear
+  private Set<ShuffleServerInfo> getShuffleServers() {
+    Set<ShuffleServerInfo> servers = new LinkedHashSet<>();
+    for (List<ShuffleBlockInfo> blocks : getPartitionToBlocks().values()) {
+      for (ShuffleBlockInfo sbi : blocks) {
+        servers.addAll(sbi.getShuffleServerInfos());
+      }
+    }
+    return servers;
+  }
+
+  public static SendShuffleDataRequestV1 decode(ByteBuf byteBuf) {
+    return decode(byteBuf, false);
+  }
+
+  /**
+   * @param sliceShuffleData whether the block data are retained slices of the byteBuf, see {@link
+   *     SendShuffleDataRequestV1#decode(ByteBuf, boolean)}
+   */
+  public static SendShuffleDataRequestV1 decode(ByteBuf byteBuf, boolean sliceShuffleData) {
+    int startIndex = byteBuf.readerIndex();
+    long requestId = byteBuf.readLong();
+    String appId = ByteBufUtils.readLengthAndString(byteBuf);
+    int shuffleId = byteBuf.readInt();
+    long requireId = byteBuf.readLong();
+    long timestamp = byteBuf.readLong();
+    int creditSize = byteBuf.readInt();
+    // the servers aren't used by the shuffle server
+    int serverNum = ByteBufUtils.readVarInt(byteBuf);
+    for (int i = 0; i < serverNum; i++) {
+      Decoders.decodeShuffleServerInfo(byteBuf);
+    }
+    Map<Integer, List<ShufflePartitionedBlock>> partitionToBlocks = Maps.newHashMap();
+    try {
+      int partitionNum = ByteBufUtils.readVarInt(byteBuf);
+      for (int i = 0; i < partitionNum; i++) {
+        int partitionId = ByteBufUtils.readVarInt(byteBuf);
+        int blockNum = ByteBufUtils.readVarInt(byteBuf);
+        List<ShufflePartitionedBlock> blocks = Lists.newArrayListWithCapacity(blockNum);
+        partitionToBlocks.put(partitionId, blocks);
+        long blockId = 0;
+        long taskAttemptId = 0;
+        for (int j = 0; j < blockNum; j++) {
+          blockId += ByteBufUtils.readVarLong(byteBuf);
+          taskAttemptId += ByteBufUtils.readVarLong(byteBuf);
+          long crc = byteBuf.readLong();
+          int uncompressLength = ByteBufUtils.readVarInt(byteBuf);
+          int length = ByteBufUtils.readVarInt(byteBuf);
+          ByteBuf data;
+          if (sliceShuffleData) {
+            data = byteBuf.readRetainedSlice(length);
+          } else {
+            data = NettyUtils.getSharedUnpooledByteBufAllocator(true).directBuffer(length);
+            data.writeBytes(byteBuf, length);
+          }
+          blocks.add(
+              new ShufflePartitionedBlock(
+                  length, uncompressLength, crc, blockId, taskAttemptId, data));
+        }
+      }
+    } catch (Throwable t) {
+      // release the blocks decoded so far, see SendShuffleDataRequest#decodePartitionData
+      partitionToBlocks.values().stream()
+          .flatMap(List::stream)
+          .forEach(block -> block.getData().release());
+      throw t;
+    }
+    SendShuffleDataRequestV1 req =
+        new SendShuffleDataRequestV1(
+            requestId, appId, shuffleId, requireId, partitionToBlocks, timestamp, creditSize);
+    req.setDecodedLength(byteBuf.readerIndex() - startIndex);
+    return req;
+  }
+
+  @Override
+  public String getOperationType() {
+    return "sendShuffleDataV2";
+  }
+}
@@ -59,6 +59,68 @@ public class ByteBufUtils {
     return new String(bytes, StandardCharsets.UTF_8);
   }
 
+  /** Writes an unsigned variable-length int, 7 bits per byte, low bits first. */
+  public static void writeVarInt(ByteBuf buf, int value) {
+    while ((value & ~0x7F) != 0) {
+      buf.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buf.writeByte(value);
+  }
+
+  public static int readVarInt(ByteBuf buf) {
+    int value = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+      byte b = buf.readByte();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed variable-length int");
+  }
+
+  public static int varIntLength(int value) {
+    int length = 1;
+    while ((value & ~0x7F) != 0) {
+      value >>>= 7;
+      length++;
+    }
+    return length;
+  }
+
+  /** Writes a signed long in the zigzag encoding, so small negative values take few bytes. */
+  public static void writeVarLong(ByteBuf buf, long value) {
+    long zigzag = (value << 1) ^ (value >> 63);
+    while ((zigzag & ~0x7FL) != 0) {
+      buf.writeByte((int) ((zigzag & 0x7F) | 0x80));
+      zigzag >>>= 7;
+    }
+    buf.writeByte((int) zigzag);
+  }
+
+  public static long readVarLong(ByteBuf buf) {
+    long zigzag = 0;
+    for (int shift = 0; shift < Long.SIZE; shift += 7) {
+      byte b = buf.readByte();
+      zigzag |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+      }
+    }
+    throw new IllegalArgumentException("Malformed variable-length long");
+  }
+
+  public static int varLongLength(long value) {
+    long zigzag = (value << 1) ^ (value >> 63);
+    int length = 1;
+    while ((zigzag & ~0x7FL) != 0) {
+      zigzag >>>= 7;
+      length++;
+    }
+    return length;
+  }
+
   public static final void copyByteBuf(ByteBuf from, ByteBuf to) {
     to.writeInt(from.readableBytes());
     to.writeBytes(from);
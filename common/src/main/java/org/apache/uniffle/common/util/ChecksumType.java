@@ -0,0 +1,32 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.common.util;
+
+/**
+ * The checksum of the shuffle blocks, computed by the writer and verified by the reader. The
+ * shuffle server keeps the value as it is in the 8 bytes crc field, so the writers and the readers
+ * of a shuffle must use the same type.
+ */
+public enum ChecksumType {
+  CRC32,
+  /** Hardware accelerated on Java 9+, a pure Java implementation is used on Java 8. */
+  CRC32C,
+  XXHASH64,
+  /** The checksum is neither computed nor verified. */
+  NONE
+}
@@ -17,14 +17,52 @@
 
 package org.apache.uniffle.common.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import io.netty.buffer.ByteBuf;
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
 
 public class ChecksumUtils {
 
   private static final int LENGTH_PER_CRC = 4 * 1024;
+  private static final long XXHASH64_SEED = 0L;
+  private static final XXHashFactory XXHASH_FACTORY = XXHashFactory.fastestJavaInstance();
+  private static final XXHash64 XXHASH64 = XXHASH_FACTORY.hash64();
+
+  // java.util.zip.CRC32C and Checksum.update(ByteBuffer) are only available since Java 9,
+  // both are null on Java 8 where the pure Java CRC32C of guava is used instead
+  private static final MethodHandle CRC32C_CONSTRUCTOR;
+  private static final MethodHandle CHECKSUM_UPDATE_BYTE_BUFFER;
+
+  static {
+    MethodHandle constructor = null;
+    MethodHandle update = null;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      constructor =
+          lookup
+              .findConstructor(
+                  Class.forName("java.util.zip.CRC32C"), MethodType.methodType(void.class))
+              .asType(MethodType.methodType(Checksum.class));
+      update =
+          lookup.findVirtual(
+              Checksum.class, "update", MethodType.methodType(void.class, ByteBuffer.class));
+    } catch (ReflectiveOperationException e) {
+      constructor = null;
+      update = null;
+    }
+    CRC32C_CONSTRUCTOR = constructor;
+    CHECKSUM_UPDATE_BYTE_BUFFER = update;
+  }
 
   public static long getCrc32(byte[] buf) {
     return getCrc32(buf, 0, buf.length);
@@ -79,4 +117,83 @@ public class ChecksumUtils {
     }
     return crc32.getValue();
   }
+
+  public static long getChecksum(ChecksumType type, byte[] buf) {
+    return getChecksum(type, ByteBuffer.wrap(buf), 0, buf.length);
+  }
+
+  /** @return the checksum of the bytes in [offset, offset + length) of the buffer */
+  public static long getChecksum(ChecksumType type, ByteBuffer byteBuffer, int offset, int length) {
+    switch (type) {
+      case CRC32:
+        return getCrc32(byteBuffer, offset, length);
+      case NONE:
+        return 0L;
+      default:
+        ByteBuffer buffer = byteBuffer.duplicate();
+        buffer.limit(offset + length);
+        buffer.position(offset);
+        return getChecksum(type, new ByteBuffer[] {buffer});
+    }
+  }
+
+  public static long getChecksum(ChecksumType type, ByteBuf byteBuf) {
+    switch (type) {
+      case CRC32:
+        return getCrc32(byteBuf);
+      case NONE:
+        return 0L;
+      default:
+        // `nioBuffers` returns fresh ByteBuffer views, the ByteBuf indices are not affected
+        return getChecksum(
+            type, byteBuf.nioBuffers(byteBuf.readerIndex(), byteBuf.readableBytes()));
+    }
+  }
+
+  private static long getChecksum(ChecksumType type, ByteBuffer[] buffers) {
+    switch (type) {
+      case CRC32C:
+        if (CRC32C_CONSTRUCTOR == null) {
+          Hasher hasher = Hashing.crc32c().newHasher();
+          for (ByteBuffer buffer : buffers) {
+            hasher.putBytes(buffer);
+          }
+          return hasher.hash().padToLong();
+        }
+        try {
+          Checksum crc32c = (Checksum) CRC32C_CONSTRUCTOR.invokeExact();
+          for (ByteBuffer buffer : buffers) {
+            CHECKSUM_UPDATE_BYTE_BUFFER.invokeExact(crc32c, buffer);
+          }
+          return crc32c.getValue();
+        } catch (Throwable e) {
+          throw new IllegalStateException("Failed to compute the CRC32C checksum", e);
+        }
+      case XXHASH64:
+        if (buffers.length == 1) {
+          return XXHASH64.hash(
+              buffers[0], buffers[0].position(), buffers[0].remaining(), XXHASH64_SEED);
+        }
+        StreamingXXHash64 xxhash64 = XXHASH_FACTORY.newStreamingHash64(XXHASH64_SEED);
+        byte[] copied = null;
+        for (ByteBuffer buffer : buffers) {
+          if (buffer.hasArray()) {
+            xxhash64.update(
+                buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            continue;
+          }
+          if (copied == null) {
+            copied = new byte[LENGTH_PER_CRC];
+          }
+          while (buffer.hasRemaining()) {
+            int len = Math.min(copied.length, buffer.remaining());
+            buffer.get(copied, 0, len);
+            xxhash64.update(copied, 0, len);
+          }
+        }
+        return xxhash64.getValue();
+      default:
+        throw new IllegalArgumentException("Unsupported checksum type " + type);
+    }
+  }
 }
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.common.util;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+/**
+ * A thread-safe set of block ids backed by a {@link Roaring64NavigableMap}. Compared with a
+ * concurrent hash set of boxed longs, it doesn't allocate an entry per block id, which matters for
+ * reduce tasks reading millions of blocks. Use {@link #containsLong(long)} and {@link
+ * #addLong(long)} on hot paths to avoid boxing.
+ */
+public class ConcurrentBlockIdSet extends AbstractSet<Long> {
+
+  private final Roaring64NavigableMap bitmap = Roaring64NavigableMap.bitmapOf();
+
+  public synchronized boolean containsLong(long blockId) {
+    return bitmap.contains(blockId);
+  }
+
+  public synchronized boolean addLong(long blockId) {
+    if (bitmap.contains(blockId)) {
+      return false;
+    }
+    bitmap.addLong(blockId);
+    return true;
+  }
+
+  /** Returns a copy of the block ids, it is safe to modify the returned bitmap. */
+  public synchronized Roaring64NavigableMap toBitmap() {
+    return RssUtils.cloneBitMap(bitmap);
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof Long && containsLong((Long) o);
+  }
+
+  @Override
+  public boolean add(Long blockId) {
+    return addLong(blockId);
+  }
+
+  @Override
+  public synchronized boolean remove(Object o) {
+    if (!(o instanceof Long) || !bitmap.contains((Long) o)) {
+      return false;
+    }
+    bitmap.removeLong((Long) o);
+    return true;
+  }
+
+  @Override
+  public synchronized void clear() {
+    bitmap.clear();
+  }
+
+  @Override
+  public synchronized boolean isEmpty() {
+    return bitmap.isEmpty();
+  }
+
+  @Override
+  public synchronized int size() {
+    return bitmap.getIntCardinality();
+  }
+
+  /** Iterates over a snapshot of the block ids taken when this method is called. */
+  @Override
+  public Iterator<Long> iterator() {
+    return toBitmap().iterator();
+  }
+}
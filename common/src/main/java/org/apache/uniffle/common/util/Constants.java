@@ -39,6 +39,7 @@ public final class Constants {
   public static final String COORDINATOR_TAG = "coordinator";
   public static final String SHUFFLE_DATA_FILE_SUFFIX = ".data";
   public static final String SHUFFLE_INDEX_FILE_SUFFIX = ".index";
+  public static final String SHUFFLE_MANIFEST_FILE_SUFFIX = ".manifest";
   public static final long INVALID_BLOCK_ID = -1L;
 
   public static final String KEY_SPLIT_CHAR = "/";
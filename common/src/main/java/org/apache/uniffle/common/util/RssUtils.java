@@ -274,6 +274,9 @@ public class RssUtils {
   }
 
   public static Roaring64NavigableMap toBitmap(Set<Long> sets) {
+    if (sets instanceof ConcurrentBlockIdSet) {
+      return ((ConcurrentBlockIdSet) sets).toBitmap();
+    }
     Roaring64NavigableMap bitmap = new Roaring64NavigableMap();
 
     for (Long value : sets) {
@@ -405,6 +408,11 @@ public class RssUtils {
 
   public static void checkProcessedBlockIds(
       Roaring64NavigableMap exceptedBlockIds, Set<Long> processedBlockIds) {
+    if (processedBlockIds instanceof ConcurrentBlockIdSet) {
+      checkProcessedBlockIds(
+          exceptedBlockIds, ((ConcurrentBlockIdSet) processedBlockIds).toBitmap());
+      return;
+    }
     Iterator<Long> it = exceptedBlockIds.iterator();
     int expectedCount = 0;
     int actualCount = 0;
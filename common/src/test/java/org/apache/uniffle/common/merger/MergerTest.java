@@ -118,4 +118,56 @@ class MergerTest {
     assertEquals(RECORDS * SEGMENTS, index);
     reader.close();
   }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 2, 7, 16, 33})
+  void testMergeManySegments(int segmentNum) throws Exception {
+    RssConf rssConf = new RssConf();
+    Class<?> keyClass = String.class;
+    Class<?> valueClass = Integer.class;
+    int records = 101;
+    List<Segment> segments = new ArrayList<>();
+    for (int i = 0; i < segmentNum; i++) {
+      Segment segment =
+          SerializerUtils.genMemorySegment(
+              rssConf, keyClass, valueClass, i, i, segmentNum, records);
+      segment.init();
+      segments.add(segment);
+    }
+    // the empty segments are skipped by the merge
+    for (int i = 0; i < 3; i++) {
+      Segment segment =
+          SerializerUtils.genMemorySegment(
+              rssConf, keyClass, valueClass, segmentNum + i, 0, 1, 0);
+      segment.init();
+      segments.add(segment);
+    }
+    SerOutputStream outputStream = new DynBufferSerOutputStream();
+    long recordNum =
+        Merger.merge(
+            rssConf,
+            outputStream,
+            segments,
+            keyClass,
+            valueClass,
+            SerializerUtils.getComparator(keyClass),
+            false);
+    outputStream.close();
+    assertEquals((long) records * segmentNum, recordNum);
+
+    ByteBuf byteBuf = outputStream.toByteBuf();
+    RecordsReader<?, ?> reader =
+        new RecordsReader<>(
+            rssConf, SerInputStream.newInputStream(byteBuf), keyClass, valueClass, false, true);
+    reader.init();
+    int index = 0;
+    while (reader.next()) {
+      assertEquals(genData(keyClass, index), reader.getCurrentKey());
+      assertEquals(genData(valueClass, index), reader.getCurrentValue());
+      index++;
+    }
+    byteBuf.release();
+    assertEquals(records * segmentNum, index);
+    reader.close();
+  }
 }
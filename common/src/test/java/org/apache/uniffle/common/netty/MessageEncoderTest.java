@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.common.netty;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.uniffle.common.netty.buffer.FileSegmentManagedBuffer;
+import org.apache.uniffle.common.netty.buffer.MultiFileSegmentManagedBuffer;
+import org.apache.uniffle.common.netty.buffer.NettyManagedBuffer;
+import org.apache.uniffle.common.netty.protocol.GetLocalShuffleDataResponse;
+import org.apache.uniffle.common.netty.protocol.MessageWithHeader;
+import org.apache.uniffle.common.rpc.StatusCode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MessageEncoderTest {
+
+  @Test
+  public void fileRegionBodyTest(@TempDir File tmpDir) throws Exception {
+    File dataFile = new File(tmpDir, "data_file");
+    Files.write(dataFile.toPath(), new byte[100]);
+    EmbeddedChannel channel = new EmbeddedChannel(MessageEncoder.INSTANCE);
+
+    // the header and the file region are written separately
+    channel.writeOutbound(
+        new GetLocalShuffleDataResponse(
+            1L, StatusCode.SUCCESS, "", new FileSegmentManagedBuffer(dataFile, 10, 50)));
+    ByteBuf header = channel.readOutbound();
+    assertEquals(50, header.getInt(Integer.BYTES + 1));
+    DefaultFileRegion region = channel.readOutbound();
+    assertEquals(10, region.position());
+    assertEquals(50, region.count());
+    assertNull(channel.readOutbound());
+    header.release();
+    region.release();
+
+    // every segment of a multi file segment buffer is a file region of its own
+    channel.writeOutbound(
+        new GetLocalShuffleDataResponse(
+            2L,
+            StatusCode.SUCCESS,
+            "",
+            new MultiFileSegmentManagedBuffer(
+                Lists.newArrayList(
+                    new FileSegmentManagedBuffer(dataFile, 0, 30),
+                    new FileSegmentManagedBuffer(dataFile, 60, 40)))));
+    header = channel.readOutbound();
+    // the body length follows the message length and the message type
+    assertEquals(70, header.getInt(Integer.BYTES + 1));
+    DefaultFileRegion region1 = channel.readOutbound();
+    DefaultFileRegion region2 = channel.readOutbound();
+    assertEquals(30, region1.count());
+    assertEquals(60, region2.position());
+    assertEquals(40, region2.count());
+    assertNull(channel.readOutbound());
+    header.release();
+    region1.release();
+    region2.release();
+
+    // a ByteBuf body is still wrapped with its header
+    channel.writeOutbound(
+        new GetLocalShuffleDataResponse(
+            3L,
+            StatusCode.SUCCESS,
+            "",
+            new NettyManagedBuffer(Unpooled.wrappedBuffer(new byte[10]))));
+    Object message = channel.readOutbound();
+    assertTrue(message instanceof MessageWithHeader);
+    ((MessageWithHeader) message).release();
+    channel.finishAndReleaseAll();
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.uniffle.common.netty;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -30,6 +31,7 @@ import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import org.apache.uniffle.common.BufferSegment;
 import org.apache.uniffle.common.ShuffleBlockInfo;
+import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.common.ShuffleServerInfo;
 import org.apache.uniffle.common.netty.buffer.ManagedBuffer;
 import org.apache.uniffle.common.netty.buffer.NettyManagedBuffer;
@@ -44,8 +46,10 @@ import org.apache.uniffle.common.netty.protocol.GetSortedShuffleDataResponse;
 import org.apache.uniffle.common.netty.protocol.Message;
 import org.apache.uniffle.common.netty.protocol.RpcResponse;
 import org.apache.uniffle.common.netty.protocol.SendShuffleDataRequest;
+import org.apache.uniffle.common.netty.protocol.SendShuffleDataRequestV1;
 import org.apache.uniffle.common.rpc.StatusCode;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -167,6 +171,30 @@ public class TransportFrameDecoderTest {
     byteBuf5.release();
   }
 
+  @Test
+  public void testSliceShuffleData() {
+    SendShuffleDataRequest rpcRequest = generateShuffleDataRequest();
+    ByteBuf frame = Unpooled.directBuffer(rpcRequest.encodedLength());
+    rpcRequest.encode(frame);
+    SendShuffleDataRequestV1 message =
+        (SendShuffleDataRequestV1) Message.decode(rpcRequest.type(), frame, true);
+    List<ShufflePartitionedBlock> blocks =
+        message.getPartitionToBlocks().values().stream()
+            .flatMap(List::stream)
+            .collect(Collectors.toList());
+    assertEquals(4, blocks.size());
+    // every block retains the frame
+    assertEquals(1 + blocks.size(), frame.refCnt());
+    frame.release();
+    for (ShufflePartitionedBlock block : blocks) {
+      byte[] data = new byte[block.getDataLength()];
+      block.getData().getBytes(block.getData().readerIndex(), data);
+      assertArrayEquals(new byte[] {1, 2, 3}, data);
+      block.getData().release();
+    }
+    assertEquals(0, frame.refCnt());
+  }
+
   private byte[] generateBody() {
     return new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
   }
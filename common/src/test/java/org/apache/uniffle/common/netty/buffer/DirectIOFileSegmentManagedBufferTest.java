@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.common.netty.buffer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.PlatformDependent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DirectIOFileSegmentManagedBufferTest {
+
+  private static byte[] writeFile(File file, int length) throws Exception {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) i;
+    }
+    try (FileOutputStream outputStream = new FileOutputStream(file)) {
+      outputStream.write(data);
+    }
+    return data;
+  }
+
+  private static byte[] toBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  @Test
+  void testReadUnalignedSegments(@TempDir File tmpDir) throws Exception {
+    File dataFile = new File(tmpDir, "data_file_1");
+    // the file length is not aligned either
+    byte[] data = writeFile(dataFile, 3 * 4096 + 100);
+    AlignedBufferPool pool = new AlignedBufferPool(4096, 1024 * 1024);
+
+    int[][] segments = {{0, 10}, {100, 4096}, {4095, 2}, {8192, 4096}, {4000, 8292}, {0, 12388}};
+    for (int[] segment : segments) {
+      DirectIOFileSegmentManagedBuffer buffer =
+          new DirectIOFileSegmentManagedBuffer(dataFile, segment[0], segment[1], pool);
+      assertEquals(segment[1], buffer.size());
+      byte[] expected = Arrays.copyOfRange(data, segment[0], segment[0] + segment[1]);
+      assertArrayEquals(expected, toBytes(buffer.nioByteBuffer()));
+      // the cached buffer is returned again
+      assertArrayEquals(expected, toBytes(buffer.nioByteBuffer()));
+      ByteBuf byteBuf = (ByteBuf) buffer.convertToNetty();
+      assertEquals(segment[1], byteBuf.readableBytes());
+      buffer.release();
+      buffer.release();
+    }
+    assertTrue(pool.getPooledBytes() > 0);
+  }
+
+  @Test
+  void testReadBeyondEof(@TempDir File tmpDir) throws Exception {
+    File dataFile = new File(tmpDir, "data_file_1");
+    writeFile(dataFile, 100);
+    AlignedBufferPool pool = new AlignedBufferPool(4096, 1024 * 1024);
+    DirectIOFileSegmentManagedBuffer buffer =
+        new DirectIOFileSegmentManagedBuffer(dataFile, 50, 100, pool);
+    assertEquals(0, buffer.nioByteBuffer().remaining());
+    // the aligned buffer is given back to the pool when the read fails
+    assertEquals(4096, pool.getPooledBytes());
+  }
+
+  @Test
+  void testAlignedBufferPool() {
+    assertThrows(IllegalArgumentException.class, () -> new AlignedBufferPool(1000, 1024));
+
+    AlignedBufferPool pool = new AlignedBufferPool(512, 4096);
+    ByteBuffer buffer = pool.acquire(100);
+    assertEquals(512, buffer.capacity());
+    assertTrue(buffer.isDirect());
+    assertEquals(0, PlatformDependent.directBufferAddress(buffer) % 512);
+
+    ByteBuffer big = pool.acquire(3000);
+    assertEquals(4096, big.capacity());
+    assertEquals(0, PlatformDependent.directBufferAddress(big) % 512);
+
+    pool.release(buffer);
+    assertEquals(512, pool.getPooledBytes());
+    // exceeds the max pooled bytes, it's dropped
+    pool.release(big);
+    assertEquals(512, pool.getPooledBytes());
+
+    assertTrue(buffer == pool.acquire(200));
+    assertEquals(0, pool.getPooledBytes());
+  }
+}
@@ -39,6 +39,7 @@ import org.apache.uniffle.common.netty.buffer.NettyManagedBuffer;
 import org.apache.uniffle.common.rpc.StatusCode;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class NettyProtocolTest {
@@ -138,6 +139,108 @@ public class NettyProtocolTest {
     byteBuf.release();
   }
 
+  @Test
+  public void testSendShuffleDataRequestWithCredit() {
+    SendShuffleDataRequest request =
+        new SendShuffleDataRequest(1L, "test_app", 1, 1, Maps.newHashMap(), 12345);
+    int encodeLengthWithoutCredit = request.encodedLength();
+    request.setCreditSize(1024);
+    int encodeLength = request.encodedLength();
+    assertEquals(encodeLengthWithoutCredit + Integer.BYTES, encodeLength);
+    ByteBuf byteBuf = Unpooled.buffer(encodeLength);
+    request.encode(byteBuf);
+    assertEquals(encodeLength, byteBuf.readableBytes());
+    SendShuffleDataRequestV1 request1 = SendShuffleDataRequestV1.decode(byteBuf);
+    assertEquals(1024, request1.getCreditSize());
+    assertEquals(12345, request1.getTimestamp());
+    assertEquals(encodeLength, request1.getDecodedLength());
+    byteBuf.release();
+  }
+
+  @Test
+  public void testSendShuffleDataV2Request() {
+    byte[] data = new byte[] {1, 2, 3, 4};
+    List<ShuffleServerInfo> shuffleServerInfoList =
+        Arrays.asList(new ShuffleServerInfo("aaa", 1), new ShuffleServerInfo("bbb", 2));
+    Map<Integer, List<ShuffleBlockInfo>> partitionToBlocks = Maps.newHashMap();
+    for (int partitionId = 0; partitionId < 3; partitionId++) {
+      List<ShuffleBlockInfo> blocks = Lists.newArrayList();
+      // the block ids and task attempt ids are not in order
+      long[] blockIds = {(1L << 40) + partitionId, 5, (1L << 62) + 7, 3};
+      long[] taskAttemptIds = {100000, 100000, 3, 2000000000000L};
+      for (int i = 0; i < blockIds.length; i++) {
+        blocks.add(
+            new ShuffleBlockInfo(
+                1,
+                partitionId,
+                blockIds[i],
+                data.length,
+                -i,
+                Unpooled.wrappedBuffer(data).retain(),
+                shuffleServerInfoList,
+                data.length * 2,
+                0,
+                taskAttemptIds[i]));
+      }
+      partitionToBlocks.put(partitionId * 1000, blocks);
+    }
+    SendShuffleDataV2Request request =
+        new SendShuffleDataV2Request(1L, "test_app", 1, 0, 2L, partitionToBlocks, 12345);
+    request.setCreditSize(1024);
+    SendShuffleDataRequest requestV1 =
+        new SendShuffleDataRequest(1L, "test_app", 1, 0, 2L, partitionToBlocks, 12345);
+    int encodeLength = request.encodedLength();
+    assertTrue(encodeLength < requestV1.encodedLength());
+
+    ByteBuf byteBuf = Unpooled.buffer(encodeLength);
+    request.encode(byteBuf);
+    assertEquals(encodeLength, byteBuf.readableBytes());
+    SendShuffleDataRequestV1 decoded =
+        (SendShuffleDataRequestV1) Message.decode(request.type(), byteBuf);
+    assertTrue(NettyProtocolTestUtils.compareSendShuffleDataRequestV1(request, decoded));
+    assertEquals(1024, decoded.getCreditSize());
+    assertEquals(encodeLength, decoded.getDecodedLength());
+    for (List<ShufflePartitionedBlock> blocks : decoded.getPartitionToBlocks().values()) {
+      for (ShufflePartitionedBlock block : blocks) {
+        assertEquals(data.length * 2, block.getUncompressLength());
+        block.getData().release();
+      }
+    }
+    byteBuf.release();
+  }
+
+  @Test
+  public void testSendShuffleDataResponse() {
+    SendShuffleDataResponse response =
+        new SendShuffleDataResponse(1, StatusCode.SUCCESS, "OK", 10L, 1024, 20000L);
+    int encodeLength = response.encodedLength();
+    ByteBuf byteBuf = Unpooled.buffer(encodeLength);
+    response.encode(byteBuf);
+    assertEquals(encodeLength, byteBuf.readableBytes());
+    // it's told apart from a plain response by its own message type
+    assertEquals(Message.Type.SEND_SHUFFLE_DATA_RESPONSE, response.type());
+    Message message = Message.decode(response.type(), byteBuf);
+    assertTrue(message instanceof SendShuffleDataResponse);
+    SendShuffleDataResponse response1 = (SendShuffleDataResponse) message;
+    assertEquals(response.getRequestId(), response1.getRequestId());
+    assertEquals(StatusCode.SUCCESS, response1.getStatusCode());
+    assertEquals(10L, response1.getCreditRequireId());
+    assertEquals(1024, response1.getCreditSize());
+    assertEquals(20000L, response1.getCreditExpiredMs());
+
+    assertEquals(0, byteBuf.readableBytes());
+
+    // a plain response has no credit, even if more fields are appended to it
+    RpcResponse plainResponse = new RpcResponse(2, StatusCode.SUCCESS, "OK");
+    ByteBuf plainByteBuf = Unpooled.buffer(plainResponse.encodedLength() + 20);
+    plainResponse.encode(plainByteBuf);
+    plainByteBuf.writeZero(20);
+    assertFalse(
+        Message.decode(plainResponse.type(), plainByteBuf) instanceof SendShuffleDataResponse);
+    byteBuf.release();
+    plainByteBuf.release();
+  }
+
   @Test
   public void testGetLocalShuffleDataRequest() {
     GetLocalShuffleDataRequest getLocalShuffleDataRequest =
@@ -21,18 +21,24 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Random;
 import java.util.zip.CRC32;
 
+import com.google.common.hash.Hashing;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import net.jpountz.xxhash.XXHashFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ChecksumUtilsTest {
@@ -170,4 +176,54 @@ public class ChecksumUtilsTest {
     assertEquals(expected, ChecksumUtils.getCrc32(composite));
     assertEquals(readerIndex, composite.readerIndex());
   }
+
+  @ParameterizedTest
+  @EnumSource(ChecksumType.class)
+  public void checksumOfAllBufferTypesTest(ChecksumType type) {
+    Random random = new Random();
+    byte[] data = new byte[100 * 1024 + 7];
+    random.nextBytes(data);
+    long expected = ChecksumUtils.getChecksum(type, data);
+
+    int offset = 13;
+    ByteBuffer heapBuffer = ByteBuffer.allocate(data.length + offset * 2);
+    heapBuffer.position(offset);
+    heapBuffer.put(data);
+    assertEquals(expected, ChecksumUtils.getChecksum(type, heapBuffer, offset, data.length));
+    ByteBuffer directBuffer = ByteBuffer.allocateDirect(data.length + offset * 2);
+    directBuffer.position(offset);
+    directBuffer.put(data);
+    assertEquals(expected, ChecksumUtils.getChecksum(type, directBuffer, offset, data.length));
+    assertEquals(offset + data.length, directBuffer.position());
+
+    int split = 5000;
+    ByteBuf direct = Unpooled.directBuffer(data.length - split);
+    direct.writeBytes(data, split, data.length - split);
+    CompositeByteBuf composite = Unpooled.compositeBuffer();
+    composite.addComponent(true, Unpooled.wrappedBuffer(data, 0, split));
+    composite.addComponent(true, direct);
+    assertEquals(expected, ChecksumUtils.getChecksum(type, composite));
+    assertEquals(0, composite.readerIndex());
+    composite.release();
+
+    if (type != ChecksumType.NONE) {
+      data[random.nextInt(data.length)] ^= 1;
+      assertNotEquals(expected, ChecksumUtils.getChecksum(type, data));
+    }
+  }
+
+  @Test
+  public void checksumValueTest() {
+    byte[] data = "123456789".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(ChecksumUtils.getCrc32(data), ChecksumUtils.getChecksum(ChecksumType.CRC32, data));
+    // the check value of CRC32C, the same as the pure Java CRC32C used on Java 8
+    assertEquals(0xE3069283L, ChecksumUtils.getChecksum(ChecksumType.CRC32C, data));
+    assertEquals(
+        Hashing.crc32c().hashBytes(data).padToLong(),
+        ChecksumUtils.getChecksum(ChecksumType.CRC32C, data));
+    assertEquals(
+        XXHashFactory.safeInstance().hash64().hash(data, 0, data.length, 0L),
+        ChecksumUtils.getChecksum(ChecksumType.XXHASH64, data));
+    assertEquals(0L, ChecksumUtils.getChecksum(ChecksumType.NONE, data));
+  }
 }
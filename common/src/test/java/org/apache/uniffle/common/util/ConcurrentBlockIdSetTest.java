@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.common.util;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.exception.RssException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentBlockIdSetTest {
+  private final BlockIdLayout layout = BlockIdLayout.DEFAULT;
+
+  @Test
+  public void testAddAndContains() {
+    ConcurrentBlockIdSet set = new ConcurrentBlockIdSet();
+    assertTrue(set.isEmpty());
+    long blockId = layout.getBlockId(1, 2, 3);
+    assertTrue(set.addLong(blockId));
+    assertFalse(set.addLong(blockId));
+    assertFalse(set.add(blockId));
+    assertTrue(set.containsLong(blockId));
+    assertTrue(set.contains(blockId));
+    assertFalse(set.contains("not a block id"));
+    assertFalse(set.containsLong(layout.getBlockId(2, 2, 3)));
+    assertEquals(1, set.size());
+
+    assertTrue(set.remove(blockId));
+    assertFalse(set.remove(blockId));
+    assertTrue(set.isEmpty());
+  }
+
+  @Test
+  public void testConcurrentAdd() {
+    ConcurrentBlockIdSet set = new ConcurrentBlockIdSet();
+    IntStream.range(0, 100000).parallel().forEach(i -> set.addLong(layout.getBlockId(i, 1, i)));
+    assertEquals(100000, set.size());
+    Set<Long> expected = new HashSet<>();
+    IntStream.range(0, 100000).forEach(i -> expected.add(layout.getBlockId(i, 1, i)));
+    assertEquals(expected, set);
+    assertEquals(RssUtils.toBitmap(expected), RssUtils.toBitmap(set));
+  }
+
+  @Test
+  public void testCheckProcessedBlockIds() {
+    Roaring64NavigableMap expected = Roaring64NavigableMap.bitmapOf();
+    ConcurrentBlockIdSet processed = new ConcurrentBlockIdSet();
+    for (int i = 0; i < 100; i++) {
+      long blockId = layout.getBlockId(i, 1, 0);
+      expected.addLong(blockId);
+      processed.addLong(blockId);
+    }
+    // processed block ids can be a superset of expected block ids
+    processed.addLong(layout.getBlockId(0, 2, 0));
+    RssUtils.checkProcessedBlockIds(expected, processed);
+
+    expected.addLong(layout.getBlockId(100, 1, 0));
+    assertThrows(RssException.class, () -> RssUtils.checkProcessedBlockIds(expected, processed));
+  }
+}
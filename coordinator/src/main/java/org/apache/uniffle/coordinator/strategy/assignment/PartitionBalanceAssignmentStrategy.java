@@ -17,12 +17,13 @@
 
 package org.apache.uniffle.coordinator.strategy.assignment;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.stream.Collectors;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Sets;
@@ -45,14 +46,17 @@ import org.apache.uniffle.coordinator.ServerNode;
  * First round, we request one partition, then S1 (2G, 0) S2 (5G, 1) S3(1G, 0) Second round, we
  * request one partition, then S1 (2G, 0) S2 (5G, 2) s3(1G, 0), we request one partition, then Third
  * round, we request one partition, then S1 (2G, 1) S2 (5G, 2) s3(1G, 0) ....
+ *
+ * <p>The partition numbers are kept and updated in place across the requests, and only the
+ * selection of the servers and the update of their partition numbers hold the lock.
  */
 public class PartitionBalanceAssignmentStrategy extends AbstractAssignmentStrategy {
 
   private static final Logger LOG =
       LoggerFactory.getLogger(PartitionBalanceAssignmentStrategy.class);
 
-  private ClusterManager clusterManager;
-  private Map<ServerNode, PartitionAssignmentInfo> serverToPartitions =
+  private final ClusterManager clusterManager;
+  private final Map<ServerNode, PartitionAssignmentInfo> serverToPartitions =
       JavaUtils.newConcurrentMap();
 
   public PartitionBalanceAssignmentStrategy(ClusterManager clusterManager, CoordinatorConf conf) {
@@ -92,61 +96,42 @@ public class PartitionBalanceAssignmentStrategy extends AbstractAssignmentStrate
       throw new RssException("PartitionNumPerRange must be one");
     }
 
+    List<ServerNode> nodes = clusterManager.getServerList(requiredTags, excludeServerNodes);
+    if (nodes.isEmpty() || nodes.size() < replica) {
+      throw new RssException("There aren't enough shuffle servers");
+    }
+    final int assignmentMaxNum = clusterManager.getShuffleNodesMax();
+    int expectNum = assignmentMaxNum;
+    if (requiredShuffleServerNumber < assignmentMaxNum && requiredShuffleServerNumber > 0) {
+      expectNum = requiredShuffleServerNumber;
+    }
+    if (nodes.size() < expectNum) {
+      LOG.warn("Can't get expected servers [{}] and found only [{}]", expectNum, nodes.size());
+      expectNum = nodes.size();
+    }
+    int averagePartitions = totalPartitionNum * replica / assignmentMaxNum;
+    int assignPartitions = Math.max(averagePartitions, 1);
+
     SortedMap<PartitionRange, List<ServerNode>> assignments;
+    // only the selection and the update of the partition numbers are serialized, so the concurrent
+    // requests don't choose the same servers before seeing the partitions assigned by each other
     synchronized (this) {
-      List<ServerNode> nodes = clusterManager.getServerList(requiredTags, excludeServerNodes);
-      Map<ServerNode, PartitionAssignmentInfo> newPartitionInfos = JavaUtils.newConcurrentMap();
-      for (ServerNode node : nodes) {
-        newPartitionInfos.computeIfAbsent(
-            node,
-            key -> {
-              PartitionAssignmentInfo partitionInfo;
-              if (serverToPartitions.containsKey(node)) {
-                partitionInfo = serverToPartitions.get(node);
-                if (partitionInfo.getTimestamp() < node.getTimestamp()) {
-                  partitionInfo.resetPartitionNum();
-                  partitionInfo.setTimestamp(node.getTimestamp());
-                }
-              } else {
-                partitionInfo = new PartitionAssignmentInfo();
-              }
-              return partitionInfo;
-            });
+      removeLostServers();
+      ServerScore[] scores = new ServerScore[nodes.size()];
+      for (int i = 0; i < scores.length; i++) {
+        ServerNode node = nodes.get(i);
+        PartitionAssignmentInfo partitionInfo = refreshPartitionInfo(node);
+        scores[i] =
+            new ServerScore(
+                node,
+                node.getAvailableMemory()
+                    * 1.0
+                    / (partitionInfo.getPartitionNum() + assignPartitions));
       }
-      serverToPartitions = newPartitionInfos;
-      int averagePartitions = totalPartitionNum * replica / clusterManager.getShuffleNodesMax();
-      int assignPartitions = Math.max(averagePartitions, 1);
-      nodes.sort(
-          new Comparator<ServerNode>() {
-            @Override
-            public int compare(ServerNode o1, ServerNode o2) {
-              PartitionAssignmentInfo partitionInfo1 = serverToPartitions.get(o1);
-              PartitionAssignmentInfo partitionInfo2 = serverToPartitions.get(o2);
-              double v1 =
-                  o1.getAvailableMemory()
-                      * 1.0
-                      / (partitionInfo1.getPartitionNum() + assignPartitions);
-              double v2 =
-                  o2.getAvailableMemory()
-                      * 1.0
-                      / (partitionInfo2.getPartitionNum() + assignPartitions);
-              return Double.compare(v2, v1);
-            }
-          });
-
-      if (nodes.isEmpty() || nodes.size() < replica) {
-        throw new RssException("There aren't enough shuffle servers");
-      }
-
-      final int assignmentMaxNum = clusterManager.getShuffleNodesMax();
-      int expectNum = assignmentMaxNum;
-      if (requiredShuffleServerNumber < assignmentMaxNum && requiredShuffleServerNumber > 0) {
-        expectNum = requiredShuffleServerNumber;
-      }
-
-      if (nodes.size() < expectNum) {
-        LOG.warn("Can't get expected servers [{}] and found only [{}]", expectNum, nodes.size());
-        expectNum = nodes.size();
+      // the score of each server is computed once instead of in every comparison
+      Arrays.sort(scores, (s1, s2) -> Double.compare(s2.score, s1.score));
+      for (int i = 0; i < scores.length; i++) {
+        nodes.set(i, scores[i].node);
       }
 
       List<ServerNode> candidatesNodes = getCandidateNodes(nodes, expectNum);
@@ -164,11 +149,48 @@ public class PartitionBalanceAssignmentStrategy extends AbstractAssignmentStrate
     return new PartitionRangeAssignment(assignments);
   }
 
+  /**
+   * Gets the partition info of the server, the partition number is reset if the server has
+   * reported its status since the last assignment.
+   */
+  private PartitionAssignmentInfo refreshPartitionInfo(ServerNode node) {
+    PartitionAssignmentInfo partitionInfo =
+        serverToPartitions.computeIfAbsent(node, key -> new PartitionAssignmentInfo());
+    if (partitionInfo.getTimestamp() < node.getTimestamp()) {
+      partitionInfo.resetPartitionNum();
+      partitionInfo.setTimestamp(node.getTimestamp());
+    }
+    return partitionInfo;
+  }
+
+  /**
+   * The partition infos are kept across the assignments instead of being rebuilt for each of them,
+   * the infos of the servers which have left the cluster are removed once there are more infos
+   * than servers.
+   */
+  private void removeLostServers() {
+    if (serverToPartitions.size() > clusterManager.getNodesNum()) {
+      Set<String> serverIds =
+          clusterManager.list().stream().map(ServerNode::getId).collect(Collectors.toSet());
+      serverToPartitions.keySet().removeIf(node -> !serverIds.contains(node.getId()));
+    }
+  }
+
   @VisibleForTesting
   Map<ServerNode, PartitionAssignmentInfo> getServerToPartitions() {
     return serverToPartitions;
   }
 
+  private static final class ServerScore {
+    private final ServerNode node;
+    private final double score;
+
+    private ServerScore(ServerNode node, double score) {
+      this.node = node;
+      this.score = score;
+    }
+  }
+
   static class PartitionAssignmentInfo {
 
     PartitionAssignmentInfo() {
@@ -18,11 +18,15 @@
 package org.apache.uniffle.coordinator.strategy.assignment;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -492,4 +496,41 @@ public class PartitionBalanceAssignmentStrategyTest {
       valid(clusterManager, strategy, expect);
     }
   }
+
+  @Test
+  public void testConcurrentAssign() throws Exception {
+    CoordinatorConf ssc = new CoordinatorConf();
+    ssc.setInteger(CoordinatorConf.COORDINATOR_SHUFFLE_NODES_MAX, shuffleNodesMax);
+    try (SimpleClusterManager clusterManager = new SimpleClusterManager(ssc, new Configuration())) {
+      PartitionBalanceAssignmentStrategy strategy =
+          new PartitionBalanceAssignmentStrategy(clusterManager, ssc);
+      List<Long> list = Lists.newArrayList();
+      for (int i = 0; i < 20; i++) {
+        list.add(20L);
+      }
+      updateServerResource(clusterManager, list);
+
+      int requestNum = 2000;
+      ExecutorService executor = Executors.newFixedThreadPool(16);
+      try {
+        List<Future<PartitionRangeAssignment>> futures = Lists.newArrayList();
+        for (int i = 0; i < requestNum; i++) {
+          futures.add(executor.submit(() -> strategy.assign(10, 1, 1, tags, -1, -1)));
+        }
+        for (Future<PartitionRangeAssignment> future : futures) {
+          assertEquals(10, future.get().getAssignments().size());
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+
+      // no partition is lost and the servers stay balanced as if the requests were sequential
+      List<Integer> partitionNums =
+          clusterManager.getServerList(tags).stream()
+              .map(node -> strategy.getServerToPartitions().get(node).getPartitionNum())
+              .collect(Collectors.toList());
+      assertEquals(requestNum * 10, partitionNums.stream().mapToInt(Integer::intValue).sum());
+      assertTrue(Collections.max(partitionNums) - Collections.min(partitionNums) <= 2);
+    }
+  }
 }
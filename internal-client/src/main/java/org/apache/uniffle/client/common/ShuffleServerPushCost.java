@@ -23,6 +23,7 @@ public class ShuffleServerPushCost {
   private final String shuffleServerId;
   private final AtomicLong sentBytes;
   private final AtomicLong sentDurationMs;
+  private final AtomicLong queueWaitMs;
 
   private final AtomicLong requireBufferFailureCounter;
   private final AtomicLong pushFailureCounter;
@@ -33,6 +34,7 @@ public class ShuffleServerPushCost {
     this.shuffleServerId = shuffleServerId;
     this.sentBytes = new AtomicLong();
     this.sentDurationMs = new AtomicLong();
+    this.queueWaitMs = new AtomicLong();
     this.requireBufferFailureCounter = new AtomicLong();
     this.pushFailureCounter = new AtomicLong();
     this.lastPushFailureReason = null;
@@ -55,6 +57,10 @@ public class ShuffleServerPushCost {
     this.sentDurationMs.addAndGet(duration);
   }
 
+  public void incQueueWaitMs(long duration) {
+    this.queueWaitMs.addAndGet(duration);
+  }
+
   public void merge(ShuffleServerPushCost cost) {
     if (!cost.shuffleServerId.equals(this.shuffleServerId)) {
       return;
@@ -62,6 +68,7 @@ public class ShuffleServerPushCost {
 
     this.incSentBytes(cost.sentBytes.get());
     this.incDurationMs(cost.sentDurationMs.get());
+    this.incQueueWaitMs(cost.queueWaitMs.get());
     this.incRequiredBufferFailure(cost.requireBufferFailureCounter.get());
     this.incSentFailure(cost.pushFailureCounter.get(), cost.lastPushFailureReason);
   }
@@ -81,6 +88,10 @@ public class ShuffleServerPushCost {
     return sentDurationMs.get();
   }
 
+  public long queueWaitMillis() {
+    return queueWaitMs.get();
+  }
+
   public long requiredBufferFailureNumber() {
     return requireBufferFailureCounter.get();
   }
@@ -102,6 +113,8 @@ public class ShuffleServerPushCost {
         + sentBytes
         + ", sentDurationMs="
         + sentDurationMs
+        + ", queueWaitMs="
+        + queueWaitMs
         + ", speed="
         + speed()
         + "}";
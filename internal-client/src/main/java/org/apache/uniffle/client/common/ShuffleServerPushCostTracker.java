@@ -73,6 +73,13 @@ public class ShuffleServerPushCostTracker {
     cost.incSentBytes(sentBytes);
   }
 
+  /** Records the time the data waited to be sent, which isn't counted in the push duration. */
+  public void recordQueueWait(String id, long queueWaitMs) {
+    ShuffleServerPushCost cost =
+        this.tracking.computeIfAbsent(id, key -> new ShuffleServerPushCost(key));
+    cost.incQueueWaitMs(queueWaitMs);
+  }
+
   public void statistics() {
     if (LOGGER.isDebugEnabled()) {
       List<ShuffleServerPushCost> shuffleServerPushCosts = new ArrayList<>(this.tracking.values());
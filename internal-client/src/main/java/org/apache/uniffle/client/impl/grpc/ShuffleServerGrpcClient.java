@@ -418,6 +418,7 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
       }
       result = rpcResponse.getRequireBufferId();
       needSplitPartitionIds = rpcResponse.getNeedSplitPartitionIdsList();
+      onBufferRequired(rpcResponse);
     } else if (NOT_RETRY_STATUS_CODES.contains(
         StatusCode.fromCode(rpcResponse.getStatus().getNumber()))) {
       failedStatusCodeRef.set(StatusCode.fromCode(rpcResponse.getStatus().getNumber()));
@@ -437,6 +438,9 @@ public class ShuffleServerGrpcClient extends GrpcClient implements ShuffleServer
     return Pair.of(result, needSplitPartitionIds);
   }
 
+  /** Called with the response of every buffer required successfully. */
+  protected void onBufferRequired(RequireBufferResponse response) {}
+
   private RssProtos.ShuffleUnregisterByAppIdResponse doUnregisterShuffleByAppId(
       String appId, int timeoutSec) {
     RssProtos.ShuffleUnregisterByAppIdRequest request =
@@ -18,10 +18,12 @@
 package org.apache.uniffle.client.impl.grpc;
 
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -68,8 +70,11 @@ import org.apache.uniffle.common.netty.protocol.GetSortedShuffleDataRequest;
 import org.apache.uniffle.common.netty.protocol.GetSortedShuffleDataResponse;
 import org.apache.uniffle.common.netty.protocol.RpcResponse;
 import org.apache.uniffle.common.netty.protocol.SendShuffleDataRequest;
+import org.apache.uniffle.common.netty.protocol.SendShuffleDataResponse;
+import org.apache.uniffle.common.netty.protocol.SendShuffleDataV2Request;
 import org.apache.uniffle.common.rpc.StatusCode;
 import org.apache.uniffle.common.util.RetryUtils;
+import org.apache.uniffle.proto.RssProtos.RequireBufferResponse;
 
 import static org.apache.uniffle.common.config.RssClientConf.RSS_CLIENT_GRPC_EVENT_LOOP_THREADS;
 
@@ -77,6 +82,12 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
   private static final Logger LOG = LoggerFactory.getLogger(ShuffleServerGrpcNettyClient.class);
   private int nettyPort;
   private TransportClientFactory clientFactory;
+  private final boolean sendCompactEnabled;
+  private final boolean sendCreditEnabled;
+  // whether the server told it decodes the compact send requests when requiring a buffer
+  private volatile boolean compactSendSupported;
+  // the send credits granted by the server, each one is spent by one send request
+  private final Deque<SendCredit> sendCredits = new ConcurrentLinkedDeque<>();
 
   @VisibleForTesting
   public ShuffleServerGrpcNettyClient(String host, int grpcPort, int nettyPort) {
@@ -127,6 +138,8 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
         smallCacheSize,
         rssConf.get(RSS_CLIENT_GRPC_EVENT_LOOP_THREADS));
     this.nettyPort = nettyPort;
+    this.sendCompactEnabled = rssConf.getBoolean(RssClientConf.RPC_NETTY_SEND_COMPACT_ENABLED);
+    this.sendCreditEnabled = rssConf.getBoolean(RssClientConf.RPC_NETTY_SEND_CREDIT_ENABLED);
     TransportContext transportContext = new TransportContext(new TransportConf(rssConf));
     this.clientFactory = new TransportClientFactory(transportContext);
   }
@@ -163,7 +176,7 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
       }
 
       ShuffleServerPushCostTracker costTracker = request.getCostTracker();
-      SendShuffleDataRequest sendShuffleDataRequest =
+      SendShuffleDataRequest v1Request =
           new SendShuffleDataRequest(
               requestId(),
               request.getAppId(),
@@ -172,25 +185,52 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
               0L,
               stb.getValue(),
               System.currentTimeMillis());
-      int allocateSize = size + sendShuffleDataRequest.encodedLength();
+      // the compact request is only sent after the server tells it decodes it, so the buffer
+      // required fits both of them
+      SendShuffleDataRequest compactRequest =
+          sendCompactEnabled
+              ? new SendShuffleDataV2Request(
+                  v1Request.getRequestId(),
+                  request.getAppId(),
+                  shuffleId,
+                  stageAttemptNumber,
+                  0L,
+                  stb.getValue(),
+                  v1Request.getTimestamp())
+              : null;
+      // the size of the credit asked for is counted in, whether it's asked or not
+      v1Request.setCreditSize(sendCreditEnabled ? size : 0);
+      int encodedLength = v1Request.encodedLength();
+      if (compactRequest != null) {
+        compactRequest.setCreditSize(v1Request.getCreditSize());
+        encodedLength = Math.max(encodedLength, compactRequest.encodedLength());
+      }
+      int allocateSize = size + encodedLength;
       int finalBlockNum = blockNum;
       try {
         RetryUtils.retryWithCondition(
             () -> {
               final TransportClient transportClient = getTransportClient();
-              Pair<Long, List<Integer>> result =
-                  requirePreAllocation(
-                      request.getAppId(),
-                      shuffleId,
-                      partitionIds,
-                      partitionRequireSizes,
-                      allocateSize,
-                      request.getRetryMax(),
-                      request.getRetryIntervalMax(),
-                      failedStatusCode,
-                      costTracker);
-              long requireId = result.getLeft();
-              needSplitPartitionIds.addAll(result.getRight());
+              SendCredit credit =
+                  pollSendCredit(request.getAppId(), shuffleId, partitionIds, allocateSize);
+              long requireId;
+              if (credit != null) {
+                requireId = credit.requireId;
+              } else {
+                Pair<Long, List<Integer>> result =
+                    requirePreAllocation(
+                        request.getAppId(),
+                        shuffleId,
+                        partitionIds,
+                        partitionRequireSizes,
+                        allocateSize,
+                        request.getRetryMax(),
+                        request.getRetryIntervalMax(),
+                        failedStatusCode,
+                        costTracker);
+                requireId = result.getLeft();
+                needSplitPartitionIds.addAll(result.getRight());
+              }
               if (requireId == FAILED_REQUIRE_ID) {
                 ClientInfo clientInfo = getClientInfo();
                 if (clientInfo != null && costTracker != null) {
@@ -201,6 +241,15 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
                         "requirePreAllocation failed! size[%s], host[%s], port[%s]",
                         allocateSize, host, port));
               }
+              // an older server fails to decode the compact request, so it falls back to the v1
+              SendShuffleDataRequest sendShuffleDataRequest =
+                  compactRequest != null && compactSendSupported ? compactRequest : v1Request;
+              if (sendCreditEnabled) {
+                // a new credit replaces the spent one, so the unused credits don't pile up
+                boolean askCredit =
+                    credit != null || !hasSendCredit(request.getAppId(), shuffleId, partitionIds);
+                sendShuffleDataRequest.setCreditSize(askCredit ? allocateSize : 0);
+              }
               sendShuffleDataRequest.setRequireId(requireId);
               sendShuffleDataRequest.setTimestamp(System.currentTimeMillis());
               long start = System.currentTimeMillis();
@@ -218,6 +267,13 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
                     host,
                     port);
               }
+              if (rpcResponse instanceof SendShuffleDataResponse) {
+                addSendCredit(
+                    request.getAppId(),
+                    shuffleId,
+                    partitionIds,
+                    (SendShuffleDataResponse) rpcResponse);
+              }
               if (rpcResponse.getStatusCode() != StatusCode.SUCCESS) {
                 failedStatusCode.set(StatusCode.fromCode(rpcResponse.getStatusCode().statusCode()));
                 String msg =
@@ -260,6 +316,96 @@ public class ShuffleServerGrpcNettyClient extends ShuffleServerGrpcClient {
     return response;
   }
 
+  @Override
+  protected void onBufferRequired(RequireBufferResponse response) {
+    compactSendSupported = response.getCompactSendSupported();
+  }
+
+  private void addSendCredit(
+      String appId, int shuffleId, List<Integer> partitionIds, SendShuffleDataResponse response) {
+    // the server removes the buffer some time after it expires, so half of it is safe
+    long deadline = System.currentTimeMillis() + response.getCreditExpiredMs() / 2;
+    sendCredits.add(
+        new SendCredit(
+            appId,
+            shuffleId,
+            new HashSet<>(partitionIds),
+            response.getCreditRequireId(),
+            response.getCreditSize(),
+            deadline));
+  }
+
+  /**
+   * @return a credit not smaller than the size which covers all the partitions, or null if there
+   *     is none
+   */
+  @VisibleForTesting
+  SendCredit pollSendCredit(String appId, int shuffleId, List<Integer> partitionIds, int size) {
+    long now = System.currentTimeMillis();
+    for (SendCredit credit : sendCredits) {
+      if (credit.deadline <= now) {
+        sendCredits.remove(credit);
+      } else if (credit.covers(appId, shuffleId, partitionIds)
+          && credit.size >= size
+          && sendCredits.remove(credit)) {
+        // only the thread removing the credit spends it
+        return credit;
+      }
+    }
+    return null;
+  }
+
+  private boolean hasSendCredit(String appId, int shuffleId, List<Integer> partitionIds) {
+    long now = System.currentTimeMillis();
+    for (SendCredit credit : sendCredits) {
+      if (credit.deadline > now && credit.covers(appId, shuffleId, partitionIds)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A buffer pre-allocated by the server for the partitions of a send request. The server checks
+   * these partitions, e.g. whether they are huge and should be split, when it grants the credit,
+   * so it's only spent by a request to some of them. The requests to other partitions still
+   * require the buffer by themselves, and get the partitions to split in that response.
+   */
+  @VisibleForTesting
+  static class SendCredit {
+    private final String appId;
+    private final int shuffleId;
+    private final Set<Integer> partitionIds;
+    private final long requireId;
+    private final int size;
+    private final long deadline;
+
+    SendCredit(
+        String appId,
+        int shuffleId,
+        Set<Integer> partitionIds,
+        long requireId,
+        int size,
+        long deadline) {
+      this.appId = appId;
+      this.shuffleId = shuffleId;
+      this.partitionIds = partitionIds;
+      this.requireId = requireId;
+      this.size = size;
+      this.deadline = deadline;
+    }
+
+    boolean covers(String appId, int shuffleId, List<Integer> partitionIds) {
+      return this.shuffleId == shuffleId
+          && this.appId.equals(appId)
+          && this.partitionIds.containsAll(partitionIds);
+    }
+
+    long getRequireId() {
+      return requireId;
+    }
+  }
+
   @Override
   public RssGetInMemoryShuffleDataResponse getInMemoryShuffleData(
       RssGetInMemoryShuffleDataRequest request) {
@@ -17,6 +17,8 @@
 
 package org.apache.uniffle.server;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -26,6 +28,7 @@ import java.util.function.Supplier;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Queues;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +41,8 @@ import org.apache.uniffle.common.util.ThreadUtils;
 import org.apache.uniffle.server.flush.EventDiscardException;
 import org.apache.uniffle.server.flush.EventInvalidException;
 import org.apache.uniffle.server.flush.EventRetryException;
+import org.apache.uniffle.server.flush.FlushEventCoalescer;
+import org.apache.uniffle.server.flush.LocalStorageFlushController;
 import org.apache.uniffle.server.storage.StorageManager;
 import org.apache.uniffle.storage.common.HadoopStorage;
 import org.apache.uniffle.storage.common.LocalStorage;
@@ -49,6 +54,8 @@ import static org.apache.uniffle.server.ShuffleServerMetrics.EVENT_QUEUE_SIZE;
 
 public class DefaultFlushEventHandler implements FlushEventHandler {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultFlushEventHandler.class);
+  // the max number of events taken from the flush queue at once to be coalesced
+  private static final int MAX_COALESCE_EVENT_NUM = 1024;
 
   private final ShuffleServerConf shuffleServerConf;
   private final StorageManager storageManager;
@@ -60,6 +67,10 @@ public class DefaultFlushEventHandler implements FlushEventHandler {
   private ConsumerWithException<ShuffleDataFlushEvent> eventConsumer;
   private final ShuffleServer shuffleServer;
   private final long flushMaxWaitTimeoutSec;
+  // not null if the flush events to local storages are limited by the disk bandwidth
+  private final LocalStorageFlushController localStorageFlushController;
+  // not null if the small flush events to local storages are merged before being flushed
+  private final FlushEventCoalescer flushEventCoalescer;
 
   private volatile boolean stopped = false;
 
@@ -75,6 +86,14 @@ public class DefaultFlushEventHandler implements FlushEventHandler {
     this.storageManager = storageManager;
     this.shuffleServer = shuffleServer;
     this.eventConsumer = eventConsumer;
+    this.localStorageFlushController =
+        conf.get(ShuffleServerConf.SERVER_FLUSH_LOCALFILE_ADAPTIVE_ENABLED)
+            ? new LocalStorageFlushController(conf)
+            : null;
+    this.flushEventCoalescer =
+        conf.get(ShuffleServerConf.SERVER_FLUSH_LOCALFILE_COALESCE_ENABLED)
+            ? new FlushEventCoalescer(conf)
+            : null;
     initFlushEventExecutor();
   }
 
@@ -111,15 +130,21 @@ public class DefaultFlushEventHandler implements FlushEventHandler {
    * @param event
    * @param storage
    */
-  private void handleEventAndUpdateMetrics(ShuffleDataFlushEvent event, Storage storage) {
+  private void handleEventAndUpdateMetrics(
+      ShuffleDataFlushEvent event, Storage storage, boolean controlled) {
     long start = System.currentTimeMillis();
+    long writeCost = 0;
+    boolean succeeded = false;
     String appId = event.getAppId();
     ReentrantReadWriteLock.ReadLock readLock =
         shuffleServer.getShuffleTaskManager().getAppReadLock(appId);
     try {
       readLock.lock();
       try {
+        long writeStart = System.currentTimeMillis();
         consumeEvent(event);
+        writeCost = System.currentTimeMillis() - writeStart;
+        succeeded = true;
       } finally {
         readLock.unlock();
       }
@@ -175,6 +200,9 @@ public class DefaultFlushEventHandler implements FlushEventHandler {
       // We need to release the memory when unexpected exceptions happened
       event.doCleanup();
     } finally {
+      if (controlled) {
+        localStorageFlushController.complete((LocalStorage) storage, event, writeCost, succeeded);
+      }
       if (storage != null) {
         if (storage instanceof HadoopStorage) {
           ShuffleServerMetrics.counterHadoopEventFlush.inc();
@@ -230,32 +258,106 @@ public class DefaultFlushEventHandler implements FlushEventHandler {
   protected void dispatchEvent() {
     try {
       ShuffleDataFlushEvent event = flushQueue.take();
-      Storage storage = storageManager.selectStorage(event);
+      if (flushEventCoalescer == null) {
+        dispatchEvent(event, storageManager.selectStorage(event));
+        return;
+      }
+      List<ShuffleDataFlushEvent> events = new ArrayList<>();
+      events.add(event);
+      flushQueue.drainTo(events, MAX_COALESCE_EVENT_NUM - 1);
+      List<Pair<ShuffleDataFlushEvent, Storage>> eventsWithStorage =
+          new ArrayList<>(events.size());
+      for (ShuffleDataFlushEvent e : events) {
+        try {
+          eventsWithStorage.add(Pair.of(e, storageManager.selectStorage(e)));
+        } catch (Exception ex) {
+          LOG.error("Exception happened when selecting storage for event: {}", e, ex);
+        }
+      }
+      for (FlushEventCoalescer.Batch batch : flushEventCoalescer.coalesce(eventsWithStorage)) {
+        try {
+          dispatchBatch(batch);
+        } catch (Exception e) {
+          LOG.error("Exception happened when pushing events to dedicated event handler.", e);
+        }
+      }
+    } catch (Exception e) {
+      LOG.error("Exception happened when pushing events to dedicated event handler.", e);
+    }
+  }
 
-      Executor dedicatedExecutor = fallbackThreadPoolExecutor;
-      // pending event will be delegated to fallback threadPool
-      if (!event.isPended()) {
-        if (storage instanceof HadoopStorage) {
-          dedicatedExecutor = hadoopThreadPoolExecutor;
-          ShuffleServerMetrics.gaugeHadoopFlushThreadPoolQueueSize.inc();
-        } else if (storage instanceof LocalStorage) {
-          dedicatedExecutor = localFileThreadPoolExecutor;
-          ShuffleServerMetrics.gaugeLocalfileFlushThreadPoolQueueSize.inc();
+  private void dispatchBatch(FlushEventCoalescer.Batch batch) {
+    List<ShuffleDataFlushEvent> events = batch.getEvents();
+    // the disks limited by the bandwidth admit the events one by one
+    if (events.size() == 1 || localStorageFlushController != null) {
+      for (ShuffleDataFlushEvent event : events) {
+        dispatchEvent(event, batch.getStorage());
+      }
+      return;
+    }
+    // the events of a batch are only for a local storage, they are written by one task in turn
+    ShuffleServerMetrics.gaugeLocalfileFlushThreadPoolQueueSize.inc(events.size());
+    CompletableFuture.runAsync(
+            () -> {
+              for (ShuffleDataFlushEvent event : events) {
+                handleEventAndUpdateMetrics(event, batch.getStorage(), false);
+              }
+            },
+            localFileThreadPoolExecutor)
+        .exceptionally(
+            e -> {
+              LOG.error("Exception happened when handling event and updating metrics.", e);
+              return null;
+            });
+  }
+
+  private void dispatchEvent(ShuffleDataFlushEvent event, Storage storage) {
+    Executor dedicatedExecutor = fallbackThreadPoolExecutor;
+    // pending event will be delegated to fallback threadPool
+    if (!event.isPended()) {
+      if (storage instanceof HadoopStorage) {
+        dedicatedExecutor = hadoopThreadPoolExecutor;
+        ShuffleServerMetrics.gaugeHadoopFlushThreadPoolQueueSize.inc();
+      } else if (storage instanceof LocalStorage) {
+        if (localStorageFlushController != null) {
+          // the event is submitted to the thread pool once the disk has room for it
+          localStorageFlushController.submit(
+              (LocalStorage) storage,
+              event,
+              e -> {
+                ShuffleServerMetrics.gaugeLocalfileFlushThreadPoolQueueSize.inc();
+                submitEvent(e, storage, localFileThreadPoolExecutor, true);
+              });
+          return;
         }
-      } else {
-        dedicatedExecutor = fallbackThreadPoolExecutor;
-        ShuffleServerMetrics.gaugeFallbackFlushThreadPoolQueueSize.inc();
+        dedicatedExecutor = localFileThreadPoolExecutor;
+        ShuffleServerMetrics.gaugeLocalfileFlushThreadPoolQueueSize.inc();
       }
+    } else {
+      dedicatedExecutor = fallbackThreadPoolExecutor;
+      ShuffleServerMetrics.gaugeFallbackFlushThreadPoolQueueSize.inc();
+    }
+
+    submitEvent(event, storage, dedicatedExecutor, false);
+  }
 
+  private void submitEvent(
+      ShuffleDataFlushEvent event, Storage storage, Executor executor, boolean controlled) {
+    try {
       CompletableFuture.runAsync(
-              () -> handleEventAndUpdateMetrics(event, storage), dedicatedExecutor)
+              () -> handleEventAndUpdateMetrics(event, storage, controlled), executor)
           .exceptionally(
               e -> {
                 LOG.error("Exception happened when handling event and updating metrics.", e);
                 return null;
               });
-    } catch (Exception e) {
-      LOG.error("Exception happened when pushing events to dedicated event handler.", e);
+    } catch (RuntimeException e) {
+      if (controlled) {
+        // give the room back, otherwise the events waiting for the disk would never be flushed
+        ShuffleServerMetrics.gaugeLocalfileFlushThreadPoolQueueSize.dec();
+        localStorageFlushController.complete((LocalStorage) storage, event, 0, false);
+      }
+      throw e;
     }
   }
 
@@ -64,6 +64,7 @@ import org.apache.uniffle.common.web.JettyServer;
 import org.apache.uniffle.proto.RssProtos;
 import org.apache.uniffle.server.buffer.ShuffleBufferManager;
 import org.apache.uniffle.server.buffer.ShuffleBufferType;
+import org.apache.uniffle.server.journal.MetadataJournal;
 import org.apache.uniffle.server.merge.ShuffleMergeManager;
 import org.apache.uniffle.server.netty.StreamServer;
 import org.apache.uniffle.server.storage.StorageManager;
@@ -104,6 +105,7 @@ public class ShuffleServer {
   private ShuffleFlushManager shuffleFlushManager;
   private ShuffleBufferManager shuffleBufferManager;
   private StorageManager storageManager;
+  private MetadataJournal metadataJournal;
   private boolean remoteMergeEnable;
   private ShuffleMergeManager shuffleMergeManager;
   private HealthCheck healthCheck;
@@ -219,6 +221,9 @@ public class ShuffleServer {
     if (shuffleTaskManager != null) {
       shuffleTaskManager.stop();
     }
+    if (metadataJournal != null) {
+      metadataJournal.close();
+    }
     if (jvmPauseMonitor != null) {
       jvmPauseMonitor.close();
     }
@@ -330,6 +335,10 @@ public class ShuffleServer {
             shuffleBufferManager,
             storageManager,
             shuffleMergeManager);
+    if (shuffleServerConf.get(ShuffleServerConf.SERVER_METADATA_JOURNAL_ENABLED)) {
+      metadataJournal = new MetadataJournal(shuffleServerConf);
+      shuffleTaskManager.recover(metadataJournal);
+    }
     shuffleTaskManager.start();
     ShuffleServerMetrics.addLabeledGauge(
         USED_DIRECT_MEMORY_SIZE_BY_NETTY, PlatformDependent::usedDirectMemory);
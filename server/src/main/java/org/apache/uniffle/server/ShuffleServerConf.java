@@ -111,6 +111,48 @@ public class ShuffleServerConf extends RssBaseConf {
           .defaultValue(10)
           .withDescription("thread pool for flush data to file");
 
+  public static final ConfigOption<Boolean> SERVER_FLUSH_LOCALFILE_ADAPTIVE_ENABLED =
+      ConfigOptions.key("rss.server.flush.localfile.adaptive.enabled")
+          .booleanType()
+          .defaultValue(false)
+          .withDescription(
+              "Whether to limit the flush events in flight to each local storage by its measured "
+                  + "write bandwidth, so a slow disk won't occupy all the flush threads");
+
+  public static final ConfigOption<Long> SERVER_FLUSH_LOCALFILE_ADAPTIVE_TARGET_LATENCY_MS =
+      ConfigOptions.key("rss.server.flush.localfile.adaptive.targetLatencyMs")
+          .longType()
+          .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "target latency must be positive")
+          .defaultValue(1000L)
+          .withDescription(
+              "The flush events in flight to a local storage are limited to the data it can "
+                  + "write within this time");
+
+  public static final ConfigOption<Long> SERVER_FLUSH_LOCALFILE_ADAPTIVE_MIN_IN_FLIGHT_SIZE =
+      ConfigOptions.key("rss.server.flush.localfile.adaptive.minInFlightSize")
+          .longType()
+          .defaultValue(32 * 1024 * 1024L)
+          .withDescription(
+              "The lower bound of the data in flight to a local storage, no matter how slow it is");
+
+  public static final ConfigOption<Boolean> SERVER_FLUSH_LOCALFILE_COALESCE_ENABLED =
+      ConfigOptions.key("rss.server.flush.localfile.coalesce.enabled")
+          .booleanType()
+          .defaultValue(false)
+          .withDescription(
+              "Whether to batch the small flush events waiting in the flush queue which are "
+                  + "bound for the same local storage, so they are written in turn by one flush "
+                  + "task, and the events of the same partition in a batch with one write");
+
+  public static final ConfigOption<Long> SERVER_FLUSH_LOCALFILE_COALESCE_MAX_SIZE =
+      ConfigOptions.key("rss.server.flush.localfile.coalesce.maxSize")
+          .longType()
+          .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "coalesce max size must be positive")
+          .defaultValue(8 * 1024 * 1024L)
+          .withDescription(
+              "The max size of a batch of flush events, the events not smaller than it are "
+                  + "flushed as they are");
+
   public static final ConfigOption<Integer> SERVER_FLUSH_HADOOP_THREAD_POOL_SIZE =
       ConfigOptions.key("rss.server.flush.hadoop.threadPool.size")
           .intType()
@@ -420,6 +462,44 @@ public class ShuffleServerConf extends RssBaseConf {
           .withDescription(
               "For localstorage, it will exit when the failed initialized local storage exceed the number");
 
+  public static final ConfigOption<List<String>> LOCAL_STORAGE_DIRECT_IO_READ_MEDIA =
+      ConfigOptions.key("rss.server.localstorage.directIO.read.media")
+          .stringType()
+          .asList()
+          .defaultValues()
+          .withDescription(
+              "The storage media types, e.g. HDD, whose shuffle data is read with direct I/O to "
+                  + "bypass the page cache. It falls back to buffered read if direct I/O is not "
+                  + "supported by the JVM or the file system. Empty means disabled");
+
+  public static final ConfigOption<Integer> LOCAL_STORAGE_DIRECT_IO_ALIGNMENT =
+      ConfigOptions.key("rss.server.localstorage.directIO.alignment")
+          .intType()
+          .checkValue(
+              value -> value > 0 && (value & (value - 1)) == 0, "alignment must be a power of two")
+          .defaultValue(4096)
+          .withDescription(
+              "The alignment of direct I/O reads, it should be a multiple of the block size of "
+                  + "the file system");
+
+  public static final ConfigOption<Long> LOCAL_STORAGE_DIRECT_IO_BUFFER_POOL_SIZE =
+      ConfigOptions.key("rss.server.localstorage.directIO.bufferPoolSize")
+          .longType()
+          .checkValue(
+              ConfigUtils.NON_NEGATIVE_LONG_VALIDATOR, "buffer pool size must be non-negative")
+          .defaultValue(256 * 1024 * 1024L)
+          .withDescription("The max size of the idle aligned buffers kept for direct I/O reads");
+
+  public static final ConfigOption<Long> LOCAL_STORAGE_INDEX_CACHE_CAPACITY =
+      ConfigOptions.key("rss.server.localstorage.indexCache.capacity")
+          .longType()
+          .checkValue(
+              ConfigUtils.NON_NEGATIVE_LONG_VALIDATOR, "index cache capacity must be non-negative")
+          .defaultValue(0L)
+          .withDescription(
+              "The max size of the memory mapped index files of the local storages, which are "
+                  + "served without reading the files again. 0 means the cache is disabled");
+
   public static final ConfigOption<Boolean> BUFFER_FLUSH_TRIGGERED_WHEN_CACHEING_DATA =
       ConfigOptions.key("rss.server.buffer.flush.triggeredWhenCachingData")
           .booleanType()
@@ -463,6 +543,32 @@ public class ShuffleServerConf extends RssBaseConf {
           .defaultValue(3600 * 1000L)
           .withDescription("the interval of leak shuffle data check");
 
+  public static final ConfigOption<Boolean> SERVER_METADATA_JOURNAL_ENABLED =
+      ConfigOptions.key("rss.server.metadata.journal.enabled")
+          .booleanType()
+          .defaultValue(false)
+          .withDescription(
+              "Whether to journal the registered shuffles, the reported block ids and the "
+                  + "storages of the partitions, so that a restarted server keeps serving the "
+                  + "data flushed to the local storages");
+
+  public static final ConfigOption<String> SERVER_METADATA_JOURNAL_PATH =
+      ConfigOptions.key("rss.server.metadata.journal.path")
+          .stringType()
+          .noDefaultValue()
+          .withDescription(
+              "The directory of the metadata journal, it must not be one of the local storage "
+                  + "paths");
+
+  public static final ConfigOption<Long> SERVER_METADATA_JOURNAL_COMPACT_INTERVAL =
+      ConfigOptions.key("rss.server.metadata.journal.compact.interval")
+          .longType()
+          .checkValue(ConfigUtils.POSITIVE_LONG_VALIDATOR, "compact interval must be positive")
+          .defaultValue(10 * 60 * 1000L)
+          .withDescription(
+              "The interval(ms) to compact the metadata journal into a snapshot without the "
+                  + "removed apps and shuffles");
+
   public static final ConfigOption<Integer> SERVER_MAX_CONCURRENCY_OF_ONE_PARTITION =
       ConfigOptions.key("rss.server.max.concurrency.of.per-partition.write")
           .intType()
@@ -491,12 +597,15 @@ public class ShuffleServerConf extends RssBaseConf {
           .enumType(ShuffleBufferType.class)
           .defaultValue(ShuffleBufferType.LINKED_LIST)
           .withDescription(
-              "The type for shuffle buffers. Setting as LINKED_LIST or SKIP_LIST."
+              "The type for shuffle buffers. Setting as LINKED_LIST, SKIP_LIST or SEGMENT_LOG."
                   + " The default value is LINKED_LIST. SKIP_LIST will help to improve"
                   + " the performance when there are a large number of blocks in memory"
                   + " or when the memory occupied by the blocks is very large."
                   + " The cpu usage of the shuffle server will be reduced."
-                  + " But SKIP_LIST doesn't support the slow-start feature of MR.");
+                  + " But SKIP_LIST doesn't support the slow-start feature of MR."
+                  + " SEGMENT_LOG reads the blocks in memory without locking the buffer, so the"
+                  + " partitions read by many readers don't block the writers."
+                  + " But SEGMENT_LOG doesn't support LAB.");
 
   public static final ConfigOption<Integer> SERVER_SHUFFLE_FLUSH_TRYLOCK_TIMEOUT =
       ConfigOptions.key("rss.server.flush.tryLockTimeoutMs")
@@ -556,6 +665,28 @@ public class ShuffleServerConf extends RssBaseConf {
                   + SERVER_SHUFFLE_BUFFER_LAB_CHUNK_SIZE.key()
                   + " * 0.2 will be put in the chunk.");
 
+  public static final ConfigOption<Integer> SERVER_SHUFFLE_BUFFER_LAB_MAX_CHUNK_SIZE =
+      ConfigOptions.key("rss.server.buffer.lab.maxChunkSize")
+          .intType()
+          .defaultValue(0)
+          .withDescription(
+              "The largest size class of the LAB chunk pools. If it's larger than "
+                  + SERVER_SHUFFLE_BUFFER_LAB_CHUNK_SIZE.key()
+                  + ", there is a pool for each power of two multiple of the chunk size up to it, "
+                  + "and a block larger than the max alloc is copied into a pooled chunk of its "
+                  + "own instead of staying out of the LAB. Such a chunk may be almost twice as "
+                  + "large as its block, which isn't counted in the used memory, so a block stays "
+                  + "out of the LAB when the pool of its size is exhausted.");
+
+  public static final ConfigOption<Integer> SERVER_SHUFFLE_BUFFER_LAB_MAGAZINE_SIZE =
+      ConfigOptions.key("rss.server.buffer.lab.magazineSize")
+          .intType()
+          .defaultValue(0)
+          .withDescription(
+              "The number of the idle chunks of each size class cached by each thread, so the "
+                  + "threads don't contend on the chunk pools for every chunk. 0 means the idle "
+                  + "chunks are shared by the threads directly.");
+
   public static final ConfigOption<Double> SERVER_SHUFFLE_BUFFER_LAB_CHUNK_POOL_CAPACITY_RATIO =
       ConfigOptions.key("rss.server.buffer.lab.chunkPoolCapacityRatio")
           .doubleType()
@@ -695,6 +826,34 @@ public class ShuffleServerConf extends RssBaseConf {
                   + "network_bandwidth = 10Gbps, buffer size should be ~ 1.25MB."
                   + "Default is 0, OS will dynamically adjust the buf size.");
 
+  public static final ConfigOption<Boolean> NETTY_SERVER_DECODE_ZERO_COPY_ENABLED =
+      ConfigOptions.key("rss.server.netty.decode.zeroCopy.enabled")
+          .booleanType()
+          .defaultValue(false)
+          .withDescription(
+              "Whether to keep the block data of a Netty send request as retained slices of the "
+                  + "received frame instead of copying each block into a new buffer. It saves a "
+                  + "copy and an allocation per block, while a frame stays in memory until all "
+                  + "its blocks are flushed or released.");
+
+  public static final ConfigOption<Boolean> NETTY_SERVER_SEND_CREDIT_ENABLED =
+      ConfigOptions.key("rss.server.netty.send.credit.enabled")
+          .booleanType()
+          .defaultValue(true)
+          .withDescription(
+              "Whether to grant a send credit, i.e. a pre-allocated buffer for the next request, "
+                  + "in the response of a Netty send request which asks for it, so the client "
+                  + "doesn't need to require the buffer before the next request.");
+
+  public static final ConfigOption<Boolean> NETTY_SERVER_LOCAL_DATA_ZERO_COPY_ENABLED =
+      ConfigOptions.key("rss.server.netty.localData.zeroCopy.enabled")
+          .booleanType()
+          .defaultValue(true)
+          .withDescription(
+              "Whether the local shuffle data served as file regions, i.e. read without direct IO, "
+                  + "is sent by sendfile without requiring the read buffer, since it's never "
+                  + "loaded into memory");
+
   public static final ConfigOption<Integer> TOP_N_APP_SHUFFLE_DATA_SIZE_NUMBER =
       ConfigOptions.key("rss.server.topN.appShuffleDataSize.number")
           .intType()
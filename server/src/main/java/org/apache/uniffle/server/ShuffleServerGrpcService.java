@@ -746,6 +746,7 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
               .setRequireBufferId(requireBufferId)
               .setRetMsg(responseMessage)
               .addAllNeedSplitPartitionIds(needSplitPartitionIds)
+              .setCompactSendSupported(true)
               .build();
       responseObserver.onNext(response);
       responseObserver.onCompleted();
@@ -1250,7 +1251,9 @@ public class ShuffleServerGrpcService extends ShuffleServerImplBase {
           ShuffleServerMetrics.gaugeReadLocalIndexFileBufferSize.inc(assumedFileSize);
           GetLocalShuffleIndexResponse.Builder builder =
               GetLocalShuffleIndexResponse.newBuilder().setStatus(status.toProto()).setRetMsg(msg);
-          builder.setIndexData(UnsafeByteOperations.unsafeWrap(data));
+          // the index data may be mapped from the index file cache, which unmaps it once released
+          // and evicted, so it's copied before the release, ahead of the reply being serialized
+          builder.setIndexData(ByteString.copyFrom(data.duplicate()));
           builder.setDataFileLen(shuffleIndexResult.getDataFileLen());
           builder.addAllStorageIds(
               Arrays.stream(shuffleIndexResult.getStorageIds())
@@ -61,6 +61,10 @@ public class ShuffleServerMetrics {
   private static final String EVENT_SIZE_THRESHOLD_LEVEL4 = "event_size_threshold_level4";
   public static final String EVENT_QUEUE_SIZE = "event_queue_size";
   private static final String MERGE_EVENT_QUEUE_SIZE = "merge_event_queue_size";
+  private static final String TOTAL_MERGE_DATA_SIZE = "total_merge_data_size";
+  private static final String TOTAL_MERGE_RECORD_NUM = "total_merge_record_num";
+  private static final String TOTAL_MERGE_TIME = "total_merge_time";
+  private static final String MERGE_THROUGHPUT = "merge_throughput";
   private static final String HADOOP_FLUSH_THREAD_POOL_QUEUE_SIZE =
       "hadoop_flush_thread_pool_queue_size";
   private static final String LOCALFILE_FLUSH_THREAD_POOL_QUEUE_SIZE =
@@ -87,6 +91,13 @@ public class ShuffleServerMetrics {
 
   private static final String LOCAL_STORAGE_IS_WRITABLE = "local_storage_is_writable";
   private static final String LOCAL_STORAGE_IS_TIMEOUT = "local_storage_is_timeout";
+  private static final String LOCAL_STORAGE_FLUSH_BANDWIDTH = "local_storage_flush_bandwidth";
+  private static final String LOCAL_STORAGE_FLUSH_IN_FLIGHT_SIZE =
+      "local_storage_flush_in_flight_size";
+  private static final String LOCAL_STORAGE_FLUSH_IN_FLIGHT_SIZE_LIMIT =
+      "local_storage_flush_in_flight_size_limit";
+  private static final String LOCAL_STORAGE_FLUSH_PENDING_EVENT_NUM =
+      "local_storage_flush_pending_event_num";
   private static final String LOCAL_STORAGE_TOTAL_DIRS_NUM = "local_storage_total_dirs_num";
   private static final String LOCAL_STORAGE_CORRUPTED_DIRS_NUM = "local_storage_corrupted_dirs_num";
   private static final String LOCAL_STORAGE_TOTAL_SPACE = "local_storage_total_space";
@@ -103,6 +114,9 @@ public class ShuffleServerMetrics {
   private static final String TOTAL_IN_FLUSH_BLOCK_COUNT = "total_in_flush_block_count";
   private static final String READ_USED_BUFFER_SIZE = "read_used_buffer_size";
   public static final String USED_DIRECT_MEMORY_SIZE = "used_direct_memory_size";
+  public static final String LOCAL_INDEX_CACHE_HIT_NUM = "local_index_cache_hit_num";
+  public static final String LOCAL_INDEX_CACHE_MISS_NUM = "local_index_cache_miss_num";
+  public static final String LOCAL_INDEX_CACHE_MAPPED_SIZE = "local_index_cache_mapped_size";
   public static final String USED_DIRECT_MEMORY_SIZE_BY_NETTY = "used_direct_memory_size_by_netty";
   public static final String USED_DIRECT_MEMORY_SIZE_BY_GRPC_NETTY =
       "used_direct_memory_size_by_grpc_netty";
@@ -141,8 +155,17 @@ public class ShuffleServerMetrics {
   private static final String HUGE_PARTITION_NUM = "huge_partition_num";
   private static final String APP_WITH_HUGE_PARTITION_NUM = "app_with_huge_partition_num";
 
+  private static final String METADATA_JOURNAL_REPLAY_TIME = "metadata_journal_replay_time";
+  private static final String METADATA_JOURNAL_REPLAYED_RECORD_NUM =
+      "metadata_journal_replayed_record_num";
+
   private static final String LOCAL_FILE_EVENT_FLUSH_NUM = "local_file_event_flush_num";
   private static final String HADOOP_EVENT_FLUSH_NUM = "hadoop_event_flush_num";
+  private static final String LOCAL_FILE_EVENT_COALESCED_NUM = "local_file_event_coalesced_num";
+  private static final String LOCAL_FILE_EVENT_BATCHED_NUM = "local_file_event_batched_num";
+  private static final String LOCAL_DATA_ZERO_COPY_READ_NUM = "local_data_zero_copy_read_num";
+  private static final String LOCAL_DATA_BUFFERED_READ_NUM = "local_data_buffered_read_num";
+  private static final String TOTAL_SEND_CREDIT_GRANTED_NUM = "total_send_credit_granted_num";
 
   private static final String TOTAL_EXPIRED_PRE_ALLOCATED_BUFFER_NUM =
       "total_expired_preAllocated_buffer_num";
@@ -155,6 +178,9 @@ public class ShuffleServerMetrics {
   private static final String LAB_REUSED_CHUNK_COUNT = "lab_reused_chunk_count";
   private static final String LAB_RECLAIMED_CHUNK_COUNT = "lab_reclaimed_chunk_count";
   private static final String LAB_CHUNK_POOL_REMAIN_PERCENT = "lab_chunk_pool_remain_percent";
+  private static final String LAB_CHUNK_POOL_HIT_COUNT = "lab_chunk_pool_hit_count";
+  private static final String LAB_CHUNK_POOL_MISS_COUNT = "lab_chunk_pool_miss_count";
+  private static final String LAB_CHUNK_FRAGMENTATION_PERCENT = "lab_chunk_fragmentation_percent";
   private static final String NOT_ON_LAB_BLOCK_COUNT = "not_on_lab_block_count";
   private static final String ON_LAB_BLOCK_COUNT = "on_lab_block_count";
   public static final String TOPN_OF_TOTAL_DATA_SIZE_FOR_APP = "topN_of_total_data_size_for_app";
@@ -232,8 +258,15 @@ public class ShuffleServerMetrics {
   public static Gauge.Child gaugeHugePartitionNum;
   public static Gauge.Child gaugeAppWithHugePartitionNum;
 
+  public static Gauge.Child gaugeMetadataJournalReplayTime;
+  public static Gauge.Child gaugeMetadataJournalReplayedRecordNum;
+
   public static Gauge gaugeLocalStorageIsWritable;
   public static Gauge gaugeLocalStorageIsTimeout;
+  public static Gauge gaugeLocalStorageFlushBandwidth;
+  public static Gauge gaugeLocalStorageFlushInFlightSize;
+  public static Gauge gaugeLocalStorageFlushInFlightSizeLimit;
+  public static Gauge gaugeLocalStorageFlushPendingEventNum;
   public static Gauge.Child gaugeLocalStorageTotalDirsNum;
   public static Gauge.Child gaugeLocalStorageCorruptedDirsNum;
   public static Gauge.Child gaugeLocalStorageTotalSpace;
@@ -250,6 +283,10 @@ public class ShuffleServerMetrics {
   public static Gauge.Child gaugeReadBufferUsedSize;
   public static Gauge.Child gaugeWriteHandler;
   public static Gauge.Child gaugeMergeEventQueueSize;
+  public static Counter.Child counterTotalMergeDataSize;
+  public static Counter.Child counterTotalMergeRecordNum;
+  public static Counter.Child counterTotalMergeTime;
+  public static Histogram histogramMergeThroughput;
   public static Gauge.Child gaugeHadoopFlushThreadPoolQueueSize;
   public static Gauge.Child gaugeLocalfileFlushThreadPoolQueueSize;
   public static Gauge.Child gaugeFallbackFlushThreadPoolQueueSize;
@@ -281,12 +318,20 @@ public class ShuffleServerMetrics {
   private static String tags;
   public static Counter counterLocalFileEventFlush;
   public static Counter counterHadoopEventFlush;
+  public static Counter counterLocalFileEventCoalesced;
+  public static Counter counterLocalFileEventBatched;
+  public static Counter counterLocalDataZeroCopyRead;
+  public static Counter counterLocalDataBufferedRead;
+  public static Counter counterTotalSendCreditGranted;
   public static Counter counterPreAllocatedBufferExpired;
   public static Counter counterAppNotFound;
   public static Counter counterLABChunkCreated;
   public static Counter counterLABChunkReused;
   public static Gauge gaugeLABChunkReclaimed;
   public static Gauge gaugeLABChunkPoolRemainPercent;
+  public static Counter counterLABChunkPoolHit;
+  public static Counter counterLABChunkPoolMiss;
+  public static Gauge gaugeLABChunkFragmentationPercent;
   public static Counter counterBlockNotOnLAB;
   public static Counter counterBlockOnLAB;
 
@@ -472,6 +517,14 @@ public class ShuffleServerMetrics {
         metricsManager.addGauge(LOCAL_STORAGE_IS_WRITABLE, LOCAL_DISK_PATH_LABEL);
     gaugeLocalStorageIsTimeout =
         metricsManager.addGauge(LOCAL_STORAGE_IS_TIMEOUT, LOCAL_DISK_PATH_LABEL);
+    gaugeLocalStorageFlushBandwidth =
+        metricsManager.addGauge(LOCAL_STORAGE_FLUSH_BANDWIDTH, LOCAL_DISK_PATH_LABEL);
+    gaugeLocalStorageFlushInFlightSize =
+        metricsManager.addGauge(LOCAL_STORAGE_FLUSH_IN_FLIGHT_SIZE, LOCAL_DISK_PATH_LABEL);
+    gaugeLocalStorageFlushInFlightSizeLimit =
+        metricsManager.addGauge(LOCAL_STORAGE_FLUSH_IN_FLIGHT_SIZE_LIMIT, LOCAL_DISK_PATH_LABEL);
+    gaugeLocalStorageFlushPendingEventNum =
+        metricsManager.addGauge(LOCAL_STORAGE_FLUSH_PENDING_EVENT_NUM, LOCAL_DISK_PATH_LABEL);
     gaugeLocalStorageTotalDirsNum = metricsManager.addLabeledGauge(LOCAL_STORAGE_TOTAL_DIRS_NUM);
     gaugeLocalStorageCorruptedDirsNum =
         metricsManager.addLabeledGauge(LOCAL_STORAGE_CORRUPTED_DIRS_NUM);
@@ -492,6 +545,13 @@ public class ShuffleServerMetrics {
     gaugeReadBufferUsedSize = metricsManager.addLabeledGauge(READ_USED_BUFFER_SIZE);
     gaugeWriteHandler = metricsManager.addLabeledGauge(TOTAL_WRITE_HANDLER);
     gaugeMergeEventQueueSize = metricsManager.addLabeledGauge(MERGE_EVENT_QUEUE_SIZE);
+    counterTotalMergeDataSize = metricsManager.addLabeledCounter(TOTAL_MERGE_DATA_SIZE);
+    counterTotalMergeRecordNum = metricsManager.addLabeledCounter(TOTAL_MERGE_RECORD_NUM);
+    counterTotalMergeTime = metricsManager.addLabeledCounter(TOTAL_MERGE_TIME);
+    // MB per second of each merge
+    histogramMergeThroughput =
+        metricsManager.addHistogram(
+            MERGE_THROUGHPUT, new double[] {1, 5, 10, 20, 50, 100, 200, 500, 1000});
     gaugeHadoopFlushThreadPoolQueueSize =
         metricsManager.addLabeledGauge(HADOOP_FLUSH_THREAD_POOL_QUEUE_SIZE);
     gaugeLocalfileFlushThreadPoolQueueSize =
@@ -516,8 +576,17 @@ public class ShuffleServerMetrics {
     gaugeHugePartitionNum = metricsManager.addLabeledGauge(HUGE_PARTITION_NUM);
     gaugeAppWithHugePartitionNum = metricsManager.addLabeledGauge(APP_WITH_HUGE_PARTITION_NUM);
 
+    gaugeMetadataJournalReplayTime = metricsManager.addLabeledGauge(METADATA_JOURNAL_REPLAY_TIME);
+    gaugeMetadataJournalReplayedRecordNum =
+        metricsManager.addLabeledGauge(METADATA_JOURNAL_REPLAYED_RECORD_NUM);
+
     counterLocalFileEventFlush = metricsManager.addCounter(LOCAL_FILE_EVENT_FLUSH_NUM);
     counterHadoopEventFlush = metricsManager.addCounter(HADOOP_EVENT_FLUSH_NUM);
+    counterLocalFileEventCoalesced = metricsManager.addCounter(LOCAL_FILE_EVENT_COALESCED_NUM);
+    counterLocalFileEventBatched = metricsManager.addCounter(LOCAL_FILE_EVENT_BATCHED_NUM);
+    counterLocalDataZeroCopyRead = metricsManager.addCounter(LOCAL_DATA_ZERO_COPY_READ_NUM);
+    counterLocalDataBufferedRead = metricsManager.addCounter(LOCAL_DATA_BUFFERED_READ_NUM);
+    counterTotalSendCreditGranted = metricsManager.addCounter(TOTAL_SEND_CREDIT_GRANTED_NUM);
 
     counterPreAllocatedBufferExpired =
         metricsManager.addCounter(TOTAL_EXPIRED_PRE_ALLOCATED_BUFFER_NUM);
@@ -531,6 +600,9 @@ public class ShuffleServerMetrics {
     counterLABChunkReused = metricsManager.addCounter(LAB_REUSED_CHUNK_COUNT);
     gaugeLABChunkReclaimed = metricsManager.addGauge(LAB_RECLAIMED_CHUNK_COUNT);
     gaugeLABChunkPoolRemainPercent = metricsManager.addGauge(LAB_CHUNK_POOL_REMAIN_PERCENT);
+    counterLABChunkPoolHit = metricsManager.addCounter(LAB_CHUNK_POOL_HIT_COUNT);
+    counterLABChunkPoolMiss = metricsManager.addCounter(LAB_CHUNK_POOL_MISS_COUNT);
+    gaugeLABChunkFragmentationPercent = metricsManager.addGauge(LAB_CHUNK_FRAGMENTATION_PERCENT);
 
     counterBlockNotOnLAB = metricsManager.addCounter(NOT_ON_LAB_BLOCK_COUNT);
     counterBlockOnLAB = metricsManager.addCounter(ON_LAB_BLOCK_COUNT);
@@ -81,7 +81,10 @@ import org.apache.uniffle.server.event.AppPurgeEvent;
 import org.apache.uniffle.server.event.AppUnregisterPurgeEvent;
 import org.apache.uniffle.server.event.PurgeEvent;
 import org.apache.uniffle.server.event.ShufflePurgeEvent;
+import org.apache.uniffle.server.journal.MetadataJournal;
 import org.apache.uniffle.server.merge.ShuffleMergeManager;
+import org.apache.uniffle.server.storage.HybridStorageManager;
+import org.apache.uniffle.server.storage.LocalStorageManager;
 import org.apache.uniffle.server.storage.StorageManager;
 import org.apache.uniffle.storage.common.Storage;
 import org.apache.uniffle.storage.common.StorageReadMetrics;
@@ -123,6 +126,8 @@ public class ShuffleTaskManager {
   private final long storageRemoveOperationTimeoutSec;
   private ShuffleMergeManager shuffleMergeManager;
   private ShuffleBlockIdManager shuffleBlockIdManager;
+  // not null after the journal is replayed if it's enabled
+  private volatile MetadataJournal metadataJournal;
 
   public ShuffleTaskManager(
       ShuffleServerConf conf,
@@ -343,6 +348,17 @@ public class ShuffleTaskManager {
     if (!remoteStorageInfo.isEmpty()) {
       storageManager.registerRemoteStorage(appId, remoteStorageInfo);
     }
+    if (metadataJournal != null) {
+      metadataJournal.appendRegisterShuffle(
+          appId,
+          shuffleId,
+          partitionRanges,
+          remoteStorageInfo,
+          user,
+          dataDistType,
+          maxConcurrencyPerPartitionToWrite,
+          properties);
+    }
     return StatusCode.SUCCESS;
   }
 
@@ -457,7 +473,12 @@ public class ShuffleTaskManager {
     if (manager == null) {
       throw new RssException("appId[" + appId + "] is expired!");
     }
-    return manager.addFinishedBlockIds(taskInfo, appId, shuffleId, partitionToBlockIds, bitmapNum);
+    int addedBlockNum =
+        manager.addFinishedBlockIds(taskInfo, appId, shuffleId, partitionToBlockIds, bitmapNum);
+    if (metadataJournal != null) {
+      metadataJournal.appendFinishedBlockIds(appId, shuffleId, partitionToBlockIds, bitmapNum);
+    }
+    return addedBlockNum;
   }
 
   public int updateAndGetCommitCount(String appId, int shuffleId) {
@@ -814,6 +835,9 @@ public class ShuffleTaskManager {
       } else {
         shuffleBlockIdManager.removeBlockIdByShuffleId(appId, shuffleIds);
       }
+      if (metadataJournal != null) {
+        metadataJournal.appendRemoveShuffles(appId, shuffleIds);
+      }
       shuffleBufferManager.removeBufferByShuffleId(appId, shuffleIds);
       shuffleFlushManager.removeResourcesOfShuffleId(appId, shuffleIds);
 
@@ -870,6 +894,9 @@ public class ShuffleTaskManager {
         LOG.info("Resource for appId[" + appId + "] had been removed before.");
         return;
       }
+      if (metadataJournal != null) {
+        metadataJournal.appendRemoveApp(appId);
+      }
 
       LOG.info("Dump Removing app summary of {}", appId);
       StringBuilder partitionInfoSummary = new StringBuilder();
@@ -1061,6 +1088,79 @@ public class ShuffleTaskManager {
     topNShuffleDataSizeOfAppCalcTask.stop();
   }
 
+  /**
+   * Restores the shuffles, the reported block ids and the storages of the partitions from the
+   * metadata journal, then records the following changes into it. It must be called before the
+   * server serves any request.
+   */
+  public void recover(MetadataJournal journal) throws IOException {
+    LocalStorageManager localStorageManager = getLocalStorageManager();
+    long start = System.currentTimeMillis();
+    int recordNum =
+        journal.replay(
+            new MetadataJournal.Listener() {
+              @Override
+              public void onRegisterShuffle(
+                  String appId,
+                  int shuffleId,
+                  List<PartitionRange> partitionRanges,
+                  RemoteStorageInfo remoteStorageInfo,
+                  String user,
+                  ShuffleDataDistributionType dataDistType,
+                  int maxConcurrencyPerPartitionToWrite,
+                  Map<String, String> properties) {
+                registerShuffle(
+                    appId,
+                    shuffleId,
+                    partitionRanges,
+                    remoteStorageInfo,
+                    user,
+                    dataDistType,
+                    maxConcurrencyPerPartitionToWrite,
+                    properties);
+              }
+
+              @Override
+              public void onFinishedBlockIds(
+                  String appId,
+                  int shuffleId,
+                  Map<Integer, long[]> partitionToBlockIds,
+                  int bitmapNum) {
+                addFinishedBlockIds(appId, shuffleId, partitionToBlockIds, bitmapNum);
+              }
+
+              @Override
+              public void onPartitionStorage(
+                  String appId, int shuffleId, int partitionId, String basePath) {
+                if (localStorageManager != null) {
+                  localStorageManager.restorePartitionStorage(
+                      appId, shuffleId, partitionId, basePath);
+                }
+              }
+            });
+    long replayTime = System.currentTimeMillis() - start;
+    ShuffleServerMetrics.gaugeMetadataJournalReplayTime.set(replayTime);
+    ShuffleServerMetrics.gaugeMetadataJournalReplayedRecordNum.set(recordNum);
+    LOG.info(
+        "Replayed {} records of the metadata journal for {} apps in {} ms",
+        recordNum,
+        shuffleTaskInfos.size(),
+        replayTime);
+    metadataJournal = journal;
+    if (localStorageManager != null) {
+      localStorageManager.setMetadataJournal(journal);
+    }
+    journal.start();
+  }
+
+  private LocalStorageManager getLocalStorageManager() {
+    StorageManager manager =
+        storageManager instanceof HybridStorageManager
+            ? ((HybridStorageManager) storageManager).getWarmStorageManager()
+            : storageManager;
+    return manager instanceof LocalStorageManager ? (LocalStorageManager) manager : null;
+  }
+
   public void start() {
     clearResourceThread.start();
   }
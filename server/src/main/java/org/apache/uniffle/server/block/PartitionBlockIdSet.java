@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.block;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.util.BlockIdLayout;
+
+/**
+ * The block ids of one partition. All the block ids of a partition have the same partition id
+ * bits, so they are stored without them, as the sequence number followed by the task attempt id.
+ * If these two fields take at most 32 bits in the layout, the ids are kept in a {@link
+ * RoaringBitmap}, otherwise in a {@link Roaring64NavigableMap}, where the ids of a partition are
+ * dense in the low bits anyway.
+ *
+ * <p>A block id whose partition id doesn't match, e.g. when the client uses another layout, is kept
+ * as it is, so the set is always lossless.
+ *
+ * <p>This class is not thread safe.
+ */
+public class PartitionBlockIdSet {
+
+  private final BlockIdLayout layout;
+  private final int partitionId;
+  // not null if the compact ids fit into 32 bits
+  private final RoaringBitmap compactIds;
+  // not null if the compact ids don't fit into 32 bits
+  private final Roaring64NavigableMap compactLongIds;
+  // the block ids not matching the layout, null until there is one
+  private Roaring64NavigableMap otherIds;
+
+  public PartitionBlockIdSet(BlockIdLayout layout, int partitionId) {
+    this.layout = layout;
+    this.partitionId = partitionId;
+    if (layout.sequenceNoBits + layout.taskAttemptIdBits <= Integer.SIZE) {
+      this.compactIds = new RoaringBitmap();
+      this.compactLongIds = null;
+    } else {
+      this.compactIds = null;
+      this.compactLongIds = Roaring64NavigableMap.bitmapOf();
+    }
+  }
+
+  /** @return true if the block id is not in the set yet */
+  public boolean add(long blockId) {
+    if (blockId < 0 || layout.getPartitionId(blockId) != partitionId) {
+      if (otherIds == null) {
+        otherIds = Roaring64NavigableMap.bitmapOf();
+      }
+      return addIfAbsent(otherIds, blockId);
+    }
+    long compactId = toCompactId(blockId);
+    if (compactIds != null) {
+      return compactIds.checkedAdd((int) compactId);
+    }
+    return addIfAbsent(compactLongIds, compactId);
+  }
+
+  public boolean contains(long blockId) {
+    if (blockId < 0 || layout.getPartitionId(blockId) != partitionId) {
+      return otherIds != null && otherIds.contains(blockId);
+    }
+    long compactId = toCompactId(blockId);
+    if (compactIds != null) {
+      return compactIds.contains((int) compactId);
+    }
+    return compactLongIds.contains(compactId);
+  }
+
+  public long getCardinality() {
+    long cardinality =
+        compactIds != null ? compactIds.getLongCardinality() : compactLongIds.getLongCardinality();
+    if (otherIds != null) {
+      cardinality += otherIds.getLongCardinality();
+    }
+    return cardinality;
+  }
+
+  /** Adds all the block ids in this set to the bitmap. */
+  public void addTo(Roaring64NavigableMap bitmap) {
+    bitmap.or(toBitmap());
+  }
+
+  public Roaring64NavigableMap toBitmap() {
+    // the block ids are restored in ascending order, as the sequence number is in the higher bits
+    // of both the compact id and the block id, so they are only appended to the last container of
+    // the new bitmap, instead of being searched and inserted into a bitmap filled already
+    Roaring64NavigableMap bitmap = Roaring64NavigableMap.bitmapOf();
+    if (compactIds != null) {
+      IntIterator iterator = compactIds.getIntIterator();
+      while (iterator.hasNext()) {
+        bitmap.addLong(toBlockId(Integer.toUnsignedLong(iterator.next())));
+      }
+    } else {
+      LongIterator iterator = compactLongIds.getLongIterator();
+      while (iterator.hasNext()) {
+        bitmap.addLong(toBlockId(iterator.next()));
+      }
+    }
+    if (otherIds != null) {
+      bitmap.or(otherIds);
+    }
+    return bitmap;
+  }
+
+  public long getSizeInBytes() {
+    long size =
+        compactIds != null ? compactIds.getLongSizeInBytes() : compactLongIds.getLongSizeInBytes();
+    if (otherIds != null) {
+      size += otherIds.getLongSizeInBytes();
+    }
+    return size;
+  }
+
+  private long toCompactId(long blockId) {
+    return (long) layout.getSequenceNo(blockId) << layout.taskAttemptIdBits
+        | layout.getTaskAttemptId(blockId);
+  }
+
+  private long toBlockId(long compactId) {
+    long sequenceNo = compactId >>> layout.taskAttemptIdBits;
+    long taskAttemptId = compactId & ((1L << layout.taskAttemptIdBits) - 1);
+    return sequenceNo << layout.sequenceNoOffset
+        | (long) partitionId << layout.partitionIdOffset
+        | taskAttemptId << layout.taskAttemptIdOffset;
+  }
+
+  private static boolean addIfAbsent(Roaring64NavigableMap bitmap, long id) {
+    if (bitmap.contains(id)) {
+      return false;
+    }
+    bitmap.addLong(id);
+    return true;
+  }
+}
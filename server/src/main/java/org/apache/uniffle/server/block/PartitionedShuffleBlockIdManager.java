@@ -30,24 +30,40 @@ import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.uniffle.common.config.RssClientConf;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.util.BlockIdLayout;
 import org.apache.uniffle.common.util.JavaUtils;
 import org.apache.uniffle.common.util.RssUtils;
+import org.apache.uniffle.server.ShuffleServerConf;
 import org.apache.uniffle.server.ShuffleTaskInfo;
 
-/** Manage the block ids individual for each partition. */
+/**
+ * Manage the block ids individual for each partition. The block ids of a partition are stored
+ * without their partition id bits according to the block id layout configured by {@link
+ * RssClientConf#BLOCKID_SEQUENCE_NO_BITS} and the related options, see {@link PartitionBlockIdSet}.
+ */
 public class PartitionedShuffleBlockIdManager implements ShuffleBlockIdManager {
   private static final Logger LOG = LoggerFactory.getLogger(PartitionedShuffleBlockIdManager.class);
 
   // appId -> shuffleId -> partitionId -> blockIds
-  private Map<String, Map<Integer, Map<Integer, Roaring64NavigableMap>>> partitionsToBlockIds;
+  private Map<String, Map<Integer, Map<Integer, PartitionBlockIdSet>>> partitionsToBlockIds;
   // appId -- shuffleId_parition -- Lock
   private final Map<String, Map<String, ReadWriteLock>> bitmapLocks;
+  private final BlockIdLayout blockIdLayout;
 
   public PartitionedShuffleBlockIdManager() {
+    this(BlockIdLayout.DEFAULT);
+  }
+
+  public PartitionedShuffleBlockIdManager(ShuffleServerConf conf) {
+    this(BlockIdLayout.from(conf));
+  }
+
+  private PartitionedShuffleBlockIdManager(BlockIdLayout blockIdLayout) {
     this.partitionsToBlockIds = new ConcurrentHashMap<>();
     this.bitmapLocks = JavaUtils.newConcurrentMap();
+    this.blockIdLayout = blockIdLayout;
   }
 
   public void registerAppId(String appId) {
@@ -61,26 +77,26 @@ public class PartitionedShuffleBlockIdManager implements ShuffleBlockIdManager {
       Integer shuffleId,
       Map<Integer, long[]> partitionToBlockIds,
       int bitmapNum) {
-    Map<Integer, Map<Integer, Roaring64NavigableMap>> shuffleIdToPartitions =
+    Map<Integer, Map<Integer, PartitionBlockIdSet>> shuffleIdToPartitions =
         partitionsToBlockIds.get(appId);
     if (shuffleIdToPartitions == null) {
       throw new RssException("appId[" + appId + "] is expired!");
     }
     shuffleIdToPartitions.computeIfAbsent(shuffleId, key -> new ConcurrentHashMap<>());
 
-    Map<Integer, Roaring64NavigableMap> partitions = shuffleIdToPartitions.get(shuffleId);
+    Map<Integer, PartitionBlockIdSet> partitions = shuffleIdToPartitions.get(shuffleId);
     int totalUpdatedBlockCount = 0;
     for (Map.Entry<Integer, long[]> entry : partitionToBlockIds.entrySet()) {
       Integer partitionId = entry.getKey();
-      partitions.computeIfAbsent(partitionId, k -> Roaring64NavigableMap.bitmapOf());
-      Roaring64NavigableMap bitmap = partitions.get(partitionId);
+      PartitionBlockIdSet blockIds =
+          partitions.computeIfAbsent(
+              partitionId, k -> new PartitionBlockIdSet(this.blockIdLayout, partitionId));
       int updatedBlockCount = 0;
       ReadWriteLock lock = getLockForBitmap(appId, shuffleId, partitionId);
       lock.writeLock().lock();
       try {
         for (long blockId : entry.getValue()) {
-          if (!bitmap.contains(blockId)) {
-            bitmap.addLong(blockId);
+          if (blockIds.add(blockId)) {
             updatedBlockCount++;
             totalUpdatedBlockCount++;
           }
@@ -101,14 +117,14 @@ public class PartitionedShuffleBlockIdManager implements ShuffleBlockIdManager {
       Set<Integer> partitions,
       BlockIdLayout blockIdLayout)
       throws IOException {
-    Map<Integer, Map<Integer, Roaring64NavigableMap>> shuffleIdToPartitions =
+    Map<Integer, Map<Integer, PartitionBlockIdSet>> shuffleIdToPartitions =
         partitionsToBlockIds.get(appId);
     if (shuffleIdToPartitions == null) {
       LOG.warn("Empty blockIds for app: {}. This should not happen", appId);
       return null;
     }
 
-    Map<Integer, Roaring64NavigableMap> partitionToBlockId = shuffleIdToPartitions.get(shuffleId);
+    Map<Integer, PartitionBlockIdSet> partitionToBlockId = shuffleIdToPartitions.get(shuffleId);
 
     if (partitionToBlockId == null) {
       return RssUtils.serializeBitMap(Roaring64NavigableMap.bitmapOf());
@@ -121,9 +137,11 @@ public class PartitionedShuffleBlockIdManager implements ShuffleBlockIdManager {
       ReadWriteLock lockForBitmap = getLockForBitmap(appId, shuffleId, partitionId);
       lockForBitmap.readLock().lock();
       try {
-        Roaring64NavigableMap bitmap = partitionToBlockId.get(partitionId);
-        if (bitmap != null) {
-          res.or(bitmap);
+        PartitionBlockIdSet blockIds = partitionToBlockId.get(partitionId);
+        if (blockIds != null) {
+          // the block ids of a partition are restored into a bitmap of their own, which is
+          // merged into the result by containers rather than by ids
+          blockIds.addTo(res);
         } else {
           LOG.debug(
               "Bitmap is null for app: {}, shuffleId: {}, partitionId: {}",
@@ -171,7 +189,7 @@ public class PartitionedShuffleBlockIdManager implements ShuffleBlockIdManager {
     return partitionsToBlockIds.values().stream()
         .flatMap(innerMap -> innerMap.values().stream())
         .flatMap(innerMap -> innerMap.values().stream())
-        .mapToLong(roaringMap -> roaringMap.getLongCardinality())
+        .mapToLong(PartitionBlockIdSet::getCardinality)
         .sum();
   }
 
@@ -182,7 +200,7 @@ public class PartitionedShuffleBlockIdManager implements ShuffleBlockIdManager {
         .filter(k -> shuffleIds.contains(k.keySet()))
         .flatMap(innerMap -> innerMap.values().stream())
         .flatMap(innerMap -> innerMap.values().stream())
-        .mapToLong(roaringMap -> roaringMap.getLongCardinality())
+        .mapToLong(PartitionBlockIdSet::getCardinality)
         .sum();
   }
 
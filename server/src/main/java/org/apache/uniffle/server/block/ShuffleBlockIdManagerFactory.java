@@ -25,6 +25,22 @@ import org.apache.uniffle.server.ShuffleServerConf;
 public class ShuffleBlockIdManagerFactory {
   public static ShuffleBlockIdManager createShuffleBlockIdManager(ShuffleServerConf conf) {
     String className = conf.get(ShuffleServerConf.SERVER_BLOCK_ID_MANAGER_CLASS);
+    if (StringUtils.isNotEmpty(className)) {
+      try {
+        // prefer the constructor with the server conf if there is one
+        return (ShuffleBlockIdManager)
+            RssUtils.getConstructor(className, ShuffleServerConf.class).newInstance(conf);
+      } catch (NoSuchMethodException | ClassNotFoundException e) {
+        // fall through to the default constructor
+      } catch (Exception e) {
+        throw new IllegalStateException(
+            "Configuration error: "
+                + ShuffleServerConf.SERVER_BLOCK_ID_MANAGER_CLASS.key()
+                + " is failed to create instance of "
+                + className,
+            e);
+      }
+    }
     return createShuffleBlockIdManager(
         className, ShuffleServerConf.SERVER_BLOCK_ID_MANAGER_CLASS.key());
   }
@@ -93,6 +93,12 @@ public abstract class AbstractShuffleBuffer implements ShuffleBuffer {
   @Override
   public synchronized ShuffleDataResult getShuffleData(
       long lastBlockId, int readBufferSize, Roaring64NavigableMap expectedTaskIds) {
+    return readShuffleData(lastBlockId, readBufferSize, expectedTaskIds);
+  }
+
+  /** Reads the data, the caller makes sure the blocks read are not released meanwhile. */
+  protected ShuffleDataResult readShuffleData(
+      long lastBlockId, int readBufferSize, Roaring64NavigableMap expectedTaskIds) {
     try {
       List<BufferSegment> bufferSegments = Lists.newArrayList();
       List<ShufflePartitionedBlock> readBlocks = Lists.newArrayList();
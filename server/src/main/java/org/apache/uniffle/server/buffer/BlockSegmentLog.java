@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+
+/**
+ * An append-only log of blocks, in which every block is addressed by a sequence number increasing
+ * over the lifetime of the log. The blocks are kept in segments of a fixed size linked from the
+ * oldest to the newest one.
+ *
+ * <p>There is a single writer at a time, which appends the blocks and then publishes them by
+ * moving the watermark. The blocks below the watermark never change, so the readers take a
+ * snapshot of them without any lock. The writer drops a prefix of the log by truncating it, a
+ * reader which started before keeps on reading the dropped segments it has reached.
+ */
+final class BlockSegmentLog {
+
+  static final int SEGMENT_SIZE = 256;
+
+  private static final class Segment {
+    private final long baseSeq;
+    private final ShufflePartitionedBlock[] blocks = new ShufflePartitionedBlock[SEGMENT_SIZE];
+    private volatile Segment next;
+
+    private Segment(long baseSeq) {
+      this.baseSeq = baseSeq;
+    }
+  }
+
+  // the oldest segment still in the log
+  private volatile Segment head;
+  // the first sequence number still in the log
+  private volatile long headSeq;
+  // the sequence numbers below it are visible to the readers
+  private volatile long publishedSeq;
+  // the segment and the sequence number of the next block, only used by the writer
+  private Segment tail;
+  private long nextSeq;
+
+  BlockSegmentLog() {
+    this.head = new Segment(0);
+    this.tail = head;
+  }
+
+  /** @return the sequence number of the block, it's visible to the readers once published */
+  long append(ShufflePartitionedBlock block) {
+    long seq = nextSeq;
+    int index = (int) (seq - tail.baseSeq);
+    if (index == SEGMENT_SIZE) {
+      Segment segment = new Segment(seq);
+      tail.next = segment;
+      tail = segment;
+      index = 0;
+    }
+    tail.blocks[index] = block;
+    nextSeq = seq + 1;
+    return seq;
+  }
+
+  /** Makes all the appended blocks visible to the readers. */
+  void publish() {
+    publishedSeq = nextSeq;
+  }
+
+  long getNextSeq() {
+    return nextSeq;
+  }
+
+  long getPublishedSeq() {
+    return publishedSeq;
+  }
+
+  long getHeadSeq() {
+    return headSeq;
+  }
+
+  /**
+   * Visits the published blocks from the sequence number in order, or from the head of the log if
+   * it's truncated after the sequence number.
+   *
+   * @param visitor returns false to stop the visit
+   * @return false if the visit is stopped by the visitor
+   */
+  boolean forEach(long fromSeq, Predicate<ShufflePartitionedBlock> visitor) {
+    return forEach(fromSeq, publishedSeq, visitor);
+  }
+
+  boolean forEach(long fromSeq, long toSeq, Predicate<ShufflePartitionedBlock> visitor) {
+    long seq = Math.max(fromSeq, headSeq);
+    Segment segment = head;
+    while (segment != null && seq < toSeq) {
+      // the log may be truncated further after the head sequence number is read
+      seq = Math.max(seq, segment.baseSeq);
+      long endSeq = Math.min(toSeq, segment.baseSeq + SEGMENT_SIZE);
+      for (; seq < endSeq; seq++) {
+        if (!visitor.test(segment.blocks[(int) (seq - segment.baseSeq)])) {
+          return false;
+        }
+      }
+      segment = segment.next;
+    }
+    return true;
+  }
+
+  /** @return the published blocks between the sequence numbers, in order */
+  List<ShufflePartitionedBlock> getBlocks(long fromSeq, long toSeq) {
+    List<ShufflePartitionedBlock> blocks = new ArrayList<>((int) Math.max(toSeq - fromSeq, 0));
+    forEach(fromSeq, toSeq, blocks::add);
+    return blocks;
+  }
+
+  /** Drops the blocks before the sequence number from the log. */
+  void truncate(long seq) {
+    Segment segment = head;
+    while (segment.baseSeq + SEGMENT_SIZE <= seq && segment.next != null) {
+      segment = segment.next;
+    }
+    // a reader seeing the new head sequence number sees the new head as well
+    head = segment;
+    headSeq = seq;
+  }
+}
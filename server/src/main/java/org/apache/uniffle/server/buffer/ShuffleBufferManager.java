@@ -33,9 +33,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Range;
-import com.google.common.collect.RangeMap;
 import com.google.common.collect.Sets;
-import com.google.common.collect.TreeRangeMap;
 import io.netty.util.internal.PlatformDependent;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 import org.slf4j.Logger;
@@ -104,7 +102,7 @@ public class ShuffleBufferManager {
   protected final AtomicLong inMemoryBlockCount = new AtomicLong(0);
   private final AtomicLong inFlushBlockCount = new AtomicLong(0);
   // appId -> shuffleId -> partitionId -> ShuffleBuffer to avoid too many appId
-  protected Map<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>> bufferPool;
+  protected Map<String, Map<Integer, ShuffleBufferTable>> bufferPool;
   // appId -> shuffleId -> shuffle size in buffer
   protected Map<String, Map<Integer, AtomicLong>> shuffleSizeMap = JavaUtils.newConcurrentMap();
   // appId -> shuffleId -> shuffle block count in buffer
@@ -187,32 +185,28 @@ public class ShuffleBufferManager {
         conf.getBoolean(ShuffleServerConf.APP_LEVEL_SHUFFLE_BLOCK_SIZE_METRIC_ENABLED);
     shuffleBufferType = conf.get(ShuffleServerConf.SERVER_SHUFFLE_BUFFER_TYPE);
     flushTryLockTimeout = conf.get(ShuffleServerConf.SERVER_SHUFFLE_FLUSH_TRYLOCK_TIMEOUT);
-    ShuffleServerMetrics.addLabeledCacheGauge(
+    // the tables keep the counters of their buffers, so only the shuffles are iterated here
+    ShuffleServerMetrics.addLabeledGauge(
         BLOCK_COUNT_IN_BUFFER_POOL,
         () ->
             bufferPool.values().stream()
                 .flatMap(innerMap -> innerMap.values().stream())
-                .flatMap(rangeMap -> rangeMap.asMapOfRanges().values().stream())
-                .mapToLong(shuffleBuffer -> shuffleBuffer.getBlockCount())
-                .sum(),
-        2 * 60 * 1000L /* 2 minutes */);
-    ShuffleServerMetrics.addLabeledCacheGauge(
+                .mapToLong(ShuffleBufferTable::getBlockCount)
+                .sum());
+    ShuffleServerMetrics.addLabeledGauge(
         IN_FLUSH_BLOCK_COUNT_IN_BUFFER_POOL,
         () ->
             bufferPool.values().stream()
                 .flatMap(innerMap -> innerMap.values().stream())
-                .flatMap(rangeMap -> rangeMap.asMapOfRanges().values().stream())
-                .mapToLong(shuffleBuffer -> shuffleBuffer.getInFlushBlockCount())
-                .sum(),
-        2 * 60 * 1000L /* 2 minutes */);
-    ShuffleServerMetrics.addLabeledCacheGauge(
+                .mapToLong(ShuffleBufferTable::getInFlushBlockCount)
+                .sum());
+    ShuffleServerMetrics.addLabeledGauge(
         BUFFER_COUNT_IN_BUFFER_POOL,
         () ->
             bufferPool.values().stream()
                 .flatMap(innerMap -> innerMap.values().stream())
-                .mapToLong(rangeMap -> rangeMap.asMapOfRanges().size())
-                .sum(),
-        2 * 60 * 1000L /* 2 minutes */);
+                .mapToLong(ShuffleBufferTable::getBufferCount)
+                .sum());
     ShuffleServerMetrics.addLabeledGauge(
         SHUFFLE_COUNT_IN_BUFFER_POOL,
         () -> bufferPool.values().stream().mapToLong(innerMap -> innerMap.size()).sum());
@@ -244,14 +238,25 @@ public class ShuffleBufferManager {
           }
         });
 
-    isLABEnabled = conf.get(ShuffleServerConf.SERVER_SHUFFLE_BUFFER_LAB_ENABLE);
+    boolean labEnabled = conf.get(ShuffleServerConf.SERVER_SHUFFLE_BUFFER_LAB_ENABLE);
+    if (labEnabled && shuffleBufferType == ShuffleBufferType.SEGMENT_LOG) {
+      // there is no LAB variant of SEGMENT_LOG
+      LOG.warn("LAB is not supported by the shuffle buffer type {}, ignore it", shuffleBufferType);
+      labEnabled = false;
+    }
+    isLABEnabled = labEnabled;
     if (isLABEnabled) {
       int chunkSize = conf.get(ShuffleServerConf.SERVER_SHUFFLE_BUFFER_LAB_CHUNK_SIZE);
       double chunkPoolCapacityRatio =
           conf.get(ShuffleServerConf.SERVER_SHUFFLE_BUFFER_LAB_CHUNK_POOL_CAPACITY_RATIO);
       double maxAllocRatio = conf.get(ShuffleServerConf.SERVER_SHUFFLE_BUFFER_LAB_MAX_ALLOC_RATIO);
       int maxAlloc = (int) (chunkSize * maxAllocRatio);
-      ChunkCreator.initialize(chunkSize, (long) (capacity * chunkPoolCapacityRatio), maxAlloc);
+      ChunkCreator.initialize(
+          chunkSize,
+          conf.get(ShuffleServerConf.SERVER_SHUFFLE_BUFFER_LAB_MAX_CHUNK_SIZE),
+          (long) (capacity * chunkPoolCapacityRatio),
+          maxAlloc,
+          conf.get(ShuffleServerConf.SERVER_SHUFFLE_BUFFER_LAB_MAGAZINE_SIZE));
     }
     this.maxFlushEventCountPerBuffer = conf.get(ShuffleServerConf.MAX_FLUSH_EVENT_COUNT_PER_BUFFER);
   }
@@ -262,22 +267,14 @@ public class ShuffleBufferManager {
 
   public StatusCode registerBuffer(
       String appId, int shuffleId, int startPartition, int endPartition) {
-    bufferPool.computeIfAbsent(appId, key -> JavaUtils.newConcurrentMap());
-    Map<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers = bufferPool.get(appId);
-    shuffleIdToBuffers.computeIfAbsent(shuffleId, key -> TreeRangeMap.create());
-    RangeMap<Integer, ShuffleBuffer> bufferRangeMap = shuffleIdToBuffers.get(shuffleId);
-    if (bufferRangeMap.get(startPartition) == null) {
+    ShuffleBufferTable bufferTable =
+        bufferPool
+            .computeIfAbsent(appId, key -> JavaUtils.newConcurrentMap())
+            .computeIfAbsent(shuffleId, key -> new ShuffleBufferTable());
+    if (bufferTable.get(startPartition) == null
+        && bufferTable.register(startPartition, endPartition, createShuffleBuffer())) {
       ShuffleServerMetrics.counterTotalPartitionNum.inc();
       ShuffleServerMetrics.gaugeTotalPartitionNum.inc();
-      ShuffleBuffer shuffleBuffer;
-      if (shuffleBufferType == ShuffleBufferType.SKIP_LIST) {
-        shuffleBuffer =
-            isLABEnabled ? new LABShuffleBufferWithSkipList() : new ShuffleBufferWithSkipList();
-      } else {
-        shuffleBuffer =
-            isLABEnabled ? new LABShuffleBufferWithLinkedList() : new ShuffleBufferWithLinkedList();
-      }
-      bufferRangeMap.put(Range.closed(startPartition, endPartition), shuffleBuffer);
     } else {
       LOG.warn(
           "Already register for appId["
@@ -294,6 +291,16 @@ public class ShuffleBufferManager {
     return StatusCode.SUCCESS;
   }
 
+  private ShuffleBuffer createShuffleBuffer() {
+    if (shuffleBufferType == ShuffleBufferType.SEGMENT_LOG) {
+      return new ShuffleBufferWithSegmentLog();
+    }
+    if (shuffleBufferType == ShuffleBufferType.SKIP_LIST) {
+      return isLABEnabled ? new LABShuffleBufferWithSkipList() : new ShuffleBufferWithSkipList();
+    }
+    return isLABEnabled ? new LABShuffleBufferWithLinkedList() : new ShuffleBufferWithLinkedList();
+  }
+
   public StatusCode cacheShuffleData(
       String appId, int shuffleId, boolean isPreAllocated, ShufflePartitionedData spd) {
     if (!isPreAllocated && isFull()) {
@@ -301,8 +308,9 @@ public class ShuffleBufferManager {
       return StatusCode.NO_BUFFER;
     }
 
+    ShuffleBufferTable bufferTable = getShuffleBufferTable(appId, shuffleId);
     Entry<Range<Integer>, ShuffleBuffer> entry =
-        getShuffleBufferEntry(appId, shuffleId, spd.getPartitionId());
+        bufferTable == null ? null : bufferTable.getEntry(spd.getPartitionId());
     if (entry == null) {
       return StatusCode.NO_REGISTER;
     }
@@ -312,6 +320,8 @@ public class ShuffleBufferManager {
     if (size == AbstractShuffleBuffer.BUFFER_EVICTED) {
       return StatusCode.NO_REGISTER;
     }
+    long appendedBlockCount = spd.getBlockList().length - spd.getDuplicateBlockCount();
+    bufferTable.addBlockCount(appendedBlockCount);
     if (!isPreAllocated) {
       updateUsedMemory(size);
     } else {
@@ -339,8 +349,7 @@ public class ShuffleBufferManager {
         shuffleId,
         spd.getPartitionId());
     updateShuffleSize(appId, shuffleId, size);
-    updateShuffleBlockCount(
-        appId, shuffleId, spd.getBlockList().length - spd.getDuplicateBlockCount());
+    updateShuffleBlockCount(appId, shuffleId, appendedBlockCount);
     flushSingleBufferIfNecessary(
         buffer,
         appId,
@@ -371,21 +380,21 @@ public class ShuffleBufferManager {
         .addAndGet(blockCount);
   }
 
-  public Entry<Range<Integer>, ShuffleBuffer> getShuffleBufferEntry(
-      String appId, int shuffleId, int partitionId) {
-    Map<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers = bufferPool.get(appId);
+  private ShuffleBufferTable getShuffleBufferTable(String appId, int shuffleId) {
+    Map<Integer, ShuffleBufferTable> shuffleIdToBuffers = bufferPool.get(appId);
     if (shuffleIdToBuffers == null) {
       return null;
     }
-    RangeMap<Integer, ShuffleBuffer> rangeToBuffers = shuffleIdToBuffers.get(shuffleId);
-    if (rangeToBuffers == null) {
-      return null;
-    }
-    Entry<Range<Integer>, ShuffleBuffer> entry = rangeToBuffers.getEntry(partitionId);
-    if (entry == null) {
+    return shuffleIdToBuffers.get(shuffleId);
+  }
+
+  public Entry<Range<Integer>, ShuffleBuffer> getShuffleBufferEntry(
+      String appId, int shuffleId, int partitionId) {
+    ShuffleBufferTable bufferTable = getShuffleBufferTable(appId, shuffleId);
+    if (bufferTable == null) {
       return null;
     }
-    return entry;
+    return bufferTable.getEntry(partitionId);
   }
 
   public ShuffleDataResult getShuffleData(
@@ -514,8 +523,8 @@ public class ShuffleBufferManager {
   }
 
   public synchronized void commitShuffleTask(String appId, int shuffleId) {
-    RangeMap<Integer, ShuffleBuffer> buffers = bufferPool.get(appId).get(shuffleId);
-    for (Map.Entry<Range<Integer>, ShuffleBuffer> entry : buffers.asMapOfRanges().entrySet()) {
+    ShuffleBufferTable buffers = bufferPool.get(appId).get(shuffleId);
+    for (Map.Entry<Range<Integer>, ShuffleBuffer> entry : buffers.entries()) {
       ShuffleBuffer buffer = entry.getValue();
       Range<Integer> range = entry.getKey();
       flushBuffer(
@@ -539,7 +548,8 @@ public class ShuffleBufferManager {
     ReentrantReadWriteLock.ReadLock readLock = shuffleTaskManager.getAppReadLock(appId);
     readLock.lock();
     try {
-      if (!bufferPool.getOrDefault(appId, new HashMap<>()).containsKey(shuffleId)) {
+      ShuffleBufferTable bufferTable = getShuffleBufferTable(appId, shuffleId);
+      if (bufferTable == null) {
         LOG.info(
             "Shuffle[{}] for app[{}] has already been removed, no need to flush the buffer",
             shuffleId,
@@ -574,6 +584,7 @@ public class ShuffleBufferManager {
               }
               addInMemoryBlockCount(-blockCount);
               addInFlushBlockCount(-blockCount);
+              bufferTable.addInFlushBlockCount(-blockCount);
             });
         updateShuffleSize(appId, shuffleId, -event.getEncodedLength());
         updateShuffleBlockCount(appId, shuffleId, -event.getBlockCount());
@@ -582,6 +593,8 @@ public class ShuffleBufferManager {
           event.markOwnedByHugePartition();
         }
         addInFlushBlockCount(event.getBlockCount());
+        bufferTable.addBlockCount(-event.getBlockCount());
+        bufferTable.addInFlushBlockCount(event.getBlockCount());
         ShuffleServerMetrics.gaugeInFlushBufferSize.set(inFlushSize.get());
         shuffleFlushManager.addToFlushQueue(event);
         return true;
@@ -593,7 +606,7 @@ public class ShuffleBufferManager {
   }
 
   public void removeBuffer(String appId) {
-    Map<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers = bufferPool.get(appId);
+    Map<Integer, ShuffleBufferTable> shuffleIdToBuffers = bufferPool.get(appId);
     if (shuffleIdToBuffers == null) {
       return;
     }
@@ -616,9 +629,25 @@ public class ShuffleBufferManager {
     ShuffleServerMetrics.gaugeTotalInFlushBlockCount.set(blockCount);
   }
 
-  public synchronized boolean requireMemory(long size, boolean isPreAllocated) {
-    if (capacity - usedMemory.get() >= size) {
-      usedMemory.addAndGet(size);
+  /**
+   * Reserves {@code size} bytes against the buffer capacity. This is on the hot path of every
+   * sendShuffleData/requireBuffer call, so the reservation is done with a CAS loop on usedMemory
+   * instead of taking the manager's monitor, which is also held by flush and commitShuffleTask.
+   */
+  public boolean requireMemory(long size, boolean isPreAllocated) {
+    boolean isSuccessful = false;
+    do {
+      long currentUsedMemory = usedMemory.get();
+      if (capacity - currentUsedMemory < size) {
+        break;
+      }
+      if (usedMemory.compareAndSet(currentUsedMemory, currentUsedMemory + size)) {
+        isSuccessful = true;
+        break;
+      }
+    } while (true);
+
+    if (isSuccessful) {
       ShuffleServerMetrics.gaugeUsedBufferSize.set(usedMemory.get());
       if (isPreAllocated) {
         requirePreAllocatedSize(size);
@@ -664,16 +693,14 @@ public class ShuffleBufferManager {
     if (size == 0) {
       return;
     }
-    if (usedMemory.get() >= size) {
-      usedMemory.addAndGet(-size);
-    } else {
+    long current = decreaseOrReset(usedMemory, size);
+    if (current < size) {
       LOG.warn(
           "Current allocated memory["
-              + usedMemory.get()
+              + current
               + "] is less than released["
               + size
               + "], set allocated memory to 0");
-      usedMemory.set(0L);
     }
 
     ShuffleServerMetrics.gaugeUsedBufferSize.set(usedMemory.get());
@@ -687,17 +714,30 @@ public class ShuffleBufferManager {
     }
   }
 
+  /**
+   * Atomically subtracts {@code delta} from {@code counter}, resetting it to 0 instead of letting
+   * it go negative. Returns the value observed before the update so callers can report
+   * over-release.
+   */
+  private static long decreaseOrReset(AtomicLong counter, long delta) {
+    while (true) {
+      long current = counter.get();
+      long updated = current >= delta ? current - delta : 0L;
+      if (counter.compareAndSet(current, updated)) {
+        return current;
+      }
+    }
+  }
+
   private void releaseFlushMemory(long size) {
-    if (inFlushSize.get() >= size) {
-      inFlushSize.addAndGet(-size);
-    } else {
+    long current = decreaseOrReset(inFlushSize, size);
+    if (current < size) {
       LOG.warn(
           "Current in flush memory["
-              + inFlushSize.get()
+              + current
               + "] is less than released["
               + size
               + "], set in flush memory to 0");
-      inFlushSize.set(0L);
     }
     ShuffleServerMetrics.gaugeInFlushBufferSize.set(inFlushSize.get());
   }
@@ -762,7 +802,7 @@ public class ShuffleBufferManager {
     long pickedFlushValue = 0L;
     long expectedFlushValue = highWaterMark - lowWaterMark;
     String metricType = basedOnBlockCount ? "blocks" : "bytes";
-    for (Map.Entry<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>> appIdToBuffers :
+    for (Map.Entry<String, Map<Integer, ShuffleBufferTable>> appIdToBuffers :
         bufferPool.entrySet()) {
       String appId = appIdToBuffers.getKey();
       if (requiredFlush.containsKey(appId)) {
@@ -776,13 +816,13 @@ public class ShuffleBufferManager {
           if (!lockAcquired) {
             continue;
           }
-          for (Map.Entry<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers :
+          for (Map.Entry<Integer, ShuffleBufferTable> shuffleIdToBuffers :
               appIdToBuffers.getValue().entrySet()) {
             int shuffleId = shuffleIdToBuffers.getKey();
             Set<Integer> requiredShuffleId = requiredFlush.get(appId);
             if (requiredShuffleId != null && requiredShuffleId.contains(shuffleId)) {
               for (Map.Entry<Range<Integer>, ShuffleBuffer> rangeEntry :
-                  shuffleIdToBuffers.getValue().asMapOfRanges().entrySet()) {
+                  shuffleIdToBuffers.getValue().entries()) {
                 Range<Integer> range = rangeEntry.getKey();
                 ShuffleBuffer shuffleBuffer = rangeEntry.getValue();
                 long bufferValue =
@@ -832,16 +872,14 @@ public class ShuffleBufferManager {
   }
 
   public void releasePreAllocatedSize(long delta) {
-    if (preAllocatedSize.get() >= delta) {
-      preAllocatedSize.addAndGet(-delta);
-    } else {
+    long current = decreaseOrReset(preAllocatedSize, delta);
+    if (current < delta) {
       LOG.warn(
           "Current pre-allocated memory["
-              + preAllocatedSize.get()
+              + current
               + "] is less than released["
               + delta
               + "], set pre-allocated memory to 0");
-      preAllocatedSize.set(0L);
     }
     ShuffleServerMetrics.gaugeAllocatedBufferSize.set(preAllocatedSize.get());
   }
@@ -851,7 +889,7 @@ public class ShuffleBufferManager {
   }
 
   @VisibleForTesting
-  public Map<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>> getBufferPool() {
+  public Map<String, Map<Integer, ShuffleBufferTable>> getBufferPool() {
     return bufferPool;
   }
 
@@ -987,7 +1025,7 @@ public class ShuffleBufferManager {
   }
 
   public void removeBufferByShuffleId(String appId, Collection<Integer> shuffleIds) {
-    Map<Integer, RangeMap<Integer, ShuffleBuffer>> shuffleIdToBuffers = bufferPool.get(appId);
+    Map<Integer, ShuffleBufferTable> shuffleIdToBuffers = bufferPool.get(appId);
     if (shuffleIdToBuffers == null) {
       return;
     }
@@ -998,11 +1036,11 @@ public class ShuffleBufferManager {
       if (shuffleIdToBlockCountMap != null) {
         shuffleIdToBlockCountMap.remove(shuffleId);
       }
-      RangeMap<Integer, ShuffleBuffer> bufferRangeMap = shuffleIdToBuffers.remove(shuffleId);
-      if (bufferRangeMap == null) {
+      ShuffleBufferTable bufferTable = shuffleIdToBuffers.remove(shuffleId);
+      if (bufferTable == null) {
         continue;
       }
-      Collection<ShuffleBuffer> buffers = bufferRangeMap.asMapOfRanges().values();
+      Collection<ShuffleBuffer> buffers = bufferTable.asMapOfRanges().values();
       if (buffers != null) {
         for (ShuffleBuffer buffer : buffers) {
           addInMemoryBlockCount(-buffer.getBlockCount());
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+
+/**
+ * The shuffle buffers of one shuffle, indexed by partition. Buffers registered for a single
+ * partition, which is the common case, are looked up by array index. Only when some buffers cover
+ * a range of partitions, a lookup which misses the array falls back to a floor search over the
+ * ranges. Registration is serialized, lookups don't take any lock.
+ *
+ * <p>It also keeps the number of blocks cached in and being flushed from its buffers, so they
+ * don't need to be summed up over all the buffers.
+ */
+public class ShuffleBufferTable {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // partitionId -> entry of the buffer registered for exactly this partition
+  private volatile AtomicReferenceArray<Entry<Range<Integer>, ShuffleBuffer>> singlePartitions =
+      new AtomicReferenceArray<>(INITIAL_CAPACITY);
+  // startPartition -> entry of every registered buffer, ordered by range
+  private final ConcurrentSkipListMap<Integer, Entry<Range<Integer>, ShuffleBuffer>> entries =
+      new ConcurrentSkipListMap<>();
+  private volatile boolean hasRangedBuffers = false;
+  private volatile int bufferCount = 0;
+
+  private final AtomicLong blockCount = new AtomicLong(0);
+  private final AtomicLong inFlushBlockCount = new AtomicLong(0);
+
+  /**
+   * Registers the buffer for the partitions [startPartition, endPartition].
+   *
+   * @return false if there is already a buffer for startPartition
+   */
+  synchronized boolean register(int startPartition, int endPartition, ShuffleBuffer buffer) {
+    if (getEntry(startPartition) != null) {
+      return false;
+    }
+    Entry<Range<Integer>, ShuffleBuffer> entry =
+        Maps.immutableEntry(Range.closed(startPartition, endPartition), buffer);
+    if (startPartition == endPartition && startPartition >= 0) {
+      AtomicReferenceArray<Entry<Range<Integer>, ShuffleBuffer>> partitions = singlePartitions;
+      if (startPartition >= partitions.length()) {
+        partitions = grow(partitions, startPartition + 1);
+        singlePartitions = partitions;
+      }
+      partitions.set(startPartition, entry);
+    } else {
+      hasRangedBuffers = true;
+    }
+    entries.put(startPartition, entry);
+    bufferCount++;
+    return true;
+  }
+
+  public Entry<Range<Integer>, ShuffleBuffer> getEntry(int partitionId) {
+    AtomicReferenceArray<Entry<Range<Integer>, ShuffleBuffer>> partitions = singlePartitions;
+    if (partitionId >= 0 && partitionId < partitions.length()) {
+      Entry<Range<Integer>, ShuffleBuffer> entry = partitions.get(partitionId);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    if (!hasRangedBuffers) {
+      return null;
+    }
+    Entry<Integer, Entry<Range<Integer>, ShuffleBuffer>> floor = entries.floorEntry(partitionId);
+    if (floor == null || !floor.getValue().getKey().contains(partitionId)) {
+      return null;
+    }
+    return floor.getValue();
+  }
+
+  public ShuffleBuffer get(int partitionId) {
+    Entry<Range<Integer>, ShuffleBuffer> entry = getEntry(partitionId);
+    return entry == null ? null : entry.getValue();
+  }
+
+  /** Returns the registered buffers ordered by range. */
+  public Map<Range<Integer>, ShuffleBuffer> asMapOfRanges() {
+    Map<Range<Integer>, ShuffleBuffer> ranges = new LinkedHashMap<>();
+    for (Entry<Range<Integer>, ShuffleBuffer> entry : entries.values()) {
+      ranges.put(entry.getKey(), entry.getValue());
+    }
+    return ranges;
+  }
+
+  public Collection<Entry<Range<Integer>, ShuffleBuffer>> entries() {
+    return entries.values();
+  }
+
+  public int getBufferCount() {
+    return bufferCount;
+  }
+
+  /** @return the number of blocks cached in the buffers, excluding those being flushed */
+  public long getBlockCount() {
+    return blockCount.get();
+  }
+
+  public long getInFlushBlockCount() {
+    return inFlushBlockCount.get();
+  }
+
+  void addBlockCount(long delta) {
+    blockCount.addAndGet(delta);
+  }
+
+  void addInFlushBlockCount(long delta) {
+    inFlushBlockCount.addAndGet(delta);
+  }
+
+  private static AtomicReferenceArray<Entry<Range<Integer>, ShuffleBuffer>> grow(
+      AtomicReferenceArray<Entry<Range<Integer>, ShuffleBuffer>> partitions, int minCapacity) {
+    AtomicReferenceArray<Entry<Range<Integer>, ShuffleBuffer>> grown =
+        new AtomicReferenceArray<>(Math.max(minCapacity, partitions.length() * 2));
+    for (int i = 0; i < partitions.length(); i++) {
+      grown.set(i, partitions.get(i));
+    }
+    return grown;
+  }
+}
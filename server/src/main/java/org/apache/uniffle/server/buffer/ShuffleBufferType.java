@@ -19,5 +19,6 @@ package org.apache.uniffle.server.buffer;
 
 public enum ShuffleBufferType {
   SKIP_LIST,
-  LINKED_LIST
+  LINKED_LIST,
+  SEGMENT_LOG
 }
@@ -0,0 +1,369 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.BufferSegment;
+import org.apache.uniffle.common.ShuffleDataDistributionType;
+import org.apache.uniffle.common.ShuffleDataResult;
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.common.ShufflePartitionedData;
+import org.apache.uniffle.common.util.Constants;
+import org.apache.uniffle.common.util.JavaUtils;
+import org.apache.uniffle.server.ShuffleDataFlushEvent;
+import org.apache.uniffle.server.ShuffleFlushManager;
+
+/**
+ * A shuffle buffer keeping its blocks in a {@link BlockSegmentLog}, so the reads don't take the
+ * lock of the buffer and don't block the appends and the flushes.
+ *
+ * <p>Every block gets a sequence number in the order it's received, which isn't reset by the
+ * flushes. A read goes on after the sequence number of the last block id of the reader, and if
+ * this block isn't in memory any more, it was flushed together with all the blocks before it, so
+ * the read goes on from the first block in memory without reading any block twice.
+ *
+ * <p>The flushed blocks are dropped from the log in the order of the sequence numbers. The blocks
+ * of a flush event finished before the previous ones stay in the log until then, but the reads skip
+ * them, so they are released as soon as the event finishes. The blocks are released only after the
+ * reads which may have seen them are finished.
+ */
+public class ShuffleBufferWithSegmentLog extends AbstractShuffleBuffer {
+
+  private static final long MIN_AWAIT_PARK_NANOS = 1_000L;
+  private static final long MAX_AWAIT_PARK_NANOS = 1_000_000L;
+
+  private final BlockSegmentLog log = new BlockSegmentLog();
+  // blockId -> sequence number of the blocks in the log
+  private final Map<Long, Long> blockSeqs = JavaUtils.newConcurrentMap();
+  // eventId -> the blocks of the flush events not finished yet, in the order of the events
+  private final ConcurrentSkipListMap<Long, InFlushBlocks> inFlushBlocksMap =
+      new ConcurrentSkipListMap<>();
+  // startSeq -> endSeq of the flush events finished but still in the log, skipped by the reads
+  private final ConcurrentSkipListMap<Long, Long> finishedRanges = new ConcurrentSkipListMap<>();
+  // the first sequence number not in any flush event yet
+  private volatile long flushSeq;
+
+  // the reads in progress, by the parity of the read epoch they started in
+  private final AtomicInteger[] activeReads = {new AtomicInteger(), new AtomicInteger()};
+  private final AtomicLong readEpoch = new AtomicLong();
+  private final Object releaseLock = new Object();
+
+  @Override
+  public synchronized long append(ShufflePartitionedData data) {
+    if (evicted) {
+      return BUFFER_EVICTED;
+    }
+    long currentEncodedLength = 0;
+    long currentDataLength = 0;
+    int duplicateBlockCount = 0;
+    long duplicateBlockSize = 0;
+
+    for (ShufflePartitionedBlock block : data.getBlockList()) {
+      // If sendShuffleData retried, we may receive duplicate block. The duplicate
+      // block would gc without release. Here we must release the duplicated block.
+      if (blockSeqs.putIfAbsent(block.getBlockId(), log.getNextSeq()) == null) {
+        log.append(block);
+        currentEncodedLength += block.getEncodedLength();
+        currentDataLength += block.getDataLength();
+      } else {
+        duplicateBlockCount++;
+        duplicateBlockSize += block.getEncodedLength();
+        releaseBlock(block);
+      }
+    }
+    // the blocks are visible to the reads all at once
+    log.publish();
+    this.encodedLength += currentEncodedLength;
+    this.dataLength += currentDataLength;
+    data.setDuplicateBlockCount(duplicateBlockCount);
+    data.setDuplicateBlockSize(duplicateBlockSize);
+
+    return currentEncodedLength;
+  }
+
+  protected void releaseBlock(ShufflePartitionedBlock block) {
+    block.getData().release();
+  }
+
+  @Override
+  public synchronized ShuffleDataFlushEvent toFlushEvent(
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      Supplier<Boolean> isValid,
+      ShuffleDataDistributionType dataDistributionType) {
+    long endSeq = log.getPublishedSeq();
+    if (evicted || endSeq == flushSeq) {
+      return null;
+    }
+    List<ShufflePartitionedBlock> blocks = log.getBlocks(flushSeq, endSeq);
+    List<ShufflePartitionedBlock> spBlocks = blocks;
+    if (dataDistributionType == ShuffleDataDistributionType.LOCAL_ORDER) {
+      // the reads follow the log, so only the blocks of the event are reordered
+      spBlocks = new ArrayList<>(blocks);
+      spBlocks.sort(Comparator.comparingLong(ShufflePartitionedBlock::getTaskAttemptId));
+    }
+    long eventId = ShuffleFlushManager.ATOMIC_EVENT_ID.getAndIncrement();
+    final ShuffleDataFlushEvent event =
+        new ShuffleDataFlushEvent(
+            eventId,
+            appId,
+            shuffleId,
+            startPartition,
+            endPartition,
+            encodedLength,
+            dataLength,
+            spBlocks,
+            isValid,
+            this);
+    event.addCleanupCallback(createCallbackForFlush(event));
+    inFlushBlocksMap.put(eventId, new InFlushBlocks(flushSeq, endSeq, blocks));
+    flushSeq = endSeq;
+    inFlushSize.addAndGet(encodedLength);
+    encodedLength = 0;
+    dataLength = 0;
+    return event;
+  }
+
+  protected Runnable createCallbackForFlush(ShuffleDataFlushEvent event) {
+    return () -> {
+      this.clearInFlushBuffer(event.getEventId());
+      inFlushSize.addAndGet(-event.getEncodedLength());
+    };
+  }
+
+  @Override
+  public Set<ShufflePartitionedBlock> getBlocks() {
+    return new LinkedHashSet<>(log.getBlocks(flushSeq, log.getPublishedSeq()));
+  }
+
+  @Override
+  public int getBlockCount() {
+    return (int) (log.getPublishedSeq() - flushSeq);
+  }
+
+  @Override
+  public long getInFlushBlockCount() {
+    return inFlushBlocksMap.values().stream()
+        .mapToLong(inFlushBlocks -> inFlushBlocks.blocks.size())
+        .sum();
+  }
+
+  @Override
+  public int getInFlushEventCount() {
+    return inFlushBlocksMap.size();
+  }
+
+  @Override
+  public long release() {
+    List<ShufflePartitionedBlock> blocks;
+    synchronized (this) {
+      evicted = true;
+      blocks = log.getBlocks(flushSeq, log.getPublishedSeq());
+    }
+    // the reads started after the eviction don't read any block
+    awaitReads();
+    Throwable lastException = null;
+    int failedToReleaseSize = 0;
+    long releasedSize = 0;
+    for (ShufflePartitionedBlock spb : blocks) {
+      try {
+        releaseBlock(spb);
+        releasedSize += spb.getEncodedLength();
+      } catch (Throwable t) {
+        lastException = t;
+        failedToReleaseSize += spb.getEncodedLength();
+      }
+    }
+    if (lastException != null) {
+      LOG.warn(
+          "Failed to release shuffle blocks with size {}. Maybe it has been released by others.",
+          failedToReleaseSize,
+          lastException);
+    }
+    return releasedSize;
+  }
+
+  @Override
+  public void clearInFlushBuffer(long eventId) {
+    InFlushBlocks inFlushBlocks = finishFlushEvent(eventId);
+    if (inFlushBlocks != null && !inFlushBlocks.blocks.isEmpty()) {
+      awaitReads();
+      inFlushBlocks.blocks.forEach(this::releaseBlock);
+    }
+  }
+
+  /**
+   * Finishes the flush event, so the reads started after skip its blocks, and drops the blocks of
+   * the finished events before all the events not finished yet from the log.
+   *
+   * @return the blocks of the event, to be released after the reads which may have seen them
+   */
+  private synchronized InFlushBlocks finishFlushEvent(long eventId) {
+    InFlushBlocks inFlushBlocks = inFlushBlocksMap.remove(eventId);
+    if (inFlushBlocks == null) {
+      return null;
+    }
+    finishedRanges.put(inFlushBlocks.startSeq, inFlushBlocks.endSeq);
+    long headSeq = log.getHeadSeq();
+    Map.Entry<Long, InFlushBlocks> first = inFlushBlocksMap.firstEntry();
+    long newHeadSeq = first == null ? flushSeq : first.getValue().startSeq;
+    if (newHeadSeq > headSeq) {
+      List<ShufflePartitionedBlock> truncatedBlocks = log.getBlocks(headSeq, newHeadSeq);
+      log.truncate(newHeadSeq);
+      // a read which doesn't find its last block any more sees the new head
+      truncatedBlocks.forEach(block -> blockSeqs.remove(block.getBlockId()));
+      // the blocks dropped from the log are skipped without the ranges
+      finishedRanges.headMap(newHeadSeq).clear();
+    }
+    return inFlushBlocks;
+  }
+
+  @Override
+  public Map<Long, Set<ShufflePartitionedBlock>> getInFlushBlockMap() {
+    return inFlushBlocksMap.entrySet().stream()
+        .collect(
+            Collectors.toMap(Map.Entry::getKey, e -> new LinkedHashSet<>(e.getValue().blocks)));
+  }
+
+  @Override
+  public ShuffleDataResult getShuffleData(long lastBlockId, int readBufferSize) {
+    return getShuffleData(lastBlockId, readBufferSize, null);
+  }
+
+  @Override
+  public ShuffleDataResult getShuffleData(
+      long lastBlockId, int readBufferSize, Roaring64NavigableMap expectedTaskIds) {
+    int slot = startRead();
+    try {
+      if (evicted) {
+        return new MemoryShuffleDataResult();
+      }
+      // the data of the blocks is retained before the read finishes
+      return readShuffleData(lastBlockId, readBufferSize, expectedTaskIds);
+    } finally {
+      activeReads[slot].decrementAndGet();
+    }
+  }
+
+  @Override
+  protected void updateBufferSegmentsAndResultBlocks(
+      long lastBlockId,
+      long readBufferSize,
+      List<BufferSegment> bufferSegments,
+      List<ShufflePartitionedBlock> resultBlocks,
+      Roaring64NavigableMap expectedTaskIds) {
+    long fromSeq = 0;
+    if (lastBlockId != Constants.INVALID_BLOCK_ID) {
+      // the last block is looked up before the head of the log is read
+      Long lastSeq = blockSeqs.get(lastBlockId);
+      if (lastSeq != null) {
+        fromSeq = lastSeq + 1;
+      }
+    }
+    int[] offset = {0};
+    Predicate<ShufflePartitionedBlock> visitor =
+        block -> {
+          if (expectedTaskIds != null && !expectedTaskIds.contains(block.getTaskAttemptId())) {
+            return true;
+          }
+          bufferSegments.add(
+              new BufferSegment(
+                  block.getBlockId(),
+                  offset[0],
+                  block.getDataLength(),
+                  block.getUncompressLength(),
+                  block.getCrc(),
+                  block.getTaskAttemptId()));
+          resultBlocks.add(block);
+          offset[0] += block.getDataLength();
+          return offset[0] < readBufferSize;
+        };
+    long seq = Math.max(fromSeq, log.getHeadSeq());
+    long toSeq = log.getPublishedSeq();
+    while (seq < toSeq) {
+      Map.Entry<Long, Long> finished = finishedRanges.floorEntry(seq);
+      if (finished != null && finished.getValue() > seq) {
+        seq = finished.getValue();
+        continue;
+      }
+      Long nextFinishedSeq = finishedRanges.higherKey(seq);
+      long endSeq = nextFinishedSeq == null ? toSeq : Math.min(nextFinishedSeq, toSeq);
+      if (!log.forEach(seq, endSeq, visitor)) {
+        return;
+      }
+      seq = endSeq;
+    }
+  }
+
+  /** @return the slot of the read, which is decremented when the read finishes */
+  private int startRead() {
+    while (true) {
+      int slot = (int) (readEpoch.get() & 1);
+      activeReads[slot].incrementAndGet();
+      // if the epoch has moved on meanwhile, the release may have missed this read
+      if ((readEpoch.get() & 1) == slot) {
+        return slot;
+      }
+      activeReads[slot].decrementAndGet();
+    }
+  }
+
+  /**
+   * Waits for the reads started before, so the blocks dropped from the log or evicted before can be
+   * released. The reads started after don't see these blocks.
+   */
+  private void awaitReads() {
+    synchronized (releaseLock) {
+      int slot = (int) (readEpoch.getAndIncrement() & 1);
+      long parkNanos = MIN_AWAIT_PARK_NANOS;
+      while (activeReads[slot].get() > 0) {
+        LockSupport.parkNanos(parkNanos);
+        parkNanos = Math.min(parkNanos * 2, MAX_AWAIT_PARK_NANOS);
+      }
+    }
+  }
+
+  private static final class InFlushBlocks {
+    private final long startSeq;
+    private final long endSeq;
+    private final List<ShufflePartitionedBlock> blocks;
+
+    private InFlushBlocks(long startSeq, long endSeq, List<ShufflePartitionedBlock> blocks) {
+      this.startSeq = startSeq;
+      this.endSeq = endSeq;
+      this.blocks = blocks;
+    }
+  }
+}
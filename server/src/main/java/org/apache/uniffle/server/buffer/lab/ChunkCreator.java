@@ -17,10 +17,16 @@
 
 package org.apache.uniffle.server.buffer.lab;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
@@ -29,6 +35,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hadoop.util.StringUtils;
@@ -40,6 +47,10 @@ import org.apache.uniffle.server.ShuffleServerMetrics;
 /**
  * Does the management of LAB chunk creations. A monotonically incrementing id is associated with
  * every chunk
+ *
+ * <p>There is a {@link ChunkPool} for each size class, the chunk size and its power of two
+ * multiples up to the max chunk size. The chunks of the default size are shared by the small
+ * blocks, a chunk of a larger size class holds a single large block.
  */
 public class ChunkCreator {
   private static final Logger LOG = LoggerFactory.getLogger(ChunkCreator.class);
@@ -50,13 +61,37 @@ public class ChunkCreator {
   private final Map<Integer, Chunk> chunkIdMap = new ConcurrentHashMap<Integer, Chunk>();
   static ChunkCreator instance;
   private final int maxAlloc;
-  private final ChunkPool chunksPool;
+  // the pools of the size classes, in the ascending order of the chunk size
+  private final ChunkPool[] chunksPools;
   private final int chunkSize;
+  // the total size of the chunks in use and the size of the blocks in them
+  private final LongAdder inUseChunkBytes = new LongAdder();
+  private final LongAdder inUseBlockBytes = new LongAdder();
+
+  /** Statistics thread schedule pool */
+  private final ScheduledExecutorService scheduleThreadPool;
+  /** Statistics thread */
+  private static final int statThreadPeriod = 60 * 5;
 
   ChunkCreator(int chunkSize, long bufferCapacity, int maxAlloc) {
+    this(chunkSize, chunkSize, bufferCapacity, maxAlloc, 0);
+  }
+
+  ChunkCreator(
+      int chunkSize, int maxChunkSize, long bufferCapacity, int maxAlloc, int magazineSize) {
     this.chunkSize = chunkSize;
     this.maxAlloc = maxAlloc;
-    this.chunksPool = initializePool(bufferCapacity, chunkSize);
+    this.chunksPools = initializePools(chunkSize, maxChunkSize, bufferCapacity, magazineSize);
+    final String n = Thread.currentThread().getName();
+    scheduleThreadPool =
+        Executors.newScheduledThreadPool(
+            1,
+            new ThreadFactoryBuilder()
+                .setNameFormat(n + "-ChunkPool Statistics")
+                .setDaemon(true)
+                .build());
+    this.scheduleThreadPool.scheduleAtFixedRate(
+        new StatisticsThread(), statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
   }
 
   /**
@@ -67,10 +102,27 @@ public class ChunkCreator {
    * @return singleton ChunkCreator
    */
   public static synchronized void initialize(int chunkSize, long bufferCapacity, int maxAlloc) {
+    initialize(chunkSize, chunkSize, bufferCapacity, maxAlloc, 0);
+  }
+
+  /**
+   * Initializes the instance of ChunkCreator
+   *
+   * @param chunkSize the chunkSize, the smallest size class
+   * @param maxChunkSize the largest size class, there is only one size class if it's not larger
+   *     than the chunkSize
+   * @param bufferCapacity the buffer capacity, shared by the pools of all the size classes
+   * @param maxAlloc the max size of the blocks sharing a chunk
+   * @param magazineSize the number of the idle chunks of a size class cached by each thread, 0
+   *     means the threads share the idle chunks directly
+   */
+  public static synchronized void initialize(
+      int chunkSize, int maxChunkSize, long bufferCapacity, int maxAlloc, int magazineSize) {
     if (instance != null) {
       LOG.warn("ChunkCreator instance is already initialized.");
+      instance.scheduleThreadPool.shutdownNow();
     }
-    instance = new ChunkCreator(chunkSize, bufferCapacity, maxAlloc);
+    instance = new ChunkCreator(chunkSize, maxChunkSize, bufferCapacity, maxAlloc, magazineSize);
   }
 
   public static ChunkCreator getInstance() {
@@ -83,7 +135,7 @@ public class ChunkCreator {
    * @return the chunk that was initialized
    */
   Chunk getChunk() {
-    return getChunk(chunksPool.getChunkSize());
+    return getChunk(chunkSize);
   }
 
   /**
@@ -97,8 +149,11 @@ public class ChunkCreator {
     ChunkPool pool = null;
 
     // if the size is suitable for one of the pools
-    if (chunksPool != null && size == chunksPool.getChunkSize()) {
-      pool = chunksPool;
+    for (ChunkPool chunksPool : chunksPools) {
+      if (size == chunksPool.getChunkSize()) {
+        pool = chunksPool;
+        break;
+      }
     }
 
     if (pool != null) {
@@ -115,11 +170,63 @@ public class ChunkCreator {
 
     if (chunk == null) {
       chunk = createChunk(false, size);
+      ShuffleServerMetrics.counterLABChunkPoolMiss.inc();
+    } else {
+      ShuffleServerMetrics.counterLABChunkPoolHit.inc();
     }
     chunk.init();
+    inUseChunkBytes.add(size);
+    updatePoolMetrics();
     return chunk;
   }
 
+  /**
+   * Takes a chunk of a size class from its pool, without creating one outside of the pool.
+   *
+   * @param size the size class
+   * @return the chunk, or null if the pool of the size class is exhausted
+   */
+  Chunk getPooledChunk(int size) {
+    ChunkPool pool = getPool(size);
+    Chunk chunk = pool != null ? pool.getChunk() : null;
+    if (chunk == null) {
+      ShuffleServerMetrics.counterLABChunkPoolMiss.inc();
+      return null;
+    }
+    ShuffleServerMetrics.counterLABChunkPoolHit.inc();
+    chunk.init();
+    inUseChunkBytes.add(size);
+    updatePoolMetrics();
+    return chunk;
+  }
+
+  /**
+   * @param size the size of a block which doesn't share a chunk with other blocks
+   * @return the smallest size class which holds the block in a new chunk, or -1 if there is no
+   *     size class larger than the chunk size or the block is too large for all the size classes
+   */
+  int getSizeClass(int size) {
+    if (chunksPools.length == 1) {
+      return -1;
+    }
+    // a new chunk starts with its id
+    int requiredSize = size + Integer.BYTES;
+    for (ChunkPool pool : chunksPools) {
+      if (pool.getChunkSize() >= requiredSize) {
+        return pool.getChunkSize();
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Records the size of the blocks copied into the chunks, or released with them if negative. The
+   * fragmentation gauge follows when the chunks are taken or put back.
+   */
+  void addBlockBytes(long size) {
+    inUseBlockBytes.add(size);
+  }
+
   /**
    * Creates the chunk
    *
@@ -132,7 +239,7 @@ public class ChunkCreator {
     int id = chunkID.getAndIncrement();
     // if chunkID overflow, reset it.
     if (id <= 0) {
-      chunkID.compareAndSet(id, chunksPool.maxCount + 1);
+      chunkID.compareAndSet(id, getTotalMaxCount() + 1);
       id = chunkID.getAndIncrement();
     }
     Preconditions.checkArgument(id > 0, "chunkId should be positive.");
@@ -142,14 +249,6 @@ public class ChunkCreator {
     return chunk;
   }
 
-  // Chunks from pool are created covered with strong references anyway
-  private Chunk createChunkForPool(int chunkSize) {
-    if (chunkSize != chunksPool.getChunkSize()) {
-      return null;
-    }
-    return createChunk(true, chunkSize);
-  }
-
   private void removeChunks(List<Integer> chunkIDs) {
     chunkIDs.forEach(this::removeChunk);
   }
@@ -165,36 +264,45 @@ public class ChunkCreator {
    *
    * <p>ChunkPool caches a number of retired chunks for reusing, it could decrease allocating bytes
    * when writing, thereby optimizing the garbage collection on JVM.
+   *
+   * <p>If the magazine size is positive, every thread caches the idle chunks in a magazine of its
+   * own, and exchanges a full magazine with the other threads at a time, so the threads don't
+   * contend on the pool for every chunk. When the pool misses, i.e. there is no full magazine and
+   * the max count of chunks are created, the idle chunks are taken from the magazines of the other
+   * threads, so they are not stranded in the magazines of the threads which don't take chunks.
    */
   private class ChunkPool {
     private final int chunkSize;
     private final int maxCount;
+    private final int magazineSize;
 
-    // A queue of reclaimed chunks
+    // A queue of reclaimed chunks, used if there are no magazines
     private final BlockingQueue<Chunk> reclaimedChunks;
-
-    /** Statistics thread schedule pool */
-    private final ScheduledExecutorService scheduleThreadPool;
-    /** Statistics thread */
-    private static final int statThreadPeriod = 60 * 5;
+    // the full magazines put back by the threads
+    private final Queue<Deque<Chunk>> fullMagazines;
+    // the idle chunks of the current thread
+    private final ThreadLocal<Magazine> magazine;
+    // the magazines of all the threads, the other threads take from them when the pool misses
+    private final Queue<Magazine> threadMagazines = new ConcurrentLinkedQueue<>();
+    // the idle chunks in the queue and all the magazines
+    private final AtomicInteger idleChunkCount = new AtomicInteger();
 
     private final AtomicLong chunkCount = new AtomicLong();
     private final LongAdder reusedChunkCount = new LongAdder();
 
-    ChunkPool(int chunkSize, int maxCount) {
+    ChunkPool(int chunkSize, int maxCount, int magazineSize) {
       this.chunkSize = chunkSize;
       this.maxCount = maxCount;
+      this.magazineSize = magazineSize;
       this.reclaimedChunks = new LinkedBlockingQueue<>();
-      final String n = Thread.currentThread().getName();
-      scheduleThreadPool =
-          Executors.newScheduledThreadPool(
-              1,
-              new ThreadFactoryBuilder()
-                  .setNameFormat(n + "-ChunkPool Statistics")
-                  .setDaemon(true)
-                  .build());
-      this.scheduleThreadPool.scheduleAtFixedRate(
-          new StatisticsThread(), statThreadPeriod, statThreadPeriod, TimeUnit.SECONDS);
+      this.fullMagazines = new ConcurrentLinkedQueue<>();
+      this.magazine =
+          ThreadLocal.withInitial(
+              () -> {
+                Magazine threadMagazine = new Magazine(magazineSize);
+                threadMagazines.add(threadMagazine);
+                return threadMagazine;
+              });
     }
 
     /**
@@ -208,27 +316,68 @@ public class ChunkCreator {
      * @see #putbackChunks(Chunk)
      */
     Chunk getChunk() {
-      Chunk chunk = reclaimedChunks.poll();
-      if (chunk != null) {
-        chunk.reset();
-        reusedChunkCount.increment();
-        ShuffleServerMetrics.gaugeLABChunkReclaimed.set(reclaimedChunks.size());
-        ShuffleServerMetrics.gaugeLABChunkPoolRemainPercent.set(
-            reclaimedChunks.size() * 100d / chunkCount.get());
-        ShuffleServerMetrics.counterLABChunkReused.inc();
-      } else {
+      Chunk chunk = pollIdleChunk();
+      if (chunk == null) {
         // Make a chunk if we have not yet created the maxCount chunks
         while (true) {
           long created = this.chunkCount.get();
           if (created < this.maxCount) {
             if (this.chunkCount.compareAndSet(created, created + 1)) {
-              chunk = createChunkForPool(chunkSize);
-              break;
+              return createChunk(true, chunkSize);
             }
           } else {
             break;
           }
         }
+        chunk = stealIdleChunk();
+      }
+      if (chunk != null) {
+        chunk.reset();
+        reusedChunkCount.increment();
+        ShuffleServerMetrics.counterLABChunkReused.inc();
+      }
+      return chunk;
+    }
+
+    private Chunk pollIdleChunk() {
+      Chunk chunk;
+      if (magazineSize <= 0) {
+        chunk = reclaimedChunks.poll();
+      } else {
+        Magazine threadMagazine = magazine.get();
+        // only contended when the magazine is taken from by another thread
+        synchronized (threadMagazine) {
+          if (threadMagazine.chunks.isEmpty()) {
+            Deque<Chunk> fullMagazine = fullMagazines.poll();
+            if (fullMagazine != null) {
+              // swap the empty magazine with a full one
+              threadMagazine.chunks = fullMagazine;
+            }
+          }
+          chunk = threadMagazine.chunks.poll();
+        }
+      }
+      if (chunk != null) {
+        idleChunkCount.decrementAndGet();
+      }
+      return chunk;
+    }
+
+    /** Takes an idle chunk from the magazine of any thread, which isn't full yet. */
+    private Chunk stealIdleChunk() {
+      if (magazineSize <= 0 || idleChunkCount.get() <= 0) {
+        return null;
+      }
+      Chunk chunk = null;
+      Iterator<Magazine> iterator = threadMagazines.iterator();
+      while (chunk == null && iterator.hasNext()) {
+        Magazine threadMagazine = iterator.next();
+        synchronized (threadMagazine) {
+          chunk = threadMagazine.chunks.pollLast();
+        }
+      }
+      if (chunk != null) {
+        idleChunkCount.decrementAndGet();
       }
       return chunk;
     }
@@ -242,39 +391,38 @@ public class ChunkCreator {
      * chunks
      */
     private void putbackChunks(Chunk c) {
-      int toAdd = this.maxCount - reclaimedChunks.size();
-      if (c.isFromPool() && c.size == chunkSize && toAdd > 0) {
-        reclaimedChunks.add(c);
+      if (c.isFromPool() && c.size == chunkSize && idleChunkCount.get() < maxCount) {
+        idleChunkCount.incrementAndGet();
+        if (magazineSize <= 0) {
+          reclaimedChunks.add(c);
+          return;
+        }
+        Magazine threadMagazine = magazine.get();
+        synchronized (threadMagazine) {
+          threadMagazine.chunks.push(c);
+          if (threadMagazine.chunks.size() >= magazineSize) {
+            fullMagazines.add(threadMagazine.chunks);
+            threadMagazine.chunks = new ArrayDeque<>(magazineSize);
+          }
+        }
       } else {
         // remove the chunk (that is not going to pool)
         ChunkCreator.this.removeChunk(c.getId());
       }
     }
 
-    private class StatisticsThread extends Thread {
-      StatisticsThread() {
-        super("MemStoreChunkPool.StatisticsThread");
-        setDaemon(true);
-      }
-
-      @Override
-      public void run() {
-        logStats();
-      }
-
-      private void logStats() {
-        long created = chunkCount.get();
-        long reused = reusedChunkCount.sum();
-        long total = created + reused;
-        LOG.info(
-            "ChunkPool stats (chunk size={}): current pool size={}, created chunk count={}, "
-                + "reused chunk count={}, reuseRatio={}",
-            chunkSize,
-            reclaimedChunks.size(),
-            created,
-            reused,
-            (total == 0 ? "0" : StringUtils.formatPercent((float) reused / (float) total, 2)));
-      }
+    private void logStats() {
+      long created = chunkCount.get();
+      long reused = reusedChunkCount.sum();
+      long total = created + reused;
+      LOG.info(
+          "ChunkPool stats (chunk size={}): current pool size={}, created chunk count={}, "
+              + "reused chunk count={}, reuseRatio={}",
+          chunkSize,
+          idleChunkCount.get(),
+          created,
+          reused,
+          (total == 0 ? "0" : StringUtils.formatPercent((float) reused / (float) total, 2)));
     }
 
     private int getMaxCount() {
@@ -282,13 +430,51 @@ public class ChunkCreator {
     }
   }
 
-  private ChunkPool initializePool(long bufferCapacity, int chunkSize) {
-    int maxCount = Math.max((int) (bufferCapacity / chunkSize), 1);
-    LOG.info(
-        "Allocating ChunkPool with chunk size {}, max count {}",
-        StringUtils.byteDesc(chunkSize),
-        maxCount);
-    return new ChunkPool(chunkSize, maxCount);
+  /** The idle chunks cached by a thread, which the other threads take only when the pool misses. */
+  private static final class Magazine {
+    private Deque<Chunk> chunks;
+
+    private Magazine(int magazineSize) {
+      this.chunks = new ArrayDeque<>(magazineSize);
+    }
+  }
+
+  private class StatisticsThread extends Thread {
+    StatisticsThread() {
+      super("MemStoreChunkPool.StatisticsThread");
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      for (ChunkPool pool : chunksPools) {
+        pool.logStats();
+      }
+    }
+  }
+
+  /**
+   * The pools of the chunk size and its power of two multiples up to the max chunk size. The
+   * buffer capacity is shared by the pools evenly.
+   */
+  private ChunkPool[] initializePools(
+      int chunkSize, int maxChunkSize, long bufferCapacity, int magazineSize) {
+    List<Integer> sizeClasses = new ArrayList<>();
+    sizeClasses.add(chunkSize);
+    for (long size = (long) chunkSize << 1; size <= maxChunkSize; size <<= 1) {
+      sizeClasses.add((int) size);
+    }
+    ChunkPool[] pools = new ChunkPool[sizeClasses.size()];
+    for (int i = 0; i < pools.length; i++) {
+      int size = sizeClasses.get(i);
+      int maxCount = Math.max((int) (bufferCapacity / pools.length / size), 1);
+      LOG.info(
+          "Allocating ChunkPool with chunk size {}, max count {}",
+          StringUtils.byteDesc(size),
+          maxCount);
+      pools[i] = new ChunkPool(size, maxCount, magazineSize);
+    }
+    return pools;
   }
 
   int getChunkSize() {
@@ -299,21 +485,34 @@ public class ChunkCreator {
     return maxAlloc;
   }
 
-  synchronized void putBackChunks(List<Integer> chunks) {
-    // if there is no pool just try to clear the chunkIdMap in case there is something
-    if (chunksPool == null) {
-      this.removeChunks(chunks);
-      return;
+  @VisibleForTesting
+  List<Integer> getSizeClasses() {
+    List<Integer> sizeClasses = new ArrayList<>();
+    for (ChunkPool pool : chunksPools) {
+      sizeClasses.add(pool.getChunkSize());
+    }
+    return sizeClasses;
+  }
+
+  private int getTotalMaxCount() {
+    int maxCount = 0;
+    for (ChunkPool pool : chunksPools) {
+      maxCount += pool.getMaxCount();
     }
+    return maxCount;
+  }
 
-    // if there is a pool, go over all chunk IDs that came back, the chunks may be from pool or not
+  void putBackChunks(List<Integer> chunks) {
+    // go over all chunk IDs that came back, the chunks may be from pool or not
     for (int chunkID : chunks) {
       // translate chunk ID to chunk, if chunk initially wasn't in pool
       // this translation will (most likely) return null
       Chunk chunk = chunkIdMap.get(chunkID);
       if (chunk != null) {
-        if (chunk.isFromPool()) {
-          chunksPool.putbackChunks(chunk);
+        inUseChunkBytes.add(-chunk.size);
+        ChunkPool pool = chunk.isFromPool() ? getPool(chunk.size) : null;
+        if (pool != null) {
+          pool.putbackChunks(chunk);
         } else {
           // chunks which are not from one of the pools
           // should be released without going to the pools.
@@ -323,8 +522,31 @@ public class ChunkCreator {
         LOG.warn("Chunk {} can not be found in chunkIdMap, ignore it", chunkID);
       }
     }
-    ShuffleServerMetrics.gaugeLABChunkReclaimed.set(chunksPool.reclaimedChunks.size());
+    updatePoolMetrics();
+  }
+
+  private ChunkPool getPool(int size) {
+    for (ChunkPool pool : chunksPools) {
+      if (pool.getChunkSize() == size) {
+        return pool;
+      }
+    }
+    return null;
+  }
+
+  private void updatePoolMetrics() {
+    long idleCount = 0;
+    long createdCount = 0;
+    for (ChunkPool pool : chunksPools) {
+      idleCount += pool.idleChunkCount.get();
+      createdCount += pool.chunkCount.get();
+    }
+    ShuffleServerMetrics.gaugeLABChunkReclaimed.set(idleCount);
     ShuffleServerMetrics.gaugeLABChunkPoolRemainPercent.set(
-        chunksPool.reclaimedChunks.size() * 100d / chunksPool.chunkCount.get());
+        createdCount == 0 ? 0 : idleCount * 100d / createdCount);
+    long chunkBytes = inUseChunkBytes.sum();
+    // the space of the chunks in use not taken by any block
+    ShuffleServerMetrics.gaugeLABChunkFragmentationPercent.set(
+        chunkBytes <= 0 ? 0 : (chunkBytes - inUseBlockBytes.sum()) * 100d / chunkBytes);
   }
 }
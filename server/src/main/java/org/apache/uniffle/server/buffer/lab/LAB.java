@@ -43,6 +43,14 @@ import org.apache.uniffle.server.ShuffleServerMetrics;
  * chunk to hold this block's data and copies into this area and then recreate a
  * LABShufflePartitionedBlock over this copied data.
  *
+ * <p>A block larger than the max alloc is copied into a chunk of its own, taken from the pool of
+ * the smallest size class holding it, if the {@link ChunkCreator} has larger size classes. The size
+ * classes are powers of two, so such a chunk may be almost twice as large as its block, while the
+ * {@link org.apache.uniffle.server.buffer.ShuffleBufferManager} only counts the size of the block
+ * as used memory. So the dedicated chunks are only taken from the pools, whose capacity bounds the
+ * memory they take beyond the used memory, and a block is left as it is if the pool of its size
+ * class is exhausted. The waste is reported by the chunk fragmentation gauge.
+ *
  * <p>
  *
  * @see ChunkCreator
@@ -52,6 +60,8 @@ public class LAB {
 
   List<Integer> chunks = new LinkedList<>();
   private final int maxAlloc;
+  // the size of the blocks copied into the chunks
+  private long blockBytes;
   private final ChunkCreator chunkCreator;
 
   public LAB() {
@@ -62,8 +72,7 @@ public class LAB {
   public ShufflePartitionedBlock tryCopyBlockToChunk(ShufflePartitionedBlock block) {
     int size = block.getDataLength();
     if (size > maxAlloc) {
-      ShuffleServerMetrics.counterBlockNotOnLAB.inc();
-      return block;
+      return tryCopyBlockToDedicatedChunk(block);
     }
     Chunk c;
     int allocOffset;
@@ -78,7 +87,30 @@ public class LAB {
       // not enough space!
       currChunk = null;
     }
+    return copyBlockToChunk(block, c, allocOffset);
+  }
+
+  private ShufflePartitionedBlock tryCopyBlockToDedicatedChunk(ShufflePartitionedBlock block) {
+    int sizeClass = chunkCreator.getSizeClass(block.getDataLength());
+    if (sizeClass < 0) {
+      ShuffleServerMetrics.counterBlockNotOnLAB.inc();
+      return block;
+    }
+    Chunk c = chunkCreator.getPooledChunk(sizeClass);
+    if (c == null) {
+      ShuffleServerMetrics.counterBlockNotOnLAB.inc();
+      return block;
+    }
+    chunks.add(c.getId());
+    return copyBlockToChunk(block, c, c.getAllocOffset(block.getDataLength()));
+  }
+
+  private ShufflePartitionedBlock copyBlockToChunk(
+      ShufflePartitionedBlock block, Chunk c, int allocOffset) {
+    int size = block.getDataLength();
     c.getData().writeBytes(block.getData());
+    blockBytes += size;
+    chunkCreator.addBlockBytes(size);
     ShuffleServerMetrics.counterBlockOnLAB.inc();
     return new LABShufflePartitionedBlock(
         block.getDataLength(),
@@ -94,6 +126,8 @@ public class LAB {
   }
 
   private void recycleChunks() {
+    chunkCreator.addBlockBytes(-blockBytes);
+    blockBytes = 0;
     chunkCreator.putBackChunks(chunks);
   }
 
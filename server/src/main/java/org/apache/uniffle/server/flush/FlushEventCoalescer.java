@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.flush;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.server.ShuffleDataFlushEvent;
+import org.apache.uniffle.server.ShuffleServerConf;
+import org.apache.uniffle.server.ShuffleServerMetrics;
+import org.apache.uniffle.storage.common.LocalStorage;
+import org.apache.uniffle.storage.common.Storage;
+
+/**
+ * Groups the small flush events waiting in the flush queue which are bound for the same local
+ * storage into batches, which are written one after another by a single flush task, instead of
+ * spreading many tiny writes of different partitions over all the flush threads. The events of the
+ * same partition in a batch are merged into one event, so a merged event saves the opening,
+ * appending and closing of the data file and the index file of its partition for each event merged
+ * into it. The data and index files stay the same as if the events were written one by one, since
+ * the blocks are appended in the order of the events.
+ *
+ * <p>The merged event releases the memory of all the merged events when it's cleaned up, and it's
+ * retried or dropped as a whole.
+ */
+public class FlushEventCoalescer {
+
+  private final long maxSize;
+
+  public FlushEventCoalescer(ShuffleServerConf conf) {
+    this(conf.getSizeAsBytes(ShuffleServerConf.SERVER_FLUSH_LOCALFILE_COALESCE_MAX_SIZE));
+  }
+
+  public FlushEventCoalescer(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * @param events the events with their selected storage, in the order they are taken from the
+   *     flush queue
+   * @return the batches to dispatch, in the order of their first events
+   */
+  public List<Batch> coalesce(List<Pair<ShuffleDataFlushEvent, Storage>> events) {
+    // the batch still open for more events, by storage
+    Map<Storage, Batch> openBatches = new HashMap<>();
+    List<Batch> batches = new ArrayList<>(events.size());
+    for (Pair<ShuffleDataFlushEvent, Storage> pair : events) {
+      ShuffleDataFlushEvent event = pair.getLeft();
+      Storage storage = pair.getRight();
+      if (!canCoalesce(event, storage)) {
+        Batch batch = new Batch(storage);
+        batch.add(event);
+        batches.add(batch);
+        continue;
+      }
+      Batch batch = openBatches.get(storage);
+      if (batch == null || batch.size + event.getEncodedLength() > maxSize) {
+        // the events after a full batch start a new one
+        batch = new Batch(storage);
+        openBatches.put(storage, batch);
+        batches.add(batch);
+      }
+      batch.add(event);
+    }
+    long batchedEventNum = 0;
+    for (Batch batch : batches) {
+      batch.mergeGroups();
+      batchedEventNum += batch.events.size() - 1;
+    }
+    ShuffleServerMetrics.counterLocalFileEventBatched.inc(batchedEventNum);
+    return batches;
+  }
+
+  private boolean canCoalesce(ShuffleDataFlushEvent event, Storage storage) {
+    // the pended events are retried by the fallback thread pool, leave them as they are
+    return storage instanceof LocalStorage
+        && !event.isPended()
+        && event.getEncodedLength() < maxSize;
+  }
+
+  private static ShuffleDataFlushEvent merge(List<ShuffleDataFlushEvent> events) {
+    ShuffleDataFlushEvent first = events.get(0);
+    if (events.size() == 1) {
+      return first;
+    }
+    long encodedLength = 0;
+    long dataLength = 0;
+    List<ShufflePartitionedBlock> blocks = new ArrayList<>();
+    for (ShuffleDataFlushEvent event : events) {
+      encodedLength += event.getEncodedLength();
+      dataLength += event.getDataLength();
+      blocks.addAll(event.getShuffleBlocks());
+    }
+    ShuffleDataFlushEvent merged =
+        new ShuffleDataFlushEvent(
+            first.getEventId(),
+            first.getAppId(),
+            first.getShuffleId(),
+            first.getStartPartition(),
+            first.getEndPartition(),
+            encodedLength,
+            dataLength,
+            blocks,
+            () -> events.stream().allMatch(ShuffleDataFlushEvent::isValid),
+            first.getShuffleBuffer());
+    merged.setUnderStorage(first.getUnderStorage());
+    if (events.stream().anyMatch(ShuffleDataFlushEvent::isOwnedByHugePartition)) {
+      merged.markOwnedByHugePartition();
+    }
+    for (ShuffleDataFlushEvent event : events) {
+      merged.addCleanupCallback(event::doCleanup);
+    }
+    ShuffleServerMetrics.counterLocalFileEventCoalesced.inc(events.size() - 1);
+    return merged;
+  }
+
+  /** The events bound for the same storage, which are written one after another. */
+  public static final class Batch {
+    private final Storage storage;
+    // the events by partition, in the order of their first events
+    private final Map<GroupKey, List<ShuffleDataFlushEvent>> groups = new LinkedHashMap<>();
+    private List<ShuffleDataFlushEvent> events;
+    private long size;
+
+    private Batch(Storage storage) {
+      this.storage = storage;
+    }
+
+    private void add(ShuffleDataFlushEvent event) {
+      groups.computeIfAbsent(new GroupKey(event), k -> new ArrayList<>()).add(event);
+      size += event.getEncodedLength();
+    }
+
+    private void mergeGroups() {
+      events = new ArrayList<>(groups.size());
+      for (List<ShuffleDataFlushEvent> group : groups.values()) {
+        events.add(merge(group));
+      }
+    }
+
+    public Storage getStorage() {
+      return storage;
+    }
+
+    /** @return the events of different partitions, the events of a partition are merged */
+    public List<ShuffleDataFlushEvent> getEvents() {
+      return events;
+    }
+  }
+
+  private static final class GroupKey {
+    private final String appId;
+    private final int shuffleId;
+    private final int startPartition;
+    private final int endPartition;
+
+    private GroupKey(ShuffleDataFlushEvent event) {
+      this.appId = event.getAppId();
+      this.shuffleId = event.getShuffleId();
+      this.startPartition = event.getStartPartition();
+      this.endPartition = event.getEndPartition();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof GroupKey)) {
+        return false;
+      }
+      GroupKey that = (GroupKey) o;
+      return shuffleId == that.shuffleId
+          && startPartition == that.startPartition
+          && endPartition == that.endPartition
+          && appId.equals(that.appId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(appId, shuffleId, startPartition, endPartition);
+    }
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.flush;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.util.JavaUtils;
+import org.apache.uniffle.server.ShuffleDataFlushEvent;
+import org.apache.uniffle.server.ShuffleServerConf;
+import org.apache.uniffle.server.ShuffleServerMetrics;
+import org.apache.uniffle.storage.common.LocalStorage;
+
+/**
+ * Controls how many bytes are being flushed to each local storage at the same time, so a slow disk
+ * doesn't occupy all the flush threads while faster disks are idle.
+ *
+ * <p>The write bandwidth of each disk is measured from the finished flush events. The events in
+ * flight to a disk are limited to the bytes it can write within the target latency, and the others
+ * wait in a per disk queue. Waiting events are dispatched largest first to release more memory per
+ * write, unless the oldest one has waited for more than {@link #MAX_WAIT_LATENCY_FACTOR} times the
+ * target latency.
+ */
+public class LocalStorageFlushController {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalStorageFlushController.class);
+  private static final double BANDWIDTH_SMOOTHING_FACTOR = 0.2;
+  private static final int MAX_WAIT_LATENCY_FACTOR = 10;
+
+  private final long targetLatencyMs;
+  private final long minInFlightSize;
+  private final Map<LocalStorage, DiskState> diskStates = JavaUtils.newConcurrentMap();
+  private final AtomicLong sequence = new AtomicLong(0);
+
+  public LocalStorageFlushController(ShuffleServerConf conf) {
+    this(
+        conf.get(ShuffleServerConf.SERVER_FLUSH_LOCALFILE_ADAPTIVE_TARGET_LATENCY_MS),
+        conf.getSizeAsBytes(ShuffleServerConf.SERVER_FLUSH_LOCALFILE_ADAPTIVE_MIN_IN_FLIGHT_SIZE));
+  }
+
+  @VisibleForTesting
+  LocalStorageFlushController(long targetLatencyMs, long minInFlightSize) {
+    this.targetLatencyMs = targetLatencyMs;
+    this.minInFlightSize = minInFlightSize;
+  }
+
+  /**
+   * Passes the event to the dispatcher, immediately if the storage has room for it, or later when
+   * enough events in flight to the storage are completed.
+   */
+  public void submit(
+      LocalStorage storage,
+      ShuffleDataFlushEvent event,
+      Consumer<ShuffleDataFlushEvent> dispatcher) {
+    DiskState state = diskStates.computeIfAbsent(storage, key -> new DiskState(key.getBasePath()));
+    boolean dispatchNow;
+    synchronized (state) {
+      dispatchNow = state.pending.isEmpty() && state.canDispatch(event.getEncodedLength());
+      if (dispatchNow) {
+        state.startFlush(event.getEncodedLength());
+      } else {
+        PendingEvent pendingEvent =
+            new PendingEvent(event, dispatcher, sequence.incrementAndGet(), now());
+        state.pending.add(pendingEvent);
+        state.pendingByAge.add(pendingEvent);
+      }
+      state.updateMetrics();
+    }
+    if (dispatchNow) {
+      dispatcher.accept(event);
+    }
+  }
+
+  /**
+   * Called when a submitted event is finished, no matter whether it's written successfully.
+   *
+   * @param writeCostMs how long the data took to be written, only used if succeeded
+   */
+  public void complete(
+      LocalStorage storage, ShuffleDataFlushEvent event, long writeCostMs, boolean succeeded) {
+    DiskState state = diskStates.get(storage);
+    if (state == null) {
+      return;
+    }
+    List<PendingEvent> toDispatch = new ArrayList<>();
+    synchronized (state) {
+      if (succeeded) {
+        state.updateBandwidth(event.getEncodedLength(), writeCostMs);
+      }
+      state.finishFlush(event.getEncodedLength());
+      PendingEvent next;
+      while ((next = state.peekNext(now())) != null
+          && state.canDispatch(next.event.getEncodedLength())) {
+        state.pending.remove(next);
+        state.pendingByAge.remove(next);
+        state.startFlush(next.event.getEncodedLength());
+        toDispatch.add(next);
+      }
+      state.updateMetrics();
+    }
+    for (PendingEvent pendingEvent : toDispatch) {
+      try {
+        pendingEvent.dispatcher.accept(pendingEvent.event);
+      } catch (Exception e) {
+        LOG.error("Failed to dispatch the flush event: {}", pendingEvent.event, e);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  long now() {
+    return System.currentTimeMillis();
+  }
+
+  @VisibleForTesting
+  DiskState getDiskState(LocalStorage storage) {
+    return diskStates.get(storage);
+  }
+
+  private static final class PendingEvent {
+    private final ShuffleDataFlushEvent event;
+    private final Consumer<ShuffleDataFlushEvent> dispatcher;
+    private final long sequence;
+    private final long submitTime;
+
+    private PendingEvent(
+        ShuffleDataFlushEvent event,
+        Consumer<ShuffleDataFlushEvent> dispatcher,
+        long sequence,
+        long submitTime) {
+      this.event = event;
+      this.dispatcher = dispatcher;
+      this.sequence = sequence;
+      this.submitTime = submitTime;
+    }
+  }
+
+  @VisibleForTesting
+  final class DiskState {
+    private final String basePath;
+    // largest first, then first submitted first
+    private final TreeSet<PendingEvent> pending =
+        new TreeSet<>(
+            Comparator.<PendingEvent>comparingLong(e -> -e.event.getEncodedLength())
+                .thenComparingLong(e -> e.sequence));
+    private final TreeSet<PendingEvent> pendingByAge =
+        new TreeSet<>(Comparator.comparingLong(e -> e.sequence));
+    private long inFlightSize;
+    private int inFlightEventNum;
+    // bytes per second, 0 until the first flush event finishes
+    private double bandwidth;
+
+    private DiskState(String basePath) {
+      this.basePath = basePath;
+    }
+
+    private boolean canDispatch(long size) {
+      // always allow one event, otherwise an event larger than the limit would never be flushed
+      return inFlightEventNum == 0 || inFlightSize + size <= getInFlightSizeLimit();
+    }
+
+    private PendingEvent peekNext(long now) {
+      if (pending.isEmpty()) {
+        return null;
+      }
+      PendingEvent oldest = pendingByAge.first();
+      if (now - oldest.submitTime > MAX_WAIT_LATENCY_FACTOR * targetLatencyMs) {
+        return oldest;
+      }
+      return pending.first();
+    }
+
+    private void startFlush(long size) {
+      inFlightSize += size;
+      inFlightEventNum++;
+    }
+
+    private void finishFlush(long size) {
+      inFlightSize -= size;
+      inFlightEventNum--;
+    }
+
+    private void updateBandwidth(long size, long writeCostMs) {
+      // the events in flight share the bandwidth of the disk
+      double sample = size * 1000.0 / Math.max(writeCostMs, 1) * inFlightEventNum;
+      bandwidth =
+          bandwidth == 0
+              ? sample
+              : bandwidth * (1 - BANDWIDTH_SMOOTHING_FACTOR) + sample * BANDWIDTH_SMOOTHING_FACTOR;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("The flush bandwidth of {} is {} bytes/s", basePath, (long) bandwidth);
+      }
+    }
+
+    @VisibleForTesting
+    long getInFlightSizeLimit() {
+      if (bandwidth == 0) {
+        return Long.MAX_VALUE;
+      }
+      return Math.max(minInFlightSize, (long) (bandwidth * targetLatencyMs / 1000));
+    }
+
+    @VisibleForTesting
+    long getInFlightSize() {
+      return inFlightSize;
+    }
+
+    @VisibleForTesting
+    int getPendingEventNum() {
+      return pending.size();
+    }
+
+    @VisibleForTesting
+    double getBandwidth() {
+      return bandwidth;
+    }
+
+    private void updateMetrics() {
+      ShuffleServerMetrics.gaugeLocalStorageFlushBandwidth.labels(basePath).set(bandwidth);
+      ShuffleServerMetrics.gaugeLocalStorageFlushInFlightSize.labels(basePath).set(inFlightSize);
+      ShuffleServerMetrics.gaugeLocalStorageFlushInFlightSizeLimit
+          .labels(basePath)
+          .set(bandwidth == 0 ? -1 : getInFlightSizeLimit());
+      ShuffleServerMetrics.gaugeLocalStorageFlushPendingEventNum
+          .labels(basePath)
+          .set(pending.size());
+    }
+  }
+}
@@ -0,0 +1,629 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.PartitionRange;
+import org.apache.uniffle.common.RemoteStorageInfo;
+import org.apache.uniffle.common.ShuffleDataDistributionType;
+import org.apache.uniffle.common.util.ThreadUtils;
+import org.apache.uniffle.server.ShuffleServerConf;
+
+/**
+ * An append-only journal of the metadata a restarted shuffle server needs to keep serving the data
+ * flushed to the local storages: the registered shuffles, the block ids reported by the clients and
+ * the local storage of each partition. Every record is written with its length and CRC32, so a
+ * record torn by a crash is detected and dropped when the journal is replayed.
+ *
+ * <p>The journal is compacted periodically after apps or shuffles are removed: the journal file is
+ * rotated, then the rotated file and the previous snapshot are rewritten into a new snapshot
+ * without the records of the removed apps and shuffles. The records are written to the page cache
+ * without syncing, so they survive a crash of the server process but not of the machine.
+ *
+ * <p>The requests only serialize and enqueue their records. A writer thread writes the records
+ * queued meanwhile together and flushes them once, so the requests don't wait for the journal.
+ */
+public class MetadataJournal implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetadataJournal.class);
+
+  static final String JOURNAL_FILE = "metadata.journal";
+  static final String ROTATED_JOURNAL_FILE = "metadata.journal.rotated";
+  static final String SNAPSHOT_FILE = "metadata.snapshot";
+
+  private static final byte REGISTER_SHUFFLE = 1;
+  private static final byte FINISHED_BLOCK_IDS = 2;
+  private static final byte PARTITION_STORAGE = 3;
+  private static final byte REMOVE_APP = 4;
+  private static final byte REMOVE_SHUFFLES = 5;
+
+  // the length and the checksum of a record
+  private static final int RECORD_HEADER_SIZE = 8;
+  // queued by close, the writer thread stops after the records before it
+  private static final byte[] END_OF_RECORDS = new byte[0];
+
+  /** Receives the live records of the journal when it's replayed. */
+  public interface Listener {
+
+    void onRegisterShuffle(
+        String appId,
+        int shuffleId,
+        List<PartitionRange> partitionRanges,
+        RemoteStorageInfo remoteStorageInfo,
+        String user,
+        ShuffleDataDistributionType dataDistType,
+        int maxConcurrencyPerPartitionToWrite,
+        Map<String, String> properties);
+
+    void onFinishedBlockIds(
+        String appId, int shuffleId, Map<Integer, long[]> partitionToBlockIds, int bitmapNum);
+
+    void onPartitionStorage(String appId, int shuffleId, int partitionId, String basePath);
+  }
+
+  private final File journalFile;
+  private final File rotatedJournalFile;
+  private final File snapshotFile;
+  private final long compactInterval;
+  private ScheduledExecutorService compactExecutor;
+  private ExecutorService writeExecutor;
+  // the payloads of the records appended and not written yet
+  private final BlockingQueue<byte[]> pendingRecords = new LinkedBlockingQueue<>();
+  private final AtomicLong appendedNum = new AtomicLong();
+  // the records appended before the journal is started or after it's closed are dropped
+  private volatile boolean started;
+  // null until the journal is replayed and started
+  private DataOutputStream output;
+  private boolean removedSinceCompaction;
+  private long writtenNum;
+
+  public MetadataJournal(ShuffleServerConf conf) {
+    this(
+        conf.get(ShuffleServerConf.SERVER_METADATA_JOURNAL_PATH),
+        conf.get(ShuffleServerConf.SERVER_METADATA_JOURNAL_COMPACT_INTERVAL));
+  }
+
+  public MetadataJournal(String path, long compactInterval) {
+    if (StringUtils.isEmpty(path)) {
+      throw new IllegalArgumentException(
+          ShuffleServerConf.SERVER_METADATA_JOURNAL_PATH.key()
+              + " must be set when the metadata journal is enabled");
+    }
+    File dir = new File(path);
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IllegalArgumentException("Failed to create the metadata journal dir " + path);
+    }
+    this.journalFile = new File(dir, JOURNAL_FILE);
+    this.rotatedJournalFile = new File(dir, ROTATED_JOURNAL_FILE);
+    this.snapshotFile = new File(dir, SNAPSHOT_FILE);
+    this.compactInterval = compactInterval;
+  }
+
+  /**
+   * Replays the live records, the records of the removed apps and shuffles are skipped. A torn
+   * record at the end of the journal is truncated, so the new records are appended after the last
+   * complete one.
+   *
+   * @return the number of the replayed records
+   */
+  public synchronized int replay(Listener listener) throws IOException {
+    List<Record> records = new ArrayList<>();
+    readRecords(snapshotFile, records);
+    readRecords(rotatedJournalFile, records);
+    long validLength = readRecords(journalFile, records);
+    if (journalFile.exists() && validLength < journalFile.length()) {
+      LOG.warn(
+          "Truncate the torn records of {} from {} to {} bytes",
+          journalFile,
+          journalFile.length(),
+          validLength);
+      try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+        file.setLength(validLength);
+      }
+    }
+    List<Record> liveRecords = reduce(records);
+    for (Record record : liveRecords) {
+      try {
+        record.replay(listener);
+      } catch (Exception e) {
+        LOG.warn("Failed to replay a record of app {}, skip it", record.appId, e);
+      }
+    }
+    return liveRecords.size();
+  }
+
+  /** Opens the journal for the new records and starts to compact it periodically. */
+  public synchronized void start() throws IOException {
+    output = openJournal();
+    writeExecutor = ThreadUtils.getDaemonSingleThreadExecutor("metadataJournalWriter");
+    writeExecutor.execute(this::writeRecords);
+    started = true;
+    compactExecutor =
+        ThreadUtils.getDaemonSingleThreadScheduledExecutor("metadataJournalCompactor");
+    compactExecutor.scheduleWithFixedDelay(
+        this::compact, compactInterval, compactInterval, TimeUnit.MILLISECONDS);
+  }
+
+  public void appendRegisterShuffle(
+      String appId,
+      int shuffleId,
+      List<PartitionRange> partitionRanges,
+      RemoteStorageInfo remoteStorageInfo,
+      String user,
+      ShuffleDataDistributionType dataDistType,
+      int maxConcurrencyPerPartitionToWrite,
+      Map<String, String> properties) {
+    append(
+        REGISTER_SHUFFLE,
+        appId,
+        out -> {
+          out.writeInt(shuffleId);
+          out.writeInt(partitionRanges.size());
+          for (PartitionRange range : partitionRanges) {
+            out.writeInt(range.getStart());
+            out.writeInt(range.getEnd());
+          }
+          out.writeUTF(remoteStorageInfo.getPath());
+          writeMap(out, remoteStorageInfo.getConfItems());
+          out.writeUTF(StringUtils.defaultString(user));
+          out.writeUTF(dataDistType.name());
+          out.writeInt(maxConcurrencyPerPartitionToWrite);
+          writeMap(out, properties);
+        });
+  }
+
+  public void appendFinishedBlockIds(
+      String appId, int shuffleId, Map<Integer, long[]> partitionToBlockIds, int bitmapNum) {
+    append(
+        FINISHED_BLOCK_IDS,
+        appId,
+        out -> {
+          out.writeInt(shuffleId);
+          out.writeInt(bitmapNum);
+          out.writeInt(partitionToBlockIds.size());
+          for (Map.Entry<Integer, long[]> entry : partitionToBlockIds.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            for (long blockId : entry.getValue()) {
+              out.writeLong(blockId);
+            }
+          }
+        });
+  }
+
+  public void appendPartitionStorage(
+      String appId, int shuffleId, int partitionId, String basePath) {
+    append(
+        PARTITION_STORAGE,
+        appId,
+        out -> {
+          out.writeInt(shuffleId);
+          out.writeInt(partitionId);
+          out.writeUTF(basePath);
+        });
+  }
+
+  public void appendRemoveApp(String appId) {
+    append(REMOVE_APP, appId, out -> {});
+  }
+
+  public void appendRemoveShuffles(String appId, List<Integer> shuffleIds) {
+    append(
+        REMOVE_SHUFFLES,
+        appId,
+        out -> {
+          out.writeInt(shuffleIds.size());
+          for (int shuffleId : shuffleIds) {
+            out.writeInt(shuffleId);
+          }
+        });
+  }
+
+  /**
+   * Rotates the journal and rewrites the rotated journal and the snapshot into a new snapshot. The
+   * rotated journal is kept until the new snapshot replaces the old one, it's replayed again after
+   * a crash in between, which is harmless as replaying the same records twice has the same result.
+   */
+  @VisibleForTesting
+  void compact() {
+    synchronized (this) {
+      if (!removedSinceCompaction || output == null) {
+        return;
+      }
+      removedSinceCompaction = false;
+      // the rotated journal is left by a failed compaction, compact it before rotating again
+      if (!rotatedJournalFile.exists()) {
+        try {
+          output.close();
+          Files.move(journalFile.toPath(), rotatedJournalFile.toPath());
+          output = openJournal();
+        } catch (IOException e) {
+          LOG.error("Failed to rotate the metadata journal {}", journalFile, e);
+          output = reopenJournal();
+          return;
+        }
+      }
+    }
+    long start = System.currentTimeMillis();
+    File tmpFile = new File(snapshotFile.getPath() + ".tmp");
+    try {
+      List<Record> records = new ArrayList<>();
+      readRecords(snapshotFile, records);
+      readRecords(rotatedJournalFile, records);
+      List<Record> liveRecords = reduce(records);
+      try (FileOutputStream fileOutput = new FileOutputStream(tmpFile)) {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutput));
+        for (Record record : liveRecords) {
+          writeRecord(out, record.payload);
+        }
+        out.flush();
+        // the snapshot replaces the rotated journal, so it must be durable before removing it
+        fileOutput.getFD().sync();
+      }
+      Files.move(
+          tmpFile.toPath(),
+          snapshotFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      Files.delete(rotatedJournalFile.toPath());
+      LOG.info(
+          "Compacted {} records of the metadata journal into {} records in {} ms",
+          records.size(),
+          liveRecords.size(),
+          System.currentTimeMillis() - start);
+    } catch (Exception e) {
+      LOG.error("Failed to compact the metadata journal", e);
+      synchronized (this) {
+        removedSinceCompaction = true;
+      }
+    }
+  }
+
+  /** Writes the records appended before, then closes the journal. */
+  @Override
+  public void close() throws IOException {
+    ExecutorService writer;
+    synchronized (this) {
+      started = false;
+      writer = writeExecutor;
+      writeExecutor = null;
+      if (compactExecutor != null) {
+        compactExecutor.shutdownNow();
+      }
+    }
+    if (writer != null) {
+      pendingRecords.add(END_OF_RECORDS);
+      writer.shutdown();
+      try {
+        writer.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+    }
+    synchronized (this) {
+      if (output != null) {
+        output.close();
+        output = null;
+      }
+    }
+  }
+
+  /** Waits until the records appended before are written. */
+  @VisibleForTesting
+  void awaitWritten() throws InterruptedException {
+    long appended = appendedNum.get();
+    synchronized (this) {
+      while (writtenNum < appended && writeExecutor != null) {
+        wait(100);
+      }
+    }
+  }
+
+  private void append(byte type, String appId, RecordBody body) {
+    if (!started) {
+      return;
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream payload = new DataOutputStream(bytes);
+      payload.writeByte(type);
+      payload.writeUTF(appId);
+      body.write(payload);
+      payload.flush();
+      appendedNum.incrementAndGet();
+      pendingRecords.add(bytes.toByteArray());
+    } catch (IOException e) {
+      // the journal is only read after a restart, so the request isn't failed by it
+      LOG.error("Failed to append a record of app {} to the metadata journal", appId, e);
+    }
+  }
+
+  /** Runs in the writer thread, writes all the records queued meanwhile at a time. */
+  private void writeRecords() {
+    List<byte[]> batch = new ArrayList<>();
+    boolean end = false;
+    while (!end) {
+      try {
+        batch.add(pendingRecords.take());
+      } catch (InterruptedException e) {
+        return;
+      }
+      pendingRecords.drainTo(batch);
+      int endIndex = batch.indexOf(END_OF_RECORDS);
+      if (endIndex >= 0) {
+        batch = batch.subList(0, endIndex);
+        end = true;
+      }
+      writeBatch(batch);
+      batch = new ArrayList<>();
+    }
+  }
+
+  private synchronized void writeBatch(List<byte[]> batch) {
+    try {
+      if (output != null) {
+        for (byte[] payload : batch) {
+          writeRecord(output, payload);
+          if (payload[0] == REMOVE_APP || payload[0] == REMOVE_SHUFFLES) {
+            removedSinceCompaction = true;
+          }
+        }
+        // the records go to the page cache, they survive a crash of the process
+        output.flush();
+      }
+    } catch (IOException e) {
+      LOG.error("Failed to write {} records to the metadata journal", batch.size(), e);
+    }
+    writtenNum += batch.size();
+    notifyAll();
+  }
+
+  private DataOutputStream openJournal() throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+  }
+
+  private DataOutputStream reopenJournal() {
+    try {
+      return openJournal();
+    } catch (IOException e) {
+      LOG.error("Failed to reopen the metadata journal {}, stop appending to it", journalFile, e);
+      return null;
+    }
+  }
+
+  private static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+    CRC32 crc32 = new CRC32();
+    crc32.update(payload, 0, payload.length);
+    out.writeInt(payload.length);
+    out.writeInt((int) crc32.getValue());
+    out.write(payload);
+  }
+
+  /** @return the length of the complete records in the file */
+  private static long readRecords(File file, List<Record> records) throws IOException {
+    if (!file.exists()) {
+      return 0;
+    }
+    long fileLength = file.length();
+    long validLength = 0;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      while (validLength + RECORD_HEADER_SIZE <= fileLength) {
+        int length = in.readInt();
+        int checksum = in.readInt();
+        if (length <= 0 || validLength + RECORD_HEADER_SIZE + length > fileLength) {
+          break;
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, length);
+        if ((int) crc32.getValue() != checksum) {
+          break;
+        }
+        records.add(Record.parse(payload));
+        validLength += RECORD_HEADER_SIZE + length;
+      }
+    } catch (EOFException e) {
+      // the file is truncated by a crash
+    }
+    if (validLength < fileLength) {
+      LOG.warn("Found a torn record at {} of {}, ignore the rest", validLength, file);
+    }
+    return validLength;
+  }
+
+  /** @return the records which aren't removed by the following records, in the order appended */
+  private static List<Record> reduce(List<Record> records) {
+    Map<String, Map<Integer, List<Record>>> liveRecords = new LinkedHashMap<>();
+    for (Record record : records) {
+      if (record.type == REMOVE_APP) {
+        liveRecords.remove(record.appId);
+      } else if (record.type == REMOVE_SHUFFLES) {
+        Map<Integer, List<Record>> shuffles = liveRecords.get(record.appId);
+        if (shuffles != null) {
+          record.shuffleIds.forEach(shuffles::remove);
+        }
+      } else {
+        liveRecords
+            .computeIfAbsent(record.appId, k -> new LinkedHashMap<>())
+            .computeIfAbsent(record.shuffleIds.get(0), k -> new ArrayList<>())
+            .add(record);
+      }
+    }
+    List<Record> result = new ArrayList<>();
+    liveRecords.values().forEach(shuffles -> shuffles.values().forEach(result::addAll));
+    return result;
+  }
+
+  private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+    if (map == null) {
+      out.writeInt(0);
+      return;
+    }
+    out.writeInt(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeUTF(entry.getValue());
+    }
+  }
+
+  private static Map<String, String> readMap(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    Map<String, String> map = new HashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      map.put(in.readUTF(), in.readUTF());
+    }
+    return map;
+  }
+
+  private interface RecordBody {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  private static final class Record {
+    private final byte type;
+    private final String appId;
+    // the shuffle of the record, or the removed shuffles
+    private final List<Integer> shuffleIds;
+    private final byte[] payload;
+    // the position of the type specific fields in the payload
+    private final int bodyOffset;
+
+    private Record(
+        byte type, String appId, List<Integer> shuffleIds, byte[] payload, int bodyOffset) {
+      this.type = type;
+      this.appId = appId;
+      this.shuffleIds = shuffleIds;
+      this.payload = payload;
+      this.bodyOffset = bodyOffset;
+    }
+
+    private static Record parse(byte[] payload) throws IOException {
+      ByteArrayInputStream bytes = new ByteArrayInputStream(payload);
+      DataInputStream in = new DataInputStream(bytes);
+      byte type = in.readByte();
+      String appId = in.readUTF();
+      int bodyOffset = payload.length - bytes.available();
+      List<Integer> shuffleIds;
+      switch (type) {
+        case REGISTER_SHUFFLE:
+        case FINISHED_BLOCK_IDS:
+        case PARTITION_STORAGE:
+          shuffleIds = Collections.singletonList(in.readInt());
+          break;
+        case REMOVE_APP:
+          shuffleIds = Collections.emptyList();
+          break;
+        case REMOVE_SHUFFLES:
+          int size = in.readInt();
+          shuffleIds = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            shuffleIds.add(in.readInt());
+          }
+          break;
+        default:
+          throw new IOException("Unknown type " + type + " of the metadata journal record");
+      }
+      return new Record(type, appId, shuffleIds, payload, bodyOffset);
+    }
+
+    private void replay(Listener listener) throws IOException {
+      DataInputStream in =
+          new DataInputStream(
+              new ByteArrayInputStream(payload, bodyOffset, payload.length - bodyOffset));
+      int shuffleId = in.readInt();
+      switch (type) {
+        case REGISTER_SHUFFLE:
+          int rangeNum = in.readInt();
+          List<PartitionRange> partitionRanges = new ArrayList<>(rangeNum);
+          for (int i = 0; i < rangeNum; i++) {
+            partitionRanges.add(new PartitionRange(in.readInt(), in.readInt()));
+          }
+          RemoteStorageInfo remoteStorageInfo = new RemoteStorageInfo(in.readUTF(), readMap(in));
+          String user = StringUtils.defaultIfEmpty(in.readUTF(), null);
+          ShuffleDataDistributionType dataDistType =
+              ShuffleDataDistributionType.valueOf(in.readUTF());
+          int maxConcurrencyPerPartitionToWrite = in.readInt();
+          listener.onRegisterShuffle(
+              appId,
+              shuffleId,
+              partitionRanges,
+              remoteStorageInfo,
+              user,
+              dataDistType,
+              maxConcurrencyPerPartitionToWrite,
+              readMap(in));
+          break;
+        case FINISHED_BLOCK_IDS:
+          int bitmapNum = in.readInt();
+          int partitionNum = in.readInt();
+          Map<Integer, long[]> partitionToBlockIds = new HashMap<>(partitionNum);
+          for (int i = 0; i < partitionNum; i++) {
+            int partitionId = in.readInt();
+            long[] blockIds = new long[in.readInt()];
+            for (int j = 0; j < blockIds.length; j++) {
+              blockIds[j] = in.readLong();
+            }
+            partitionToBlockIds.put(partitionId, blockIds);
+          }
+          listener.onFinishedBlockIds(appId, shuffleId, partitionToBlockIds, bitmapNum);
+          break;
+        case PARTITION_STORAGE:
+          listener.onPartitionStorage(appId, shuffleId, in.readInt(), in.readUTF());
+          break;
+        default:
+          throw new IOException("Type " + type + " of the metadata journal record isn't replayed");
+      }
+    }
+  }
+}
@@ -22,9 +22,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
 import io.netty.buffer.ByteBuf;
@@ -52,6 +52,13 @@ import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
  * reads data in the order of increasing offset, which reduces random reads compared to opening a
  * file per block. BlockInputStream reads the buffer corresponding to the block. We use RingBuffer
  * to balance the buffer generated by FlushFileReader and the buffer consumed by BlockInputStream.
+ *
+ * <p>FlushFileReader and the merge thread run at the same time. Each RingBuffer has a single
+ * producer, FlushFileReader, and a single consumer, the merge thread, so the buffers are handed
+ * over by the read and write indexes without locking. The lock is only used to wait, the merge
+ * thread waits when the RingBuffer it reads is empty, and FlushFileReader waits when all the
+ * RingBuffers are full. So the file is read ahead by at most the size of the RingBuffers while
+ * merging.
  */
 public class BlockFlushFileReader {
 
@@ -62,7 +69,7 @@ public class BlockFlushFileReader {
   private String dataFile;
   private FileInputStream dataInput;
   private FileChannel dataFileChannel;
-  boolean stop = false;
+  volatile boolean stop = false;
 
   // blockid -> BlockInputStream
   private final Map<Long, BlockInputStream> inputStreamMap = JavaUtils.newConcurrentMap();
@@ -71,11 +78,12 @@ public class BlockFlushFileReader {
   private FlushFileReader flushFileReader;
   private volatile Throwable readThrowable = null;
   // Even though there are many BlockInputStream, these BlockInputStream must
-  // be executed in the same thread, we called the Merge Thread. When the buffer
-  // of BlockInputStream have been read out, we can notify flushFileReader by
-  // unlock. Then flushFileReader will load the buffer, and Merge will read the
-  // buffer of BlockInputStream until flushFileReader load done and unlock.
-  private final ReentrantLock lock = new ReentrantLock(true);
+  // be executed in the same thread, we called the Merge Thread.
+  private final ReentrantLock lock = new ReentrantLock();
+  // signaled when FlushFileReader loads a buffer, the merge thread waits on it
+  private final Condition bufferLoaded = lock.newCondition();
+  // signaled when a full RingBuffer is read, FlushFileReader waits on it
+  private final Condition bufferFreed = lock.newCondition();
 
   private final int ringBufferSize;
   private final int mask;
@@ -88,14 +96,17 @@ public class BlockFlushFileReader {
     this.mask = ringBufferSize - 1;
     this.dataFile = dataFile;
     loadShuffleIndex(indexFile);
-    // Avoid flushFileReader noop loop
-    this.lock.lock();
   }
 
   void start() throws IOException {
+    if (flushFileReader != null) {
+      return;
+    }
     this.dataInput = new FileInputStream(dataFile);
     this.dataFileChannel = dataInput.getChannel();
     this.flushFileReader = new FlushFileReader();
+    this.flushFileReader.setName("FlushFileReader-" + new File(dataFile).getName());
+    this.flushFileReader.setDaemon(true);
     this.flushFileReader.start();
   }
 
@@ -121,15 +132,22 @@ public class BlockFlushFileReader {
 
   public void close() throws IOException {
     stop = true;
+    if (flushFileReader != null) {
+      // the buffers can't be released until FlushFileReader stops writing them
+      flushFileReader.interrupt();
+      try {
+        flushFileReader.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+      flushFileReader = null;
+    }
     for (BlockInputStream is : inputStreamMap.values()) {
       is.close();
     }
     inputStreamMap.clear();
     indexSegments.clear();
-    if (flushFileReader != null) {
-      flushFileReader.interrupt();
-      flushFileReader = null;
-    }
     if (dataInput != null) {
       this.dataInput.close();
       this.dataInput = null;
@@ -152,50 +170,79 @@ public class BlockFlushFileReader {
   class FlushFileReader extends Thread {
     @Override
     public void run() {
-      while (!stop) {
-        int available = 0;
-        int process = 0;
-        try {
-          lock.lockInterruptibly();
-          try {
-            Iterator<Map.Entry<Long, FileBasedShuffleSegment>> iterator =
-                indexSegments.entrySet().iterator();
-            while (iterator.hasNext()) {
-              FileBasedShuffleSegment segment = iterator.next().getValue();
-              long blockId = segment.getBlockId();
-              BlockInputStream inputStream = inputStreamMap.get(blockId);
-              if (inputStream == null || inputStream.eof) {
-                continue;
-              }
-              available++;
-              if (inputStream.isBufferFull()) {
-                continue;
-              }
-              process++;
-              long off = segment.getOffset() + inputStream.getOffsetInThisBlock();
-              if (dataFileChannel.position() != off) {
-                dataFileChannel.position(off);
-              }
-              inputStream.writeBuffer();
+      try {
+        while (!stop) {
+          int available = 0;
+          int process = 0;
+          for (FileBasedShuffleSegment segment : indexSegments.values()) {
+            BlockInputStream inputStream = inputStreamMap.get(segment.getBlockId());
+            if (inputStream == null || !inputStream.needLoad()) {
+              continue;
+            }
+            available++;
+            if (inputStream.isBufferFull()) {
+              continue;
             }
-          } catch (Throwable throwable) {
-            readThrowable = throwable;
-            LOG.info("FlushFileReader read failed, caused by ", throwable);
-            stop = true;
-          } finally {
-            lock.unlock();
-            if (LOG.isDebugEnabled()) {
-              LOG.debug(
-                  "statistics: load buffer available is {}, process is {}", available, process);
+            process++;
+            long off = segment.getOffset() + inputStream.getOffsetInThisBlock();
+            if (dataFileChannel.position() != off) {
+              dataFileChannel.position(off);
             }
+            inputStream.writeBuffer();
+            signal(bufferLoaded);
           }
-        } catch (InterruptedException e) {
           if (LOG.isDebugEnabled()) {
-            LOG.debug("FlushFileReader for {} have been interrupted.", dataFile);
+            LOG.debug(
+                "statistics: load buffer available is {}, process is {}", available, process);
           }
+          if (process == 0) {
+            waitForFreeBuffer();
+          }
+        }
+      } catch (InterruptedException e) {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("FlushFileReader for {} have been interrupted.", dataFile);
+        }
+      } catch (Throwable throwable) {
+        if (!stop) {
+          readThrowable = throwable;
+          LOG.info("FlushFileReader read failed, caused by ", throwable);
+        }
+      } finally {
+        stop = true;
+        // wake up the merge thread, it will find the reader stopped
+        signal(bufferLoaded);
+      }
+    }
+
+    private void waitForFreeBuffer() throws InterruptedException {
+      lock.lockInterruptibly();
+      try {
+        while (!stop && !hasBufferToLoad()) {
+          bufferFreed.await();
         }
+      } finally {
+        lock.unlock();
       }
     }
+
+    private boolean hasBufferToLoad() {
+      for (BlockInputStream inputStream : inputStreamMap.values()) {
+        if (inputStream.needLoad() && !inputStream.isBufferFull()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private void signal(Condition condition) {
+    lock.lock();
+    try {
+      condition.signalAll();
+    } finally {
+      lock.unlock();
+    }
   }
 
   class Buffer {
@@ -247,8 +294,10 @@ public class BlockFlushFileReader {
     // The max of int is 2147483647, the maximum bocksize supported by RingBuffer is 7.999 TB,
     // the block can't be that big. so readIndex and writeIndex cannot overflow, there's no
     // modulo operator for readIndex and writeIndex.
-    int readIndex = 0;
-    int writeIndex = 0;
+    // readIndex is only updated by the merge thread, writeIndex is only updated by
+    // FlushFileReader, a buffer is handed over when the index moves over it.
+    volatile int readIndex = 0;
+    volatile int writeIndex = 0;
 
     RingBuffer() {
       try {
@@ -279,7 +328,7 @@ public class BlockFlushFileReader {
     int write(int available) throws IOException {
       int left = available;
       while (!full() && left > 0) {
-        int size = Math.min(available, BUFFER_SIZE);
+        int size = Math.min(left, BUFFER_SIZE);
         this.buffers[writeIndex & mask].writeBuffer(size);
         left -= size;
         writeIndex++;
@@ -290,7 +339,7 @@ public class BlockFlushFileReader {
     int read() {
       int ret = this.buffers[readIndex & mask].get();
       if (!this.buffers[readIndex & mask].readable()) {
-        readIndex++;
+        incReadIndex();
       }
       return ret;
     }
@@ -302,7 +351,7 @@ public class BlockFlushFileReader {
         Buffer buffer = this.buffers[readIndex & mask];
         int r = buffer.get(bs, off, len);
         if (!this.buffers[readIndex & mask].readable()) {
-          readIndex++;
+          incReadIndex();
         }
         off += r;
         len -= r;
@@ -319,7 +368,12 @@ public class BlockFlushFileReader {
     }
 
     void incReadIndex() {
+      boolean wasFull = full();
       readIndex++;
+      if (wasFull) {
+        // FlushFileReader may be waiting since all the buffers are full
+        signal(bufferFreed);
+      }
     }
 
     void release() {
@@ -331,7 +385,7 @@ public class BlockFlushFileReader {
 
   public class BlockInputStream extends SerInputStream {
 
-    private RingBuffer ringBuffer;
+    private volatile RingBuffer ringBuffer;
     private boolean eof = false;
     private final int length;
     private int pos = 0;
@@ -380,15 +434,13 @@ public class BlockFlushFileReader {
         throw new IndexOutOfBoundsException();
       }
 
-      while (ringBuffer.empty() && !stop) {
-        if (lock.isHeldByCurrentThread()) {
-          lock.unlock();
-        }
-        try {
-          lock.lockInterruptibly();
-        } catch (InterruptedException e) {
-          throw new RssException(e);
-        }
+      try {
+        waitForLoadedBuffer();
+      } catch (InterruptedException e) {
+        throw new RssException(e);
+      }
+      if (ringBuffer.empty()) {
+        throw new RssException("Block flush file reader is closed, caused by " + readThrowable);
       }
 
       int c = 0;
@@ -398,13 +450,13 @@ public class BlockFlushFileReader {
           break;
         }
         ByteBuf byteBuf = buffer.getByteBuf();
-        int toRead = len;
-        if (len >= byteBuf.readableBytes()) {
+        int toRead = Math.min(len, byteBuf.readableBytes());
+        out.writeBytes(byteBuf, toRead);
+        // FlushFileReader may reload the buffer as soon as the read index moves over it
+        if (!buffer.readable()) {
           this.ringBuffer.incReadIndex();
-          toRead = byteBuf.readableBytes();
         }
         len -= toRead;
-        out.writeBytes(byteBuf, toRead);
         pos += toRead;
         c += toRead;
       }
@@ -414,12 +466,34 @@ public class BlockFlushFileReader {
       return c;
     }
 
+    private void waitForLoadedBuffer() throws InterruptedException {
+      if (!ringBuffer.empty()) {
+        return;
+      }
+      lock.lockInterruptibly();
+      try {
+        // FlushFileReader may be waiting if this stream was initialized after it checked
+        bufferFreed.signalAll();
+        while (ringBuffer.empty() && !stop) {
+          bufferLoaded.await();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
     public long getOffsetInThisBlock() {
       return this.offsetInThisBlock;
     }
 
+    // only called by FlushFileReader
+    private boolean needLoad() {
+      return ringBuffer != null && offsetInThisBlock < length;
+    }
+
+    // synchronized with writeBuffer, FlushFileReader may still be loading a segment closed early
     @Override
-    public void close() {
+    public synchronized void close() {
       if (ringBuffer != null) {
         ringBuffer.release();
         ringBuffer = null;
@@ -427,10 +501,14 @@ public class BlockFlushFileReader {
     }
 
     public boolean isBufferFull() {
-      return ringBuffer.full();
+      RingBuffer buffer = ringBuffer;
+      return buffer == null || buffer.full();
     }
 
-    public void writeBuffer() throws IOException {
+    public synchronized void writeBuffer() throws IOException {
+      if (ringBuffer == null) {
+        return;
+      }
       int size = this.ringBuffer.write(length - offsetInThisBlock);
       this.offsetInThisBlock += size;
     }
@@ -450,15 +528,13 @@ public class BlockFlushFileReader {
       if (eof) {
         return -1;
       }
-      while (ringBuffer.empty() && !stop) {
-        if (lock.isHeldByCurrentThread()) {
-          lock.unlock();
-        }
-        try {
-          lock.lockInterruptibly();
-        } catch (InterruptedException e) {
-          throw new IOException(e);
-        }
+      try {
+        waitForLoadedBuffer();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      if (ringBuffer.empty()) {
+        throw new IOException("Block flush file reader is closed, caused by " + readThrowable);
       }
       int c = this.ringBuffer.read(bs, off, len);
       pos += c;
@@ -476,15 +552,13 @@ public class BlockFlushFileReader {
       if (eof) {
         return -1;
       }
-      while (ringBuffer.empty() && !stop) {
-        if (lock.isHeldByCurrentThread()) {
-          lock.unlock();
-        }
-        try {
-          lock.lockInterruptibly();
-        } catch (InterruptedException e) {
-          throw new IOException(e);
-        }
+      try {
+        waitForLoadedBuffer();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      if (ringBuffer.empty()) {
+        throw new IOException("Block flush file reader is closed, caused by " + readThrowable);
       }
       int c = this.ringBuffer.read();
       pos++;
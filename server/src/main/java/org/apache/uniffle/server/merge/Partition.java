@@ -53,6 +53,7 @@ import org.apache.uniffle.common.serializer.SerInputStream;
 import org.apache.uniffle.common.serializer.SerOutputStream;
 import org.apache.uniffle.common.util.ByteBufUtils;
 import org.apache.uniffle.server.ShuffleDataReadEvent;
+import org.apache.uniffle.server.ShuffleServerMetrics;
 import org.apache.uniffle.server.buffer.ShuffleBuffer;
 import org.apache.uniffle.server.buffer.ShuffleBufferWithSkipList;
 import org.apache.uniffle.storage.common.Storage;
@@ -235,14 +236,17 @@ public class Partition<K, V> {
       if (reader != null) {
         reader.start();
       }
-      Merger.merge(
-          shuffle.serverConf,
-          output,
-          segments,
-          shuffle.kClass,
-          shuffle.vClass,
-          shuffle.comparator,
-          (shuffle.comparator instanceof RawComparator));
+      long startTime = System.currentTimeMillis();
+      long recordNum =
+          Merger.merge(
+              shuffle.serverConf,
+              output,
+              segments,
+              shuffle.kClass,
+              shuffle.vClass,
+              shuffle.comparator,
+              (shuffle.comparator instanceof RawComparator));
+      updateMergeMetrics(segments, recordNum, System.currentTimeMillis() - startTime);
       setState(DONE);
     } catch (Exception e) {
       LOG.info("Found exception when merge for {}, caused by", this, e);
@@ -271,6 +275,24 @@ public class Partition<K, V> {
     }
   }
 
+  private void updateMergeMetrics(List<Segment> segments, long recordNum, long mergeTime) {
+    long dataSize = segments.stream().mapToLong(Segment::getSize).sum();
+    ShuffleServerMetrics.counterTotalMergeDataSize.inc(dataSize);
+    ShuffleServerMetrics.counterTotalMergeRecordNum.inc(recordNum);
+    ShuffleServerMetrics.counterTotalMergeTime.inc(mergeTime);
+    ShuffleServerMetrics.histogramMergeThroughput.observe(
+        dataSize / 1024.0 / 1024.0 / Math.max(mergeTime, 1) * 1000);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Merged {} records of {} bytes in {} segments for {} in {} ms",
+          recordNum,
+          dataSize,
+          segments.size(),
+          this,
+          mergeTime);
+    }
+  }
+
   public void setState(MergeState state) {
     if (LOG.isDebugEnabled()) {
       LOG.debug("Partition is {}, transient from {} to {}.", this, this.state.name(), state.name());
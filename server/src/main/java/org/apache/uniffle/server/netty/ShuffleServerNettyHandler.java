@@ -17,11 +17,13 @@
 
 package org.apache.uniffle.server.netty;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import io.netty.buffer.Unpooled;
@@ -30,6 +32,7 @@ import io.netty.channel.ChannelFutureListener;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,7 +48,9 @@ import org.apache.uniffle.common.exception.ExceedHugePartitionHardLimitException
 import org.apache.uniffle.common.exception.FileNotFoundException;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.common.merger.MergeState;
+import org.apache.uniffle.common.netty.buffer.FileSegmentManagedBuffer;
 import org.apache.uniffle.common.netty.buffer.ManagedBuffer;
+import org.apache.uniffle.common.netty.buffer.MultiFileSegmentManagedBuffer;
 import org.apache.uniffle.common.netty.buffer.NettyManagedBuffer;
 import org.apache.uniffle.common.netty.client.TransportClient;
 import org.apache.uniffle.common.netty.handle.BaseMessageHandler;
@@ -63,6 +68,7 @@ import org.apache.uniffle.common.netty.protocol.RequestMessage;
 import org.apache.uniffle.common.netty.protocol.RpcResponse;
 import org.apache.uniffle.common.netty.protocol.SendShuffleDataRequest;
 import org.apache.uniffle.common.netty.protocol.SendShuffleDataRequestV1;
+import org.apache.uniffle.common.netty.protocol.SendShuffleDataResponse;
 import org.apache.uniffle.common.rpc.StatusCode;
 import org.apache.uniffle.server.ShuffleDataReadEvent;
 import org.apache.uniffle.server.ShuffleServer;
@@ -88,9 +94,24 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
   private final ShuffleServer shuffleServer;
   private boolean isRpcAuditLogEnabled;
   private List<String> rpcAuditExcludeOpList;
+  private final boolean sendCreditEnabled;
+  private final long preAllocationExpired;
+  private final boolean localDataZeroCopyEnabled;
 
   public ShuffleServerNettyHandler(ShuffleServer shuffleServer) {
     this.shuffleServer = shuffleServer;
+    this.sendCreditEnabled =
+        shuffleServer
+            .getShuffleServerConf()
+            .getBoolean(ShuffleServerConf.NETTY_SERVER_SEND_CREDIT_ENABLED);
+    this.preAllocationExpired =
+        shuffleServer
+            .getShuffleServerConf()
+            .getLong(ShuffleServerConf.SERVER_PRE_ALLOCATION_EXPIRED);
+    this.localDataZeroCopyEnabled =
+        shuffleServer
+            .getShuffleServerConf()
+            .getBoolean(ShuffleServerConf.NETTY_SERVER_LOCAL_DATA_ZERO_COPY_ENABLED);
     isRpcAuditLogEnabled =
         shuffleServer
             .getShuffleServerConf()
@@ -356,7 +377,10 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
         if (requireBlocksSize > alreadyReleasedSize) {
           shuffleTaskManager.releasePreAllocatedSize(requireBlocksSize - alreadyReleasedSize);
         }
-        rpcResponse = new RpcResponse(req.getRequestId(), ret, responseMessage);
+        rpcResponse =
+            ret == StatusCode.SUCCESS && req.getCreditSize() > 0
+                ? grantSendCredit(req, shufflePartitionedDataList)
+                : new RpcResponse(req.getRequestId(), ret, responseMessage);
         long costTime = System.currentTimeMillis() - start;
         shuffleServer
             .getNettyMetrics()
@@ -384,6 +408,64 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
     }
   }
 
+  /**
+   * Pre-allocates a buffer for the next request of the client, and appends it to the response as a
+   * send credit, so the client can send the next request without calling requireBuffer first. The
+   * buffer is required for the partitions of this request, so the huge partition checks apply as
+   * they do for requireBuffer, and the client only spends the credit on a request of the same
+   * shuffle to some of these partitions. No credit is granted if a check fails or a partition
+   * should be split, the client requires the buffer by itself in that case and gets the partitions
+   * to split.
+   */
+  private RpcResponse grantSendCredit(
+      SendShuffleDataRequestV1 req, List<ShufflePartitionedData> shufflePartitionedDataList) {
+    RpcResponse rpcResponse = new RpcResponse(req.getRequestId(), StatusCode.SUCCESS, "OK");
+    if (!sendCreditEnabled) {
+      return rpcResponse;
+    }
+    List<Integer> partitionIds = new ArrayList<>(shufflePartitionedDataList.size());
+    List<Integer> partitionRequireSizes = new ArrayList<>(shufflePartitionedDataList.size());
+    for (ShufflePartitionedData spd : shufflePartitionedDataList) {
+      partitionIds.add(spd.getPartitionId());
+      partitionRequireSizes.add((int) spd.getTotalBlockEncodedLength());
+    }
+    ShuffleTaskManager shuffleTaskManager = shuffleServer.getShuffleTaskManager();
+    Pair<Long, List<Integer>> result;
+    try {
+      result =
+          shuffleTaskManager.requireBufferReturnPair(
+              req.getAppId(),
+              req.getShuffleId(),
+              partitionIds,
+              partitionRequireSizes,
+              req.getCreditSize());
+    } catch (Exception e) {
+      LOG.debug(
+          "No send credit is granted for appId[{}], shuffleId[{}]: {}",
+          req.getAppId(),
+          req.getShuffleId(),
+          e.getMessage());
+      return rpcResponse;
+    }
+    long requireId = result.getLeft();
+    if (!result.getRight().isEmpty()) {
+      // the client gets the partitions to split when it requires the buffer by itself
+      PreAllocatedBufferInfo info = shuffleTaskManager.getAndRemovePreAllocatedBuffer(requireId);
+      if (info != null) {
+        shuffleServer.getShuffleBufferManager().releaseMemory(info.getRequireSize(), false, true);
+      }
+      return rpcResponse;
+    }
+    ShuffleServerMetrics.counterTotalSendCreditGranted.inc();
+    return new SendShuffleDataResponse(
+        req.getRequestId(),
+        StatusCode.SUCCESS,
+        "OK",
+        requireId,
+        req.getCreditSize(),
+        preAllocationExpired);
+  }
+
   private static void releaseNettyBufferAndMetrics(
       SendShuffleDataRequestV1 req,
       String appId,
@@ -729,53 +811,64 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
         storage.updateReadMetrics(new StorageReadMetrics(appId, shuffleId));
       }
 
-      if (shuffleServer.getShuffleBufferManager().requireReadMemory(length)) {
-        ShuffleDataResult sdr = null;
-        try {
-          final long start = System.currentTimeMillis();
-          sdr =
-              shuffleServer
-                  .getShuffleTaskManager()
-                  .getShuffleData(
-                      appId,
-                      shuffleId,
-                      partitionId,
-                      partitionNumPerRange,
-                      partitionNum,
-                      storageType,
-                      offset,
-                      length,
-                      storageId);
-          ShuffleServerMetrics.counterTotalReadDataSize.inc(sdr.getDataLength());
-          ShuffleServerMetrics.counterTotalReadLocalDataFileSize.inc(sdr.getDataLength());
-          ShuffleServerMetrics.gaugeReadLocalDataFileThreadNum.inc();
-          ShuffleServerMetrics.gaugeReadLocalDataFileBufferSize.inc(length);
+      ShuffleDataResult sdr = null;
+      long readBufferSize = 0;
+      try {
+        final long start = System.currentTimeMillis();
+        // the data is read lazily when the response is encoded, so the result can be checked
+        // before requiring the read buffer
+        sdr =
+            shuffleServer
+                .getShuffleTaskManager()
+                .getShuffleData(
+                    appId,
+                    shuffleId,
+                    partitionId,
+                    partitionNumPerRange,
+                    partitionNum,
+                    storageType,
+                    offset,
+                    length,
+                    storageId);
+        if (localDataZeroCopyEnabled && isSentAsFileRegion(sdr.getManagedBuffer())) {
+          ShuffleServerMetrics.counterLocalDataZeroCopyRead.inc();
+        } else if (shuffleServer.getShuffleBufferManager().requireReadMemory(length)) {
+          readBufferSize = length;
+          ShuffleServerMetrics.counterLocalDataBufferedRead.inc();
+        } else {
+          sdr.release();
+          status = StatusCode.NO_BUFFER;
+          msg = "Can't require memory to get shuffle data";
+          LOG.warn("{} for {}", msg, requestInfo);
           response =
               new GetLocalShuffleDataResponse(
-                  req.getRequestId(), status, msg, sdr.getManagedBuffer());
-          ReleaseMemoryAndRecordReadTimeListener listener =
-              new ReleaseMemoryAndRecordReadTimeListener(
-                  start, length, sdr.getDataLength(), requestInfo, req, response, client);
-          client.getChannel().writeAndFlush(response).addListener(listener);
+                  req.getRequestId(), status, msg, new NettyManagedBuffer(Unpooled.EMPTY_BUFFER));
           auditContext.withStatusCode(response.getStatusCode());
-          auditContext.withReturnValue("len=" + sdr.getDataLength());
+          client.getChannel().writeAndFlush(response);
           return;
-        } catch (Exception e) {
-          shuffleServer.getShuffleBufferManager().releaseReadMemory(length);
-          if (sdr != null) {
-            sdr.release();
-          }
-          status = StatusCode.INTERNAL_ERROR;
-          msg = "Error happened when get shuffle data for " + requestInfo + ", " + e.getMessage();
-          LOG.error(msg, e);
-          response =
-              new GetLocalShuffleDataResponse(
-                  req.getRequestId(), status, msg, new NettyManagedBuffer(Unpooled.EMPTY_BUFFER));
         }
-      } else {
-        status = StatusCode.NO_BUFFER;
-        msg = "Can't require memory to get shuffle data";
-        LOG.warn("{} for {}", msg, requestInfo);
+        ShuffleServerMetrics.counterTotalReadDataSize.inc(sdr.getDataLength());
+        ShuffleServerMetrics.counterTotalReadLocalDataFileSize.inc(sdr.getDataLength());
+        ShuffleServerMetrics.gaugeReadLocalDataFileThreadNum.inc();
+        ShuffleServerMetrics.gaugeReadLocalDataFileBufferSize.inc(readBufferSize);
+        response =
+            new GetLocalShuffleDataResponse(
+                req.getRequestId(), status, msg, sdr.getManagedBuffer());
+        ReleaseMemoryAndRecordReadTimeListener listener =
+            new ReleaseMemoryAndRecordReadTimeListener(
+                start, readBufferSize, sdr.getDataLength(), requestInfo, req, response, client);
+        client.getChannel().writeAndFlush(response).addListener(listener);
+        auditContext.withStatusCode(response.getStatusCode());
+        auditContext.withReturnValue("len=" + sdr.getDataLength());
+        return;
+      } catch (Exception e) {
+        shuffleServer.getShuffleBufferManager().releaseReadMemory(readBufferSize);
+        if (sdr != null) {
+          sdr.release();
+        }
+        status = StatusCode.INTERNAL_ERROR;
+        msg = "Error happened when get shuffle data for " + requestInfo + ", " + e.getMessage();
+        LOG.error(msg, e);
         response =
             new GetLocalShuffleDataResponse(
                 req.getRequestId(), status, msg, new NettyManagedBuffer(Unpooled.EMPTY_BUFFER));
@@ -924,6 +1017,22 @@ public class ShuffleServerNettyHandler implements BaseMessageHandler {
     return StatusCode.SUCCESS;
   }
 
+  /**
+   * Whether the buffer is sent as file regions, which are transferred from the page cache to the
+   * socket by sendfile without being loaded into memory.
+   */
+  @VisibleForTesting
+  static boolean isSentAsFileRegion(ManagedBuffer buffer) {
+    if (buffer instanceof FileSegmentManagedBuffer) {
+      return true;
+    }
+    if (buffer instanceof MultiFileSegmentManagedBuffer) {
+      return ((MultiFileSegmentManagedBuffer) buffer)
+          .getManagedBuffers().stream().allMatch(b -> b instanceof FileSegmentManagedBuffer);
+    }
+    return false;
+  }
+
   class ReleaseMemoryAndRecordReadTimeListener implements ChannelFutureListener {
     private final long readStartedTime;
     private final long readBufferSize;
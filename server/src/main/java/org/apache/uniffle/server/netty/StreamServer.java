@@ -139,6 +139,8 @@ public class StreamServer implements ServerInterface {
     }
 
     ShuffleServerNettyHandler serverNettyHandler = new ShuffleServerNettyHandler(shuffleServer);
+    boolean sliceShuffleData =
+        shuffleServerConf.getBoolean(ShuffleServerConf.NETTY_SERVER_DECODE_ZERO_COPY_ENABLED);
     TransportContext transportContext =
         new TransportContext(new TransportConf(shuffleServerConf), serverNettyHandler, true);
     serverBootstrap
@@ -146,7 +148,8 @@ public class StreamServer implements ServerInterface {
             new ChannelInitializer<SocketChannel>() {
               @Override
               public void initChannel(final SocketChannel ch) {
-                transportContext.initializePipeline(ch, new TransportFrameDecoder());
+                transportContext.initializePipeline(
+                    ch, new TransportFrameDecoder(sliceShuffleData));
                 ch.pipeline()
                     .addLast(
                         "metricHandler",
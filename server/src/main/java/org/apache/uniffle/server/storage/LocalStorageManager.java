@@ -52,6 +52,8 @@ import org.apache.uniffle.common.ReconfigurableRegistry;
 import org.apache.uniffle.common.RemoteStorageInfo;
 import org.apache.uniffle.common.UnionKey;
 import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.common.netty.buffer.AlignedBufferPool;
+import org.apache.uniffle.common.netty.buffer.DirectIOFileSegmentManagedBuffer;
 import org.apache.uniffle.common.storage.StorageInfo;
 import org.apache.uniffle.common.storage.StorageMedia;
 import org.apache.uniffle.common.storage.StorageStatus;
@@ -66,11 +68,13 @@ import org.apache.uniffle.server.ShuffleServerMetrics;
 import org.apache.uniffle.server.event.AppPurgeEvent;
 import org.apache.uniffle.server.event.PurgeEvent;
 import org.apache.uniffle.server.event.ShufflePurgeEvent;
+import org.apache.uniffle.server.journal.MetadataJournal;
 import org.apache.uniffle.storage.common.LocalStorage;
 import org.apache.uniffle.storage.common.Storage;
 import org.apache.uniffle.storage.common.StorageMediaProvider;
 import org.apache.uniffle.storage.factory.ShuffleHandlerFactory;
 import org.apache.uniffle.storage.handler.api.ShuffleDeleteHandler;
+import org.apache.uniffle.storage.handler.impl.LocalIndexFileCache;
 import org.apache.uniffle.storage.request.CreateShuffleDeleteHandlerRequest;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 import org.apache.uniffle.storage.util.StorageType;
@@ -89,9 +93,11 @@ public class LocalStorageManager extends SingleStorageManager {
   private final LocalStorageChecker checker;
 
   private final ConcurrentSkipListMap<String, LocalStorage> sortedPartitionsOfStorageMap;
+  private final LocalIndexFileCache indexFileCache;
   private final List<StorageMediaProvider> typeProviders = Lists.newArrayList();
 
   private boolean isStorageAuditLogEnabled;
+  private volatile MetadataJournal metadataJournal;
 
   @VisibleForTesting
   public LocalStorageManager(ShuffleServerConf conf) {
@@ -119,9 +125,37 @@ public class LocalStorageManager extends SingleStorageManager {
       provider.init(conf);
       typeProviders.add(provider);
     }
+    Set<StorageMedia> directIOReadMedia =
+        conf.get(ShuffleServerConf.LOCAL_STORAGE_DIRECT_IO_READ_MEDIA).stream()
+            .map(x -> StorageMedia.valueOf(x.trim().toUpperCase()))
+            .collect(Collectors.toSet());
+    AlignedBufferPool directIOReadBufferPool =
+        directIOReadMedia.isEmpty()
+            ? null
+            : new AlignedBufferPool(
+                conf.get(ShuffleServerConf.LOCAL_STORAGE_DIRECT_IO_ALIGNMENT),
+                conf.get(ShuffleServerConf.LOCAL_STORAGE_DIRECT_IO_BUFFER_POOL_SIZE));
+    if (directIOReadBufferPool != null && !DirectIOFileSegmentManagedBuffer.isDirectIOSupported()) {
+      LOG.warn(
+          "Direct I/O is not supported by the current JVM, data of {} will be read through "
+              + "the page cache",
+          directIOReadMedia);
+    }
+    long indexCacheCapacity = conf.get(ShuffleServerConf.LOCAL_STORAGE_INDEX_CACHE_CAPACITY);
+    indexFileCache = indexCacheCapacity > 0 ? new LocalIndexFileCache(indexCacheCapacity) : null;
+    if (indexFileCache != null) {
+      ShuffleServerMetrics.addLabeledGauge(
+          ShuffleServerMetrics.LOCAL_INDEX_CACHE_HIT_NUM, indexFileCache::getHitNum);
+      ShuffleServerMetrics.addLabeledGauge(
+          ShuffleServerMetrics.LOCAL_INDEX_CACHE_MISS_NUM, indexFileCache::getMissNum);
+      ShuffleServerMetrics.addLabeledGauge(
+          ShuffleServerMetrics.LOCAL_INDEX_CACHE_MAPPED_SIZE, indexFileCache::getMappedBytes);
+    }
     ExecutorService executorService = ThreadUtils.getDaemonCachedThreadPool("LocalStorage-check");
     LocalStorage[] localStorageArray = new LocalStorage[storageBasePaths.size()];
     boolean isDiskCapacityWatermarkCheckEnabled = conf.get(DISK_CAPACITY_WATERMARK_CHECK_ENABLED);
+    // the flushed data is served again after the metadata journal is replayed
+    boolean isMetadataJournalEnabled = conf.get(ShuffleServerConf.SERVER_METADATA_JOURNAL_ENABLED);
     for (int i = 0; i < storageBasePaths.size(); i++) {
       final int idx = i;
       String storagePath = storageBasePaths.get(i);
@@ -137,10 +171,17 @@ public class LocalStorageManager extends SingleStorageManager {
                       .lowWaterMarkOfWrite(lowWaterMarkOfWrite)
                       .highWaterMarkOfWrite(highWaterMarkOfWrite)
                       .setId(idx)
-                      .localStorageMedia(storageType);
+                      .localStorageMedia(storageType)
+                      .indexFileCache(indexFileCache);
+              if (directIOReadMedia.contains(storageType)) {
+                builder.directIOReadBufferPool(directIOReadBufferPool);
+              }
               if (isDiskCapacityWatermarkCheckEnabled) {
                 builder.enableDiskCapacityWatermarkCheck();
               }
+              if (isMetadataJournalEnabled) {
+                builder.keepExistingData();
+              }
               localStorageArray[idx] = builder.build();
               successCount.incrementAndGet();
             } catch (Exception e) {
@@ -244,19 +285,41 @@ public class LocalStorageManager extends SingleStorageManager {
     final LocalStorage selectedStorage =
         candidates.get(
             ShuffleStorageUtils.getStorageIndex(candidates.size(), appId, shuffleId, partitionId));
-    return sortedPartitionsOfStorageMap.compute(
-        UnionKey.buildKey(appId, shuffleId, partitionId),
-        (key, localStorage) -> {
-          // If this is the first time to select storage or existing storage is corrupted,
-          // we should refresh the cache.
-          if (localStorage == null
-              || localStorage.isCorrupted()
-              || event.getUnderStorage() == null) {
-            event.setUnderStorage(selectedStorage);
-            return selectedStorage;
-          }
-          return localStorage;
-        });
+    LocalStorage result =
+        sortedPartitionsOfStorageMap.compute(
+            UnionKey.buildKey(appId, shuffleId, partitionId),
+            (key, localStorage) -> {
+              // If this is the first time to select storage or existing storage is corrupted,
+              // we should refresh the cache.
+              if (localStorage == null
+                  || localStorage.isCorrupted()
+                  || event.getUnderStorage() == null) {
+                event.setUnderStorage(selectedStorage);
+                return selectedStorage;
+              }
+              return localStorage;
+            });
+    if (metadataJournal != null && result != storage) {
+      metadataJournal.appendPartitionStorage(appId, shuffleId, partitionId, result.getBasePath());
+    }
+    return result;
+  }
+
+  /** Restores the storage of a partition recorded in the metadata journal before the restart. */
+  public void restorePartitionStorage(
+      String appId, int shuffleId, int partitionId, String basePath) {
+    for (LocalStorage storage : localStorages) {
+      if (storage.getBasePath().equals(basePath)) {
+        sortedPartitionsOfStorageMap.put(UnionKey.buildKey(appId, shuffleId, partitionId), storage);
+        return;
+      }
+    }
+    LOG.warn(
+        "The storage {} of {}-{}-{} isn't in use anymore", basePath, appId, shuffleId, partitionId);
+  }
+
+  public void setMetadataJournal(MetadataJournal metadataJournal) {
+    this.metadataJournal = metadataJournal;
   }
 
   @Override
@@ -353,6 +416,10 @@ public class LocalStorageManager extends SingleStorageManager {
                 })
             .collect(Collectors.toList());
 
+    if (indexFileCache != null) {
+      // the mappings of the deleted index files would keep them on the disk
+      deletePaths.forEach(indexFileCache::invalidate);
+    }
     boolean isSuccess =
         deleteHandler.delete(deletePaths.toArray(new String[deletePaths.size()]), appId, user);
     if (!isSuccess && event.isRenameAndDelete()) {
@@ -32,7 +32,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.RangeMap;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -64,11 +63,13 @@ import org.apache.uniffle.server.block.DefaultShuffleBlockIdManager;
 import org.apache.uniffle.server.buffer.PreAllocatedBufferInfo;
 import org.apache.uniffle.server.buffer.ShuffleBuffer;
 import org.apache.uniffle.server.buffer.ShuffleBufferManager;
+import org.apache.uniffle.server.buffer.ShuffleBufferTable;
 import org.apache.uniffle.server.event.PurgeEvent;
 import org.apache.uniffle.server.storage.LocalStorageManager;
 import org.apache.uniffle.server.storage.StorageManager;
 import org.apache.uniffle.storage.HadoopTestBase;
 import org.apache.uniffle.storage.common.LocalStorage;
+import org.apache.uniffle.storage.common.Storage;
 import org.apache.uniffle.storage.handler.impl.HadoopClientReadHandler;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 import org.apache.uniffle.storage.util.StorageType;
@@ -341,7 +342,7 @@ public class ShuffleTaskManagerTest extends HadoopTestBase {
         RemoteStorageInfo.EMPTY_REMOTE_STORAGE,
         StringUtils.EMPTY);
 
-    Map<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>> bufferPool =
+    Map<String, Map<Integer, ShuffleBufferTable>> bufferPool =
         shuffleServer.getShuffleBufferManager().getBufferPool();
 
     assertNotNull(bufferPool.get(appId).get(shuffleId).get(0));
@@ -552,7 +553,7 @@ public class ShuffleTaskManagerTest extends HadoopTestBase {
     assertEquals(1, shuffleTaskManager.getAppIds().size());
 
     ShuffleBufferManager shuffleBufferManager = shuffleServer.getShuffleBufferManager();
-    RangeMap<Integer, ShuffleBuffer> rangeMap =
+    ShuffleBufferTable rangeMap =
         shuffleBufferManager.getBufferPool().get(appId).get(0);
     assertFalse(rangeMap.asMapOfRanges().isEmpty());
     shuffleTaskManager.commitShuffle(appId, 0);
@@ -622,6 +623,51 @@ public class ShuffleTaskManagerTest extends HadoopTestBase {
     }
   }
 
+  @Test
+  public void recoverFromMetadataJournalTest(@TempDir File journalDir) throws Exception {
+    ShuffleServerConf conf = constructServerConfWithLocalfile();
+    conf.set(ShuffleServerConf.SERVER_METADATA_JOURNAL_ENABLED, true);
+    conf.set(ShuffleServerConf.SERVER_METADATA_JOURNAL_PATH, journalDir.getAbsolutePath());
+    shuffleServer = new ShuffleServer(conf);
+    ShuffleTaskManager shuffleTaskManager = shuffleServer.getShuffleTaskManager();
+
+    String appId = "recoverFromMetadataJournalTest";
+    shuffleTaskManager.registerShuffle(
+        appId,
+        0,
+        Lists.newArrayList(new PartitionRange(0, 1)),
+        RemoteStorageInfo.EMPTY_REMOTE_STORAGE,
+        StringUtils.EMPTY);
+    ShufflePartitionedData partitionedData = createPartitionedData(1, 2, 35);
+    shuffleTaskManager.requireBuffer(70);
+    shuffleTaskManager.cacheShuffleData(appId, 0, false, partitionedData);
+    shuffleTaskManager.updateCachedBlockIds(appId, 0, partitionedData);
+    shuffleTaskManager.commitShuffle(appId, 0);
+    long[] blockIds =
+        Arrays.stream(partitionedData.getBlockList())
+            .mapToLong(ShufflePartitionedBlock::getBlockId)
+            .toArray();
+    shuffleTaskManager.addFinishedBlockIds(appId, 0, Collections.singletonMap(1, blockIds), 1);
+    Storage storage =
+        shuffleServer.getStorageManager().selectStorage(new ShuffleDataReadEvent(appId, 0, 1, 0));
+    assertNotNull(storage);
+    shuffleServer.stopServer();
+
+    // the restarted server serves the flushed data of the app again
+    shuffleServer = new ShuffleServer(conf);
+    shuffleTaskManager = shuffleServer.getShuffleTaskManager();
+    assertEquals(Sets.newHashSet(appId), shuffleTaskManager.getAppIds());
+    byte[] serializeBitMap =
+        shuffleTaskManager.getFinishedBlockIds(appId, 0, Sets.newHashSet(1), BlockIdLayout.DEFAULT);
+    assertEquals(
+        Roaring64NavigableMap.bitmapOf(blockIds), RssUtils.deserializeBitMap(serializeBitMap));
+    Storage recovered =
+        shuffleServer.getStorageManager().selectStorage(new ShuffleDataReadEvent(appId, 0, 1, 0));
+    assertEquals(storage.getStoragePath(), recovered.getStoragePath());
+    assertTrue(new File(recovered.getStoragePath(), appId).exists());
+    assertTrue(ShuffleServerMetrics.gaugeMetadataJournalReplayedRecordNum.get() > 0);
+  }
+
   @Test
   public void clearTest() throws Exception {
     ShuffleServerConf conf = new ShuffleServerConf();
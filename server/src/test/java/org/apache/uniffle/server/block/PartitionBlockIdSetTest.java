@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.block;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.google.common.collect.Sets;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.config.RssClientConf;
+import org.apache.uniffle.common.util.BlockIdLayout;
+import org.apache.uniffle.common.util.RssUtils;
+import org.apache.uniffle.server.ShuffleServerConf;
+import org.apache.uniffle.server.ShuffleTaskInfo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PartitionBlockIdSetTest {
+
+  private static BlockIdLayout createLayout(String layout) {
+    String[] bits = layout.split(",");
+    return BlockIdLayout.from(
+        Integer.parseInt(bits[0]), Integer.parseInt(bits[1]), Integer.parseInt(bits[2]));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"18,24,21", "12,31,20", "21,21,21"})
+  public void addAndExportTest(String layoutString) {
+    BlockIdLayout layout = createLayout(layoutString);
+    int partitionId = Math.min(layout.maxPartitionId, 12345);
+    PartitionBlockIdSet blockIds = new PartitionBlockIdSet(layout, partitionId);
+    Roaring64NavigableMap expected = Roaring64NavigableMap.bitmapOf();
+    for (int taskAttemptId = 0; taskAttemptId < 200; taskAttemptId++) {
+      for (int sequenceNo = 0; sequenceNo < 50; sequenceNo++) {
+        long blockId =
+            layout.getBlockId(
+                sequenceNo, partitionId, Math.min(layout.maxTaskAttemptId, taskAttemptId * 997L));
+        if (!expected.contains(blockId)) {
+          assertTrue(blockIds.add(blockId));
+          expected.addLong(blockId);
+        }
+        assertFalse(blockIds.add(blockId));
+        assertTrue(blockIds.contains(blockId));
+      }
+    }
+    // the largest values of all the fields
+    long maxBlockId =
+        layout.getBlockId(layout.maxSequenceNo, partitionId, layout.maxTaskAttemptId);
+    assertTrue(blockIds.add(maxBlockId));
+    expected.addLong(maxBlockId);
+    // a block id of another partition is kept as it is
+    long otherBlockId = layout.getBlockId(1, partitionId - 1, 1);
+    assertFalse(blockIds.contains(otherBlockId));
+    assertTrue(blockIds.add(otherBlockId));
+    assertFalse(blockIds.add(otherBlockId));
+    expected.addLong(otherBlockId);
+
+    assertEquals(expected.getLongCardinality(), blockIds.getCardinality());
+    assertEquals(expected, blockIds.toBitmap());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"18,24,21", "12,31,20"})
+  public void smallerThanGenericBitmapTest(String layoutString) {
+    BlockIdLayout layout = createLayout(layoutString);
+    int partitionId = 100;
+    PartitionBlockIdSet blockIds = new PartitionBlockIdSet(layout, partitionId);
+    Roaring64NavigableMap bitmap = Roaring64NavigableMap.bitmapOf();
+    for (int taskAttemptId = 0; taskAttemptId < 1000; taskAttemptId++) {
+      for (int sequenceNo = 0; sequenceNo < 100; sequenceNo++) {
+        long blockId = layout.getBlockId(sequenceNo, partitionId, taskAttemptId);
+        blockIds.add(blockId);
+        bitmap.addLong(blockId);
+      }
+    }
+    assertTrue(blockIds.getSizeInBytes() < bitmap.getLongSizeInBytes());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"18,24,21", "12,31,20"})
+  public void managerTest(String layoutString) throws Exception {
+    BlockIdLayout layout = createLayout(layoutString);
+    ShuffleServerConf conf = new ShuffleServerConf();
+    conf.set(RssClientConf.BLOCKID_SEQUENCE_NO_BITS, layout.sequenceNoBits);
+    conf.set(RssClientConf.BLOCKID_PARTITION_ID_BITS, layout.partitionIdBits);
+    conf.set(RssClientConf.BLOCKID_TASK_ATTEMPT_ID_BITS, layout.taskAttemptIdBits);
+    PartitionedShuffleBlockIdManager manager = new PartitionedShuffleBlockIdManager(conf);
+    String appId = "managerTest";
+    manager.registerAppId(appId);
+    ShuffleTaskInfo taskInfo = new ShuffleTaskInfo(appId);
+
+    Roaring64NavigableMap expected = Roaring64NavigableMap.bitmapOf();
+    for (int partitionId = 0; partitionId < 3; partitionId++) {
+      long[] ids = new long[10];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = layout.getBlockId(i, partitionId, i * 3L);
+        expected.addLong(ids[i]);
+      }
+      Map<Integer, long[]> partitionToBlockIds = Collections.singletonMap(partitionId, ids);
+      assertEquals(10, manager.addFinishedBlockIds(taskInfo, appId, 1, partitionToBlockIds, 1));
+      assertEquals(0, manager.addFinishedBlockIds(taskInfo, appId, 1, partitionToBlockIds, 1));
+    }
+    assertEquals(30, manager.getTotalBlockCount());
+    byte[] serialized =
+        manager.getFinishedBlockIds(taskInfo, appId, 1, Sets.newHashSet(0, 1, 2), layout);
+    assertEquals(expected, RssUtils.deserializeBitMap(serialized));
+  }
+}
@@ -22,12 +22,16 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import com.google.common.collect.RangeMap;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.Uninterruptibles;
 import io.netty.buffer.ByteBuf;
 import io.prometheus.client.Collector;
@@ -111,7 +115,7 @@ public class ShuffleBufferManagerTest extends BufferTestBase {
     sc = shuffleBufferManager.registerBuffer(appId, shuffleId, 2, 3);
     assertEquals(StatusCode.SUCCESS, sc);
 
-    Map<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>> bufferPool =
+    Map<String, Map<Integer, ShuffleBufferTable>> bufferPool =
         shuffleBufferManager.getBufferPool();
 
     assertNotNull(bufferPool.get(appId).get(shuffleId).get(0));
@@ -183,7 +187,7 @@ public class ShuffleBufferManagerTest extends BufferTestBase {
     shuffleBufferManager.cacheShuffleData(appId, 2, false, spd3);
     shuffleBufferManager.cacheShuffleData(appId, 3, false, spd4);
     // validate buffer, no flush happened
-    Map<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>> bufferPool =
+    Map<String, Map<Integer, ShuffleBufferTable>> bufferPool =
         shuffleBufferManager.getBufferPool();
     assertEquals(100, bufferPool.get(appId).get(1).get(0).getEncodedLength());
     assertEquals(200, bufferPool.get(appId).get(2).get(0).getEncodedLength());
@@ -308,7 +312,7 @@ public class ShuffleBufferManagerTest extends BufferTestBase {
     sc = shuffleBufferManager.cacheShuffleData(appId, shuffleId, false, createData(0, 16));
     assertEquals(StatusCode.SUCCESS, sc);
 
-    Map<String, Map<Integer, RangeMap<Integer, ShuffleBuffer>>> bufferPool =
+    Map<String, Map<Integer, ShuffleBufferTable>> bufferPool =
         shuffleBufferManager.getBufferPool();
     ShuffleBuffer buffer = bufferPool.get(appId).get(shuffleId).get(0);
     assertEquals(48, buffer.getEncodedLength());
@@ -317,6 +321,10 @@ public class ShuffleBufferManagerTest extends BufferTestBase {
     shuffleBufferManager.cacheShuffleData(appId, shuffleId, false, createData(0, 16));
     assertEquals(96, buffer.getEncodedLength());
     assertEquals(96, shuffleBufferManager.getUsedMemory());
+    ShuffleBufferTable bufferTable = bufferPool.get(appId).get(shuffleId);
+    assertEquals(2, bufferTable.getBufferCount());
+    assertEquals(2, bufferTable.getBlockCount());
+    assertEquals(0, bufferTable.getInFlushBlockCount());
 
     // reach high water lever, flush
     shuffleBufferManager.cacheShuffleData(appId, shuffleId, false, createData(0, 273));
@@ -324,6 +332,8 @@ public class ShuffleBufferManagerTest extends BufferTestBase {
     assertEquals(401, shuffleBufferManager.getUsedMemory());
     assertEquals(401, shuffleBufferManager.getInFlushSize());
     verify(mockShuffleFlushManager, times(1)).addToFlushQueue(any());
+    assertEquals(0, bufferTable.getBlockCount());
+    assertEquals(3, bufferTable.getInFlushBlockCount());
 
     // now buffer should be full
     shuffleBufferManager.cacheShuffleData(appId, shuffleId, false, createData(0, 100));
@@ -953,4 +963,53 @@ public class ShuffleBufferManagerTest extends BufferTestBase {
         .atMost(Duration.ofSeconds(10))
         .until(() -> shuffleBufferManager.inMemoryBlockCount.get() == 4);
   }
+
+  @Test
+  public void requireMemoryConcurrentlyTest() throws Exception {
+    // capacity is 500 bytes, 100 threads require 10 bytes each, so exactly 50 succeed
+    int threadNum = 100;
+    AtomicLong succeeded = new AtomicLong(0);
+    CountDownLatch startLatch = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    List<Future<?>> futures = Lists.newArrayList();
+    for (int i = 0; i < threadNum; i++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                Uninterruptibles.awaitUninterruptibly(startLatch);
+                if (shuffleBufferManager.requireMemory(10, true)) {
+                  succeeded.incrementAndGet();
+                }
+              }));
+    }
+    startLatch.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    assertEquals(50, succeeded.get());
+    assertEquals(500, shuffleBufferManager.getUsedMemory());
+    assertEquals(500, shuffleBufferManager.getPreAllocatedSize());
+
+    // concurrent reserve/release keeps the ledger consistent and within capacity
+    shuffleBufferManager.releaseMemory(500, false, true);
+    futures.clear();
+    for (int i = 0; i < threadNum; i++) {
+      futures.add(
+          executor.submit(
+              () -> {
+                for (int j = 0; j < 1000; j++) {
+                  if (shuffleBufferManager.requireMemory(7, true)) {
+                    assertTrue(shuffleBufferManager.getUsedMemory() <= 500);
+                    shuffleBufferManager.releaseMemory(7, false, true);
+                  }
+                }
+              }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdownNow();
+    assertEquals(0, shuffleBufferManager.getUsedMemory());
+    assertEquals(0, shuffleBufferManager.getPreAllocatedSize());
+  }
 }
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShuffleBufferTableTest {
+
+  @Test
+  public void singlePartitionTest() {
+    ShuffleBufferTable table = new ShuffleBufferTable();
+    List<ShuffleBuffer> buffers = new ArrayList<>();
+    // register beyond the initial capacity in a random order
+    for (int partitionId : new int[] {3, 0, 100, 17, 1}) {
+      ShuffleBuffer buffer = new ShuffleBufferWithLinkedList();
+      buffers.add(buffer);
+      assertTrue(table.register(partitionId, partitionId, buffer));
+      assertSame(buffer, table.get(partitionId));
+    }
+    assertFalse(table.register(17, 17, new ShuffleBufferWithLinkedList()));
+    assertSame(buffers.get(3), table.get(17));
+    assertEquals(Range.closed(100, 100), table.getEntry(100).getKey());
+    assertNull(table.get(2));
+    assertNull(table.get(101));
+    assertNull(table.get(-1));
+    assertEquals(5, table.getBufferCount());
+    assertEquals(
+        Lists.newArrayList(0, 1, 3, 17, 100),
+        Lists.newArrayList(
+            table.asMapOfRanges().keySet().stream().map(Range::lowerEndpoint).iterator()));
+  }
+
+  @Test
+  public void rangedPartitionTest() {
+    ShuffleBufferTable table = new ShuffleBufferTable();
+    ShuffleBuffer buffer1 = new ShuffleBufferWithLinkedList();
+    ShuffleBuffer buffer2 = new ShuffleBufferWithLinkedList();
+    ShuffleBuffer buffer3 = new ShuffleBufferWithLinkedList();
+    assertTrue(table.register(0, 3, buffer1));
+    assertTrue(table.register(4, 4, buffer2));
+    assertTrue(table.register(8, 11, buffer3));
+    assertFalse(table.register(2, 2, new ShuffleBufferWithLinkedList()));
+
+    for (int i = 0; i <= 3; i++) {
+      assertSame(buffer1, table.get(i));
+    }
+    assertSame(buffer2, table.get(4));
+    assertNull(table.get(5));
+    assertNull(table.get(7));
+    assertSame(buffer3, table.get(8));
+    assertSame(buffer3, table.get(11));
+    assertEquals(Range.closed(8, 11), table.getEntry(10).getKey());
+    assertNull(table.get(12));
+    assertEquals(3, table.getBufferCount());
+  }
+
+  @Test
+  public void blockCountTest() {
+    ShuffleBufferTable table = new ShuffleBufferTable();
+    table.addBlockCount(10);
+    table.addBlockCount(-4);
+    table.addInFlushBlockCount(4);
+    assertEquals(6, table.getBlockCount());
+    assertEquals(4, table.getInFlushBlockCount());
+    table.addInFlushBlockCount(-4);
+    assertEquals(0, table.getInFlushBlockCount());
+  }
+}
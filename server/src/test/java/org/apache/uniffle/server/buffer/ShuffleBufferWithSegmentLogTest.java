@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import org.apache.uniffle.common.BufferSegment;
+import org.apache.uniffle.common.ShuffleDataDistributionType;
+import org.apache.uniffle.common.ShuffleDataResult;
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.common.ShufflePartitionedData;
+import org.apache.uniffle.common.util.Constants;
+import org.apache.uniffle.server.ShuffleDataFlushEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShuffleBufferWithSegmentLogTest extends BufferTestBase {
+  private static AtomicInteger atomSequenceNo = new AtomicInteger(0);
+
+  @Test
+  public void appendTest() {
+    ShuffleBuffer shuffleBuffer = createShuffleBuffer();
+    ShufflePartitionedData data = createData(10);
+    shuffleBuffer.append(data);
+    // ShufflePartitionedBlock has constant 32 bytes overhead
+    assertEquals(42, shuffleBuffer.getEncodedLength());
+
+    shuffleBuffer.append(createData(26));
+    assertEquals(100, shuffleBuffer.getEncodedLength());
+
+    ShufflePartitionedData repeated = createData(10);
+    repeated.getBlockList()[0].setBlockId(data.getBlockList()[0].getBlockId());
+    shuffleBuffer.append(repeated);
+    // The repeat block should not append to shuffleBuffer
+    assertEquals(100, shuffleBuffer.getEncodedLength());
+    assertEquals(1, repeated.getDuplicateBlockCount());
+    assertEquals(2, shuffleBuffer.getBlockCount());
+  }
+
+  @Test
+  public void toFlushEventTest() {
+    ShuffleBuffer shuffleBuffer = createShuffleBuffer();
+    assertNull(shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null));
+    shuffleBuffer.append(createData(10));
+    ShuffleDataFlushEvent event = shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+    assertEquals(42, event.getEncodedLength());
+    assertEquals(0, shuffleBuffer.getEncodedLength());
+    assertEquals(0, shuffleBuffer.getBlockCount());
+    assertEquals(1, shuffleBuffer.getInFlushBlockCount());
+    assertEquals(42, shuffleBuffer.getInFlushSize());
+    assertNull(shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null));
+
+    event.doCleanup();
+    assertEquals(0, shuffleBuffer.getInFlushEventCount());
+    assertEquals(0, shuffleBuffer.getInFlushSize());
+    assertEquals(0, event.getShuffleBlocks().iterator().next().getData().refCnt());
+  }
+
+  @Test
+  public void readAcrossFlushTest() {
+    ShuffleBuffer shuffleBuffer = createShuffleBuffer();
+    List<Long> expected = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ShufflePartitionedData data = createData(10);
+      expected.add(data.getBlockList()[0].getBlockId());
+      shuffleBuffer.append(data);
+    }
+    assertEquals(expected.subList(0, 2), readBlockIds(shuffleBuffer, Constants.INVALID_BLOCK_ID));
+    long lastBlockId = expected.get(1);
+
+    // the blocks being flushed are still read in the order they are received
+    ShuffleDataFlushEvent event1 = shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+    ShufflePartitionedData data = createData(10);
+    expected.add(data.getBlockList()[0].getBlockId());
+    shuffleBuffer.append(data);
+    ShuffleDataFlushEvent event2 = shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+    assertEquals(expected.subList(2, 4), readBlockIds(shuffleBuffer, lastBlockId));
+
+    // the blocks of a flush event finished before the previous one are skipped
+    event2.doCleanup();
+    assertEquals(1, shuffleBuffer.getInFlushEventCount());
+    assertEquals(expected.subList(2, 3), readBlockIds(shuffleBuffer, lastBlockId));
+
+    // the last block is flushed, the read goes on after all the flushed blocks
+    event1.doCleanup();
+    data = createData(10);
+    expected.add(data.getBlockList()[0].getBlockId());
+    shuffleBuffer.append(data);
+    assertEquals(expected.subList(4, 5), readBlockIds(shuffleBuffer, lastBlockId));
+    assertEquals(expected.subList(4, 5), readBlockIds(shuffleBuffer, Constants.INVALID_BLOCK_ID));
+    assertEquals(0, shuffleBuffer.getInFlushEventCount());
+  }
+
+  @Test
+  public void finishFlushEventsOutOfOrderTest() {
+    ShuffleBuffer shuffleBuffer = createShuffleBuffer();
+    ShufflePartitionedData spd1 = createData(10);
+    shuffleBuffer.append(spd1);
+    ShuffleDataFlushEvent event1 = shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+    ShufflePartitionedData spd2 = createData(10);
+    ShufflePartitionedData spd3 = createData(10);
+    shuffleBuffer.append(spd2);
+    shuffleBuffer.append(spd3);
+    ShuffleDataFlushEvent event2 = shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+    ShufflePartitionedData spd4 = createData(10);
+    shuffleBuffer.append(spd4);
+    assertEquals(126, shuffleBuffer.getInFlushSize());
+
+    // the blocks of the event finished first are released before the previous event finishes
+    event2.doCleanup();
+    assertEquals(42, shuffleBuffer.getInFlushSize());
+    assertEquals(1, spd1.getBlockList()[0].getData().refCnt());
+    assertEquals(0, spd2.getBlockList()[0].getData().refCnt());
+    assertEquals(0, spd3.getBlockList()[0].getData().refCnt());
+    long blockId1 = spd1.getBlockList()[0].getBlockId();
+    long blockId4 = spd4.getBlockList()[0].getBlockId();
+    assertEquals(
+        Lists.newArrayList(blockId1, blockId4),
+        readBlockIds(shuffleBuffer, Constants.INVALID_BLOCK_ID));
+    assertEquals(Lists.newArrayList(blockId4), readBlockIds(shuffleBuffer, blockId1));
+    assertEquals(
+        Lists.newArrayList(blockId4),
+        readBlockIds(shuffleBuffer, spd2.getBlockList()[0].getBlockId()));
+
+    event1.doCleanup();
+    assertEquals(0, shuffleBuffer.getInFlushSize());
+    assertEquals(0, shuffleBuffer.getInFlushEventCount());
+    assertEquals(0, spd1.getBlockList()[0].getData().refCnt());
+    assertEquals(1, spd4.getBlockList()[0].getData().refCnt());
+    assertEquals(
+        Lists.newArrayList(blockId4), readBlockIds(shuffleBuffer, Constants.INVALID_BLOCK_ID));
+    assertEquals(Lists.newArrayList(blockId4), readBlockIds(shuffleBuffer, blockId1));
+  }
+
+  @Test
+  public void getShuffleDataWithExpectedTaskIdsAndLocalOrderTest() {
+    ShuffleBuffer shuffleBuffer = createShuffleBuffer();
+    ShufflePartitionedData spd1 = createData(1, 1, 15);
+    ShufflePartitionedData spd2 = createData(1, 0, 15);
+    ShufflePartitionedData spd3 = createData(1, 2, 55);
+    shuffleBuffer.append(spd1);
+    shuffleBuffer.append(spd2);
+    shuffleBuffer.append(spd3);
+
+    Roaring64NavigableMap expectedTasks = Roaring64NavigableMap.bitmapOf(1, 2);
+    ShuffleDataResult sdr =
+        shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 1000, expectedTasks);
+    List<BufferSegment> segments = sdr.getBufferSegments();
+    assertEquals(2, segments.size());
+    assertEquals(spd1.getBlockList()[0].getBlockId(), segments.get(0).getBlockId());
+    assertEquals(15, segments.get(1).getOffset());
+    assertEquals(55, segments.get(1).getLength());
+    assertEquals(70, sdr.getDataLength());
+
+    // only the blocks of the flush event are sorted
+    ShuffleDataFlushEvent event =
+        shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null, ShuffleDataDistributionType.LOCAL_ORDER);
+    assertEquals(
+        Lists.newArrayList(0L, 1L, 2L),
+        event.getShuffleBlocks().stream()
+            .map(ShufflePartitionedBlock::getTaskAttemptId)
+            .collect(Collectors.toList()));
+    sdr = shuffleBuffer.getShuffleData(Constants.INVALID_BLOCK_ID, 1000);
+    assertEquals(
+        Lists.newArrayList(
+            spd1.getBlockList()[0].getBlockId(),
+            spd2.getBlockList()[0].getBlockId(),
+            spd3.getBlockList()[0].getBlockId()),
+        getBlockIds(sdr));
+  }
+
+  @Test
+  public void releaseTest() {
+    ShuffleBuffer shuffleBuffer = createShuffleBuffer();
+    ShufflePartitionedData spd1 = createData(10);
+    shuffleBuffer.append(spd1);
+    ShuffleDataFlushEvent event = shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null);
+    ShufflePartitionedData spd2 = createData(10);
+    shuffleBuffer.append(spd2);
+
+    assertEquals(42, shuffleBuffer.release());
+    assertEquals(0, spd2.getBlockList()[0].getData().refCnt());
+    assertEquals(AbstractShuffleBuffer.BUFFER_EVICTED, shuffleBuffer.append(createData(10)));
+    assertTrue(readBlockIds(shuffleBuffer, Constants.INVALID_BLOCK_ID).isEmpty());
+    assertNull(shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null));
+    // the blocks being flushed are released by the flush
+    assertEquals(1, spd1.getBlockList()[0].getData().refCnt());
+    event.doCleanup();
+    assertEquals(0, spd1.getBlockList()[0].getData().refCnt());
+  }
+
+  @Test
+  public void concurrentReadAndAppendTest() throws Exception {
+    ShuffleBuffer shuffleBuffer = createShuffleBuffer();
+    int blockNum = BlockSegmentLog.SEGMENT_SIZE * 20;
+    int readerNum = 4;
+    AtomicBoolean appended = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(readerNum + 1);
+    try {
+      List<Long> expected = Collections.synchronizedList(new ArrayList<>());
+      Future<?> writer =
+          executor.submit(
+              () -> {
+                for (int i = 0; i < blockNum; i++) {
+                  ShufflePartitionedData data = createData(10);
+                  expected.add(data.getBlockList()[0].getBlockId());
+                  shuffleBuffer.append(data);
+                  if (i % 100 == 99) {
+                    shuffleBuffer.toFlushEvent("appId", 0, 0, 1, null).doCleanup();
+                  }
+                }
+                appended.set(true);
+              });
+      List<Future<List<Long>>> readers = new ArrayList<>();
+      for (int i = 0; i < readerNum; i++) {
+        readers.add(
+            executor.submit(
+                () -> {
+                  List<Long> readBlockIds = new ArrayList<>();
+                  long lastBlockId = Constants.INVALID_BLOCK_ID;
+                  boolean done = false;
+                  while (!done) {
+                    done = appended.get();
+                    ShuffleDataResult sdr = shuffleBuffer.getShuffleData(lastBlockId, 100);
+                    List<Long> blockIds = getBlockIds(sdr);
+                    if (!blockIds.isEmpty()) {
+                      // the data read is never released by the flushes meanwhile
+                      assertEquals(sdr.getDataLength(), sdr.getData().length);
+                      sdr.release();
+                      readBlockIds.addAll(blockIds);
+                      lastBlockId = blockIds.get(blockIds.size() - 1);
+                      done = false;
+                    }
+                  }
+                  return readBlockIds;
+                }));
+      }
+      writer.get();
+      for (Future<List<Long>> reader : readers) {
+        List<Long> readBlockIds = reader.get();
+        // the blocks are read in the order they are received, without any duplicate
+        assertEquals(readBlockIds.size(), new HashSet<>(readBlockIds).size());
+        Set<Long> readSet = new HashSet<>(readBlockIds);
+        List<Long> expectedOrder =
+            expected.stream().filter(readSet::contains).collect(Collectors.toList());
+        assertEquals(expectedOrder, readBlockIds);
+        // the blocks not flushed yet are always read
+        assertEquals(
+            expected.subList(blockNum - blockNum % 100, blockNum),
+            readBlockIds.subList(readBlockIds.size() - blockNum % 100, readBlockIds.size()));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static List<Long> readBlockIds(ShuffleBuffer shuffleBuffer, long lastBlockId) {
+    ShuffleDataResult sdr = shuffleBuffer.getShuffleData(lastBlockId, 20);
+    List<Long> blockIds = getBlockIds(sdr);
+    sdr.release();
+    return blockIds;
+  }
+
+  private static List<Long> getBlockIds(ShuffleDataResult sdr) {
+    return sdr.getBufferSegments().stream()
+        .map(BufferSegment::getBlockId)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  protected AtomicInteger getAtomSequenceNo() {
+    return atomSequenceNo;
+  }
+
+  @Override
+  protected ShuffleBuffer createShuffleBuffer() {
+    return new ShuffleBufferWithSegmentLog();
+  }
+}
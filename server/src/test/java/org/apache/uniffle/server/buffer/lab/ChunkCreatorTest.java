@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.buffer.lab;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.server.ShuffleServerMetrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkCreatorTest {
+
+  @BeforeEach
+  public void setUp() {
+    ShuffleServerMetrics.register();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    ShuffleServerMetrics.clear();
+  }
+
+  @Test
+  public void sizeClassTest() {
+    ChunkCreator creator = new ChunkCreator(1024, 10000, 1024 * 1024, 200, 0);
+    assertEquals(Lists.newArrayList(1024, 2048, 4096, 8192), creator.getSizeClasses());
+    assertEquals(1024, creator.getSizeClass(1000));
+    // a new chunk starts with its id
+    assertEquals(2048, creator.getSizeClass(1024));
+    assertEquals(8192, creator.getSizeClass(8000));
+    assertEquals(-1, creator.getSizeClass(8190));
+
+    // no larger size class by default
+    creator = new ChunkCreator(1024, 1024 * 1024, 200);
+    assertEquals(Collections.singletonList(1024), creator.getSizeClasses());
+    assertEquals(-1, creator.getSizeClass(100));
+  }
+
+  @Test
+  public void poolHitAndMissTest() {
+    // the pool of 4096 bytes holds one chunk
+    ChunkCreator creator = new ChunkCreator(2048, 4096, 4096 * 2, 200, 0);
+    Chunk chunk = creator.getChunk(4096);
+    assertTrue(chunk.isFromPool());
+    // the pool is exhausted
+    Chunk unpooled = creator.getChunk(4096);
+    assertFalse(unpooled.isFromPool());
+    // no pool of this size
+    Chunk other = creator.getChunk(3000);
+    assertFalse(other.isFromPool());
+    assertEquals(1, ShuffleServerMetrics.counterLABChunkPoolHit.get(), 0);
+    assertEquals(2, ShuffleServerMetrics.counterLABChunkPoolMiss.get(), 0);
+
+    creator.putBackChunks(Lists.newArrayList(chunk.getId(), unpooled.getId(), other.getId()));
+    assertEquals(1, ShuffleServerMetrics.gaugeLABChunkReclaimed.get(), 0);
+    assertSame(chunk, creator.getChunk(4096));
+    assertEquals(1, ShuffleServerMetrics.counterLABChunkReused.get(), 0);
+  }
+
+  @Test
+  public void magazineTest() throws Exception {
+    ChunkCreator creator = new ChunkCreator(1024, 1024, 1024 * 10, 200, 2);
+    Chunk chunk1 = creator.getChunk();
+    Chunk chunk2 = creator.getChunk();
+    Chunk chunk3 = creator.getChunk();
+    // the chunks stay in the magazine of this thread until it's full
+    creator.putBackChunks(Lists.newArrayList(chunk1.getId()));
+    assertTrue(CompletableFuture.supplyAsync(creator::getChunk).get().getId() > chunk3.getId());
+    assertSame(chunk1, creator.getChunk());
+
+    // a full magazine is handed over to the other threads
+    creator.putBackChunks(Lists.newArrayList(chunk1.getId(), chunk2.getId(), chunk3.getId()));
+    Chunk reused = CompletableFuture.supplyAsync(creator::getChunk).get();
+    assertTrue(reused == chunk1 || reused == chunk2);
+    // the last chunk is still in the magazine of this thread
+    assertSame(chunk3, creator.getChunk());
+  }
+
+  @Test
+  public void magazineStealTest() throws Exception {
+    // the pool holds two chunks, less than the magazine size
+    ChunkCreator creator = new ChunkCreator(1024, 1024, 1024 * 2, 200, 4);
+    Chunk chunk1 = creator.getChunk();
+    Chunk chunk2 = creator.getChunk();
+    // the chunks are freed on another thread, and stay in its magazine which isn't full
+    CompletableFuture.runAsync(
+            () -> creator.putBackChunks(Lists.newArrayList(chunk1.getId(), chunk2.getId())))
+        .get();
+    assertEquals(2, ShuffleServerMetrics.gaugeLABChunkReclaimed.get(), 0);
+
+    // this thread takes them from the magazine of the other thread when the pool misses
+    Chunk reused1 = creator.getChunk();
+    Chunk reused2 = creator.getChunk();
+    assertTrue(reused1 == chunk1 || reused1 == chunk2);
+    assertTrue(reused2 == chunk1 || reused2 == chunk2);
+    assertEquals(2, ShuffleServerMetrics.counterLABChunkReused.get(), 0);
+    assertEquals(0, ShuffleServerMetrics.counterLABChunkPoolMiss.get(), 0);
+    // there is no idle chunk any more
+    assertFalse(creator.getChunk().isFromPool());
+    assertEquals(1, ShuffleServerMetrics.counterLABChunkPoolMiss.get(), 0);
+  }
+
+  @Test
+  public void largeBlockTest() {
+    ChunkCreator.initialize(1024, 8192, 1024 * 1024, 200, 0);
+    LAB lab = new LAB();
+    byte[] data = new byte[3000];
+    Arrays.fill(data, (byte) 1);
+    ShufflePartitionedBlock block = new ShufflePartitionedBlock(3000, 3000, 0, 1, 0, data);
+    ShufflePartitionedBlock copied = lab.tryCopyBlockToChunk(block);
+    assertTrue(copied.isOnLAB());
+    byte[] copiedData = new byte[3000];
+    copied.getData().getBytes(0, copiedData);
+    assertArrayEquals(data, copiedData);
+    // the gauge is updated when a chunk is taken, the chunk of 4096 bytes holds only one block
+    ShufflePartitionedBlock small = new ShufflePartitionedBlock(100, 100, 0, 2, 0, new byte[100]);
+    assertTrue(lab.tryCopyBlockToChunk(small).isOnLAB());
+    assertEquals(
+        (4096 + 1024 - 3000) * 100d / (4096 + 1024),
+        ShuffleServerMetrics.gaugeLABChunkFragmentationPercent.get(),
+        0.01);
+
+    // too large for all the size classes
+    ShufflePartitionedBlock huge = new ShufflePartitionedBlock(9000, 9000, 0, 3, 0, new byte[9000]);
+    assertSame(huge, lab.tryCopyBlockToChunk(huge));
+    assertEquals(1, ShuffleServerMetrics.counterBlockNotOnLAB.get(), 0);
+
+    lab.close();
+    assertEquals(0, ShuffleServerMetrics.gaugeLABChunkFragmentationPercent.get(), 0);
+    assertEquals(2, ShuffleServerMetrics.gaugeLABChunkReclaimed.get(), 0);
+  }
+
+  @Test
+  public void largeBlockPoolExhaustedTest() {
+    // the pool of 4096 bytes holds one chunk
+    ChunkCreator.initialize(2048, 4096, 4096 * 2, 200, 0);
+    LAB lab = new LAB();
+    ShufflePartitionedBlock block1 =
+        new ShufflePartitionedBlock(3000, 3000, 0, 1, 0, new byte[3000]);
+    ShufflePartitionedBlock block2 =
+        new ShufflePartitionedBlock(3000, 3000, 0, 2, 0, new byte[3000]);
+    assertTrue(lab.tryCopyBlockToChunk(block1).isOnLAB());
+    // no dedicated chunk is created outside of the pool
+    assertSame(block2, lab.tryCopyBlockToChunk(block2));
+    assertEquals(1, ShuffleServerMetrics.counterBlockNotOnLAB.get(), 0);
+    assertEquals(1, ShuffleServerMetrics.counterLABChunkPoolMiss.get(), 0);
+    lab.close();
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.flush;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.server.ShuffleDataFlushEvent;
+import org.apache.uniffle.server.ShuffleServerMetrics;
+import org.apache.uniffle.storage.common.HadoopStorage;
+import org.apache.uniffle.storage.common.LocalStorage;
+import org.apache.uniffle.storage.common.Storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class FlushEventCoalescerTest {
+
+  private final AtomicInteger blockId = new AtomicInteger();
+  private final AtomicInteger eventId = new AtomicInteger();
+
+  @BeforeEach
+  public void setUp() {
+    ShuffleServerMetrics.register();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    ShuffleServerMetrics.clear();
+  }
+
+  private Pair<ShuffleDataFlushEvent, Storage> createEvent(
+      int partitionId, int size, Storage storage, AtomicInteger cleanupCounter) {
+    List<ShufflePartitionedBlock> blocks =
+        Lists.newArrayList(
+            new ShufflePartitionedBlock(
+                size, size, 0, blockId.incrementAndGet(), 0, (byte[]) null));
+    ShuffleDataFlushEvent event =
+        new ShuffleDataFlushEvent(
+            eventId.incrementAndGet(),
+            "app1",
+            1,
+            partitionId,
+            partitionId,
+            size,
+            blocks,
+            null,
+            null);
+    event.setUnderStorage(storage);
+    event.addCleanupCallback(cleanupCounter::incrementAndGet);
+    return Pair.of(event, storage);
+  }
+
+  private static List<Long> blockIds(ShuffleDataFlushEvent event) {
+    return event.getShuffleBlocks().stream()
+        .map(ShufflePartitionedBlock::getBlockId)
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void coalesceTest() {
+    FlushEventCoalescer coalescer = new FlushEventCoalescer(100);
+    LocalStorage disk1 = mock(LocalStorage.class);
+    LocalStorage disk2 = mock(LocalStorage.class);
+    AtomicInteger cleanupCounter = new AtomicInteger();
+    List<Pair<ShuffleDataFlushEvent, Storage>> events = new ArrayList<>();
+    events.add(createEvent(1, 10, disk1, cleanupCounter));
+    events.add(createEvent(2, 10, disk1, cleanupCounter));
+    events.add(createEvent(1, 20, disk1, cleanupCounter));
+    // the same partition on another storage isn't merged
+    events.add(createEvent(1, 10, disk2, cleanupCounter));
+    // too large to be merged
+    events.add(createEvent(1, 100, disk1, cleanupCounter));
+    events.add(createEvent(1, 30, disk1, cleanupCounter));
+
+    List<FlushEventCoalescer.Batch> result = coalescer.coalesce(events);
+    assertEquals(3, result.size());
+    // the events of different partitions on disk1 are written by one task
+    FlushEventCoalescer.Batch batch = result.get(0);
+    assertSame(disk1, batch.getStorage());
+    assertEquals(2, batch.getEvents().size());
+    ShuffleDataFlushEvent merged = batch.getEvents().get(0);
+    assertEquals(1, merged.getStartPartition());
+    assertEquals(60, merged.getEncodedLength());
+    assertEquals(Lists.newArrayList(1L, 3L, 6L), blockIds(merged));
+    assertSame(events.get(1).getLeft(), batch.getEvents().get(1));
+    assertSame(disk2, result.get(1).getStorage());
+    assertEquals(Lists.newArrayList(events.get(3).getLeft()), result.get(1).getEvents());
+    assertEquals(Lists.newArrayList(events.get(4).getLeft()), result.get(2).getEvents());
+    assertEquals(2, ShuffleServerMetrics.counterLocalFileEventCoalesced.get(), 0);
+    assertEquals(1, ShuffleServerMetrics.counterLocalFileEventBatched.get(), 0);
+
+    // the memory of all merged events is released
+    merged.doCleanup();
+    assertEquals(3, cleanupCounter.get());
+  }
+
+  @Test
+  public void maxSizeTest() {
+    FlushEventCoalescer coalescer = new FlushEventCoalescer(50);
+    LocalStorage disk = mock(LocalStorage.class);
+    AtomicInteger cleanupCounter = new AtomicInteger();
+    List<Pair<ShuffleDataFlushEvent, Storage>> events = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      events.add(createEvent(1, 20, disk, cleanupCounter));
+    }
+    events.add(createEvent(2, 20, disk, cleanupCounter));
+    List<FlushEventCoalescer.Batch> result = coalescer.coalesce(events);
+    assertEquals(3, result.size());
+    assertEquals(Lists.newArrayList(1L, 2L), blockIds(result.get(0).getEvents().get(0)));
+    assertEquals(Lists.newArrayList(3L, 4L), blockIds(result.get(1).getEvents().get(0)));
+    assertEquals(Lists.newArrayList(events.get(4).getLeft()), result.get(2).getEvents());
+  }
+
+  @Test
+  public void skipNonLocalAndPendedEventsTest() {
+    FlushEventCoalescer coalescer = new FlushEventCoalescer(100);
+    HadoopStorage hadoopStorage = mock(HadoopStorage.class);
+    LocalStorage disk = mock(LocalStorage.class);
+    AtomicInteger cleanupCounter = new AtomicInteger();
+    List<Pair<ShuffleDataFlushEvent, Storage>> events = new ArrayList<>();
+    events.add(createEvent(1, 10, hadoopStorage, cleanupCounter));
+    events.add(createEvent(2, 10, hadoopStorage, cleanupCounter));
+    events.add(createEvent(3, 10, disk, cleanupCounter));
+    events.add(createEvent(4, 10, disk, cleanupCounter));
+    events.get(2).getLeft().markPended();
+
+    List<FlushEventCoalescer.Batch> result = coalescer.coalesce(events);
+    assertEquals(4, result.size());
+    for (int i = 0; i < events.size(); i++) {
+      assertSame(events.get(i).getRight(), result.get(i).getStorage());
+      assertEquals(Lists.newArrayList(events.get(i).getLeft()), result.get(i).getEvents());
+    }
+    assertFalse(ShuffleServerMetrics.counterLocalFileEventCoalesced.get() > 0);
+    assertFalse(ShuffleServerMetrics.counterLocalFileEventBatched.get() > 0);
+  }
+}
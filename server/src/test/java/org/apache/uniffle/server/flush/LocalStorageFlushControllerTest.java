@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.flush;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.apache.uniffle.server.ShuffleDataFlushEvent;
+import org.apache.uniffle.server.ShuffleServerMetrics;
+import org.apache.uniffle.storage.common.LocalStorage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocalStorageFlushControllerTest {
+
+  private long currentTime;
+
+  @BeforeEach
+  public void setUp() {
+    ShuffleServerMetrics.register();
+    currentTime = 0;
+  }
+
+  @AfterEach
+  public void tearDown() {
+    ShuffleServerMetrics.clear();
+  }
+
+  private LocalStorageFlushController createController(long targetLatencyMs, long minSize) {
+    return new LocalStorageFlushController(targetLatencyMs, minSize) {
+      @Override
+      long now() {
+        return currentTime;
+      }
+    };
+  }
+
+  private static LocalStorage mockStorage(String path) {
+    LocalStorage storage = mock(LocalStorage.class);
+    when(storage.getBasePath()).thenReturn(path);
+    return storage;
+  }
+
+  private static ShuffleDataFlushEvent mockEvent(long size) {
+    ShuffleDataFlushEvent event = mock(ShuffleDataFlushEvent.class);
+    when(event.getEncodedLength()).thenReturn(size);
+    return event;
+  }
+
+  @Test
+  public void limitByBandwidthTest() {
+    LocalStorageFlushController controller = createController(1000, 100);
+    LocalStorage storage = mockStorage("/disk1");
+    List<ShuffleDataFlushEvent> dispatched = new ArrayList<>();
+
+    // nothing is limited before the bandwidth is measured
+    ShuffleDataFlushEvent first = mockEvent(1000);
+    controller.submit(storage, first, dispatched::add);
+    assertEquals(1, dispatched.size());
+    // 1000 bytes in 2 seconds
+    controller.complete(storage, first, 2000, true);
+    LocalStorageFlushController.DiskState state = controller.getDiskState(storage);
+    assertEquals(500, (long) state.getBandwidth());
+    assertEquals(500, state.getInFlightSizeLimit());
+
+    ShuffleDataFlushEvent event1 = mockEvent(400);
+    ShuffleDataFlushEvent event2 = mockEvent(200);
+    ShuffleDataFlushEvent event3 = mockEvent(300);
+    controller.submit(storage, event1, dispatched::add);
+    controller.submit(storage, event2, dispatched::add);
+    controller.submit(storage, event3, dispatched::add);
+    // only event1 fits in the limit
+    assertEquals(2, dispatched.size());
+    assertEquals(400, state.getInFlightSize());
+    assertEquals(2, state.getPendingEventNum());
+
+    // the larger waiting event is dispatched first, then both fit in the limit
+    controller.complete(storage, event1, 800, true);
+    assertEquals(4, dispatched.size());
+    assertEquals(event3, dispatched.get(2));
+    assertEquals(event2, dispatched.get(3));
+    assertEquals(500, state.getInFlightSize());
+    controller.complete(storage, event3, 600, true);
+    controller.complete(storage, event2, 400, true);
+    assertEquals(0, state.getInFlightSize());
+    assertEquals(0, state.getPendingEventNum());
+  }
+
+  @Test
+  public void largeEventAndStarvationTest() {
+    LocalStorageFlushController controller = createController(1000, 100);
+    LocalStorage storage = mockStorage("/disk1");
+    List<ShuffleDataFlushEvent> dispatched = new ArrayList<>();
+    ShuffleDataFlushEvent first = mockEvent(100);
+    controller.submit(storage, first, dispatched::add);
+    controller.complete(storage, first, 1000, true);
+    LocalStorageFlushController.DiskState state = controller.getDiskState(storage);
+    assertEquals(100, state.getInFlightSizeLimit());
+
+    // an event larger than the limit is still flushed if nothing else is in flight
+    ShuffleDataFlushEvent huge = mockEvent(10000);
+    controller.submit(storage, huge, dispatched::add);
+    assertEquals(2, dispatched.size());
+
+    ShuffleDataFlushEvent small = mockEvent(10);
+    controller.submit(storage, small, dispatched::add);
+    currentTime = 20000;
+    ShuffleDataFlushEvent large = mockEvent(50);
+    controller.submit(storage, large, dispatched::add);
+    // the small event waits too long, so it goes before the larger one
+    controller.complete(storage, huge, 100000, true);
+    assertEquals(small, dispatched.get(2));
+    assertEquals(large, dispatched.get(3));
+    assertEquals(0, state.getPendingEventNum());
+  }
+
+  @Test
+  public void disksAreIndependentTest() {
+    LocalStorageFlushController controller = createController(1000, 100);
+    LocalStorage slowDisk = mockStorage("/disk1");
+    LocalStorage fastDisk = mockStorage("/disk2");
+    List<ShuffleDataFlushEvent> dispatched = new ArrayList<>();
+    ShuffleDataFlushEvent first = mockEvent(100);
+    controller.submit(slowDisk, first, dispatched::add);
+    controller.complete(slowDisk, first, 1000, true);
+    controller.submit(slowDisk, mockEvent(100), dispatched::add);
+    controller.submit(slowDisk, mockEvent(100), dispatched::add);
+    assertEquals(2, dispatched.size());
+
+    for (int i = 0; i < 5; i++) {
+      controller.submit(fastDisk, mockEvent(100), dispatched::add);
+    }
+    assertEquals(7, dispatched.size());
+    assertEquals(1, controller.getDiskState(slowDisk).getPendingEventNum());
+  }
+}
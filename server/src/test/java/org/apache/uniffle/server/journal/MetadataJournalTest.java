@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.server.journal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.apache.uniffle.common.PartitionRange;
+import org.apache.uniffle.common.RemoteStorageInfo;
+import org.apache.uniffle.common.ShuffleDataDistributionType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetadataJournalTest {
+
+  @TempDir private File tempDir;
+
+  private static class RecordingListener implements MetadataJournal.Listener {
+    private final List<String> records = new ArrayList<>();
+
+    @Override
+    public void onRegisterShuffle(
+        String appId,
+        int shuffleId,
+        List<PartitionRange> partitionRanges,
+        RemoteStorageInfo remoteStorageInfo,
+        String user,
+        ShuffleDataDistributionType dataDistType,
+        int maxConcurrencyPerPartitionToWrite,
+        Map<String, String> properties) {
+      records.add(
+          String.format(
+              "register %s-%s %s %s %s %s %s %s",
+              appId,
+              shuffleId,
+              partitionRanges.stream()
+                  .map(range -> range.getStart() + "-" + range.getEnd())
+                  .collect(Collectors.toList()),
+              remoteStorageInfo,
+              user,
+              dataDistType,
+              maxConcurrencyPerPartitionToWrite,
+              properties));
+    }
+
+    @Override
+    public void onFinishedBlockIds(
+        String appId, int shuffleId, Map<Integer, long[]> partitionToBlockIds, int bitmapNum) {
+      long[] blockIds = partitionToBlockIds.get(1);
+      records.add(
+          String.format(
+              "blocks %s-%s %s %s %s",
+              appId,
+              shuffleId,
+              partitionToBlockIds.keySet(),
+              Arrays.toString(blockIds),
+              bitmapNum));
+    }
+
+    @Override
+    public void onPartitionStorage(String appId, int shuffleId, int partitionId, String basePath) {
+      records.add(String.format("storage %s-%s-%s %s", appId, shuffleId, partitionId, basePath));
+    }
+  }
+
+  private MetadataJournal createJournal() {
+    return new MetadataJournal(tempDir.getAbsolutePath(), 60000);
+  }
+
+  private List<String> replay(MetadataJournal journal) throws Exception {
+    RecordingListener listener = new RecordingListener();
+    int recordNum = journal.replay(listener);
+    assertEquals(recordNum, listener.records.size());
+    return listener.records;
+  }
+
+  private static void appendShuffle(MetadataJournal journal, String appId, int shuffleId) {
+    journal.appendRegisterShuffle(
+        appId,
+        shuffleId,
+        Lists.newArrayList(new PartitionRange(0, 0), new PartitionRange(1, 1)),
+        new RemoteStorageInfo("hdfs://ns/rss", Collections.singletonMap("k1", "v1")),
+        "user",
+        ShuffleDataDistributionType.LOCAL_ORDER,
+        5,
+        Collections.singletonMap("p1", "v1"));
+    journal.appendFinishedBlockIds(
+        appId, shuffleId, Collections.singletonMap(1, new long[] {1L, 2L, Long.MAX_VALUE}), 2);
+    journal.appendPartitionStorage(appId, shuffleId, 1, "/disk1");
+  }
+
+  private static List<String> expectedRecords(String appId, int shuffleId) {
+    return Lists.newArrayList(
+        String.format(
+            "register %s-%s [0-0, 1-1] %s user LOCAL_ORDER 5 {p1=v1}",
+            appId,
+            shuffleId,
+            new RemoteStorageInfo("hdfs://ns/rss", Collections.singletonMap("k1", "v1"))),
+        String.format("blocks %s-%s [1] [1, 2, %s] 2", appId, shuffleId, Long.MAX_VALUE),
+        String.format("storage %s-%s-1 /disk1", appId, shuffleId));
+  }
+
+  @Test
+  public void replayTest() throws Exception {
+    MetadataJournal journal = createJournal();
+    assertTrue(replay(journal).isEmpty());
+    // nothing is recorded before the journal is started
+    appendShuffle(journal, "app0", 0);
+    journal.start();
+    appendShuffle(journal, "app1", 1);
+    appendShuffle(journal, "app1", 2);
+    appendShuffle(journal, "app2", 1);
+    journal.appendRemoveShuffles("app1", Lists.newArrayList(1));
+    journal.appendRemoveApp("app2");
+    // an app registered again after it's removed
+    appendShuffle(journal, "app2", 3);
+    journal.close();
+
+    List<String> expected = expectedRecords("app1", 2);
+    expected.addAll(expectedRecords("app2", 3));
+    assertEquals(expected, replay(createJournal()));
+  }
+
+  @Test
+  public void tornRecordTest() throws Exception {
+    MetadataJournal journal = createJournal();
+    journal.replay(new RecordingListener());
+    journal.start();
+    appendShuffle(journal, "app1", 1);
+    journal.close();
+    File journalFile = new File(tempDir, MetadataJournal.JOURNAL_FILE);
+    long validLength = journalFile.length();
+    // a record torn by a crash
+    try (FileOutputStream output = new FileOutputStream(journalFile, true)) {
+      output.write(new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 5});
+    }
+
+    journal = createJournal();
+    assertEquals(expectedRecords("app1", 1), replay(journal));
+    assertEquals(validLength, journalFile.length());
+    // the new records are appended after the complete records
+    journal.start();
+    appendShuffle(journal, "app2", 1);
+    journal.close();
+    List<String> expected = expectedRecords("app1", 1);
+    expected.addAll(expectedRecords("app2", 1));
+    assertEquals(expected, replay(createJournal()));
+  }
+
+  @Test
+  public void compactTest() throws Exception {
+    MetadataJournal journal = createJournal();
+    journal.replay(new RecordingListener());
+    journal.start();
+    appendShuffle(journal, "app1", 1);
+    appendShuffle(journal, "app2", 1);
+    File journalFile = new File(tempDir, MetadataJournal.JOURNAL_FILE);
+    File snapshotFile = new File(tempDir, MetadataJournal.SNAPSHOT_FILE);
+    // nothing to compact before an app or a shuffle is removed
+    journal.awaitWritten();
+    journal.compact();
+    assertFalse(snapshotFile.exists());
+
+    journal.appendRemoveApp("app1");
+    journal.awaitWritten();
+    long journalLength = journalFile.length();
+    journal.compact();
+    assertTrue(snapshotFile.exists());
+    assertTrue(snapshotFile.length() < journalLength);
+    assertEquals(0, journalFile.length());
+    assertFalse(new File(tempDir, MetadataJournal.ROTATED_JOURNAL_FILE).exists());
+
+    // the records after the compaction are applied to the snapshot
+    appendShuffle(journal, "app3", 1);
+    journal.appendRemoveApp("app2");
+    journal.close();
+    assertEquals(expectedRecords("app3", 1), replay(createJournal()));
+  }
+
+  @Test
+  public void concurrentAppendTest() throws Exception {
+    MetadataJournal journal = createJournal();
+    journal.replay(new RecordingListener());
+    journal.start();
+    int threadNum = 8;
+    int shuffleNum = 50;
+    ExecutorService executor = Executors.newFixedThreadPool(threadNum);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threadNum; i++) {
+        String appId = "app" + i;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int shuffleId = 0; shuffleId < shuffleNum; shuffleId++) {
+                    appendShuffle(journal, appId, shuffleId);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    // the records queued are written before the journal is closed
+    journal.close();
+
+    List<String> records = replay(createJournal());
+    assertEquals(threadNum * shuffleNum * 3, records.size());
+    // the records of each app are in the order they are appended
+    for (int i = 0; i < threadNum; i++) {
+      String appId = "app" + i;
+      List<String> expected = new ArrayList<>();
+      for (int shuffleId = 0; shuffleId < shuffleNum; shuffleId++) {
+        expected.addAll(expectedRecords(appId, shuffleId));
+      }
+      assertEquals(
+          expected,
+          records.stream()
+              .filter(record -> record.contains(" " + appId + "-"))
+              .collect(Collectors.toList()));
+    }
+  }
+}
@@ -23,11 +23,13 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.collect.Lists;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -45,10 +47,12 @@ import org.apache.uniffle.common.serializer.SerInputStream;
 import org.apache.uniffle.common.serializer.SerOutputStream;
 import org.apache.uniffle.common.serializer.SerializerUtils;
 import org.apache.uniffle.common.util.BlockIdLayout;
+import org.apache.uniffle.common.util.ByteBufUtils;
 import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
 import org.apache.uniffle.storage.handler.impl.LocalFileServerReadHandler;
 import org.apache.uniffle.storage.handler.impl.LocalFileWriteHandler;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -162,6 +166,52 @@ public class BlockFlushFileReaderTest {
     return blocks;
   }
 
+  @Timeout(20)
+  @ParameterizedTest
+  @ValueSource(strings = {"1,true", "1,false", "2,true", "2,false"})
+  void transferToWithSmallRingBuffer(String params, @TempDir File tmpDir) throws Exception {
+    String[] paramArray = params.split(",");
+    int ringBufferSize = Integer.parseInt(paramArray[0]);
+    boolean direct = Boolean.parseBoolean(paramArray[1]);
+
+    File dataDir = new File(tmpDir, "data");
+    LocalFileWriteHandler writeHandler =
+        new LocalFileWriteHandler("appId", 0, 1, 1, dataDir.getAbsolutePath(), "pre");
+    byte[] data = new byte[1024 * 1024];
+    new Random().nextBytes(data);
+    long blockId = BlockIdLayout.DEFAULT.getBlockId(ATOMIC_INT.incrementAndGet(), 0, 100);
+    ShufflePartitionedBlock block =
+        new ShufflePartitionedBlock(
+            data.length, data.length, 0, blockId, 100, Unpooled.wrappedBuffer(data));
+    writeTestData(Lists.newArrayList(block), writeHandler, new HashSet<>());
+
+    LocalFileServerReadHandler readHandler =
+        new LocalFileServerReadHandler("appId", 0, 1, 1, 10, dataDir.getAbsolutePath());
+    BlockFlushFileReader blockFlushFileReader =
+        new BlockFlushFileReader(
+            readHandler.getDataFileName(),
+            readHandler.getIndexFileName(),
+            ringBufferSize,
+            direct);
+    BlockFlushFileReader.BlockInputStream inputStream =
+        blockFlushFileReader.registerBlockInputStream(blockId);
+    inputStream.init();
+    blockFlushFileReader.start();
+    ByteBuf out = Unpooled.buffer(data.length);
+    try {
+      // the buffers are drained while FlushFileReader keeps reloading the few buffers of the ring
+      Random random = new Random();
+      while (inputStream.available() > 0) {
+        int len = random.nextBoolean() ? 4096 : random.nextInt(8192) + 1;
+        inputStream.transferTo(out, Math.min(len, inputStream.available()));
+      }
+      assertArrayEquals(data, ByteBufUtils.readBytes(out));
+    } finally {
+      out.release();
+      blockFlushFileReader.close();
+    }
+  }
+
   @Timeout(20)
   @ParameterizedTest
   @ValueSource(
@@ -19,9 +19,11 @@ package org.apache.uniffle.storage.api;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collection;
 
 import io.netty.buffer.ByteBuf;
 
+import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
 
 public interface FileWriter extends Closeable {
@@ -32,4 +34,25 @@ public interface FileWriter extends Closeable {
   void writeIndex(FileBasedShuffleSegment segment) throws IOException;
 
   long nextOffset();
+
+  /**
+   * Writes the data of all blocks to this writer and their index records to {@code indexWriter}.
+   * Implementations may override this to write the whole batch at once.
+   */
+  default void writeBlocks(Collection<ShufflePartitionedBlock> blocks, FileWriter indexWriter)
+      throws IOException {
+    for (ShufflePartitionedBlock block : blocks) {
+      long startOffset = nextOffset();
+      writeData(block.getData());
+      FileBasedShuffleSegment segment =
+          new FileBasedShuffleSegment(
+              block.getBlockId(),
+              startOffset,
+              block.getDataLength(),
+              block.getUncompressLength(),
+              block.getCrc(),
+              block.getTaskAttemptId());
+      indexWriter.writeIndex(segment);
+    }
+  }
 }
@@ -24,13 +24,16 @@ import org.apache.hadoop.conf.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.uniffle.common.config.RssBaseConf;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.storage.handler.api.ServerReadHandler;
 import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
+import org.apache.uniffle.storage.handler.impl.HadoopShuffleManifest;
 import org.apache.uniffle.storage.handler.impl.HadoopShuffleWriteHandler;
 import org.apache.uniffle.storage.handler.impl.PooledHadoopShuffleWriteHandler;
 import org.apache.uniffle.storage.request.CreateShuffleReadHandlerRequest;
 import org.apache.uniffle.storage.request.CreateShuffleWriteHandlerRequest;
+import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 
 public class HadoopStorage extends AbstractStorage {
 
@@ -81,6 +84,19 @@ public class HadoopStorage extends AbstractStorage {
   ShuffleWriteHandler newWriteHandler(CreateShuffleWriteHandlerRequest request) {
     try {
       String user = request.getUser();
+      HadoopShuffleManifest manifest = null;
+      if (request.getRssBaseConf().get(RssBaseConf.RSS_STORAGE_HDFS_MANIFEST_ENABLED)) {
+        manifest =
+            new HadoopShuffleManifest(
+                ShuffleStorageUtils.getFullShuffleDataFolder(
+                    storagePath,
+                    ShuffleStorageUtils.getShuffleDataPath(
+                        request.getAppId(),
+                        request.getShuffleId(),
+                        request.getStartPartition(),
+                        request.getEndPartition())),
+                request.getFileNamePrefix());
+      }
       if (request.getMaxFileNumber() == 1) {
         return new HadoopShuffleWriteHandler(
             request.getRssBaseConf(),
@@ -91,7 +107,8 @@ public class HadoopStorage extends AbstractStorage {
             storagePath,
             request.getFileNamePrefix(),
             conf,
-            user);
+            user,
+            manifest);
       } else {
         return new PooledHadoopShuffleWriteHandler(
             request.getRssBaseConf(),
@@ -103,7 +120,8 @@ public class HadoopStorage extends AbstractStorage {
             request.getFileNamePrefix(),
             conf,
             user,
-            request.getMaxFileNumber());
+            request.getMaxFileNumber(),
+            manifest);
       }
     } catch (Exception e) {
       throw new RssException(e);
@@ -31,12 +31,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.common.netty.buffer.AlignedBufferPool;
 import org.apache.uniffle.common.storage.StorageMedia;
 import org.apache.uniffle.common.util.RssUtils;
 import org.apache.uniffle.storage.handler.api.ServerReadHandler;
 import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
 import org.apache.uniffle.storage.handler.impl.LocalFileServerReadHandler;
 import org.apache.uniffle.storage.handler.impl.LocalFileWriteHandler;
+import org.apache.uniffle.storage.handler.impl.LocalIndexFileCache;
 import org.apache.uniffle.storage.request.CreateShuffleReadHandlerRequest;
 import org.apache.uniffle.storage.request.CreateShuffleWriteHandlerRequest;
 
@@ -59,6 +61,8 @@ public class LocalStorage extends AbstractStorage {
   private final double lowWaterMarkOfWrite;
   private final LocalStorageMeta metaData = new LocalStorageMeta();
   private final StorageMedia media;
+  private final AlignedBufferPool directIOReadBufferPool;
+  private final LocalIndexFileCache indexFileCache;
   private boolean isSpaceEnough = true;
   private volatile boolean isCorrupted = false;
 
@@ -70,13 +74,17 @@ public class LocalStorage extends AbstractStorage {
     this.media = builder.media;
     this.enableDiskCapacityCheck = builder.enableDiskCapacityWatermarkCheck;
     this.id = builder.id;
+    this.directIOReadBufferPool = builder.directIOReadBufferPool;
+    this.indexFileCache = builder.indexFileCache;
 
     File baseFolder = new File(basePath);
     try {
       // similar to mkdir -p, ensure the base folder is a dir
       FileUtils.forceMkdir(baseFolder);
-      // clean the directory if it's data left from previous ran.
-      FileUtils.cleanDirectory(baseFolder);
+      // clean the directory if it's data left from previous ran, unless the data is recovered
+      if (!builder.keepExistingData) {
+        FileUtils.cleanDirectory(baseFolder);
+      }
       FileStore store = Files.getFileStore(baseFolder.toPath());
       this.mountPoint = store.name();
     } catch (IOException ioe) {
@@ -152,7 +160,9 @@ public class LocalStorage extends AbstractStorage {
         request.getPartitionNumPerRange(),
         request.getPartitionNum(),
         basePath,
-        id);
+        id,
+        directIOReadBufferPool,
+        indexFileCache);
   }
 
   // only for tests.
@@ -298,6 +308,9 @@ public class LocalStorage extends AbstractStorage {
     private StorageMedia media;
     private boolean enableDiskCapacityWatermarkCheck;
     private int id;
+    private AlignedBufferPool directIOReadBufferPool;
+    private LocalIndexFileCache indexFileCache;
+    private boolean keepExistingData;
 
     private Builder() {}
 
@@ -341,6 +354,21 @@ public class LocalStorage extends AbstractStorage {
       return this;
     }
 
+    public Builder directIOReadBufferPool(AlignedBufferPool directIOReadBufferPool) {
+      this.directIOReadBufferPool = directIOReadBufferPool;
+      return this;
+    }
+
+    public Builder indexFileCache(LocalIndexFileCache indexFileCache) {
+      this.indexFileCache = indexFileCache;
+      return this;
+    }
+
+    public Builder keepExistingData() {
+      this.keepExistingData = true;
+      return this;
+    }
+
     public LocalStorage build() {
       return new LocalStorage(this);
     }
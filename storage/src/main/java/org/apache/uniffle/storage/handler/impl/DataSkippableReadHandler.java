@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
@@ -79,6 +80,35 @@ public abstract class DataSkippableReadHandler extends PrefetchableClientReadHan
 
   @Override
   public ShuffleDataResult doReadShuffleData() {
+    ShuffleDataSegment segment = nextSegment();
+    if (segment == null) {
+      return null;
+    }
+    return readShuffleData(
+        segment,
+        getNextSegments(shuffleDataSegments, segmentIndex, nextReadSegmentReportCount));
+  }
+
+  /**
+   * Only picks the next segment here, so that the segments could be read concurrently by multiple
+   * prefetch threads.
+   */
+  @Override
+  protected Callable<ShuffleDataResult> prepareNextRead() {
+    ShuffleDataSegment segment = nextSegment();
+    if (segment == null) {
+      return null;
+    }
+    List<ShuffleDataSegment> nextReadSegments =
+        getNextSegments(shuffleDataSegments, segmentIndex, nextReadSegmentReportCount);
+    return () -> readShuffleData(segment, nextReadSegments);
+  }
+
+  /**
+   * Returns the next segment to read and moves segmentIndex after it, or null if there is no more
+   * segment to read.
+   */
+  private ShuffleDataSegment nextSegment() {
     if (shuffleDataSegments.isEmpty()) {
       ShuffleIndexResult shuffleIndexResult = readShuffleIndex();
       if (shuffleIndexResult == null || shuffleIndexResult.isEmpty()) {
@@ -96,29 +126,22 @@ public abstract class DataSkippableReadHandler extends PrefetchableClientReadHan
     }
 
     // We should skip unexpected and processed segments when handler is read
-    ShuffleDataResult result = null;
     while (segmentIndex < shuffleDataSegments.size()) {
       ShuffleDataSegment segment = shuffleDataSegments.get(segmentIndex);
+      segmentIndex++;
       Set<Long> blocksOfSegment = new HashSet<>();
       segment.getBufferSegments().forEach(block -> blocksOfSegment.add(block.getBlockId()));
       // skip unexpected blockIds
       blocksOfSegment.removeIf(blockId -> !expectBlockIds.contains(blockId));
       if (!blocksOfSegment.isEmpty()) {
         // skip processed blockIds
-        blocksOfSegment.removeAll(processBlockIds);
+        blocksOfSegment.removeIf(processBlockIds::contains);
         if (!blocksOfSegment.isEmpty()) {
-          result =
-              readShuffleData(
-                  segment,
-                  getNextSegments(
-                      shuffleDataSegments, segmentIndex + 1, nextReadSegmentReportCount));
-          segmentIndex++;
-          break;
+          return segment;
         }
       }
-      segmentIndex++;
     }
-    return result;
+    return null;
   }
 
   @VisibleForTesting
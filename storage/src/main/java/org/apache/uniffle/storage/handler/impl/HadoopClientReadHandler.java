@@ -18,6 +18,7 @@
 package org.apache.uniffle.storage.handler.impl;
 
 import java.io.FileNotFoundException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -140,38 +141,24 @@ public class HadoopClientReadHandler extends AbstractClientReadHandler {
       throw new RssException("Can't get FileSystem for " + baseFolder);
     }
 
-    FileStatus[] indexFiles = null;
-    try {
-      // get all index files
-      indexFiles =
-          fs.listStatus(
-              baseFolder,
-              file ->
-                  file.getName().endsWith(Constants.SHUFFLE_INDEX_FILE_SUFFIX)
-                      && (shuffleServerId == null || file.getName().startsWith(shuffleServerId)));
-    } catch (Exception e) {
-      if (e instanceof FileNotFoundException) {
-        LOG.info(
-            "Directory["
-                + baseFolder
-                + "] not found. The data may not be flushed to this directory. Nothing will be read.");
-      } else {
-        String failedGetIndexFileMsg = "Can't list index file in  " + baseFolder;
-        LOG.error(failedGetIndexFileMsg, e);
-      }
-      return;
+    List<String> filePrefixes = null;
+    if (shuffleServerId != null) {
+      filePrefixes = readFilePrefixesFromManifest(fs, baseFolder);
+    }
+    if (filePrefixes == null) {
+      filePrefixes = listFilePrefixes(fs, baseFolder);
     }
 
-    if (indexFiles != null && indexFiles.length != 0) {
-      for (FileStatus status : indexFiles) {
+    if (filePrefixes != null && !filePrefixes.isEmpty()) {
+      for (String filePrefix : filePrefixes) {
         LOG.info(
             "Find index file for shuffleId["
                 + shuffleId
                 + "], partitionId["
                 + partitionId
                 + "] "
-                + status.getPath());
-        String filePrefix = getFileNamePrefix(status.getPath().toUri().toString());
+                + filePrefix
+                + Constants.SHUFFLE_INDEX_FILE_SUFFIX);
         try {
           HadoopShuffleReadHandler handler =
               new HadoopShuffleReadHandler(
@@ -200,6 +187,63 @@ public class HadoopClientReadHandler extends AbstractClientReadHandler {
     }
   }
 
+  private List<String> listFilePrefixes(FileSystem fs, Path baseFolder) {
+    FileStatus[] indexFiles = null;
+    try {
+      // get all index files
+      indexFiles =
+          fs.listStatus(
+              baseFolder,
+              file ->
+                  file.getName().endsWith(Constants.SHUFFLE_INDEX_FILE_SUFFIX)
+                      && (shuffleServerId == null || file.getName().startsWith(shuffleServerId)));
+    } catch (Exception e) {
+      if (e instanceof FileNotFoundException) {
+        LOG.info(
+            "Directory["
+                + baseFolder
+                + "] not found. The data may not be flushed to this directory. Nothing will be read.");
+      } else {
+        String failedGetIndexFileMsg = "Can't list index file in  " + baseFolder;
+        LOG.error(failedGetIndexFileMsg, e);
+      }
+      return null;
+    }
+    return Arrays.stream(indexFiles)
+        .map(status -> getFileNamePrefix(status.getPath().toUri().toString()))
+        .collect(Collectors.toList());
+  }
+
+  /** @return null if the manifest of the server doesn't exist or can't be read */
+  private List<String> readFilePrefixesFromManifest(FileSystem fs, Path baseFolder) {
+    Path manifestPath = HadoopShuffleManifest.getPath(baseFolder, shuffleServerId);
+    try {
+      List<HadoopShuffleManifest.Entry> entries = HadoopShuffleManifest.read(fs, manifestPath);
+      LOG.info(
+          "Read the manifest {} of {} files with {} blocks",
+          manifestPath,
+          entries.size(),
+          entries.stream().mapToLong(HadoopShuffleManifest.Entry::getBlockNum).sum());
+      return entries.stream()
+          .filter(entry -> entry.getBlockNum() > 0)
+          .map(entry -> new Path(baseFolder, entry.getFilePrefix()).toUri().toString())
+          .collect(Collectors.toList());
+    } catch (FileNotFoundException e) {
+      // the files are written without a manifest, or not written at all
+      return null;
+    } catch (Exception e) {
+      LOG.warn("Can't read the manifest {}, the index files are listed instead", manifestPath, e);
+      return null;
+    }
+  }
+
+  // reads the next file in parallel with the current one if prefetching is enabled
+  private void prefetchNextFile() {
+    if (prefetchOption.isPresent() && readHandlerIndex + 1 < readHandlers.size()) {
+      readHandlers.get(readHandlerIndex + 1).startPrefetch();
+    }
+  }
+
   @Override
   public ShuffleDataResult readShuffleData() {
     // init lazily like LocalFileClientRead
@@ -218,6 +262,7 @@ public class HadoopClientReadHandler extends AbstractClientReadHandler {
 
     HadoopShuffleReadHandler hadoopShuffleFileReader = readHandlers.get(readHandlerIndex);
     long start = System.currentTimeMillis();
+    prefetchNextFile();
     ShuffleDataResult shuffleDataResult = hadoopShuffleFileReader.readShuffleData();
     while (shuffleDataResult == null) {
       ++readHandlerIndex;
@@ -225,6 +270,7 @@ public class HadoopClientReadHandler extends AbstractClientReadHandler {
         return new ShuffleDataResult();
       }
       hadoopShuffleFileReader = readHandlers.get(readHandlerIndex);
+      prefetchNextFile();
       shuffleDataResult = hadoopShuffleFileReader.readShuffleData();
     }
     if (readCostTracker != null) {
@@ -60,9 +60,10 @@ public class HadoopFileReader implements FileReader, Closeable {
 
   public byte[] read(long offset, int length) {
     try {
-      fsDataInputStream.seek(offset);
+      // positional read doesn't change the stream position, so it can be called concurrently by
+      // multiple prefetch threads
       byte[] buf = new byte[length];
-      fsDataInputStream.readFully(buf);
+      fsDataInputStream.readFully(offset, buf);
       return buf;
     } catch (Exception e) {
       LOG.warn(
@@ -88,7 +89,7 @@ public class HadoopFileReader implements FileReader, Closeable {
   }
 
   @Override
-  public ByteBuffer readAsByteBuffer(long offset, int length) {
+  public synchronized ByteBuffer readAsByteBuffer(long offset, int length) {
     try {
       fsDataInputStream.seek(offset);
       ByteBuffer buffer = ByteBuffer.allocateDirect(length);
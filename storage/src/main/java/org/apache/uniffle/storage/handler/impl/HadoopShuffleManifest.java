@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.uniffle.common.util.Constants;
+import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
+import org.apache.uniffle.storage.util.ShuffleStorageUtils;
+
+/**
+ * The manifest of the files written by a shuffle server into a partition folder of the Hadoop
+ * storage. It lists the name prefix, the data length and the block number of each pair of data and
+ * index files of the server, so the readers find the files without listing the folder, which loads
+ * the NameNode heavily when thousands of readers list the same folders.
+ *
+ * <p>The readers only take the files from the manifest, so it's only rewritten when data is written
+ * to files it doesn't list yet, i.e. about once per file, before the written data is released from
+ * the memory of the server. So it always covers the data the readers can't get from the server,
+ * while the writes appending to the listed files don't touch it, and the handlers sharing it aren't
+ * serialized by it. The data length and the block number of a file are the ones when the manifest
+ * was last written. The readers list the folder as before if the manifest doesn't exist or can't be
+ * read.
+ */
+public class HadoopShuffleManifest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HadoopShuffleManifest.class);
+  private static final int MAGIC = 0x5253534D;
+  private static final int VERSION = 1;
+
+  private final Path folder;
+  private final String fileNamePrefix;
+  private final Path path;
+  // file name prefix -> entry, in the order the files are written
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+  private boolean loaded = false;
+
+  public HadoopShuffleManifest(String folder, String fileNamePrefix) {
+    this.folder = new Path(folder);
+    this.fileNamePrefix = fileNamePrefix;
+    this.path = getPath(this.folder, fileNamePrefix);
+  }
+
+  /**
+   * Records a successful write to the files with the given name prefix, then publishes the
+   * manifest if the files are new to it.
+   *
+   * @param dataLength the length of the data file after the write
+   * @param blockNum the number of the blocks written
+   */
+  public synchronized void update(
+      FileSystem fileSystem, String filePrefix, long dataLength, int blockNum) throws IOException {
+    if (!loaded) {
+      load(fileSystem);
+      loaded = true;
+    }
+    Entry entry = entries.computeIfAbsent(filePrefix, Entry::new);
+    boolean published = entry.blockNum > 0;
+    entry.dataLength = dataLength;
+    entry.blockNum += blockNum;
+    if (published || entry.blockNum == 0) {
+      // the readers find the files already, or there is nothing to read
+      return;
+    }
+    try (FSDataOutputStream out = fileSystem.create(path, true)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Entry e : entries.values()) {
+        out.writeUTF(e.filePrefix);
+        out.writeLong(e.dataLength);
+        out.writeInt(e.blockNum);
+      }
+    }
+  }
+
+  // keeps the files written before, e.g. by this server before it restarted
+  private void load(FileSystem fileSystem) throws IOException {
+    try {
+      for (Entry entry : read(fileSystem, path)) {
+        entries.put(entry.filePrefix, entry);
+      }
+      return;
+    } catch (FileNotFoundException e) {
+      // no manifest yet, but the files may be written without a manifest
+    } catch (IOException e) {
+      LOG.warn("Can't read the manifest {}, the files are listed instead", path, e);
+    }
+    FileStatus[] statuses;
+    try {
+      statuses =
+          fileSystem.listStatus(folder, file -> file.getName().startsWith(fileNamePrefix + "_"));
+    } catch (FileNotFoundException e) {
+      return;
+    }
+    for (FileStatus status : statuses) {
+      String name = status.getPath().getName();
+      if (name.endsWith(Constants.SHUFFLE_INDEX_FILE_SUFFIX)) {
+        String prefix =
+            name.substring(0, name.length() - Constants.SHUFFLE_INDEX_FILE_SUFFIX.length());
+        entries.computeIfAbsent(prefix, Entry::new).blockNum =
+            (int) (status.getLen() / FileBasedShuffleSegment.SEGMENT_SIZE);
+      }
+    }
+    for (FileStatus status : statuses) {
+      String name = status.getPath().getName();
+      if (name.endsWith(Constants.SHUFFLE_DATA_FILE_SUFFIX)) {
+        Entry entry =
+            entries.get(
+                name.substring(0, name.length() - Constants.SHUFFLE_DATA_FILE_SUFFIX.length()));
+        if (entry != null) {
+          entry.dataLength = status.getLen();
+        }
+      }
+    }
+  }
+
+  public static Path getPath(Path folder, String fileNamePrefix) {
+    return new Path(folder, ShuffleStorageUtils.generateManifestFileName(fileNamePrefix));
+  }
+
+  /**
+   * @throws FileNotFoundException if the manifest doesn't exist
+   * @throws IOException if the manifest can't be read, e.g. it's being rewritten
+   */
+  public static List<Entry> read(FileSystem fileSystem, Path path) throws IOException {
+    try (FSDataInputStream in = fileSystem.open(path)) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Invalid manifest " + path);
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported version " + version + " of the manifest " + path);
+      }
+      int num = in.readInt();
+      List<Entry> result = new ArrayList<>(num);
+      for (int i = 0; i < num; i++) {
+        Entry entry = new Entry(in.readUTF());
+        entry.dataLength = in.readLong();
+        entry.blockNum = in.readInt();
+        result.add(entry);
+      }
+      return result;
+    }
+  }
+
+  public static class Entry {
+    private final String filePrefix;
+    private long dataLength;
+    private int blockNum;
+
+    private Entry(String filePrefix) {
+      this.filePrefix = filePrefix;
+    }
+
+    /** @return the name prefix of the data and index files, relative to the folder */
+    public String getFilePrefix() {
+      return filePrefix;
+    }
+
+    public long getDataLength() {
+      return dataLength;
+    }
+
+    public int getBlockNum() {
+      return blockNum;
+    }
+  }
+}
@@ -51,6 +51,8 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
   private FileSystem fileSystem;
   private final int dataBufferSize;
   private final int indexBufferSize;
+  // null if the manifest isn't published
+  private final HadoopShuffleManifest manifest;
 
   // Only for test cases when using non-kerberized dfs cluster.
   @VisibleForTesting
@@ -109,7 +111,33 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
       Configuration hadoopConf,
       String user)
       throws Exception {
+    this(
+        rssBaseConf,
+        appId,
+        shuffleId,
+        startPartition,
+        endPartition,
+        storageBasePath,
+        fileNamePrefix,
+        hadoopConf,
+        user,
+        null);
+  }
+
+  public HadoopShuffleWriteHandler(
+      RssBaseConf rssBaseConf,
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      String storageBasePath,
+      String fileNamePrefix,
+      Configuration hadoopConf,
+      String user,
+      HadoopShuffleManifest manifest)
+      throws Exception {
     this.rssBaseConf = rssBaseConf;
+    this.manifest = manifest;
     this.hadoopConf = hadoopConf;
     this.fileNamePrefix = fileNamePrefix;
     this.basePath =
@@ -157,10 +185,10 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
       final long ss = System.currentTimeMillis();
       // Write to HDFS will be failed with lease problem, and can't write the same file again
       // change the prefix of file name if write failed before
-      String dataFileName =
-          ShuffleStorageUtils.generateDataFileName(fileNamePrefix + "_" + failTimes);
-      String indexFileName =
-          ShuffleStorageUtils.generateIndexFileName(fileNamePrefix + "_" + failTimes);
+      String filePrefix = fileNamePrefix + "_" + failTimes;
+      String dataFileName = ShuffleStorageUtils.generateDataFileName(filePrefix);
+      String indexFileName = ShuffleStorageUtils.generateIndexFileName(filePrefix);
+      long dataLength;
       try (HadoopFileWriter dataWriter = createWriter(dataFileName, dataBufferSize);
           HadoopFileWriter indexWriter = createWriter(indexFileName, indexBufferSize)) {
         for (ShufflePartitionedBlock block : shuffleBlocks) {
@@ -179,6 +207,7 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
                   block.getTaskAttemptId());
           indexWriter.writeIndex(segment);
         }
+        dataLength = dataWriter.nextOffset();
         if (LOG.isDebugEnabled()) {
           LOG.debug(
               "Write handler inside cost {} ms for {}",
@@ -197,6 +226,15 @@ public class HadoopShuffleWriteHandler implements ShuffleWriteHandler {
         failTimes++;
         throw new RssException(e);
       }
+      if (manifest != null) {
+        try {
+          manifest.update(fileSystem, filePrefix, dataLength, shuffleBlocks.size());
+        } catch (IOException e) {
+          // the data is written again by the retry, the readers skip the duplicated blocks
+          LOG.warn("Failed to update the manifest for {}", filePrefix, e);
+          throw new RssException(e);
+        }
+      }
     } finally {
       writeLock.unlock();
     }
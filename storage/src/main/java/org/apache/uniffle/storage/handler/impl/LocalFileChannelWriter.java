@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import org.apache.uniffle.common.ShufflePartitionedBlock;
+import org.apache.uniffle.storage.api.FileWriter;
+import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
+
+/**
+ * A local file writer which writes the block buffers directly through {@link FileChannel} gather
+ * writes instead of copying them into a heap byte array first. It can be enabled by setting
+ * rss.storage.localFileWriterClass to this class.
+ */
+public class LocalFileChannelWriter implements FileWriter {
+
+  // Index records of a whole flush event are built into this direct buffer, which is reused by
+  // every event flushed on the same thread.
+  private static final int INDEX_BUFFER_SIZE = 1024 * FileBasedShuffleSegment.SEGMENT_SIZE;
+  private static final ThreadLocal<ByteBuffer> INDEX_BUFFER =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(INDEX_BUFFER_SIZE));
+
+  private final FileOutputStream fileOutputStream;
+  private final FileChannel fileChannel;
+  private long nextOffset;
+
+  @VisibleForTesting
+  public LocalFileChannelWriter(File file) throws IOException {
+    this(file, 8 * 1024);
+  }
+
+  public LocalFileChannelWriter(File file, int bufferSize) throws IOException {
+    // bufferSize is kept for compatibility with LocalFileWriterFactory, data is not buffered here
+    fileOutputStream = new FileOutputStream(file, true);
+    fileChannel = fileOutputStream.getChannel();
+    nextOffset = file.length();
+  }
+
+  @Override
+  public void writeData(byte[] data) throws IOException {
+    if (data != null && data.length > 0) {
+      writeFully(new ByteBuffer[] {ByteBuffer.wrap(data)});
+    }
+  }
+
+  @Override
+  public void writeData(ByteBuf buf) throws IOException {
+    if (buf != null && buf.readableBytes() > 0) {
+      writeFully(buf.nioBuffers());
+    }
+  }
+
+  @Override
+  public void writeIndex(FileBasedShuffleSegment segment) throws IOException {
+    ByteBuffer indexBuffer = ByteBuffer.allocate(FileBasedShuffleSegment.SEGMENT_SIZE);
+    putIndex(indexBuffer, segment.getOffset(), segment);
+    indexBuffer.flip();
+    writeFully(new ByteBuffer[] {indexBuffer});
+  }
+
+  @Override
+  public void writeBlocks(Collection<ShufflePartitionedBlock> blocks, FileWriter indexWriter)
+      throws IOException {
+    List<ByteBuffer> dataBuffers = new ArrayList<>(blocks.size());
+    for (ShufflePartitionedBlock block : blocks) {
+      ByteBuf data = block.getData();
+      if (data != null && data.readableBytes() > 0) {
+        for (ByteBuffer nioBuffer : data.nioBuffers()) {
+          dataBuffers.add(nioBuffer);
+        }
+      }
+    }
+    long offset = nextOffset;
+    // data must be persisted before its index records, otherwise readers may see index records
+    // pointing to data which hasn't been written yet
+    writeFully(dataBuffers.toArray(new ByteBuffer[0]));
+
+    ByteBuffer indexBuffer = INDEX_BUFFER.get();
+    indexBuffer.clear();
+    try {
+      for (ShufflePartitionedBlock block : blocks) {
+        if (indexBuffer.remaining() < FileBasedShuffleSegment.SEGMENT_SIZE) {
+          indexBuffer.flip();
+          indexWriter.writeData(Unpooled.wrappedBuffer(indexBuffer));
+          indexBuffer.clear();
+        }
+        putIndex(indexBuffer, offset, block);
+        ByteBuf data = block.getData();
+        offset += data == null ? 0 : data.readableBytes();
+      }
+      indexBuffer.flip();
+      indexWriter.writeData(Unpooled.wrappedBuffer(indexBuffer));
+    } finally {
+      indexBuffer.clear();
+    }
+  }
+
+  private static void putIndex(
+      ByteBuffer indexBuffer, long offset, ShufflePartitionedBlock block) {
+    indexBuffer.putLong(offset);
+    indexBuffer.putInt(block.getDataLength());
+    indexBuffer.putInt(block.getUncompressLength());
+    indexBuffer.putLong(block.getCrc());
+    indexBuffer.putLong(block.getBlockId());
+    indexBuffer.putLong(block.getTaskAttemptId());
+  }
+
+  private static void putIndex(
+      ByteBuffer indexBuffer, long offset, FileBasedShuffleSegment segment) {
+    indexBuffer.putLong(offset);
+    indexBuffer.putInt(segment.getLength());
+    indexBuffer.putInt(segment.getUncompressLength());
+    indexBuffer.putLong(segment.getCrc());
+    indexBuffer.putLong(segment.getBlockId());
+    indexBuffer.putLong(segment.getTaskAttemptId());
+  }
+
+  private void writeFully(ByteBuffer[] buffers) throws IOException {
+    int index = 0;
+    while (index < buffers.length) {
+      nextOffset += fileChannel.write(buffers, index, buffers.length - index);
+      while (index < buffers.length && !buffers[index].hasRemaining()) {
+        index++;
+      }
+    }
+  }
+
+  @Override
+  public long nextOffset() {
+    return nextOffset;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    fileOutputStream.close();
+  }
+}
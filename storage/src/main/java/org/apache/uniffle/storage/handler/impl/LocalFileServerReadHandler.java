@@ -19,7 +19,9 @@ package org.apache.uniffle.storage.handler.impl;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
 
+import io.netty.buffer.ByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,7 +29,10 @@ import org.apache.uniffle.common.ShuffleDataResult;
 import org.apache.uniffle.common.ShuffleIndexResult;
 import org.apache.uniffle.common.exception.FileNotFoundException;
 import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.common.netty.buffer.AlignedBufferPool;
+import org.apache.uniffle.common.netty.buffer.DirectIOFileSegmentManagedBuffer;
 import org.apache.uniffle.common.netty.buffer.FileSegmentManagedBuffer;
+import org.apache.uniffle.common.netty.buffer.NettyManagedBuffer;
 import org.apache.uniffle.common.util.Constants;
 import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
 import org.apache.uniffle.storage.handler.api.ServerReadHandler;
@@ -37,6 +42,10 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(LocalFileServerReadHandler.class);
   private final int storageId;
+  // not null if the data file should be read with direct I/O
+  private final AlignedBufferPool directIOBufferPool;
+  // not null if the index file should be served from the memory mapped cache
+  private final LocalIndexFileCache indexFileCache;
   private String indexFileName = "";
   private String dataFileName = "";
   private String appId;
@@ -51,10 +60,46 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
       int partitionNum,
       String path,
       int storageId) {
+    this(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, path, storageId, null);
+  }
+
+  public LocalFileServerReadHandler(
+      String appId,
+      int shuffleId,
+      int partitionId,
+      int partitionNumPerRange,
+      int partitionNum,
+      String path,
+      int storageId,
+      AlignedBufferPool directIOBufferPool) {
+    this(
+        appId,
+        shuffleId,
+        partitionId,
+        partitionNumPerRange,
+        partitionNum,
+        path,
+        storageId,
+        directIOBufferPool,
+        null);
+  }
+
+  public LocalFileServerReadHandler(
+      String appId,
+      int shuffleId,
+      int partitionId,
+      int partitionNumPerRange,
+      int partitionNum,
+      String path,
+      int storageId,
+      AlignedBufferPool directIOBufferPool,
+      LocalIndexFileCache indexFileCache) {
     this.appId = appId;
     this.shuffleId = shuffleId;
     this.partitionId = partitionId;
     this.storageId = storageId;
+    this.directIOBufferPool = directIOBufferPool;
+    this.indexFileCache = indexFileCache;
     init(appId, shuffleId, partitionId, partitionNumPerRange, partitionNum, path);
   }
 
@@ -145,6 +190,11 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
 
   @Override
   public ShuffleDataResult getShuffleData(long offset, int length) {
+    if (directIOBufferPool != null) {
+      return new ShuffleDataResult(
+          new DirectIOFileSegmentManagedBuffer(
+              new File(dataFileName), offset, length, directIOBufferPool));
+    }
     return new ShuffleDataResult(
         new FileSegmentManagedBuffer(new File(dataFileName), offset, length));
   }
@@ -162,6 +212,21 @@ public class LocalFileServerReadHandler implements ServerReadHandler {
     }
     // get dataFileSize for read segment generation in DataSkippableReadHandler#readShuffleData
     long dataFileSize = new File(dataFileName).length();
+    if (indexFileCache != null) {
+      try {
+        ByteBuf mapped = indexFileCache.get(indexFile, len);
+        if (mapped != null) {
+          // the mapping is unmapped once the result is released
+          return new ShuffleIndexResult(
+              new NettyManagedBuffer(mapped),
+              dataFileSize,
+              dataFileName,
+              storageId);
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to map the index file {}, read it instead", indexFileName, e);
+      }
+    }
     return new ShuffleIndexResult(
         new FileSegmentManagedBuffer(indexFile, 0, len), dataFileSize, dataFileName, storageId);
   }
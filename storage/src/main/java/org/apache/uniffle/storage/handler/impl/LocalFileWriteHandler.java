@@ -30,7 +30,6 @@ import org.apache.uniffle.common.ShufflePartitionedBlock;
 import org.apache.uniffle.common.config.RssBaseConf;
 import org.apache.uniffle.common.exception.RssException;
 import org.apache.uniffle.storage.api.FileWriter;
-import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
 import org.apache.uniffle.storage.handler.api.ShuffleWriteHandler;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
 
@@ -136,22 +135,7 @@ public class LocalFileWriteHandler implements ShuffleWriteHandler {
         FileWriter indexWriter = createWriter(indexFileName, indexBufferSize)) {
 
       long startTime = System.currentTimeMillis();
-      for (ShufflePartitionedBlock block : shuffleBlocks) {
-        long blockId = block.getBlockId();
-        long crc = block.getCrc();
-        long startOffset = dataWriter.nextOffset();
-        dataWriter.writeData(block.getData());
-
-        FileBasedShuffleSegment segment =
-            new FileBasedShuffleSegment(
-                blockId,
-                startOffset,
-                block.getDataLength(),
-                block.getUncompressLength(),
-                crc,
-                block.getTaskAttemptId());
-        indexWriter.writeIndex(segment);
-      }
+      dataWriter.writeBlocks(shuffleBlocks, indexWriter);
       if (LOG.isDebugEnabled()) {
         LOG.debug(
             "Write handler write {} blocks cost {} ms without file open close",
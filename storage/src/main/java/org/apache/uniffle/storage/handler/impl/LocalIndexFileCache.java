@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Caches the memory mapped index files of the local storages, so the index of a partition read by
+ * many reducers, e.g. the skew splits or the retries, is served as a view of the mapping instead
+ * of being read from the file every time.
+ *
+ * <p>A mapping is only reused while the index file is the same file with the same length, the file
+ * is mapped again once more segments are appended to it or it's recreated. The mappings are evicted
+ * in the LRU order once the mapped bytes exceed the capacity, and the mappings of an app or a
+ * shuffle are evicted when its files are deleted. Every view served holds a reference to its
+ * mapping, so an evicted mapping is unmapped as soon as the views served before are released,
+ * instead of pinning the memory and the deleted files until it's garbage collected.
+ */
+public class LocalIndexFileCache {
+
+  private final long capacity;
+  // the mapped index files by path, in the access order
+  private final LinkedHashMap<String, MappedIndexFile> files = new LinkedHashMap<>(16, 0.75f, true);
+  private long mappedBytes;
+  private final AtomicLong hitNum = new AtomicLong();
+  private final AtomicLong missNum = new AtomicLong();
+
+  public LocalIndexFileCache(long capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * @param file the index file
+   * @param length the length of the complete segments in the index file
+   * @return a read-only view of the first length bytes of the index file which must be released,
+   *     or null if the length is out of the capacity
+   */
+  public ByteBuf get(File file, int length) throws IOException {
+    if (length <= 0 || length > capacity) {
+      return null;
+    }
+    String path = file.getPath();
+    // the file key tells whether the file is recreated with the same path
+    Object fileKey = Files.readAttributes(file.toPath(), BasicFileAttributes.class).fileKey();
+    synchronized (this) {
+      MappedIndexFile mapped = files.get(path);
+      if (mapped != null && mapped.capacity() == length && mapped.isSameFile(fileKey)) {
+        hitNum.incrementAndGet();
+        // the cache holds a reference while the mapping is in it, so it's not unmapped yet
+        return mapped.retainedDuplicate();
+      }
+    }
+    missNum.incrementAndGet();
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+    }
+    MappedIndexFile mapped = new MappedIndexFile(buffer, fileKey);
+    ByteBuf view = mapped.retainedDuplicate();
+    synchronized (this) {
+      MappedIndexFile old = files.put(path, mapped);
+      if (old != null) {
+        remove(old);
+      }
+      mappedBytes += length;
+      evict();
+    }
+    return view;
+  }
+
+  /** Evicts the mappings of the index files under the directory, e.g. when it's deleted. */
+  public synchronized void invalidate(String dir) {
+    String prefix = new File(dir).getPath() + File.separator;
+    Iterator<Map.Entry<String, MappedIndexFile>> iterator = files.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, MappedIndexFile> entry = iterator.next();
+      if (entry.getKey().startsWith(prefix)) {
+        remove(entry.getValue());
+        iterator.remove();
+      }
+    }
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<String, MappedIndexFile>> iterator = files.entrySet().iterator();
+    while (mappedBytes > capacity && iterator.hasNext()) {
+      remove(iterator.next().getValue());
+      iterator.remove();
+    }
+  }
+
+  private void remove(MappedIndexFile mapped) {
+    mappedBytes -= mapped.capacity();
+    // drops the reference of the cache
+    mapped.release();
+  }
+
+  public long getHitNum() {
+    return hitNum.get();
+  }
+
+  public long getMissNum() {
+    return missNum.get();
+  }
+
+  public synchronized long getMappedBytes() {
+    return mappedBytes;
+  }
+
+  @VisibleForTesting
+  synchronized int getFileNum() {
+    return files.size();
+  }
+
+  /**
+   * A mapped index file, which is unmapped once it's released by the cache and all the views of it.
+   * The views are duplicates sharing its reference count. Netty has no public buffer type which
+   * frees a read-only mapping, so it's a composite of the wrapped mapping.
+   */
+  private static final class MappedIndexFile extends CompositeByteBuf {
+    private final MappedByteBuffer buffer;
+    private final Object fileKey;
+
+    private MappedIndexFile(MappedByteBuffer buffer, Object fileKey) {
+      super(UnpooledByteBufAllocator.DEFAULT, true, 1, Unpooled.wrappedBuffer(buffer));
+      this.buffer = buffer;
+      this.fileKey = fileKey;
+    }
+
+    private boolean isSameFile(Object fileKey) {
+      return Objects.equals(this.fileKey, fileKey);
+    }
+
+    @Override
+    protected void deallocate() {
+      super.deallocate();
+      PlatformDependent.freeDirectBuffer(buffer);
+    }
+  }
+}
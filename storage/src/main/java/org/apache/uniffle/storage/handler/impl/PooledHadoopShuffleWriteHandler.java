@@ -82,6 +82,33 @@ public class PooledHadoopShuffleWriteHandler implements ShuffleWriteHandler {
       Configuration hadoopConf,
       String user,
       int concurrency) {
+    this(
+        rssBaseConf,
+        appId,
+        shuffleId,
+        startPartition,
+        endPartition,
+        storageBasePath,
+        fileNamePrefix,
+        hadoopConf,
+        user,
+        concurrency,
+        null);
+  }
+
+  /** @param manifest shared by all the underlying handlers, null if it isn't published */
+  public PooledHadoopShuffleWriteHandler(
+      RssBaseConf rssBaseConf,
+      String appId,
+      int shuffleId,
+      int startPartition,
+      int endPartition,
+      String storageBasePath,
+      String fileNamePrefix,
+      Configuration hadoopConf,
+      String user,
+      int concurrency,
+      HadoopShuffleManifest manifest) {
     this.maxConcurrency = concurrency;
     this.queue = new LinkedBlockingDeque<>(maxConcurrency);
     this.basePath =
@@ -101,7 +128,8 @@ public class PooledHadoopShuffleWriteHandler implements ShuffleWriteHandler {
                 storageBasePath,
                 fileNamePrefix + "_" + index,
                 hadoopConf,
-                user);
+                user,
+                manifest);
           } catch (Exception e) {
             throw new RssException("Errors on initializing Hadoop FS writer handler.", e);
           }
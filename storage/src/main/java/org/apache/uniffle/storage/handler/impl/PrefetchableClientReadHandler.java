@@ -18,33 +18,42 @@
 package org.apache.uniffle.storage.handler.impl;
 
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.uniffle.common.ShuffleDataResult;
 import org.apache.uniffle.common.exception.RssException;
+import org.apache.uniffle.common.util.ThreadUtils;
 import org.apache.uniffle.storage.handler.ClientReadHandlerMetric;
 
 public abstract class PrefetchableClientReadHandler extends AbstractClientReadHandler {
   private static final Logger LOG = LoggerFactory.getLogger(PrefetchableClientReadHandler.class);
+  // the prefetched but not consumed data of all handlers in this process
+  private static final AtomicLong PREFETCH_MEMORY_USED = new AtomicLong(0);
 
   private boolean prefetchEnabled;
   private int prefetchQueueCapacity;
   private int prefetchTimeoutSec;
-  private LinkedBlockingQueue<Optional<ShuffleDataResult>> prefetchResultQueue;
+  private long prefetchMemoryBudget;
+  // sequence number -> result, results are consumed in the order they were planned
+  private ConcurrentSkipListMap<Long, Optional<ShuffleDataResult>> prefetchResults;
+  private final Object prefetchPlanLock = new Object();
+  private long nextPlanSequence;
+  private long nextConsumeSequence;
   private ExecutorService prefetchExecutors;
   private AtomicBoolean abnormalFetchTag;
   private AtomicBoolean finishedTag;
   private AtomicInteger queueingNumber;
   private AtomicLong fetchTime;
+  private AtomicLong reservedMemory;
 
   public PrefetchableClientReadHandler(Optional<PrefetchOption> prefetchOptional) {
     if (prefetchOptional.isPresent()) {
@@ -52,17 +61,27 @@ public abstract class PrefetchableClientReadHandler extends AbstractClientReadHa
       if (option.capacity <= 0) {
         throw new RssException("Illegal prefetch capacity: " + option.capacity);
       }
-      LOG.debug("Prefetch is enabled, capacity: {}", option.capacity);
+      if (option.threads <= 0) {
+        throw new RssException("Illegal prefetch threads: " + option.threads);
+      }
+      LOG.debug(
+          "Prefetch is enabled, capacity: {}, threads: {}, memory budget: {}",
+          option.capacity,
+          option.threads,
+          option.memoryBudget);
       this.prefetchEnabled = true;
       this.prefetchQueueCapacity = option.capacity;
       this.prefetchTimeoutSec = option.timeoutSec;
-      this.prefetchResultQueue = new LinkedBlockingQueue<>(option.capacity);
-      // todo: support multi threads to prefetch
-      this.prefetchExecutors = Executors.newFixedThreadPool(1);
+      this.prefetchMemoryBudget = option.memoryBudget;
+      this.prefetchResults = new ConcurrentSkipListMap<>();
+      this.prefetchExecutors =
+          ThreadUtils.getDaemonFixedThreadPool(
+              Math.min(option.threads, option.capacity), "client-read-prefetch");
       this.abnormalFetchTag = new AtomicBoolean(false);
       this.finishedTag = new AtomicBoolean(false);
       this.queueingNumber = new AtomicInteger(0);
       this.fetchTime = new AtomicLong(0);
+      this.reservedMemory = new AtomicLong(0);
     } else {
       this.prefetchEnabled = false;
     }
@@ -71,10 +90,18 @@ public abstract class PrefetchableClientReadHandler extends AbstractClientReadHa
   public static class PrefetchOption {
     private int capacity;
     private int timeoutSec;
+    private int threads;
+    private long memoryBudget;
 
     public PrefetchOption(int capacity, int timeoutSec) {
+      this(capacity, timeoutSec, 1, 0L);
+    }
+
+    public PrefetchOption(int capacity, int timeoutSec, int threads, long memoryBudget) {
       this.capacity = capacity;
       this.timeoutSec = timeoutSec;
+      this.threads = threads;
+      this.memoryBudget = memoryBudget;
     }
   }
 
@@ -84,36 +111,50 @@ public abstract class PrefetchableClientReadHandler extends AbstractClientReadHa
 
   protected abstract ShuffleDataResult doReadShuffleData();
 
+  /**
+   * Decides what the next read is. It is always called sequentially, while the returned reader
+   * may be executed concurrently with other readers when multiple prefetch threads are used.
+   * Returns null if there is no more data to read. By default the whole read happens here, so
+   * subclasses whose reads depend on the previous result keep reading sequentially.
+   */
+  protected Callable<ShuffleDataResult> prepareNextRead() {
+    ShuffleDataResult result = doReadShuffleData();
+    if (result == null) {
+      return null;
+    }
+    return () -> result;
+  }
+
+  /**
+   * Starts prefetching the data before it's read, e.g. while another handler is being read. It
+   * doesn't wait for the data, and never goes beyond the memory budget of prefetching.
+   */
+  public void startPrefetch() {
+    if (prefetchEnabled) {
+      submitPrefetch(false);
+    }
+  }
+
+  private void submitPrefetch(boolean allowMustRead) {
+    int free = prefetchQueueCapacity - prefetchResults.size() - queueingNumber.get();
+    for (int i = 0; i < free; i++) {
+      // always allow one read in flight for each handler to make progress
+      boolean mustRead = allowMustRead && prefetchResults.isEmpty() && queueingNumber.get() == 0;
+      if (!reservePrefetchMemory(mustRead)) {
+        break;
+      }
+      queueingNumber.incrementAndGet();
+      prefetchExecutors.submit(this::prefetch);
+    }
+  }
+
   @Override
   public ShuffleDataResult readShuffleData() {
     if (!prefetchEnabled) {
       return doReadShuffleData();
     }
 
-    int free = prefetchQueueCapacity - prefetchResultQueue.size() - queueingNumber.get();
-    for (int i = 0; i < free; i++) {
-      queueingNumber.incrementAndGet();
-      prefetchExecutors.submit(
-          () -> {
-            long start = System.currentTimeMillis();
-            try {
-              if (abnormalFetchTag.get() || finishedTag.get()) {
-                return;
-              }
-              ShuffleDataResult result = doReadShuffleData();
-              if (result == null || result.isEmpty()) {
-                this.finishedTag.set(true);
-              }
-              prefetchResultQueue.offer(Optional.ofNullable(result));
-            } catch (Exception e) {
-              abnormalFetchTag.set(true);
-              LOG.error("Errors on doing readShuffleData", e);
-            } finally {
-              queueingNumber.decrementAndGet();
-              fetchTime.addAndGet(System.currentTimeMillis() - start);
-            }
-          });
-    }
+    submitPrefetch(true);
 
     long start = System.currentTimeMillis();
     while (true) {
@@ -122,9 +163,16 @@ public abstract class PrefetchableClientReadHandler extends AbstractClientReadHa
       }
 
       try {
-        Optional<ShuffleDataResult> optionalShuffleDataResult =
-            prefetchResultQueue.poll(10, TimeUnit.MILLISECONDS);
+        Optional<ShuffleDataResult> optionalShuffleDataResult;
+        synchronized (prefetchResults) {
+          optionalShuffleDataResult = prefetchResults.remove(nextConsumeSequence);
+          if (optionalShuffleDataResult == null) {
+            prefetchResults.wait(10);
+          }
+        }
         if (optionalShuffleDataResult != null) {
+          nextConsumeSequence++;
+          releasePrefetchMemory(readBufferSize);
           if (optionalShuffleDataResult.isPresent()) {
             return optionalShuffleDataResult.get();
           } else {
@@ -141,11 +189,89 @@ public abstract class PrefetchableClientReadHandler extends AbstractClientReadHa
     }
   }
 
+  private void prefetch() {
+    long start = System.currentTimeMillis();
+    boolean published = false;
+    try {
+      if (abnormalFetchTag.get() || finishedTag.get()) {
+        return;
+      }
+      long sequence;
+      Callable<ShuffleDataResult> reader;
+      synchronized (prefetchPlanLock) {
+        if (abnormalFetchTag.get() || finishedTag.get()) {
+          return;
+        }
+        reader = prepareNextRead();
+        sequence = nextPlanSequence++;
+        if (reader == null) {
+          finishedTag.set(true);
+        }
+      }
+      ShuffleDataResult result = reader == null ? null : reader.call();
+      if (result == null || result.isEmpty()) {
+        this.finishedTag.set(true);
+      }
+      synchronized (prefetchResults) {
+        prefetchResults.put(sequence, Optional.ofNullable(result));
+        prefetchResults.notifyAll();
+      }
+      published = true;
+    } catch (Exception e) {
+      abnormalFetchTag.set(true);
+      LOG.error("Errors on doing readShuffleData", e);
+    } finally {
+      if (!published) {
+        releasePrefetchMemory(readBufferSize);
+      }
+      queueingNumber.decrementAndGet();
+      fetchTime.addAndGet(System.currentTimeMillis() - start);
+    }
+  }
+
+  private boolean reservePrefetchMemory(boolean force) {
+    long size = readBufferSize;
+    if (prefetchMemoryBudget <= 0 || force) {
+      PREFETCH_MEMORY_USED.addAndGet(size);
+      reservedMemory.addAndGet(size);
+      return true;
+    }
+    while (true) {
+      long used = PREFETCH_MEMORY_USED.get();
+      if (used + size > prefetchMemoryBudget) {
+        return false;
+      }
+      if (PREFETCH_MEMORY_USED.compareAndSet(used, used + size)) {
+        reservedMemory.addAndGet(size);
+        return true;
+      }
+    }
+  }
+
+  private void releasePrefetchMemory(long size) {
+    while (true) {
+      long reserved = reservedMemory.get();
+      long released = Math.min(reserved, size);
+      if (reservedMemory.compareAndSet(reserved, reserved - released)) {
+        PREFETCH_MEMORY_USED.addAndGet(-released);
+        return;
+      }
+    }
+  }
+
+  @VisibleForTesting
+  static long getPrefetchMemoryUsed() {
+    return PREFETCH_MEMORY_USED.get();
+  }
+
   @Override
   public void close() {
     super.close();
     if (prefetchExecutors != null) {
       prefetchExecutors.shutdown();
+      prefetchResults.values().forEach(result -> result.ifPresent(ShuffleDataResult::release));
+      prefetchResults.clear();
+      releasePrefetchMemory(reservedMemory.get());
     }
   }
 
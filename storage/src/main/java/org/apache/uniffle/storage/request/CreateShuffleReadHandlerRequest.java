@@ -291,7 +291,9 @@ public class CreateShuffleReadHandlerRequest {
       return Optional.of(
           new PrefetchableClientReadHandler.PrefetchOption(
               clientConf.get(RssClientConf.RSS_CLIENT_PREFETCH_CAPACITY),
-              clientConf.get(RssClientConf.READ_CLIENT_PREFETCH_TIMEOUT_SEC)));
+              clientConf.get(RssClientConf.READ_CLIENT_PREFETCH_TIMEOUT_SEC),
+              clientConf.get(RssClientConf.RSS_CLIENT_PREFETCH_THREADS),
+              clientConf.getSizeAsBytes(RssClientConf.RSS_CLIENT_PREFETCH_MEMORY_BUDGET)));
     } else {
       return Optional.empty();
     }
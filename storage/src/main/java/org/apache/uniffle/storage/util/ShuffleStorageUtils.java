@@ -55,6 +55,10 @@ public class ShuffleStorageUtils {
     return fileNamePrefix + Constants.SHUFFLE_INDEX_FILE_SUFFIX;
   }
 
+  public static String generateManifestFileName(String fileNamePrefix) {
+    return fileNamePrefix + Constants.SHUFFLE_MANIFEST_FILE_SUFFIX;
+  }
+
   public static List<DataFileSegment> mergeSegments(
       String path, List<FileBasedShuffleSegment> segments, int readBufferSize) {
     List<DataFileSegment> dataFileSegments = Lists.newArrayList();
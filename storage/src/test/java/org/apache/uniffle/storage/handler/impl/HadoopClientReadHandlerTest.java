@@ -18,7 +18,9 @@
 package org.apache.uniffle.storage.handler.impl;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -27,12 +29,15 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.junit.jupiter.api.Test;
 import org.roaringbitmap.longlong.Roaring64NavigableMap;
 
 import org.apache.uniffle.common.BufferSegment;
+import org.apache.uniffle.common.ShuffleDataDistributionType;
 import org.apache.uniffle.common.ShuffleDataResult;
 import org.apache.uniffle.common.ShuffleIndexResult;
+import org.apache.uniffle.common.config.RssBaseConf;
 import org.apache.uniffle.storage.HadoopTestBase;
 import org.apache.uniffle.storage.common.FileBasedShuffleSegment;
 import org.apache.uniffle.storage.util.ShuffleStorageUtils;
@@ -136,4 +141,109 @@ public class HadoopClientReadHandlerTest extends HadoopTestBase {
   public void test() throws Exception {
     createAndRunCases(HDFS_URI, conf, StringUtils.EMPTY);
   }
+
+  private static Set<Long> readBlockIds(
+      String basePath, String shuffleServerId, Roaring64NavigableMap expectBlockIds) {
+    HadoopClientReadHandler handler =
+        new HadoopClientReadHandler(
+            "appId",
+            0,
+            1,
+            1024 * 10214,
+            1,
+            10,
+            1024,
+            expectBlockIds,
+            ConcurrentHashMap.newKeySet(),
+            basePath,
+            conf,
+            ShuffleDataDistributionType.NORMAL,
+            Roaring64NavigableMap.bitmapOf(),
+            shuffleServerId,
+            false,
+            Optional.empty(),
+            new ShuffleServerReadCostTracker());
+    Set<Long> blockIds = Sets.newHashSet();
+    ShuffleDataResult result = handler.readShuffleData();
+    while (!result.isEmpty()) {
+      result.getBufferSegments().forEach(bs -> blockIds.add(bs.getBlockId()));
+      result = handler.readShuffleData();
+    }
+    handler.close();
+    return blockIds;
+  }
+
+  @Test
+  public void readWithManifestTest() throws Exception {
+    String basePath = HDFS_URI + "clientReadManifestTest";
+    String folder =
+        ShuffleStorageUtils.getFullShuffleDataFolder(
+            basePath, ShuffleStorageUtils.getShuffleDataPath("appId", 0, 1, 1));
+    HadoopShuffleWriteHandler writeHandler =
+        new HadoopShuffleWriteHandler(
+            new RssBaseConf(),
+            "appId",
+            0,
+            1,
+            1,
+            basePath,
+            "server1",
+            conf,
+            StringUtils.EMPTY,
+            new HadoopShuffleManifest(folder, "server1"));
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    writeTestData(writeHandler, 5, 3, 0, expectedData);
+    writeTestData(writeHandler, 2, 3, 0, expectedData);
+    // the appends to the files listed already don't rewrite the manifest
+    Path manifestPath = HadoopShuffleManifest.getPath(new Path(folder), "server1");
+    List<HadoopShuffleManifest.Entry> entries = HadoopShuffleManifest.read(fs, manifestPath);
+    assertEquals(1, entries.size());
+    assertEquals(5, entries.get(0).getBlockNum());
+    writeHandler.setFailTimes(1);
+    writeTestData(writeHandler, 3, 3, 0, expectedData);
+
+    entries = HadoopShuffleManifest.read(fs, manifestPath);
+    assertEquals(2, entries.size());
+    assertEquals("server1_0", entries.get(0).getFilePrefix());
+    assertEquals(7, entries.get(0).getBlockNum());
+    assertEquals(21, entries.get(0).getDataLength());
+    assertEquals("server1_1", entries.get(1).getFilePrefix());
+    assertEquals(3, entries.get(1).getBlockNum());
+
+    // the files written without the manifest are not found by the readers of the manifest
+    HadoopShuffleWriteHandler writeHandlerWithoutManifest =
+        new HadoopShuffleWriteHandler("appId", 0, 1, 1, basePath, "server1", conf);
+    writeHandlerWithoutManifest.setFailTimes(9);
+    Map<Long, byte[]> unlistedData = Maps.newHashMap();
+    writeTestData(writeHandlerWithoutManifest, 4, 3, 0, unlistedData);
+    Roaring64NavigableMap expectBlockIds = Roaring64NavigableMap.bitmapOf();
+    expectedData.keySet().forEach(expectBlockIds::addLong);
+    unlistedData.keySet().forEach(expectBlockIds::addLong);
+    assertEquals(expectedData.keySet(), readBlockIds(basePath, "server1", expectBlockIds));
+
+    // a new manifest, e.g. after the server restarts, keeps the files in the existing one
+    HadoopShuffleWriteHandler restartedWriteHandler =
+        new HadoopShuffleWriteHandler(
+            new RssBaseConf(),
+            "appId",
+            0,
+            1,
+            1,
+            basePath,
+            "server1",
+            conf,
+            StringUtils.EMPTY,
+            new HadoopShuffleManifest(folder, "server1"));
+    restartedWriteHandler.setFailTimes(2);
+    writeTestData(restartedWriteHandler, 1, 3, 0, expectedData);
+    expectedData.keySet().forEach(expectBlockIds::addLong);
+    assertEquals(3, HadoopShuffleManifest.read(fs, manifestPath).size());
+    assertEquals(expectedData.keySet(), readBlockIds(basePath, "server1", expectBlockIds));
+
+    // the index files are listed without the manifest
+    fs.delete(manifestPath, false);
+    Set<Long> allBlockIds = Sets.newHashSet(expectedData.keySet());
+    allBlockIds.addAll(unlistedData.keySet());
+    assertEquals(allBlockIds, readBlockIds(basePath, "server1", expectBlockIds));
+  }
 }
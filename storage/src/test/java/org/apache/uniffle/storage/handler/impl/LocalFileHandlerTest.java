@@ -153,6 +153,36 @@ public class LocalFileHandlerTest {
     assertEquals(writer.nextOffset(), totalSize);
   }
 
+  @Test
+  public void writeWithChannelWriterTest(@TempDir File tmpDir) throws Exception {
+    File dataDir = new File(tmpDir, "data");
+    RssBaseConf conf = new RssBaseConf();
+    conf.set(
+        RssBaseConf.RSS_STORAGE_LOCALFILE_WRITER_CLASS, LocalFileChannelWriter.class.getName());
+    LocalFileWriteHandler writeHandler =
+        new LocalFileWriteHandler(conf, "appId", 0, 1, 1, dataDir.getAbsolutePath(), "pre");
+
+    Map<Long, byte[]> expectedData = Maps.newHashMap();
+    Set<Long> expectedBlockIds = Sets.newHashSet();
+    // more blocks than the index records which fit in the reusable index buffer
+    LocalFileHandlerTestBase.writeTestData(
+        LocalFileHandlerTestBase.generateBlocks(2000, 32),
+        writeHandler,
+        expectedData,
+        expectedBlockIds);
+    LocalFileHandlerTestBase.writeTestData(
+        LocalFileHandlerTestBase.generateBlocks(3, 64),
+        writeHandler,
+        expectedData,
+        expectedBlockIds);
+
+    LocalFileServerReadHandler readHandler =
+        new LocalFileServerReadHandler("appId", 0, 1, 1, 10, dataDir.getAbsolutePath());
+    LocalFileHandlerTestBase.validateResult(readHandler, expectedBlockIds, expectedData);
+    assertEquals(
+        2000 * 32 + 3 * 64, LocalFileHandlerTestBase.readIndex(readHandler).getDataFileLen());
+  }
+
   @Test
   public void testReadIndex() {}
 }
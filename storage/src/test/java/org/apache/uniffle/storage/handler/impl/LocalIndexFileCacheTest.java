@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.uniffle.storage.handler.impl;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LocalIndexFileCacheTest {
+
+  private static byte[] bytes(int length, int value) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (value + i);
+    }
+    return bytes;
+  }
+
+  private static byte[] toBytes(ByteBuf buf) {
+    byte[] bytes = new byte[buf.readableBytes()];
+    buf.readBytes(bytes);
+    buf.release();
+    return bytes;
+  }
+
+  @Test
+  public void hitAndAppendTest(@TempDir File tmpDir) throws Exception {
+    LocalIndexFileCache cache = new LocalIndexFileCache(1024);
+    File indexFile = new File(tmpDir, "1.index");
+    Files.write(indexFile.toPath(), bytes(40, 0));
+
+    assertEquals(40, toBytes(cache.get(indexFile, 40)).length);
+    assertEquals(0, cache.getHitNum());
+    assertEquals(1, cache.getMissNum());
+    // the views are independent
+    ByteBuf view = cache.get(indexFile, 40);
+    view.readerIndex(20);
+    assertEquals(40, toBytes(cache.get(indexFile, 40)).length);
+    view.release();
+    assertEquals(2, cache.getHitNum());
+    assertEquals(40, cache.getMappedBytes());
+
+    // an appended index file is mapped again
+    Files.write(indexFile.toPath(), bytes(40, 40), StandardOpenOption.APPEND);
+    ByteBuf appended = cache.get(indexFile, 80);
+    assertEquals(new String(bytes(80, 0)), new String(toBytes(appended)));
+    assertEquals(2, cache.getMissNum());
+    assertEquals(80, cache.getMappedBytes());
+    assertEquals(1, cache.getFileNum());
+  }
+
+  @Test
+  public void recreatedFileTest(@TempDir File tmpDir) throws Exception {
+    LocalIndexFileCache cache = new LocalIndexFileCache(1024);
+    File indexFile = new File(tmpDir, "1.index");
+    Files.write(indexFile.toPath(), bytes(40, 0));
+    cache.get(indexFile, 40).release();
+
+    // a file recreated with the same path and length isn't served from the old mapping
+    File newFile = new File(tmpDir, "new.index");
+    Files.write(newFile.toPath(), bytes(40, 100));
+    Files.delete(indexFile.toPath());
+    Files.move(newFile.toPath(), indexFile.toPath());
+    assertEquals(new String(bytes(40, 100)), new String(toBytes(cache.get(indexFile, 40))));
+    assertEquals(2, cache.getMissNum());
+  }
+
+  @Test
+  public void evictTest(@TempDir File tmpDir) throws Exception {
+    LocalIndexFileCache cache = new LocalIndexFileCache(100);
+    File[] files = new File[3];
+    for (int i = 0; i < files.length; i++) {
+      files[i] = new File(tmpDir, i + ".index");
+      Files.write(files[i].toPath(), bytes(40, i));
+    }
+    cache.get(files[0], 40).release();
+    ByteBuf view = cache.get(files[1], 40);
+    // the first file is used recently, so the second one is evicted
+    cache.get(files[0], 40).release();
+    cache.get(files[2], 40).release();
+    assertEquals(2, cache.getFileNum());
+    assertEquals(80, cache.getMappedBytes());
+    cache.get(files[0], 40).release();
+    assertEquals(2, cache.getHitNum());
+
+    // the evicted mapping is unmapped once the view served before is released
+    assertEquals(1, view.refCnt());
+    assertEquals(new String(bytes(40, 1)), new String(toBytes(view)));
+    assertEquals(0, view.refCnt());
+    cache.get(files[1], 40).release();
+    assertEquals(4, cache.getMissNum());
+
+    // a file larger than the capacity isn't cached
+    assertNull(cache.get(files[0], 101));
+  }
+
+  @Test
+  public void invalidateTest(@TempDir File tmpDir) throws Exception {
+    LocalIndexFileCache cache = new LocalIndexFileCache(1024);
+    File appDir = new File(tmpDir, "app1");
+    File otherAppDir = new File(tmpDir, "app10");
+    assertTrue(appDir.mkdirs());
+    assertTrue(otherAppDir.mkdirs());
+    File indexFile = new File(appDir, "1.index");
+    File otherIndexFile = new File(otherAppDir, "1.index");
+    Files.write(indexFile.toPath(), bytes(40, 0));
+    Files.write(otherIndexFile.toPath(), bytes(40, 0));
+    ByteBuf view = cache.get(indexFile, 40);
+    cache.get(otherIndexFile, 40).release();
+
+    // the mappings of the deleted app are dropped, the app with the same prefix is kept
+    cache.invalidate(tmpDir.getPath() + "/app1");
+    assertEquals(1, cache.getFileNum());
+    assertEquals(40, cache.getMappedBytes());
+    assertEquals(1, view.refCnt());
+    view.release();
+    assertEquals(0, view.refCnt());
+  }
+}
@@ -20,6 +20,8 @@ package org.apache.uniffle.storage.handler.impl;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.awaitility.Awaitility;
@@ -30,6 +32,7 @@ import org.apache.uniffle.common.ShuffleDataResult;
 import org.apache.uniffle.common.exception.RssException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -90,6 +93,84 @@ public class PrefetchableClientReadHandlerTest {
     }
   }
 
+  class ConcurrentMockedHandler extends PrefetchableClientReadHandler {
+    private final int segmentNum;
+    private final AtomicInteger runningReads = new AtomicInteger(0);
+    private final AtomicInteger maxRunningReads = new AtomicInteger(0);
+    private int nextSegment = 0;
+
+    ConcurrentMockedHandler(Optional<PrefetchOption> option, int segmentNum) {
+      super(option);
+      this.segmentNum = segmentNum;
+      this.readBufferSize = 10;
+    }
+
+    @Override
+    protected ShuffleDataResult doReadShuffleData() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Callable<ShuffleDataResult> prepareNextRead() {
+      if (nextSegment >= segmentNum) {
+        return null;
+      }
+      int segment = nextSegment++;
+      return () -> {
+        maxRunningReads.accumulateAndGet(runningReads.incrementAndGet(), Math::max);
+        try {
+          // finish the reads out of order
+          Thread.sleep(new Random().nextInt(20));
+        } finally {
+          runningReads.decrementAndGet();
+        }
+        List<BufferSegment> segments = new ArrayList<>();
+        segments.add(new BufferSegment(segment, 0, 1, 1, 1, 1));
+        return new ShuffleDataResult(new byte[] {(byte) segment}, segments);
+      };
+    }
+  }
+
+  @Test
+  public void testWithConcurrentPrefetch() {
+    // handlers of other tests may not be closed
+    long usedMemory = PrefetchableClientReadHandler.getPrefetchMemoryUsed();
+    ConcurrentMockedHandler handler =
+        new ConcurrentMockedHandler(
+            Optional.of(new PrefetchableClientReadHandler.PrefetchOption(8, 10, 4, 0L)), 50);
+    for (int i = 0; i < 50; i++) {
+      ShuffleDataResult result = handler.readShuffleData();
+      assertEquals(i, result.getBufferSegments().get(0).getBlockId());
+    }
+    assertNull(handler.readShuffleData());
+    assertTrue(handler.maxRunningReads.get() > 1);
+    handler.close();
+    assertEquals(usedMemory, PrefetchableClientReadHandler.getPrefetchMemoryUsed());
+  }
+
+  @Test
+  public void testWithConcurrentPrefetchAndMemoryBudget() {
+    // handlers of other tests may not be closed
+    long usedMemory = PrefetchableClientReadHandler.getPrefetchMemoryUsed();
+    // the budget only allows one segment in flight for each handler
+    ConcurrentMockedHandler handler1 =
+        new ConcurrentMockedHandler(
+            Optional.of(new PrefetchableClientReadHandler.PrefetchOption(8, 10, 4, 10L)), 20);
+    ConcurrentMockedHandler handler2 =
+        new ConcurrentMockedHandler(
+            Optional.of(new PrefetchableClientReadHandler.PrefetchOption(8, 10, 4, 10L)), 20);
+    for (int i = 0; i < 20; i++) {
+      assertEquals(i, handler1.readShuffleData().getBufferSegments().get(0).getBlockId());
+      assertEquals(i, handler2.readShuffleData().getBufferSegments().get(0).getBlockId());
+      assertTrue(PrefetchableClientReadHandler.getPrefetchMemoryUsed() <= usedMemory + 20);
+    }
+    assertEquals(1, handler1.maxRunningReads.get());
+    assertEquals(1, handler2.maxRunningReads.get());
+    handler1.close();
+    handler2.close();
+    assertEquals(usedMemory, PrefetchableClientReadHandler.getPrefetchMemoryUsed());
+  }
+
   @Test
   public void testWithPrefetchWithEmptyResult() {
     AtomicInteger maxReadLoopNum = new AtomicInteger(10);